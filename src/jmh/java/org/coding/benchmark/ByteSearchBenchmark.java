@@ -0,0 +1,78 @@
+package org.coding.benchmark;
+
+import org.coding.core.BytePatternMatcher;
+import org.coding.core.HorspoolPatternMatcher;
+import org.coding.core.VectorPatternMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the scalar Horspool byte search with the Vector API search of {@link VectorPatternMatcher}
+ * over 16 MB of text in a direct buffer, as it would be memory-mapped, with one occurrence per {@code hitInterval} bytes.
+ * The benchmark reports the time to find every occurrence.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class ByteSearchBenchmark {
+    private static final int SIZE = 16 * 1024 * 1024;
+
+    @Param({"horspool", "vector"})
+    public String matcher;
+
+    @Param({"ERROR code=4711", "timeout", "q"})
+    public String searchString;
+
+    @Param({"65536"})
+    public int hitInterval;
+
+    private BytePatternMatcher patternMatcher;
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setUp() {
+        if ("vector".equals(matcher) && !VectorPatternMatcher.isVectorApiAvailable()) {
+            throw new IllegalStateException("The Vector API is not available in this JVM.");
+        }
+        patternMatcher = "vector".equals(matcher) ? new VectorPatternMatcher(searchString) : new HorspoolPatternMatcher(searchString);
+        buffer = ByteBuffer.allocateDirect(SIZE);
+        Random random = new Random(7);
+        for (int i = 0; i < SIZE; i++) {
+            int r = random.nextInt(40);
+            // lower-case text without the letter q, with spaces and line breaks
+            buffer.put(i, (byte) (r < 6 ? ' ' : r == 6 ? '\n' : "abcdefghijklmnoprstuvwxyz".charAt(r % 25)));
+        }
+        byte[] hit = searchString.getBytes();
+        for (int i = hitInterval / 2; i + hit.length < SIZE; i += hitInterval) {
+            buffer.put(i, hit);
+        }
+    }
+
+    @Benchmark
+    public int findAll() {
+        int found = 0;
+        int from = 0;
+        int index;
+        while ((index = patternMatcher.indexIn(buffer, from, SIZE)) >= 0) {
+            found++;
+            from = index + 1;
+        }
+        return found;
+    }
+}
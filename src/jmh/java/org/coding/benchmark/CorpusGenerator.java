@@ -0,0 +1,170 @@
+package org.coding.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Generates a synthetic, reproducible text corpus for the benchmarks.
+ *
+ * Lines are made of random lower-case words separated by spaces. {@code unicodeMix} is the share of characters that
+ * are replaced by non-ASCII ones (Latin-1 accents, Cyrillic, CJK and emoji, so 2, 3 and 4 byte UTF-8 sequences),
+ * and {@code hitRate} is the share of lines that contain the search string at a random position.
+ * Files are all about the same size, unless {@code sizeSkew} makes a few of them much larger than the others.
+ * The same settings and seed always give the same corpus.
+ */
+public final class CorpusGenerator {
+    private static final String[] NON_ASCII = {"é", "ü", "ß", "ñ", "ж", "щ", "日", "語", "€", "😀"};
+
+    private String searchString = "ERROR code=4711";
+    private int fileCount = 100;
+    private long fileSize = 64 * 1024;
+    private int lineLength = 80;
+    private double hitRate = 0.001;
+    private double unicodeMix = 0;
+    private double sizeSkew = 0;
+    private long seed = 7;
+
+    public CorpusGenerator setSearchString(String searchString) {
+        this.searchString = searchString;
+        return this;
+    }
+
+    public CorpusGenerator setFileCount(int fileCount) {
+        this.fileCount = fileCount;
+        return this;
+    }
+
+    /**
+     * @param fileSize approximate size of every file in bytes; files end after the line that reaches it
+     */
+    public CorpusGenerator setFileSize(long fileSize) {
+        this.fileSize = fileSize;
+        return this;
+    }
+
+    /**
+     * @param lineLength number of characters in a line, not counting the line break
+     */
+    public CorpusGenerator setLineLength(int lineLength) {
+        this.lineLength = lineLength;
+        return this;
+    }
+
+    /**
+     * @param hitRate share of lines, between 0 and 1, that contain the search string
+     */
+    public CorpusGenerator setHitRate(double hitRate) {
+        this.hitRate = hitRate;
+        return this;
+    }
+
+    /**
+     * @param unicodeMix share of characters, between 0 and 1, that are not ASCII
+     */
+    public CorpusGenerator setUnicodeMix(double unicodeMix) {
+        this.unicodeMix = unicodeMix;
+        return this;
+    }
+
+    /**
+     * @param sizeSkew {@code 0} for files of the same size, or the shape, above 1, of a Pareto distribution of file
+     *                 sizes with a mean of {@code fileSize}: the closer to 1, the more the bytes are concentrated
+     *                 in a few large files
+     */
+    public CorpusGenerator setSizeSkew(double sizeSkew) {
+        this.sizeSkew = sizeSkew;
+        return this;
+    }
+
+    public CorpusGenerator setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Generates {@code count} lines in memory.
+     */
+    public String[] lines(int count) {
+        Random random = new Random(seed);
+        String[] lines = new String[count];
+        for (int i = 0; i < count; i++) {
+            lines[i] = nextLine(random);
+        }
+        return lines;
+    }
+
+    /**
+     * Writes {@code fileCount} files of about {@code fileSize} bytes each, or that many on average if the sizes are
+     * skewed, under {@code root}, spread over up to 64 subdirectories, and returns the number of bytes written.
+     */
+    public long writeTo(Path root) throws IOException {
+        Random random = new Random(seed);
+        // a separate generator, so that the lines do not depend on the skew
+        Random sizes = new Random(seed);
+        long total = 0;
+        for (int i = 0; i < fileCount; i++) {
+            Path directory = root.resolve("dir" + (i % 64));
+            Files.createDirectories(directory);
+            long targetSize = nextFileSize(sizes);
+            try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve("file" + i + ".txt"), StandardCharsets.UTF_8)) {
+                long size = 0;
+                while (size < targetSize) {
+                    String line = nextLine(random);
+                    writer.write(line);
+                    writer.newLine();
+                    size += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                }
+                total += size;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Deletes a corpus written by {@link #writeTo(Path)}, including {@code root}.
+     */
+    public static void delete(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private long nextFileSize(Random random) {
+        if (sizeSkew <= 1) {
+            return fileSize;
+        }
+        double minimum = fileSize * (sizeSkew - 1) / sizeSkew;
+        return (long) (minimum / Math.pow(1 - random.nextDouble(), 1 / sizeSkew));
+    }
+
+    private String nextLine(Random random) {
+        StringBuilder line = new StringBuilder(lineLength + 2);
+        int length = 0;
+        while (length < lineLength) {
+            if (random.nextInt(6) == 0 && length > 0) {
+                line.append(' ');
+            } else if (unicodeMix > 0 && random.nextDouble() < unicodeMix) {
+                line.append(NON_ASCII[random.nextInt(NON_ASCII.length)]);
+            } else {
+                line.append((char) ('a' + random.nextInt(26)));
+            }
+            length++;
+        }
+        if (hitRate > 0 && random.nextDouble() < hitRate) {
+            int at = random.nextInt(Math.max(1, lineLength - searchString.length()));
+            // replace whole code points, so that no surrogate pair is split
+            int start = line.offsetByCodePoints(0, Math.min(at, line.codePointCount(0, line.length())));
+            int end = line.offsetByCodePoints(start, Math.min(searchString.length(), line.codePointCount(start, line.length())));
+            line.replace(start, end, searchString);
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,111 @@
+package org.coding.benchmark;
+
+import org.coding.core.ConcurrentFileProcessor;
+import org.coding.service.ExecutionMode;
+import org.coding.service.GrepService;
+import org.coding.service.SearchOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link ExecutionMode}s of {@link GrepService} on three corpora:
+ * <ul>
+ *     <li>{@code warm-cache}: a few hundred medium-sized files that stay in the page cache between searches,</li>
+ *     <li>{@code cold-cache}: the same files, with {@code dropCachesCommand} run before every search,</li>
+ *     <li>{@code many-tiny-files}: tens of thousands of files of a few lines each.</li>
+ * </ul>
+ * Dropping the page cache needs root, for example
+ * {@code sudo mvn -Pbenchmark test-compile exec:exec -Djmh.args="ExecutorBenchmark -p corpus=cold-cache"}.
+ * Virtual threads are only benchmarked on a Java 21 runtime.
+ * With {@code adaptive}, the number of files read at the same time is tuned per file system, up to {@code threads},
+ * instead of being {@code threads}; compare it with a fixed pool of about the core count as well, for example
+ * {@code -Djmh.args="ExecutorBenchmark -p executor=fixed -p threads=4,100"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutorBenchmark {
+    private static final String SEARCH_STRING = "ERROR code=4711";
+    private static final double HIT_RATE = 0.001;
+
+    @Param({"fixed", "virtual", "work-stealing"})
+    public String executor;
+
+    @Param({"warm-cache", "cold-cache", "many-tiny-files"})
+    public String corpus;
+
+    @Param({"100"})
+    public int threads;
+
+    @Param({"false", "true"})
+    public boolean adaptive;
+
+    @Param({"sync; echo 3 > /proc/sys/vm/drop_caches"})
+    public String dropCachesCommand;
+
+    private Path root;
+    private GrepService grepService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ExecutionMode mode = ExecutionMode.fromName(executor);
+        if (!mode.isSupported()) {
+            throw new IllegalStateException("Execution mode " + executor + " needs a newer Java runtime.");
+        }
+        root = Files.createTempDirectory("executor-benchmark");
+        CorpusGenerator generator = new CorpusGenerator().setSearchString(SEARCH_STRING).setHitRate(HIT_RATE);
+        if ("many-tiny-files".equals(corpus)) {
+            generator.setFileCount(20_000).setFileSize(8 * 81);
+        } else {
+            generator.setFileCount(256).setFileSize(20_000 * 81);
+        }
+        generator.writeTo(root);
+        grepService = new GrepService(root.toString(), List.of(SEARCH_STRING), new SearchOptions()
+                .setThreadPoolSize(threads)
+                .setFileProcessor(new ConcurrentFileProcessor())
+                .setExecutionMode(mode)
+                .setAdaptiveConcurrency(adaptive));
+    }
+
+    @Setup(Level.Invocation)
+    public void dropCaches() throws IOException, InterruptedException {
+        if (!"cold-cache".equals(corpus)) {
+            return;
+        }
+        Process process = new ProcessBuilder("sh", "-c", dropCachesCommand).inheritIO().start();
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("Could not drop the page cache with: " + dropCachesCommand);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        CorpusGenerator.delete(root);
+    }
+
+    @Benchmark
+    public long search(Blackhole blackhole) {
+        return grepService.search(blackhole::consume);
+    }
+}
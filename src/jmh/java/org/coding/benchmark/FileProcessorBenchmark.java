@@ -0,0 +1,96 @@
+package org.coding.benchmark;
+
+import org.coding.core.ConcurrentFileProcessor;
+import org.coding.core.FileProcessor;
+import org.coding.core.HorspoolPatternMatcher;
+import org.coding.core.MappedFileProcessor;
+import org.coding.core.PatternMatcher;
+import org.coding.core.SequentialFileProcessor;
+import org.coding.model.SearchResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link FileProcessor}s on a single file from a {@link CorpusGenerator}.
+ * The default sizes are below and above the 64 MB threshold from which a {@link ConcurrentFileProcessor}
+ * splits a file across threads; the file stays in the page cache between searches.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileProcessorBenchmark {
+
+    @Param({"sequential", "mapped", "concurrent"})
+    public String processor;
+
+    @Param({"1048576", "134217728"})
+    public long fileSize;
+
+    @Param({"80"})
+    public int lineLength;
+
+    @Param({"0.001"})
+    public double hitRate;
+
+    @Param({"0", "0.1"})
+    public double unicodeMix;
+
+    @Param({"ERROR code=4711"})
+    public String searchString;
+
+    private Path root;
+    private Path file;
+    private FileProcessor fileProcessor;
+    private PatternMatcher patternMatcher;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fileProcessor = switch (processor) {
+            case "sequential" -> new SequentialFileProcessor();
+            case "mapped" -> new MappedFileProcessor();
+            case "concurrent" -> new ConcurrentFileProcessor();
+            default -> throw new IllegalArgumentException("Unknown file processor: " + processor);
+        };
+        patternMatcher = new HorspoolPatternMatcher(searchString);
+        root = Files.createTempDirectory("file-processor-benchmark");
+        new CorpusGenerator()
+                .setSearchString(searchString)
+                .setFileCount(1)
+                .setFileSize(fileSize)
+                .setLineLength(lineLength)
+                .setHitRate(hitRate)
+                .setUnicodeMix(unicodeMix)
+                .writeTo(root);
+        file = root.resolve("dir0").resolve("file0.txt");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        CorpusGenerator.delete(root);
+    }
+
+    @Benchmark
+    public List<SearchResult> processFile() {
+        return fileProcessor.processFile(file, patternMatcher);
+    }
+}
@@ -0,0 +1,81 @@
+package org.coding.benchmark;
+
+import org.coding.core.AhoCorasickPatternMatcher;
+import org.coding.core.HorspoolPatternMatcher;
+import org.coding.core.PatternMatcher;
+import org.coding.core.RegexPatternMatcher;
+import org.coding.core.StringPatternMatcher;
+import org.coding.core.VectorPatternMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link PatternMatcher#match(String)} implementations on lines from a {@link CorpusGenerator},
+ * by line length, share of lines that contain the search string and share of non-ASCII characters.
+ * {@code regex} compiles the search string as a regular expression, so it runs the required-literal prefilter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class PatternMatcherBenchmark {
+    private static final int LINES = 1024;
+
+    @Param({"string", "horspool", "vector", "aho-corasick", "regex"})
+    public String matcher;
+
+    @Param({"80", "4096"})
+    public int lineLength;
+
+    @Param({"ERROR code=4711"})
+    public String searchString;
+
+    @Param({"0.015625"})
+    public double hitRate;
+
+    @Param({"0", "0.1"})
+    public double unicodeMix;
+
+    private PatternMatcher patternMatcher;
+    private String[] lines;
+
+    @Setup
+    public void setUp() {
+        patternMatcher = switch (matcher) {
+            case "string" -> new StringPatternMatcher(searchString);
+            case "horspool" -> new HorspoolPatternMatcher(searchString);
+            case "vector" -> new VectorPatternMatcher(searchString);
+            case "aho-corasick" -> new AhoCorasickPatternMatcher(List.of(searchString));
+            case "regex" -> RegexPatternMatcher.compile(searchString);
+            default -> throw new IllegalArgumentException("Unknown matcher: " + matcher);
+        };
+        lines = new CorpusGenerator()
+                .setSearchString(searchString)
+                .setLineLength(lineLength)
+                .setHitRate(hitRate)
+                .setUnicodeMix(unicodeMix)
+                .lines(LINES);
+    }
+
+    @Benchmark
+    public void match(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(patternMatcher.match(line));
+        }
+    }
+}
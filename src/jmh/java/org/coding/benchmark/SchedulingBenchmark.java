@@ -0,0 +1,79 @@
+package org.coding.benchmark;
+
+import org.coding.service.GrepService;
+import org.coding.service.SearchOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares size-aware scheduling, which batches small files and starts large files first, with one task per file
+ * in walk order, on corpora of many tiny files and of skewed file sizes. Samples the time of whole searches,
+ * so that the percentiles show how much a large file started late drags out a search.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 4)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class SchedulingBenchmark {
+
+    @Param({"walk-order", "size-aware"})
+    public String scheduling;
+
+    /**
+     * {@code tiny}: 50,000 files of 1 KB; {@code skewed}: 5,000 files of 16 KB on average, with Pareto distributed sizes.
+     */
+    @Param({"tiny", "skewed"})
+    public String corpus;
+
+    @Param({"4"})
+    public int threads;
+
+    private Path root;
+    private GrepService grepService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("scheduling-benchmark");
+        CorpusGenerator generator = new CorpusGenerator().setHitRate(0.001);
+        if (corpus.equals("tiny")) {
+            generator.setFileCount(50_000).setFileSize(1024);
+        } else {
+            generator.setFileCount(5_000).setFileSize(16 * 1024).setSizeSkew(1.1);
+        }
+        generator.writeTo(root);
+        SearchOptions options = new SearchOptions()
+                .setThreadPoolSize(threads)
+                .setSizeAwareScheduling(scheduling.equals("size-aware"));
+        grepService = new GrepService(root.toString(), List.of("ERROR code=4711"), options);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        CorpusGenerator.delete(root);
+    }
+
+    @Benchmark
+    public long search(Blackhole blackhole) {
+        return grepService.search(blackhole::consume);
+    }
+}
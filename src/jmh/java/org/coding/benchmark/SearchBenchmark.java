@@ -0,0 +1,86 @@
+package org.coding.benchmark;
+
+import org.coding.service.GrepService;
+import org.coding.service.SearchOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures an end-to-end {@link GrepService#search} over a corpus from a {@link CorpusGenerator}
+ * for several thread pool sizes. The corpus stays in the page cache between searches;
+ * see {@link ExecutorBenchmark} for cold-cache runs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    @Param({"1", "4", "16", "100"})
+    public int threads;
+
+    @Param({"1000"})
+    public int fileCount;
+
+    @Param({"65536"})
+    public long fileSize;
+
+    @Param({"80"})
+    public int lineLength;
+
+    @Param({"0.001"})
+    public double hitRate;
+
+    @Param({"0"})
+    public double unicodeMix;
+
+    @Param({"ERROR code=4711"})
+    public String searchString;
+
+    private Path root;
+    private GrepService grepService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("search-benchmark");
+        new CorpusGenerator()
+                .setSearchString(searchString)
+                .setFileCount(fileCount)
+                .setFileSize(fileSize)
+                .setLineLength(lineLength)
+                .setHitRate(hitRate)
+                .setUnicodeMix(unicodeMix)
+                .writeTo(root);
+        grepService = new GrepService(root.toString(), List.of(searchString), new SearchOptions().setThreadPoolSize(threads));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        CorpusGenerator.delete(root);
+    }
+
+    @Benchmark
+    public long search(Blackhole blackhole) {
+        return grepService.search(blackhole::consume);
+    }
+}
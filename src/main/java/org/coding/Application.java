@@ -1,54 +1,312 @@
 package org.coding;
 
+import org.coding.core.CompressedFileProcessor;
+import org.coding.core.CountMode;
+import org.coding.index.TrigramIndex;
+import org.coding.index.TrigramIndexWriter;
 import org.coding.service.GrepService;
+import org.coding.model.ResultFormatter;
+import org.coding.model.SearchResult;
+import org.coding.service.SearchOptions;
+import org.coding.stats.SearchStatistics;
 
-import java.util.List;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
+/**
+ * The command line tool. A command line is run in this JVM, or by a {@link SearchServer} for a {@link SearchClient},
+ * in which case it prints to the client and paths are relative to the working directory of the client.
+ */
 public class Application {
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    private final PrintStream out;
+    private final PrintStream err;
+    private final Path workingDirectory;
+    private final SearchServer server;
+
+    /**
+     * @param workingDirectory the directory relative paths of the command line are resolved against
+     * @param server           the server the command line is run by, or {@code null} if it is run in its own JVM
+     */
+    Application(PrintStream out, PrintStream err, Path workingDirectory, SearchServer server) {
+        this.out = out;
+        this.err = err;
+        this.workingDirectory = workingDirectory;
+        this.server = server;
+    }
+
     public static void main(String[] args) {
-        if (args.length == 1 && (
-                        "--help".equals(args[0]) ||
-                        "-help".equals(args[0]) ||
-                        "-h".equals(args[0])
-        )) {
+        // results are written in large blocks instead of flushing every line
+        PrintStream out = new PrintStream(new BufferedOutputStream(System.out, OUTPUT_BUFFER_SIZE), false);
+        int status = new Application(out, System.err, Path.of(""), null).run(args);
+        out.flush();
+        System.exit(status);
+    }
+
+    /**
+     * Runs a command line.
+     *
+     * @return the exit status
+     */
+    int run(String[] args) {
+        CommandLineOptions options;
+        try {
+            options = CommandLineOptions.parse(args, workingDirectory);
+        } catch (IllegalArgumentException e) {
+            err.println("Error: " + e.getMessage());
             printToolUsage();
-            System.exit(0);
+            return 1;
         }
 
-        if (args.length < 2) {
+        if (options.isHelp()) {
             printToolUsage();
-            System.exit(1);
-        } else {
-            String rootDir = args[0];
-            String pattern = args[1];
-            try {
-                GrepService grepService = new GrepService(rootDir, pattern);
-                List<String> results = grepService.search();
-                if (results.isEmpty()) {
-                    System.out.println("No matches found for pattern: " + pattern);
+            return 0;
+        }
+
+        if (options.getServeAddress() != null) {
+            return serve(options);
+        }
+
+        if (server != null && (options.getBuildIndexDirectory() != null || options.getStatsJsonFile() != null)) {
+            err.println("Error: A search server cannot write files for a client.");
+            return 1;
+        }
+
+        if (options.getBuildIndexDirectory() != null) {
+            return buildIndex(options);
+        }
+
+        if (options.isWatch() && server != null) {
+            err.println("Error: A search server cannot watch directories for a client.");
+            return 1;
+        }
+
+        String pattern = String.join(", ", options.getPatterns());
+        try {
+            SearchOptions searchOptions = new SearchOptions()
+                    .setThreadPoolSize(options.getThreads())
+                    .setRegex(options.isRegex())
+                    .setExecutionMode(options.getExecutionMode())
+                    .setAdaptiveConcurrency(options.isAdaptive())
+                    .setOrderedOutput(!options.isUnordered())
+                    .setIncludeGlobs(options.getIncludeGlobs())
+                    .setExcludeGlobs(options.getExcludeGlobs())
+                    .setIgnoreFiles(options.isIgnoreFiles())
+                    .setMaxMatchesPerFile(options.isFilesWithMatches() ? 1 : options.getMaxCount());
+            if (!options.isFilesWithMatches() && !options.isQuiet() && options.getCountMode() == null) {
+                searchOptions.setLinesBefore(options.getLinesBefore())
+                        .setLinesAfter(options.getLinesAfter());
+            }
+            if (server != null) {
+                server.configure(searchOptions);
+            }
+            if (options.isQuiet()) {
+                // the first match found anywhere decides the exit status, so it need not wait for earlier files
+                searchOptions.setMaxMatches(1).setOrderedOutput(false);
+            }
+            if (options.getIndexDirectory() != null) {
+                searchOptions.setIndex(TrigramIndex.open(resolve(options.getIndexDirectory())));
+            }
+            GrepService grepService = new GrepService(resolve(options.getRootDirectory()).toString(), options.getPatterns(), searchOptions);
+            if (options.isQuiet()) {
+                long found = grepService.search(result -> { });
+                reportStatistics(options, searchOptions.getStatistics());
+                return found > 0 ? 0 : 1;
+            }
+            UnaryOperator<Path> shownPath = shownPath(options.getRootDirectory());
+            if (options.getCountMode() != null) {
+                long total = grepService.count(options.getCountMode(),
+                        (file, count) -> out.println(shownPath.apply(file) + ":" + count));
+                if (total == 0) {
+                    out.println("No matches found for pattern: " + pattern);
                 } else {
-                    System.out.println("Found match(es) in : " + results.size()+" lines");
-                    results.forEach(System.out::println);
+                    out.println("Found match(es) in : " + total
+                            + (options.getCountMode() == CountMode.LINES ? " lines" : " occurrences"));
                 }
-            } catch (Exception e) {
-                System.err.println("Error: " + e.getMessage());
-                System.exit(1);
+                reportStatistics(options, searchOptions.getStatistics());
+                return 0;
+            }
+            Consumer<SearchResult> sink;
+            if (options.isFilesWithMatches()) {
+                sink = result -> out.println(shownPath.apply(result.getFilePath()));
+            } else if (searchOptions.getLinesBefore() > 0 || searchOptions.getLinesAfter() > 0) {
+                ResultFormatter formatter = new ResultFormatter(shownPath);
+                sink = result -> out.println(formatter.format(result));
+            } else {
+                sink = result -> out.println(shownPath.apply(result.getFilePath()) + ":" + result.getLineNumber() + ":" + result.getLineContent());
             }
+            if (options.isWatch()) {
+                // runs until the process is stopped; what was found is flushed whenever the search is idle
+                grepService.watch(sink, out::flush);
+                return 0;
+            }
+            long matches = grepService.search(sink);
+            if (matches == 0) {
+                out.println("No matches found for pattern: " + pattern);
+            } else {
+                out.println("Found match(es) in : " + matches + (options.isFilesWithMatches() ? " files" : " lines"));
+            }
+            reportStatistics(options, searchOptions.getStatistics());
+            return 0;
+        } catch (Exception e) {
+            err.println("Error: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Serves searches until the process is stopped.
+     */
+    private int serve(CommandLineOptions options) {
+        if (server != null) {
+            err.println("Error: A search server cannot start another one.");
+            return 1;
+        }
+        SearchServer searchServer;
+        try {
+            searchServer = new SearchServer(options.getServeAddress(), System.getenv(SearchProtocol.SECRET_VARIABLE),
+                    options.getExecutionMode(), options.getThreads());
+        } catch (Exception e) {
+            err.println("Error: " + e.getMessage());
+            return 1;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                searchServer.close();
+            } catch (IOException e) {
+                // the process is going away anyway
+            }
+        }));
+        try (searchServer) {
+            out.println("Serving searches on " + searchServer.getAddress());
+            out.flush();
+            searchServer.run();
+            return 0;
+        } catch (Exception e) {
+            err.println("Error: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Prints the statistics summary to standard error and writes the JSON file, if the options ask for them.
+     */
+    private void reportStatistics(CommandLineOptions options, SearchStatistics statistics) throws IOException {
+        if (server != null) {
+            server.record(statistics);
+        }
+        if (options.isStats()) {
+            err.println(statistics.toSummary());
+        }
+        if (options.getStatsJsonFile() != null) {
+            Files.writeString(resolve(options.getStatsJsonFile()), statistics.toJson() + System.lineSeparator(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private int buildIndex(CommandLineOptions options) {
+        Path rootDirectory = resolve(options.getRootDirectory());
+        if (!Files.isDirectory(rootDirectory)) {
+            err.println("Error: '" + options.getRootDirectory() + "' is not a directory.");
+            return 1;
+        }
+        try {
+            // the files a search with the same globs walks; compressed ones are left out, so searches always read them
+            SearchOptions searchOptions = new SearchOptions()
+                    .setIncludeGlobs(options.getIncludeGlobs())
+                    .setExcludeGlobs(options.getExcludeGlobs())
+                    .setIgnoreFiles(options.isIgnoreFiles());
+            TrigramIndexWriter writer = new TrigramIndexWriter(rootDirectory, resolve(options.getBuildIndexDirectory()),
+                    () -> GrepService.listFiles(rootDirectory.toString(), searchOptions).stream()
+                            .filter(file -> !CompressedFileProcessor.isCompressed(file))
+                            .toList());
+            int indexed = writer.update();
+            out.println("Indexed " + indexed + " new or changed file(s); the index in "
+                    + options.getBuildIndexDirectory() + " covers " + writer.getFileCount() + " file(s).");
+            return 0;
+        } catch (Exception e) {
+            err.println("Error: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    private Path resolve(String path) {
+        return workingDirectory.resolve(path);
+    }
+
+    /**
+     * Returns how the path of a file found under the root directory is printed: starting with the root directory
+     * as it was given, also when it was resolved against the working directory of a client.
+     */
+    private UnaryOperator<Path> shownPath(String rootDirectory) {
+        Path root = resolve(rootDirectory);
+        if (root.toString().equals(rootDirectory)) {
+            return UnaryOperator.identity();
         }
+        Path given = Path.of(rootDirectory);
+        return path -> given.resolve(root.relativize(path));
     }
 
-    private static void printToolUsage() {
-        System.out.println("Multithreaded Grep - Recursive File Search Tool");
-        System.out.println("Usage: ./bin/multithreaded-grep <root_directory> <search_pattern>");
-        System.out.println("  - Case-insensitive by default");
-        System.out.println();
-        System.out.println("Arguments:");
-        System.out.println("  root_directory   The directory to search recursively");
-        System.out.println("  search_pattern   The text pattern to search for");
-        System.out.println();
-        System.out.println("Examples:");
-        System.out.println("  ./bin/multithreaded-grep /path/to/search \"hello world\"");
-        System.out.println();
-        System.out.println("Need help? Usage: ./bin/multithreaded-grep -h | --help");
+    private void printToolUsage() {
+        out.println("Multithreaded Grep - Recursive File Search Tool");
+        out.println("Usage: ./bin/multithreaded-grep [options] <root_directory> <search_pattern>");
+        out.println("       ./bin/multithreaded-grep [options] -e <pattern> [-e <pattern>...] <root_directory>");
+        out.println("       ./bin/multithreaded-grep --build-index <index_directory> <root_directory>");
+        out.println("  - Case-insensitive by default");
+        out.println();
+        out.println("Arguments:");
+        out.println("  root_directory   The directory to search recursively");
+        out.println("  search_pattern   The text pattern to search for");
+        out.println();
+        out.println("Options:");
+        out.println("  -E, --regex                 Treat patterns as regular expressions (java.util.regex syntax)");
+        out.println("  -e, --pattern <pattern>     Search for this pattern; repeat to search for several at once");
+        out.println("  -f, --pattern-file <file>   Search for every pattern in the file, one per line");
+        out.println("  -l, --files-with-matches    Only print the names of files with a match, reading each up to its first match");
+        out.println("  -m, --max-count <n>         Stop reading a file after <n> matching lines");
+        out.println("  -q, --quiet                 Print nothing, stop at the first match; exit status 0 if found, 1 if not");
+        out.println("  -c, --count                 Only print the number of matching lines of each file with a match");
+        out.println("      --count-occurrences     Only print the number of occurrences of the patterns in each file");
+        out.println("  -A, --after-context <n>     Print <n> lines after each matching line");
+        out.println("  -B, --before-context <n>    Print <n> lines before each matching line");
+        out.println("  -C, --context <n>           Print <n> lines before and after each matching line");
+        out.println("      --unordered             Print the results of each file as soon as it is searched, not in walk order");
+        out.println("      --include <glob>        Search files matching <glob> instead of .txt files; repeat for several");
+        out.println("      --exclude <glob>        Skip files and whole directories matching <glob>; repeat for several");
+        out.println("      --gitignore             Skip what .gitignore and .ignore files ignore, and .git directories");
+        out.println("      --watch                 After the search, keep searching the lines appended to the files");
+        out.println("      --executor <mode>       How files are searched: fixed (default), virtual (Java 21+)");
+        out.println("                              or work-stealing (one thread per core)");
+        out.println("  -t, --threads <n>           Threads for fixed, files in flight for virtual (default: 100)");
+        out.println("      --adaptive              Tune how many files are read at once per file system, up to -t");
+        out.println("      --index <dir>           Only search files that the trigram index in <dir> says may match");
+        out.println("      --build-index <dir>     Build or update the trigram index of root_directory in <dir>");
+        out.println("      --stats                 Print where the search spent its time to standard error");
+        out.println("      --stats-json <file>     Write the search statistics to <file> as JSON");
+        out.println("      --serve <socket|port>   Serve searches from this JVM on a Unix domain socket or a localhost port;");
+        out.println("                              with MULTITHREADED_GREP_SERVER set, the launcher sends searches there");
+        out.println("                              a port also needs a shared secret in MULTITHREADED_GREP_SECRET");
+        out.println();
+        out.println("Examples:");
+        out.println("  ./bin/multithreaded-grep /path/to/search \"hello world\"");
+        out.println("  ./bin/multithreaded-grep -e ERR-1001 -e ERR-2002 /var/log/archive");
+        out.println("  ./bin/multithreaded-grep -E /path/to/search \"user=\\d+ denied\"");
+        out.println("  ./bin/multithreaded-grep -C 2 /var/log/archive ERR-1001");
+        out.println("  ./bin/multithreaded-grep --count-occurrences /var/log/archive ERR-1001");
+        out.println("  ./bin/multithreaded-grep --watch --include '*.log' /var/log/app ERROR");
+        out.println("  ./bin/multithreaded-grep --gitignore --include '*.java' --exclude build ~/src \"TODO\"");
+        out.println("  ./bin/multithreaded-grep --executor work-stealing /path/to/search \"hello world\"");
+        out.println("  ./bin/multithreaded-grep --build-index /var/index /var/log/archive");
+        out.println("  ./bin/multithreaded-grep --index /var/index /var/log/archive ERR-1001");
+        out.println("  ./bin/multithreaded-grep --serve /tmp/mgrep.sock");
+        out.println("  MULTITHREADED_GREP_SERVER=/tmp/mgrep.sock ./bin/multithreaded-grep /path/to/search \"hello world\"");
+        out.println();
+        out.println("Need help? Usage: ./bin/multithreaded-grep -h | --help");
     }
-}
\ No newline at end of file
+}
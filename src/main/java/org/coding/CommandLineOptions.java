@@ -0,0 +1,326 @@
+package org.coding;
+
+import org.coding.core.CountMode;
+import org.coding.service.ExecutionMode;
+import org.coding.service.GrepService;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses the command line arguments of the tool.
+ * Arguments are {@code [options] <root_directory> [search_pattern]}; the search pattern may be left out
+ * if patterns are given with {@code -e} or {@code -f}. Everything after {@code --} is treated as positional.
+ * With {@code --build-index <index_directory>}, only the root directory is expected,
+ * and with {@code --serve <address>}, nothing else is.
+ * Throws {@link IllegalArgumentException} with a message for the user if the arguments are invalid.
+ */
+final class CommandLineOptions {
+    private boolean help;
+    private boolean regex;
+    private ExecutionMode executionMode = ExecutionMode.FIXED;
+    private int threads = GrepService.DEFAULT_THREAD_POOL_SIZE;
+    private String indexDirectory;
+    private boolean filesWithMatches;
+    private boolean quiet;
+    private CountMode countMode;
+    private boolean unordered;
+    private boolean adaptive;
+    private boolean watch;
+    private int maxCount = Integer.MAX_VALUE;
+    private int linesBefore;
+    private int linesAfter;
+    private String buildIndexDirectory;
+    private boolean stats;
+    private String statsJsonFile;
+    private String serveAddress;
+    private String rootDirectory;
+    private final List<String> patterns = new ArrayList<>();
+    private final List<String> includeGlobs = new ArrayList<>();
+    private final List<String> excludeGlobs = new ArrayList<>();
+    private boolean ignoreFiles;
+
+    private CommandLineOptions() {
+    }
+
+    static CommandLineOptions parse(String[] args) {
+        return parse(args, Path.of(""));
+    }
+
+    /**
+     * Parses the arguments of a client of a {@link SearchServer}, reading a pattern file relative to
+     * the working directory of the client.
+     */
+    static CommandLineOptions parse(String[] args, Path workingDirectory) {
+        CommandLineOptions options = new CommandLineOptions();
+        List<String> positional = new ArrayList<>();
+        boolean optionsEnded = false;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (optionsEnded || !arg.startsWith("-") || arg.length() == 1) {
+                positional.add(arg);
+                continue;
+            }
+            switch (arg) {
+                case "-h", "-help", "--help" -> options.help = true;
+                case "-E", "--regex" -> options.regex = true;
+                case "-e", "--pattern" -> options.patterns.add(value(args, ++i, arg));
+                case "-f", "--pattern-file" -> options.patterns.addAll(readPatternFile(workingDirectory, value(args, ++i, arg)));
+                case "--executor" -> options.executionMode = ExecutionMode.fromName(value(args, ++i, arg));
+                case "-t", "--threads" -> options.threads = positiveNumber(value(args, ++i, arg), arg);
+                case "--adaptive" -> options.adaptive = true;
+                case "-l", "--files-with-matches" -> options.filesWithMatches = true;
+                case "-m", "--max-count" -> options.maxCount = positiveNumber(value(args, ++i, arg), arg);
+                case "-q", "--quiet" -> options.quiet = true;
+                case "-c", "--count" -> options.countMode = CountMode.LINES;
+                case "--count-occurrences" -> options.countMode = CountMode.OCCURRENCES;
+                case "--unordered" -> options.unordered = true;
+                case "--watch" -> options.watch = true;
+                case "--include" -> options.includeGlobs.add(value(args, ++i, arg));
+                case "--exclude" -> options.excludeGlobs.add(value(args, ++i, arg));
+                case "--gitignore" -> options.ignoreFiles = true;
+                case "-A", "--after-context" -> options.linesAfter = nonNegativeNumber(value(args, ++i, arg), arg);
+                case "-B", "--before-context" -> options.linesBefore = nonNegativeNumber(value(args, ++i, arg), arg);
+                case "-C", "--context" -> {
+                    options.linesBefore = nonNegativeNumber(value(args, ++i, arg), arg);
+                    options.linesAfter = options.linesBefore;
+                }
+                case "--index" -> options.indexDirectory = value(args, ++i, arg);
+                case "--build-index" -> options.buildIndexDirectory = value(args, ++i, arg);
+                case "--stats" -> options.stats = true;
+                case "--stats-json" -> options.statsJsonFile = value(args, ++i, arg);
+                case "--serve" -> options.serveAddress = value(args, ++i, arg);
+                case "--" -> optionsEnded = true;
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (options.help) {
+            return options;
+        }
+        if (options.countMode != null && options.filesWithMatches) {
+            throw new IllegalArgumentException("Counting cannot be combined with -l.");
+        }
+        if (options.watch && (options.filesWithMatches || options.quiet || options.countMode != null
+                || options.maxCount != Integer.MAX_VALUE || options.linesBefore > 0 || options.linesAfter > 0
+                || options.indexDirectory != null)) {
+            throw new IllegalArgumentException("Watching cannot be combined with -l, -q, -c, -m, context lines or --index.");
+        }
+        if (options.serveAddress != null) {
+            if (!positional.isEmpty() || !options.patterns.isEmpty() || options.buildIndexDirectory != null) {
+                throw new IllegalArgumentException("Expected no root directory or patterns to start a server.");
+            }
+            return options;
+        }
+        if (options.buildIndexDirectory != null) {
+            if (positional.size() != 1 || !options.patterns.isEmpty()) {
+                throw new IllegalArgumentException("Expected a root directory only to build an index.");
+            }
+            options.rootDirectory = positional.get(0);
+            return options;
+        }
+
+        int expected = options.patterns.isEmpty() ? 2 : 1;
+        if (positional.size() != expected) {
+            throw new IllegalArgumentException(options.patterns.isEmpty()
+                    ? "Expected a root directory and a search pattern."
+                    : "Expected a root directory only, patterns were given with -e or -f.");
+        }
+        options.rootDirectory = positional.get(0);
+        if (expected == 2) {
+            options.patterns.add(positional.get(1));
+        }
+        return options;
+    }
+
+    boolean isHelp() {
+        return help;
+    }
+
+    boolean isRegex() {
+        return regex;
+    }
+
+    ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return whether only the names of matching files are printed
+     */
+    boolean isFilesWithMatches() {
+        return filesWithMatches;
+    }
+
+    /**
+     * @return whether nothing is printed and the search stops at the first match
+     */
+    boolean isQuiet() {
+        return quiet;
+    }
+
+    /**
+     * @return what is counted and printed per file instead of the matching lines, or {@code null} to print them
+     */
+    CountMode getCountMode() {
+        return countMode;
+    }
+
+    /**
+     * @return whether the results of each file are printed as soon as it has been searched, rather than in the order
+     * the files are found
+     */
+    boolean isUnordered() {
+        return unordered;
+    }
+
+    /**
+     * @return the number of matching lines after which a file is not read any further
+     */
+    int getMaxCount() {
+        return maxCount;
+    }
+
+    /**
+     * @return the number of context lines printed before each matching line
+     */
+    int getLinesBefore() {
+        return linesBefore;
+    }
+
+    /**
+     * @return the number of context lines printed after each matching line
+     */
+    int getLinesAfter() {
+        return linesAfter;
+    }
+
+    /**
+     * @return the directory of the trigram index to search with, or {@code null}
+     */
+    String getIndexDirectory() {
+        return indexDirectory;
+    }
+
+    /**
+     * @return the directory to build or update a trigram index in instead of searching, or {@code null}
+     */
+    String getBuildIndexDirectory() {
+        return buildIndexDirectory;
+    }
+
+    /**
+     * @return whether a summary of the search statistics is printed to standard error after the search
+     */
+    boolean isStats() {
+        return stats;
+    }
+
+    /**
+     * @return the file to write the search statistics to as JSON after the search, or {@code null}
+     */
+    String getStatsJsonFile() {
+        return statsJsonFile;
+    }
+
+    /**
+     * @return the Unix domain socket path or TCP port to serve searches on instead of searching, or {@code null}
+     */
+    String getServeAddress() {
+        return serveAddress;
+    }
+
+    /**
+     * @return the globs of the files to search instead of {@code .txt} files; empty if none were given
+     */
+    List<String> getIncludeGlobs() {
+        return includeGlobs;
+    }
+
+    /**
+     * @return the globs of the files not to search and the directories not to walk into
+     */
+    List<String> getExcludeGlobs() {
+        return excludeGlobs;
+    }
+
+    /**
+     * @return whether what {@code .gitignore} and {@code .ignore} files ignore is skipped
+     */
+    boolean isIgnoreFiles() {
+        return ignoreFiles;
+    }
+
+    /**
+     * @return whether the number of files read at the same time is tuned per file system while searching
+     */
+    boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * @return whether to keep searching what is appended to the files after the search
+     */
+    boolean isWatch() {
+        return watch;
+    }
+
+    String getRootDirectory() {
+        return rootDirectory;
+    }
+
+    List<String> getPatterns() {
+        return patterns;
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for option " + option);
+        }
+        return args[index];
+    }
+
+    private static int positiveNumber(String value, String option) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number > 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Option " + option + " expects a positive number, got: " + value);
+    }
+
+    private static int nonNegativeNumber(String value, String option) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number >= 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Option " + option + " expects a non-negative number, got: " + value);
+    }
+
+    /**
+     * Reads one search pattern per line from the given file, skipping blank lines.
+     */
+    private static List<String> readPatternFile(Path workingDirectory, String file) {
+        try {
+            return Files.readAllLines(workingDirectory.resolve(file), StandardCharsets.UTF_8).stream()
+                    .filter(line -> !line.isBlank())
+                    .toList();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read pattern file " + file + ": " + e.getMessage(), e);
+        }
+    }
+}
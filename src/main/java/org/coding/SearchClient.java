@@ -0,0 +1,104 @@
+package org.coding;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.SocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A thin client that runs a command line on a {@link SearchServer} instead of in its own JVM.
+ * It takes the address of the server followed by the usual arguments of the tool, prints what the server sends back
+ * as it arrives, and exits with the exit status of the query.
+ *
+ * The shared secret of a server on a TCP port is taken from the {@code MULTITHREADED_GREP_SECRET} environment variable.
+ * The client only loads the classes it needs to talk to the server, so it starts quickly; the launcher script uses it
+ * when {@code MULTITHREADED_GREP_SERVER} is set.
+ */
+public final class SearchClient {
+    private SearchClient() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: java -cp multithreaded-grep.jar " + SearchClient.class.getName()
+                    + " <socket_path|port> [options] <root_directory> [search_pattern]");
+            System.exit(1);
+        }
+        PrintStream out = new PrintStream(new BufferedOutputStream(System.out, 64 * 1024), false);
+        int status = run(args[0], System.getenv(SearchProtocol.SECRET_VARIABLE), Arrays.copyOfRange(args, 1, args.length),
+                Path.of("").toAbsolutePath(), out, System.err);
+        out.flush();
+        System.exit(status);
+    }
+
+    /**
+     * Sends the arguments to the server at {@code address} and copies the output of the query to {@code out} and
+     * {@code err}.
+     *
+     * @param secret the shared secret of the server, or {@code null} if it has none
+     * @return the exit status of the query, or 1 if the server cannot be reached or the connection is lost
+     */
+    static int run(String address, String secret, String[] args, Path workingDirectory, OutputStream out, PrintStream err) {
+        SocketAddress socketAddress;
+        try {
+            socketAddress = SearchProtocol.address(address);
+        } catch (IllegalArgumentException e) {
+            err.println("Error: " + e.getMessage());
+            return 1;
+        }
+        try (SocketChannel channel = SocketChannel.open(socketAddress)) {
+            DataOutputStream request = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            SearchProtocol.writeRequest(request, secret, workingDirectory.toString(), args);
+            return copyResponse(new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel))), out, err);
+        } catch (EOFException e) {
+            err.println("Error: The connection to the search server at " + address + " was lost.");
+            return 1;
+        } catch (IOException e) {
+            err.println("Error: Could not reach the search server at " + address + ": " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Copies the output frames of a response until its exit status.
+     *
+     * @return the exit status
+     */
+    private static int copyResponse(DataInputStream in, OutputStream out, PrintStream err) throws IOException {
+        byte[] buffer = new byte[8 * 1024];
+        while (true) {
+            byte type = in.readByte();
+            int length = in.readInt();
+            if (type == SearchProtocol.EXIT) {
+                return in.readInt();
+            }
+            if (length < 0 || (type != SearchProtocol.STDOUT && type != SearchProtocol.STDERR)) {
+                throw new IOException("Invalid response from the search server");
+            }
+            if (type == SearchProtocol.STDERR) {
+                out.flush();
+            }
+            OutputStream target = type == SearchProtocol.STDOUT ? out : err;
+            while (length > 0) {
+                int read = in.read(buffer, 0, Math.min(buffer.length, length));
+                if (read < 0) {
+                    throw new EOFException();
+                }
+                target.write(buffer, 0, read);
+                length -= read;
+            }
+            if (type == SearchProtocol.STDERR) {
+                err.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.coding;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+
+/**
+ * The messages between a {@link SearchClient} and a {@link SearchServer}.
+ *
+ * The client sends the protocol version, the shared secret of the server or an empty string, its working directory
+ * and its command line arguments. The server answers
+ * with frames, each a type byte, a length and that many bytes: output for standard output or standard error, in the
+ * order it was written, and finally the exit status, after which the connection is closed.
+ */
+final class SearchProtocol {
+    static final int VERSION = 2;
+    static final String SECRET_VARIABLE = "MULTITHREADED_GREP_SECRET";
+    private static final int MAX_ARGUMENTS = 4096;
+    static final byte STDOUT = 1;
+    static final byte STDERR = 2;
+    static final byte EXIT = 3;
+
+    private SearchProtocol() {
+    }
+
+    /**
+     * Returns the address a server listens on or a client connects to: a TCP port on the loopback interface if
+     * {@code address} is a number, or else the path of a Unix domain socket.
+     */
+    static SocketAddress address(String address) {
+        if (!address.isEmpty() && address.chars().allMatch(Character::isDigit)) {
+            try {
+                return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid port: " + address, e);
+            }
+        }
+        return UnixDomainSocketAddress.of(address);
+    }
+
+    static void writeRequest(DataOutputStream out, String secret, String workingDirectory, String[] args) throws IOException {
+        out.writeInt(VERSION);
+        out.writeUTF(secret == null ? "" : secret);
+        out.writeUTF(workingDirectory);
+        out.writeInt(args.length);
+        for (String arg : args) {
+            out.writeUTF(arg);
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads the arguments of a request whose version, secret and working directory were read.
+     *
+     * @throws IOException if the request has more than {@code MAX_ARGUMENTS} arguments or cannot be read
+     */
+    static String[] readArguments(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > MAX_ARGUMENTS) {
+            throw new IOException("Invalid argument count: " + count);
+        }
+        String[] args = new String[count];
+        for (int i = 0; i < count; i++) {
+            args[i] = in.readUTF();
+        }
+        return args;
+    }
+
+    static void writeExit(DataOutputStream out, int status) throws IOException {
+        synchronized (out) {
+            out.writeByte(EXIT);
+            out.writeInt(Integer.BYTES);
+            out.writeInt(status);
+            out.flush();
+        }
+    }
+
+    /**
+     * An output stream that sends what is written to it as frames of one type. Streams of both types may share
+     * a connection. Since the output of a query is printed through a {@link java.io.PrintStream}, which swallows
+     * {@link IOException}s, a failure to send is thrown as an {@link UncheckedIOException}, so that the query stops
+     * when the client goes away.
+     */
+    static final class FrameOutputStream extends OutputStream {
+        private final DataOutputStream out;
+        private final byte type;
+
+        FrameOutputStream(DataOutputStream out, byte type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (len == 0) {
+                return;
+            }
+            try {
+                synchronized (out) {
+                    out.writeByte(type);
+                    out.writeInt(len);
+                    out.write(b, off, len);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not send output to the client", e);
+            }
+        }
+    }
+}
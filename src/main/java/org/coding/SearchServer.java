@@ -0,0 +1,290 @@
+package org.coding;
+
+import org.coding.service.ExecutionMode;
+import org.coding.service.SearchOptions;
+import org.coding.stats.SearchStatistics;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Serves searches to {@link SearchClient}s from a long-running JVM, so that queries do not pay for JVM startup,
+ * class loading and a cold JIT, and do not create a thread pool each.
+ *
+ * The server listens on a Unix domain socket, or on a TCP port of the loopback interface, see
+ * {@link SearchProtocol#address(String)}. A Unix domain socket is only accessible to the owner of the server. A TCP
+ * port is open to every local user, so it is only served with a shared secret, which every query must send along;
+ * queries that can run on the server cannot write files. Each connection is one query: the command line arguments of the client are
+ * run as by {@link Application}, relative to the working directory of the client, and what the query prints is sent
+ * back while it runs. Queries run concurrently, each on a thread of its own, and the file tasks of all of them run
+ * on a single executor created when the server starts. Each query hands at most as many tasks to it as it has threads,
+ * so that a large query does not lock out the others. The thread count and execution mode of a query are those of
+ * the server; the options given with the query are ignored.
+ *
+ * The statistics of all queries are summed up and published over JMX while the server runs, as
+ * {@code org.coding:type=SearchStatistics,name="<address>"}, see {@link SearchStatistics#registerMBean(String)}.
+ */
+final class SearchServer implements Closeable {
+    private static final int OUTPUT_BUFFER_SIZE = 8 * 1024;
+
+    private final ServerSocketChannel channel;
+    private final SocketAddress address;
+    private final byte[] secret;
+    private final ExecutionMode executionMode;
+    private final int threadPoolSize;
+    private final ExecutorService executor;
+    private final SearchStatistics statistics = new SearchStatistics();
+    private final ObjectName statisticsName;
+    private final ExecutorService queries = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "search-query");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Binds the server to {@code address}. A socket file that is left from a server that is no longer running
+     * is replaced.
+     *
+     * @param secret the secret that queries must send, or {@code null} for none; required for a TCP port
+     * @throws IllegalArgumentException if the address, execution mode or thread count is invalid, or a TCP port is
+     *                                  given without a secret
+     * @throws IOException              if the address cannot be bound, for example because another server is running there
+     */
+    SearchServer(String address, String secret, ExecutionMode executionMode, int threadPoolSize) throws IOException {
+        if (address == null || executionMode == null) {
+            throw new IllegalArgumentException("Address and execution mode must not be null");
+        }
+        if (threadPoolSize < 1) {
+            throw new IllegalArgumentException("Thread pool size must be positive");
+        }
+        SocketAddress socketAddress = SearchProtocol.address(address);
+        boolean unix = socketAddress instanceof UnixDomainSocketAddress;
+        if (!unix && (secret == null || secret.isBlank())) {
+            throw new IllegalArgumentException("A TCP port is open to every local user; set a shared secret in "
+                    + SearchProtocol.SECRET_VARIABLE + " or serve on a Unix domain socket");
+        }
+        this.secret = secret == null ? null : secret.getBytes(StandardCharsets.UTF_8);
+        channel = unix ? ServerSocketChannel.open(StandardProtocolFamily.UNIX) : ServerSocketChannel.open();
+        try {
+            if (unix) {
+                Path socket = ((UnixDomainSocketAddress) socketAddress).getPath();
+                removeStaleSocket((UnixDomainSocketAddress) socketAddress);
+                bindPrivately(channel, socket);
+                this.address = socketAddress;
+            } else {
+                channel.bind(socketAddress);
+                this.address = channel.getLocalAddress();
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.executionMode = executionMode;
+        this.threadPoolSize = threadPoolSize;
+        this.executor = executionMode.createExecutor(threadPoolSize);
+        try {
+            this.statisticsName = statistics.registerMBean(this.address.toString());
+        } catch (RuntimeException e) {
+            close(channel, executor, this.address);
+            throw e;
+        }
+    }
+
+    /**
+     * @return the address the server is bound to, with the actual port if it was started on port 0
+     */
+    SocketAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * Accepts queries until the server is closed.
+     */
+    void run() throws IOException {
+        while (channel.isOpen()) {
+            SocketChannel connection;
+            try {
+                connection = channel.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            }
+            try {
+                queries.execute(() -> serve(connection));
+            } catch (RejectedExecutionException e) {
+                // closed between accepting the connection and starting its query
+                connection.close();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sets the shared executor of the server, and the execution mode and thread count it was created with,
+     * on the options of a query.
+     */
+    void configure(SearchOptions options) {
+        options.setExecutor(executor)
+                .setExecutionMode(executionMode)
+                .setThreadPoolSize(threadPoolSize);
+    }
+
+    /**
+     * Adds the statistics of a query that has finished to those the server publishes.
+     */
+    void record(SearchStatistics queryStatistics) {
+        statistics.add(queryStatistics);
+    }
+
+    /**
+     * @return the statistics of all queries the server has finished
+     */
+    SearchStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return the name the statistics of the server are published under over JMX
+     */
+    ObjectName getStatisticsName() {
+        return statisticsName;
+    }
+
+    /**
+     * Stops accepting queries and stops the executor; queries that are running fail.
+     */
+    @Override
+    public void close() throws IOException {
+        queries.shutdownNow();
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(statisticsName);
+        } catch (InstanceNotFoundException e) {
+            // closed before
+        } catch (JMException e) {
+            System.err.println("Warning: Could not unregister the statistics of " + address + ": " + e.getMessage());
+        }
+        close(channel, executor, address);
+    }
+
+    private static void close(ServerSocketChannel channel, ExecutorService executor, SocketAddress address) throws IOException {
+        channel.close();
+        executor.shutdownNow();
+        if (address instanceof UnixDomainSocketAddress unixAddress) {
+            Files.deleteIfExists(unixAddress.getPath());
+        }
+    }
+
+    private void serve(SocketChannel connection) {
+        try (connection;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(connection)));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(connection)))) {
+            int version = in.readInt();
+            if (version != SearchProtocol.VERSION) {
+                PrintStream err = new PrintStream(new SearchProtocol.FrameOutputStream(out, SearchProtocol.STDERR), true, StandardCharsets.UTF_8);
+                err.println("Error: The server speaks protocol version " + SearchProtocol.VERSION + ", the client " + version);
+                SearchProtocol.writeExit(out, 1);
+                return;
+            }
+            byte[] sent = in.readUTF().getBytes(StandardCharsets.UTF_8);
+            if (secret != null && !MessageDigest.isEqual(secret, sent)) {
+                PrintStream err = new PrintStream(new SearchProtocol.FrameOutputStream(out, SearchProtocol.STDERR), true, StandardCharsets.UTF_8);
+                err.println("Error: The search server did not accept the secret in " + SearchProtocol.SECRET_VARIABLE + ".");
+                SearchProtocol.writeExit(out, 1);
+                return;
+            }
+            Path workingDirectory = Path.of(in.readUTF());
+            String[] args = SearchProtocol.readArguments(in);
+            PrintStream stdout = new PrintStream(new BufferedOutputStream(
+                    new SearchProtocol.FrameOutputStream(out, SearchProtocol.STDOUT), OUTPUT_BUFFER_SIZE), false, StandardCharsets.UTF_8);
+            PrintStream stderr = new PrintStream(new SearchProtocol.FrameOutputStream(out, SearchProtocol.STDERR), true, StandardCharsets.UTF_8);
+            int status = new Application(stdout, stderr, workingDirectory, this).run(args);
+            stdout.flush();
+            SearchProtocol.writeExit(out, status);
+        } catch (IOException | UncheckedIOException e) {
+            // the client went away, there is no one to report to
+        }
+    }
+
+    /**
+     * Deletes the socket file at the address if no server accepts connections on it. Anything that is not a socket,
+     * such as a regular file, is left alone, and binding to it fails.
+     */
+    private static void removeStaleSocket(UnixDomainSocketAddress address) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(address.getPath(), BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        if (!attributes.isOther()) {
+            return;
+        }
+        boolean running;
+        try {
+            SocketChannel.open(address).close();
+            running = true;
+        } catch (IOException e) {
+            running = false;
+        }
+        if (running) {
+            throw new IOException("A server is already running on " + address.getPath());
+        }
+        Files.delete(address.getPath());
+    }
+
+    /**
+     * Binds the channel to a socket file that only the owner can access from the start: the socket is created in a
+     * new directory that only the owner can enter, restricted there, and then linked to {@code socket}, so that no
+     * other user can connect while it is being set up. Linking fails if {@code socket} exists, so nothing is replaced.
+     */
+    private static void bindPrivately(ServerSocketChannel channel, Path socket) throws IOException {
+        Path parent = socket.toAbsolutePath().getParent();
+        Path directory;
+        try {
+            directory = Files.createTempDirectory(parent, ".grep-server-",
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        } catch (UnsupportedOperationException e) {
+            directory = Files.createTempDirectory(parent, ".grep-server-");
+        }
+        Path privateSocket = directory.resolve("socket");
+        try {
+            channel.bind(UnixDomainSocketAddress.of(privateSocket));
+            try {
+                Files.setPosixFilePermissions(privateSocket, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException e) {
+                System.err.println("Warning: Could not restrict access to " + socket + ": " + e.getMessage());
+            }
+            Files.createLink(socket, privateSocket);
+        } finally {
+            Files.deleteIfExists(privateSocket);
+            Files.delete(directory);
+        }
+    }
+}
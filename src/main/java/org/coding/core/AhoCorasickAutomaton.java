@@ -0,0 +1,145 @@
+package org.coding.core;
+
+import java.util.Arrays;
+
+/**
+ * Aho-Corasick automaton over integer symbols, stored as a dense transition table in a single {@code int[]}.
+ *
+ * Symbols that occur in the keys are mapped to small symbol classes, and every state has one transition per class,
+ * with the failure links already folded in. Stepping the automaton is therefore a single array lookup, with
+ * no per-node maps and no failure-link chasing while searching. The key ids recognised in a state (including
+ * those reached through failure links) are kept in compressed rows of {@code outputs}.
+ */
+final class AhoCorasickAutomaton {
+    private final int[] smallClasses = new int[256];
+    private final int[] largeSymbols;
+    private final int[] largeClasses;
+    private final int width;
+    private final int[] transitions;
+    private final int[] outputStart;
+    private final int[] outputs;
+
+    /**
+     * @param keys the symbol sequences to recognise; key ids are their indexes, empty keys are ignored
+     */
+    AhoCorasickAutomaton(int[][] keys) {
+        int[] large = Arrays.stream(keys).flatMapToInt(Arrays::stream).filter(symbol -> symbol >= 256).distinct().sorted().toArray();
+        this.largeSymbols = large;
+        this.largeClasses = new int[large.length];
+        int classes = 1;
+        for (int[] key : keys) {
+            for (int symbol : key) {
+                if (symbol < 256 && smallClasses[symbol] == 0) {
+                    smallClasses[symbol] = classes++;
+                }
+            }
+        }
+        for (int i = 0; i < large.length; i++) {
+            largeClasses[i] = classes++;
+        }
+        this.width = classes;
+
+        int maxStates = 1 + Arrays.stream(keys).mapToInt(key -> key.length).sum();
+        int[] table = new int[maxStates * width];
+        int[] terminal = new int[maxStates];
+        Arrays.fill(terminal, -1);
+        int[] nextKeyAtState = new int[keys.length];
+        Arrays.fill(nextKeyAtState, -1);
+        int states = 1;
+        for (int id = 0; id < keys.length; id++) {
+            if (keys[id].length == 0) {
+                continue;
+            }
+            int state = 0;
+            for (int symbol : keys[id]) {
+                int slot = state * width + symbolClass(symbol);
+                if (table[slot] == 0) {
+                    table[slot] = states++;
+                }
+                state = table[slot];
+            }
+            // several keys may end in the same state; chain them through nextKeyAtState
+            nextKeyAtState[id] = terminal[state];
+            terminal[state] = id;
+        }
+
+        int[] failure = new int[states];
+        int[] order = new int[states];
+        int head = 0;
+        int tail = 0;
+        order[tail++] = 0;
+        while (head < tail) {
+            int state = order[head++];
+            for (int c = 0; c < width; c++) {
+                int slot = state * width + c;
+                int child = table[slot];
+                if (child != 0) {
+                    failure[child] = state == 0 ? 0 : table[failure[state] * width + c];
+                    order[tail++] = child;
+                } else if (state != 0) {
+                    table[slot] = table[failure[state] * width + c];
+                }
+            }
+        }
+
+        int[] start = new int[states + 1];
+        int[][] rows = new int[states][];
+        int total = 0;
+        for (int i = 0; i < states; i++) {
+            int state = order[i];
+            int[] inherited = state == 0 ? new int[0] : rows[failure[state]];
+            int own = 0;
+            for (int id = terminal[state]; id >= 0; id = nextKeyAtState[id]) {
+                own++;
+            }
+            int[] row = Arrays.copyOf(inherited, inherited.length + own);
+            int index = inherited.length;
+            for (int id = terminal[state]; id >= 0; id = nextKeyAtState[id]) {
+                row[index++] = id;
+            }
+            rows[state] = row;
+            total += row.length;
+        }
+        this.outputs = new int[total];
+        int position = 0;
+        for (int state = 0; state < states; state++) {
+            start[state] = position;
+            System.arraycopy(rows[state], 0, outputs, position, rows[state].length);
+            position += rows[state].length;
+        }
+        start[states] = position;
+        this.outputStart = start;
+        this.transitions = Arrays.copyOf(table, states * width);
+    }
+
+    /**
+     * Returns the state reached from {@code state} on {@code symbol}; the start state is {@code 0}.
+     */
+    int next(int state, int symbol) {
+        return transitions[state * width + symbolClass(symbol)];
+    }
+
+    /**
+     * Returns whether any key ends in the given state.
+     */
+    boolean accepts(int state) {
+        return outputStart[state] != outputStart[state + 1];
+    }
+
+    /**
+     * Marks the ids of all keys that end in the given state.
+     */
+    void collect(int state, boolean[] found) {
+        for (int i = outputStart[state]; i < outputStart[state + 1]; i++) {
+            found[outputs[i]] = true;
+        }
+    }
+
+    private int symbolClass(int symbol) {
+        if (symbol < 256) {
+            return smallClasses[symbol];
+        }
+        int index = Arrays.binarySearch(largeSymbols, symbol);
+        return index < 0 ? 0 : largeClasses[index];
+    }
+}
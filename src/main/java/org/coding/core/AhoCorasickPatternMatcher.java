@@ -0,0 +1,158 @@
+package org.coding.core;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Case-insensitive matcher for many search strings at once, built on an {@link AhoCorasickAutomaton}.
+ * Each line is read once, whatever the number of search strings, and no memory is allocated for lines that do not match.
+ *
+ * Characters are case-folded as described in {@link CaseFolding}.
+ * Null, blank and duplicate search strings are ignored. When searching raw bytes, a second automaton built from the
+ * longest ASCII run of every search string is used as the candidate filter.
+ */
+public class AhoCorasickPatternMatcher implements MultiPatternMatcher, BytePatternMatcher {
+    private final List<String> searchStrings;
+    private final AhoCorasickAutomaton automaton;
+    private final AhoCorasickAutomaton byteAutomaton;
+    private final boolean exact;
+
+    public AhoCorasickPatternMatcher(List<String> searchStrings) {
+        Set<String> distinct = new LinkedHashSet<>();
+        if (searchStrings != null) {
+            for (String searchString : searchStrings) {
+                if (searchString != null && !searchString.isBlank()) {
+                    distinct.add(searchString);
+                }
+            }
+        }
+        this.searchStrings = List.copyOf(distinct);
+
+        int[][] keys = new int[this.searchStrings.size()][];
+        int[][] byteKeys = new int[this.searchStrings.size()][];
+        boolean everyKeyHasAscii = true;
+        boolean everyKeyIsAscii = true;
+        for (int id = 0; id < keys.length; id++) {
+            String searchString = this.searchStrings.get(id);
+            keys[id] = searchString.chars().map(c -> CaseFolding.fold((char) c)).toArray();
+            byteKeys[id] = AsciiByteSearcher.longestAsciiRun(searchString).chars().map(c -> CaseFolding.fold((char) c)).toArray();
+            everyKeyHasAscii &= byteKeys[id].length > 0;
+            everyKeyIsAscii &= AsciiByteSearcher.isExact(searchString);
+        }
+        this.automaton = new AhoCorasickAutomaton(keys);
+        this.byteAutomaton = everyKeyHasAscii ? new AhoCorasickAutomaton(byteKeys) : null;
+        this.exact = everyKeyHasAscii && everyKeyIsAscii;
+    }
+
+    /**
+     * Returns the search strings this matcher looks for, without blanks and duplicates.
+     */
+    public List<String> getSearchStrings() {
+        return searchStrings;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean match(String line) {
+        if (line == null || searchStrings.isEmpty()) {
+            return false;
+        }
+        int state = 0;
+        for (int i = 0; i < line.length(); i++) {
+            state = automaton.next(state, CaseFolding.fold(line.charAt(i)));
+            if (automaton.accepts(state)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     * An occurrence is counted where it ends, and the search for the next one starts after it.
+     */
+    @Override
+    public int countOccurrences(String line) {
+        if (line == null || searchStrings.isEmpty()) {
+            return 0;
+        }
+        int count = 0;
+        int state = 0;
+        for (int i = 0; i < line.length(); i++) {
+            state = automaton.next(state, CaseFolding.fold(line.charAt(i)));
+            if (automaton.accepts(state)) {
+                count++;
+                state = 0;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> matchingPatterns(String line) {
+        if (line == null || searchStrings.isEmpty()) {
+            return List.of();
+        }
+        boolean[] found = null;
+        int state = 0;
+        for (int i = 0; i < line.length(); i++) {
+            state = automaton.next(state, CaseFolding.fold(line.charAt(i)));
+            if (automaton.accepts(state)) {
+                if (found == null) {
+                    found = new boolean[searchStrings.size()];
+                }
+                automaton.collect(state, found);
+            }
+        }
+        if (found == null) {
+            return List.of();
+        }
+        List<String> matching = new ArrayList<>();
+        for (int id = 0; id < found.length; id++) {
+            if (found[id]) {
+                matching.add(searchStrings.get(id));
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The returned index is where a candidate ends. If some search string has no ASCII characters,
+     * every position is a candidate.
+     */
+    @Override
+    public int indexIn(ByteBuffer buffer, int from, int to) {
+        if (searchStrings.isEmpty()) {
+            return -1;
+        }
+        if (byteAutomaton == null) {
+            return from < to ? from : -1;
+        }
+        int state = 0;
+        for (int i = from; i < to; i++) {
+            state = byteAutomaton.next(state, CaseFolding.foldAscii(buffer.get(i)) & 0xFF);
+            if (byteAutomaton.accepts(state)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Candidates are matches if every search string is all ASCII.
+     */
+    @Override
+    public int occurrenceEnd(int candidate) {
+        return exact ? candidate + 1 : -1;
+    }
+}
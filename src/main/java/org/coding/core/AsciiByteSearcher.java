@@ -0,0 +1,86 @@
+package org.coding.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Case-insensitive Boyer-Moore-Horspool search of an ASCII literal in raw bytes.
+ * The literal is folded to lower case and its skip table is built once, so searching allocates nothing.
+ * Bytes outside the ASCII range never fold, which keeps the search safe on UTF-8 input:
+ * multibyte sequences can never be mistaken for ASCII letters.
+ */
+final class AsciiByteSearcher {
+    private final byte[] pattern;
+    private final int[] skip = new int[256];
+
+    AsciiByteSearcher(String asciiLiteral) {
+        if (asciiLiteral == null || asciiLiteral.isEmpty()) {
+            throw new IllegalArgumentException("Literal must not be null or empty");
+        }
+        byte[] bytes = asciiLiteral.getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = CaseFolding.foldAscii(bytes[i]);
+        }
+        this.pattern = bytes;
+        int last = pattern.length - 1;
+        Arrays.fill(skip, pattern.length);
+        for (int i = 0; i < last; i++) {
+            skip[pattern[i] & 0xFF] = last - i;
+        }
+    }
+
+    /**
+     * Returns the longest run of ASCII characters in the given text, or an empty string if there is none.
+     * Any line containing the text also contains this run, so it can be used as a prefilter.
+     */
+    static String longestAsciiRun(String text) {
+        int bestStart = 0;
+        int bestLength = 0;
+        int start = 0;
+        for (int i = 0; i <= text.length(); i++) {
+            if (i == text.length() || text.charAt(i) >= 0x80) {
+                if (i - start > bestLength) {
+                    bestStart = start;
+                    bestLength = i - start;
+                }
+                start = i + 1;
+            }
+        }
+        return text.substring(bestStart, bestStart + bestLength);
+    }
+
+    /**
+     * Returns whether a case-insensitive occurrence of the given text in UTF-8 bytes can be found by searching for the
+     * text itself: if it is all ASCII and has no line breaks, so that an occurrence lies within a single line.
+     */
+    static boolean isExact(String text) {
+        return !text.isEmpty() && text.chars().allMatch(c -> c < 0x80 && c != '\n' && c != '\r');
+    }
+
+    int length() {
+        return pattern.length;
+    }
+
+    /**
+     * Returns the index of the first case-insensitive occurrence of the literal in {@code [from, to)}, or {@code -1}.
+     */
+    int indexIn(ByteBuffer buffer, int from, int to) {
+        int last = pattern.length - 1;
+        int i = from;
+        while (i + last < to) {
+            byte b = CaseFolding.foldAscii(buffer.get(i + last));
+            if (b == pattern[last]) {
+                int j = last - 1;
+                while (j >= 0 && CaseFolding.foldAscii(buffer.get(i + j)) == pattern[j]) {
+                    j--;
+                }
+                if (j < 0) {
+                    return i;
+                }
+            }
+            i += skip[b & 0xFF];
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,281 @@
+package org.coding.core;
+
+import org.coding.model.ResultStore;
+import org.coding.model.SearchResult;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Scans the bytes of a single file for lines accepted by a {@link PatternMatcher}.
+ * Line boundaries and line numbers are only worked out around candidate matches, and only candidate lines
+ * are decoded into {@code String}s, in the charset of the file: UTF-8 by default, or ISO-8859-1 for a file that
+ * {@link FileEncoding} found is not UTF-8, which the {@link ResultStore} is told so that it reads lines back the same
+ * way. If the matcher is not a {@link BytePatternMatcher}, every line is a candidate.
+ *
+ * Regions must start at the beginning of a line and be fed in file order, because the scanner carries the
+ * current line number from one region to the next. Lines end at {@code \n}, {@code \r} or {@code \r\n},
+ * the same as {@link java.io.BufferedReader#readLine()}.
+ *
+ * Matching lines are added to a {@link ResultStore} by their position in the file, so that their text need not
+ * be kept. It is kept as well if asked for, and when the bytes are not those of the file itself.
+ * If the {@link ProcessingContext} asks for context lines, they are added by {@link ContextLines}.
+ *
+ * Matching lines can also just be counted, see {@link #count(ByteBuffer, int, int, CountMode, ProcessingContext)}.
+ */
+final class ByteLineScanner {
+    /**
+     * The offset of a buffer whose bytes cannot be read back from the file, such as decompressed data.
+     */
+    static final long NOT_IN_FILE = -1;
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    private final Path filePath;
+    private final PatternMatcher patternMatcher;
+    private final BytePatternMatcher bytePatternMatcher;
+    private final boolean keepLines;
+    private final Charset charset;
+    private int lineNumber;
+    private ContextLines contextLines;
+    private long matchingLines;
+    private long occurrences;
+
+    /**
+     * @param keepLines whether to keep the text of matching lines that can be read back from the file
+     */
+    ByteLineScanner(Path filePath, PatternMatcher patternMatcher, int firstLineNumber, boolean keepLines) {
+        this(filePath, patternMatcher, firstLineNumber, keepLines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param keepLines whether to keep the text of matching lines that can be read back from the file
+     * @param charset   the charset the lines of the file are decoded with
+     */
+    ByteLineScanner(Path filePath, PatternMatcher patternMatcher, int firstLineNumber, boolean keepLines,
+                    Charset charset) {
+        this.filePath = filePath;
+        this.keepLines = keepLines;
+        this.charset = charset;
+        this.patternMatcher = patternMatcher;
+        this.bytePatternMatcher = patternMatcher instanceof BytePatternMatcher ? (BytePatternMatcher) patternMatcher : null;
+        this.lineNumber = firstLineNumber;
+    }
+
+    /**
+     * Returns the number of the line that starts where the last scanned region ended.
+     */
+    int lineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Scans {@code [from, to)} and adds a {@link SearchResult} for each matching line.
+     * Scanning stops early once the context is done with {@code results}; the line number is then not carried on.
+     * The bytes searched and lines decoded are reported to the context.
+     *
+     * @param bufferOffset   the position in the file of the first byte of the buffer, or {@link #NOT_IN_FILE}
+     *                       to keep the text of the matching lines
+     * @param countRemaining whether line breaks after the last candidate must be counted as well;
+     *                       only needed if another region follows this one
+     */
+    void scan(ByteBuffer buffer, long bufferOffset, int from, int to, boolean countRemaining, ProcessingContext context,
+              ResultStore results) {
+        if (bufferOffset != NOT_IN_FILE && charset != StandardCharsets.UTF_8) {
+            results.setCharset(filePath, charset);
+        }
+        ContextLines contextLines = contextLines(context);
+        if (contextLines != null) {
+            contextLines.continueAfter(buffer, bufferOffset, from, to, !countRemaining, results);
+        }
+        int counted = from;
+        int searchFrom = from;
+        int decoded = 0;
+        boolean done = false;
+        while (searchFrom < to) {
+            if (context.isDone(results.size())) {
+                done = true;
+                break;
+            }
+            int candidate = bytePatternMatcher == null ? searchFrom : bytePatternMatcher.indexIn(buffer, searchFrom, to);
+            if (candidate < 0) {
+                break;
+            }
+            int lineStart = lineStart(buffer, searchFrom, candidate);
+            int lineEnd = lineEnd(buffer, candidate, to);
+            lineNumber += countLineBreaks(buffer, counted, lineStart);
+            counted = lineStart;
+            String line = decode(buffer, lineStart, lineEnd, charset);
+            decoded++;
+            List<String> matchedPatterns = MatchingLines.matchedPatterns(line, patternMatcher);
+            if (matchedPatterns != null && bufferOffset == NOT_IN_FILE) {
+                results.add(new SearchResult(filePath, lineNumber, line, matchedPatterns));
+            } else if (matchedPatterns != null) {
+                results.add(filePath, lineNumber, bufferOffset + lineStart, lineEnd - lineStart, matchedPatterns,
+                        keepLines ? line : null);
+            }
+            if (matchedPatterns != null && contextLines != null) {
+                contextLines.addContext(buffer, bufferOffset, from, to, !countRemaining, lineStart, lineEnd, lineNumber,
+                        results.size() - 1, results);
+            }
+            searchFrom = nextLineStart(buffer, lineEnd, to);
+        }
+        context.recordScanned((done ? searchFrom : to) - from, decoded);
+        if (countRemaining && !done) {
+            lineNumber += countLineBreaks(buffer, counted, to);
+            if (contextLines != null) {
+                contextLines.endRegion(buffer, bufferOffset, from, to);
+            }
+        }
+    }
+
+    /**
+     * Counts the matching lines of {@code [from, to)}, and the occurrences of the pattern in them if {@code mode} asks
+     * for them, without adding results or keeping track of line numbers. Lines are only decoded if the matcher cannot
+     * tell matches from candidates in the bytes, see {@link BytePatternMatcher#occurrenceEnd(int)}.
+     * Counting stops early once the context is done with the matching lines counted so far.
+     * The bytes searched and lines decoded are reported to the context.
+     */
+    void count(ByteBuffer buffer, int from, int to, CountMode mode, ProcessingContext context) {
+        boolean countOccurrences = mode == CountMode.OCCURRENCES;
+        int searchFrom = from;
+        int decoded = 0;
+        while (searchFrom < to && !context.isDone((int) Math.min(matchingLines, Integer.MAX_VALUE))) {
+            int candidate = bytePatternMatcher == null ? searchFrom : bytePatternMatcher.indexIn(buffer, searchFrom, to);
+            if (candidate < 0) {
+                searchFrom = to;
+                break;
+            }
+            int lineEnd = lineEnd(buffer, candidate, to);
+            int end = bytePatternMatcher == null ? -1 : bytePatternMatcher.occurrenceEnd(candidate);
+            if (end >= 0) {
+                matchingLines++;
+                while (countOccurrences && end >= 0) {
+                    occurrences++;
+                    int next = bytePatternMatcher.indexIn(buffer, end, lineEnd);
+                    end = next < 0 ? -1 : bytePatternMatcher.occurrenceEnd(next);
+                }
+            } else {
+                String line = decode(buffer, lineStart(buffer, searchFrom, candidate), lineEnd, charset);
+                decoded++;
+                int found = countOccurrences ? patternMatcher.countOccurrences(line) : patternMatcher.match(line) ? 1 : 0;
+                if (found > 0) {
+                    matchingLines++;
+                    occurrences += found;
+                }
+            }
+            searchFrom = nextLineStart(buffer, lineEnd, to);
+        }
+        context.recordScanned(searchFrom - from, decoded);
+    }
+
+    /**
+     * Returns the number of matching lines, or of occurrences of the pattern, counted so far.
+     */
+    long counted(CountMode mode) {
+        return mode == CountMode.LINES ? matchingLines : occurrences;
+    }
+
+    /**
+     * Remembers the lines of {@code [from, to)}, which ends with a line break and is followed by the first region
+     * that is scanned, as the lines before it; for a scanner that starts in the middle of a file.
+     */
+    void precedingRegion(ByteBuffer buffer, long bufferOffset, int from, int to, ProcessingContext context) {
+        ContextLines contextLines = contextLines(context);
+        if (contextLines != null) {
+            contextLines.endRegion(buffer, bufferOffset, from, to);
+        }
+    }
+
+    /**
+     * Takes the lines of {@code [from, to)}, which follows the last region that was scanned, as context lines after
+     * its last matching line, without searching them; for a scanner that stops in the middle of a file.
+     */
+    void followingRegion(ByteBuffer buffer, long bufferOffset, int from, int to, ProcessingContext context,
+                         ResultStore results) {
+        ContextLines contextLines = contextLines(context);
+        if (contextLines != null) {
+            contextLines.continueAfter(buffer, bufferOffset, from, to, true, results);
+        }
+    }
+
+    private ContextLines contextLines(ProcessingContext context) {
+        if (contextLines == null && context.hasContext()) {
+            contextLines = new ContextLines(context.getLinesBefore(), context.getLinesAfter(), charset);
+        }
+        return contextLines;
+    }
+
+    /**
+     * Counts the line breaks in {@code [from, to)}, treating {@code \r\n} as a single break.
+     * A {@code \r} whose {@code \n} lies just past {@code to} is left for the following region to count.
+     */
+    static int countLineBreaks(ByteBuffer buffer, int from, int to) {
+        int count = 0;
+        int limit = buffer.limit();
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b == LF || (b == CR && (i + 1 >= limit || buffer.get(i + 1) != LF))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the index just after the last line break in {@code [from, to)}, or {@code -1} if there is none.
+     * A {@code \r} in the last byte is not treated as a break, because a {@code \n} may follow it.
+     */
+    static int lastLineBoundary(ByteBuffer buffer, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (buffer.get(i) == LF) {
+                return i + 1;
+            }
+        }
+        for (int i = to - 2; i >= from; i--) {
+            if (buffer.get(i) == CR) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    static int lineStart(ByteBuffer buffer, int floor, int position) {
+        for (int i = position - 1; i >= floor; i--) {
+            byte b = buffer.get(i);
+            if (b == LF || b == CR) {
+                return i + 1;
+            }
+        }
+        return floor;
+    }
+
+    static int lineEnd(ByteBuffer buffer, int position, int to) {
+        for (int i = position; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b == LF || b == CR) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    static int nextLineStart(ByteBuffer buffer, int lineEnd, int to) {
+        if (lineEnd >= to) {
+            return to;
+        }
+        if (buffer.get(lineEnd) == CR && lineEnd + 1 < to && buffer.get(lineEnd + 1) == LF) {
+            return lineEnd + 2;
+        }
+        return lineEnd + 1;
+    }
+
+    static String decode(ByteBuffer buffer, int from, int to, Charset charset) {
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        return new String(bytes, charset);
+    }
+}
@@ -0,0 +1,34 @@
+package org.coding.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link PatternMatcher} that can also look for its pattern directly in UTF-8 encoded bytes.
+ * File processors use it to skip over lines that cannot match without decoding them into {@code String}s.
+ * A position returned by {@link #indexIn(ByteBuffer, int, int)} is only a candidate: the line around it
+ * still has to be confirmed with {@link #match(String)}.
+ */
+public interface BytePatternMatcher extends PatternMatcher {
+    /**
+     * Finds the first candidate match in the given byte range.
+     *
+     * @param buffer the UTF-8 encoded bytes to search; its position and limit are ignored
+     * @param from   the index to start searching at (inclusive)
+     * @param to     the index to stop searching at (exclusive)
+     * @return the index of the first candidate in the range, or {@code -1} if no line in the range can match
+     */
+    int indexIn(ByteBuffer buffer, int from, int to);
+
+    /**
+     * Tells whether the candidates of this matcher are matches, so that lines can be counted without decoding them,
+     * and where such a match ends. The next occurrence in the same line is looked for from there, see
+     * {@link PatternMatcher#countOccurrences(String)}. The default implementation says that candidates have to be
+     * confirmed.
+     *
+     * @param candidate an index returned by {@link #indexIn(ByteBuffer, int, int)}
+     * @return the index just after the match found at {@code candidate}, or {@code -1} if it is only a candidate
+     */
+    default int occurrenceEnd(int candidate) {
+        return -1;
+    }
+}
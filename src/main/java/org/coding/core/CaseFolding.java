@@ -0,0 +1,26 @@
+package org.coding.core;
+
+/**
+ * Case folding shared by the case-insensitive matchers.
+ * ASCII is folded with a bit operation; other characters are folded with {@link Character#toUpperCase(char)}
+ * followed by {@link Character#toLowerCase(char)}, the same rules as {@link String#equalsIgnoreCase(String)}.
+ */
+final class CaseFolding {
+
+    private CaseFolding() {
+    }
+
+    static char fold(char c) {
+        if (c < 0x80) {
+            return (c >= 'A' && c <= 'Z') ? (char) (c | 0x20) : c;
+        }
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Folds an ASCII letter in UTF-8 encoded input; bytes outside ASCII are returned unchanged.
+     */
+    static byte foldAscii(byte b) {
+        return (b >= 'A' && b <= 'Z') ? (byte) (b | 0x20) : b;
+    }
+}
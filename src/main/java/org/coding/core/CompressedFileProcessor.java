@@ -0,0 +1,301 @@
+package org.coding.core;
+
+import org.coding.model.ResultStore;
+import org.coding.model.SearchResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * This implementation of FileProcessor searches inside compressed files, without writing the decompressed data
+ * anywhere: {@code .gz} files, and the entries of {@code .zip} archives that the entry filter accepts.
+ * Other files are handed to a delegate processor.
+ *
+ * Decompressed bytes are scanned like those of a {@link MappedFileProcessor}, while the file is decompressed
+ * on another thread. A gzip file made of several members, such as concatenated gzip files or a file written by bgzip,
+ * is split at member starts and the parts are decompressed in parallel on a {@link ForkJoinPool}.
+ *
+ * The results of a zip entry are reported with the path of the archive followed by the name of the entry,
+ * for example {@code logs.zip/2024/app.txt}.
+ */
+public class CompressedFileProcessor implements FileProcessor {
+    static final int DEFAULT_RANGE_SIZE = 4 * 1024 * 1024;
+    private static final int MAX_MAPPED_SIZE = Integer.MAX_VALUE - 8;
+    private static final ExecutorService DECOMPRESSING_THREADS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "decompressor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final FileProcessor delegate;
+    private final Predicate<String> entryFilter;
+    private final int rangeSize;
+    private final ForkJoinPool pool;
+
+    /**
+     * Searches {@code .txt} entries of zip archives, and hands other files to a {@link ConcurrentFileProcessor}.
+     */
+    public CompressedFileProcessor() {
+        this(new ConcurrentFileProcessor(), name -> name.toLowerCase().endsWith(".txt"));
+    }
+
+    /**
+     * @param delegate    the processor for files that are not compressed
+     * @param entryFilter selects the zip entries to search by name
+     */
+    public CompressedFileProcessor(FileProcessor delegate, Predicate<String> entryFilter) {
+        this(delegate, entryFilter, DEFAULT_RANGE_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param rangeSize the compressed size from which the members of a gzip file are decompressed in parallel
+     * @param pool      the pool the members are decompressed on
+     */
+    CompressedFileProcessor(FileProcessor delegate, Predicate<String> entryFilter, int rangeSize, ForkJoinPool pool) {
+        if (delegate == null || entryFilter == null || pool == null) {
+            throw new IllegalArgumentException("Delegate, entry filter and pool must not be null");
+        }
+        if (rangeSize < 1) {
+            throw new IllegalArgumentException("Range size must be positive");
+        }
+        this.delegate = delegate;
+        this.entryFilter = entryFilter;
+        this.rangeSize = rangeSize;
+        this.pool = pool;
+    }
+
+    /**
+     * @return {@code true} if the file is a {@code .gz} file or a {@code .zip} archive, which this processor decompresses
+     */
+    public static boolean isCompressed(Path filePath) {
+        return isGzip(filePath) || isZip(filePath);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult> processFile(Path filePath, PatternMatcher patternMatcher) {
+        return processFile(filePath, patternMatcher, ProcessingContext.UNLIMITED);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The maximum number of results applies to a zip archive as a whole.
+     */
+    @Override
+    public List<SearchResult> processFile(Path filePath, PatternMatcher patternMatcher, ProcessingContext context) {
+        if (patternMatcher == null || filePath == null ) {
+            System.err.println("Null argument: patternMatcher or filePath is missing in " + getClass().getSimpleName());
+            return new ArrayList<>();
+        }
+        if (!isCompressed(filePath)) {
+            return delegate.processFile(filePath, patternMatcher, context);
+        }
+        ResultStore searchResults = new ResultStore();
+        try {
+            if (isGzip(filePath)) {
+                try (LineScanningOutputStream out = new LineScanningOutputStream(filePath, patternMatcher, context, searchResults)) {
+                    scanGzip(filePath, out);
+                }
+            } else {
+                scanZip(filePath, patternMatcher, context, searchResults);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not read file " + filePath + ": " + e.getMessage());
+        }
+        return searchResults;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The matching lines of all the searched entries of a zip archive are counted together.
+     */
+    @Override
+    public long countMatches(Path filePath, PatternMatcher patternMatcher, ProcessingContext context, CountMode mode) {
+        if (patternMatcher == null || filePath == null ) {
+            System.err.println("Null argument: patternMatcher or filePath is missing in " + getClass().getSimpleName());
+            return 0;
+        }
+        if (!isCompressed(filePath)) {
+            return delegate.countMatches(filePath, patternMatcher, context, mode);
+        }
+        try (LineScanningOutputStream out = new LineScanningOutputStream(filePath, patternMatcher, context, mode)) {
+            if (isGzip(filePath)) {
+                scanGzip(filePath, out);
+            } else {
+                countZip(filePath, out);
+            }
+            out.endLine();
+            return out.counted();
+        } catch (IOException e) {
+            System.err.println("Warning: Could not read file " + filePath + ": " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private void scanGzip(Path filePath, LineScanningOutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= 2L * rangeSize && size <= MAX_MAPPED_SIZE) {
+                MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                List<Integer> ranges = GzipMembers.ranges(data, rangeSize);
+                if (ranges.size() > 2) {
+                    scanRanges(data, ranges, out);
+                    return;
+                }
+            }
+            stream(() -> new GZIPInputStream(Files.newInputStream(filePath), DecompressingPipe.BLOCK_SIZE), out);
+        }
+    }
+
+    /**
+     * Decompresses the ranges of a gzip file in parallel, a bounded number ahead of the one being scanned, and scans
+     * them in order. A range that turns out not to start or end at a member is decompressed member by member on this
+     * thread instead, up to the next range start that is confirmed to be a member start.
+     */
+    private void scanRanges(MappedByteBuffer data, List<Integer> ranges, LineScanningOutputStream out) throws IOException {
+        int count = ranges.size() - 1;
+        int window = pool.getParallelism() + 1;
+        List<Future<ByteArrayOutputStream>> futures = new ArrayList<>(count);
+        try {
+            int next = 0;
+            while (next < count && !out.isDone()) {
+                while (futures.size() < next) {
+                    // skipped by a sequential inflate
+                    futures.add(null);
+                }
+                while (futures.size() < Math.min(count, next + window)) {
+                    int from = ranges.get(futures.size());
+                    int to = ranges.get(futures.size() + 1);
+                    futures.add(pool.submit(() -> GzipMembers.inflateRange(data, from, to)));
+                }
+                ByteArrayOutputStream range = futures.get(next).get();
+                if (range != null) {
+                    range.writeTo(out);
+                    next++;
+                } else {
+                    next = inflateSequentially(data, ranges, next, out);
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while decompressing", e);
+        } finally {
+            futures.stream().filter(Objects::nonNull).forEach(future -> future.cancel(false));
+        }
+    }
+
+    /**
+     * Inflates the members from the start of range {@code first} until a member ends at the start of a later range,
+     * or at the end of the data.
+     *
+     * @return the index of that range, or the number of ranges
+     */
+    private static int inflateSequentially(MappedByteBuffer data, List<Integer> ranges, int first,
+                                           LineScanningOutputStream out) throws IOException {
+        int size = data.limit();
+        int position = ranges.get(first);
+        Inflater inflater = new Inflater(true);
+        try {
+            while (position < size && !out.isDone()) {
+                try {
+                    position = GzipMembers.inflateMember(data, position, size, inflater, out);
+                } catch (ZipException e) {
+                    if (position == ranges.get(first)) {
+                        throw e;
+                    }
+                    // trailing bytes after the last member, which gzip ignores as well
+                    return ranges.size() - 1;
+                }
+                int range = ranges.indexOf(position);
+                if (range > first) {
+                    return range;
+                }
+            }
+            return ranges.size() - 1;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private void scanZip(Path filePath, PatternMatcher patternMatcher, ProcessingContext context,
+                         ResultStore results) throws IOException {
+        try (ZipFile zip = new ZipFile(filePath.toFile())) {
+            for (ZipEntry entry : entries(zip)) {
+                if (context.isDone(results.size())) {
+                    return;
+                }
+                try (LineScanningOutputStream out = new LineScanningOutputStream(filePath.resolve(entry.getName()),
+                        patternMatcher, context, results)) {
+                    stream(() -> zip.getInputStream(entry), out);
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the matching lines of the searched entries of a zip archive with a single stream, ending the last line
+     * of each entry before the next one is written.
+     */
+    private void countZip(Path filePath, LineScanningOutputStream out) throws IOException {
+        try (ZipFile zip = new ZipFile(filePath.toFile())) {
+            for (ZipEntry entry : entries(zip)) {
+                if (out.isDone()) {
+                    return;
+                }
+                stream(() -> zip.getInputStream(entry), out);
+                out.endLine();
+            }
+        }
+    }
+
+    private List<? extends ZipEntry> entries(ZipFile zip) {
+        return zip.stream()
+                .filter(entry -> !entry.isDirectory() && entryFilter.test(entry.getName()))
+                .toList();
+    }
+
+    /**
+     * Decompresses a stream on another thread and scans the decompressed blocks on this one.
+     */
+    private static void stream(Callable<InputStream> source, LineScanningOutputStream out) throws IOException {
+        try (DecompressingPipe pipe = new DecompressingPipe(source, DECOMPRESSING_THREADS)) {
+            byte[] block;
+            while (!out.isDone() && (block = pipe.next()) != null) {
+                out.write(block, 0, block.length);
+            }
+        }
+    }
+
+    private static boolean isGzip(Path filePath) {
+        return filePath.getFileName().toString().toLowerCase().endsWith(".gz");
+    }
+
+    private static boolean isZip(Path filePath) {
+        return filePath.getFileName().toString().toLowerCase().endsWith(".zip");
+    }
+}
@@ -0,0 +1,335 @@
+package org.coding.core;
+
+import org.coding.model.ResultStore;
+import org.coding.model.SearchResult;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * This implementation of FileProcessor searches a single large file with several threads.
+ * The file is split into chunks that end on a line break, the chunks are scanned in parallel on a
+ * {@link ForkJoinPool}, and absolute line numbers are restored from a prefix sum of the line breaks in each chunk.
+ * The results are the same, and in the same order, as scanning the file from start to end.
+ * If context lines are asked for, a chunk is mapped together with the lines just before and after it, so that the
+ * lines around matches near its ends are found without searching those lines again.
+ * Counting the matches of a file only adds up a count per chunk.
+ *
+ * Files smaller than the parallel threshold are handed to a delegate processor, as splitting them is not worth it.
+ * The charset of a large file is detected from its first bytes before it is split, see {@link FileEncoding}, and
+ * every chunk is decoded with it, so the lines are those of {@link SequentialFileProcessor}; a binary file is skipped.
+ */
+public class ConcurrentFileProcessor implements FileProcessor {
+    static final long DEFAULT_PARALLEL_THRESHOLD = 64L * 1024 * 1024;
+    static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+    private static final int MAX_CHUNK_SIZE = Integer.MAX_VALUE - 8;
+    private static final int BOUNDARY_PROBE_SIZE = 64 * 1024;
+
+    private final FileProcessor smallFileProcessor;
+    private final long parallelThreshold;
+    private final int chunkSize;
+    private final ForkJoinPool pool;
+
+    public ConcurrentFileProcessor() {
+        this(DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    public ConcurrentFileProcessor(long parallelThreshold) {
+        this(new MappedFileProcessor(), parallelThreshold, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param smallFileProcessor the processor used for files below {@code parallelThreshold}
+     * @param parallelThreshold  the size in bytes from which a file is split into chunks
+     * @param chunkSize          the target size of a chunk; chunks are extended to the next line break
+     * @param pool               the pool the chunks are scanned on
+     */
+    public ConcurrentFileProcessor(FileProcessor smallFileProcessor, long parallelThreshold, int chunkSize, ForkJoinPool pool) {
+        if (smallFileProcessor == null || pool == null) {
+            throw new IllegalArgumentException("Small file processor and pool must not be null");
+        }
+        if (parallelThreshold < 0 || chunkSize < 1) {
+            throw new IllegalArgumentException("Parallel threshold must not be negative and chunk size must be positive");
+        }
+        this.smallFileProcessor = smallFileProcessor;
+        this.parallelThreshold = parallelThreshold;
+        this.chunkSize = chunkSize;
+        this.pool = pool;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult> processFile(Path filePath, PatternMatcher patternMatcher) {
+        return processFile(filePath, patternMatcher, ProcessingContext.UNLIMITED);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The chunks of a large file are each scanned up to the maximum number of results, and the merged results
+     * are cut to the maximum.
+     */
+    @Override
+    public List<SearchResult> processFile(Path filePath, PatternMatcher patternMatcher, ProcessingContext context) {
+        if (patternMatcher == null || filePath == null ) {
+            System.err.println("Null argument: patternMatcher or filePath is missing in " + getClass().getSimpleName());
+            return new ArrayList<>();
+        }
+        ResultStore searchResults = new ResultStore();
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<Long> boundaries = size < parallelThreshold ? null : chunkBoundaries(channel, size);
+            if (boundaries == null || boundaries.size() <= 2) {
+                return smallFileProcessor.processFile(filePath, patternMatcher, context);
+            }
+            Charset charset = MappedFileProcessor.charsetOf(channel, size, context);
+            if (charset == null) {
+                return searchResults;
+            }
+
+            List<Callable<ChunkResult>> chunks = new ArrayList<>();
+            for (int i = 0; i + 1 < boundaries.size(); i++) {
+                long start = boundaries.get(i);
+                long end = boundaries.get(i + 1);
+                chunks.add(() -> scanChunk(channel, start, end, size, filePath, charset, patternMatcher, context));
+            }
+
+            int lineOffset = 0;
+            for (Future<ChunkResult> future : pool.invokeAll(chunks)) {
+                ChunkResult chunk = future.get();
+                int first = searchResults.size();
+                for (SearchResult result : chunk.results) {
+                    if (searchResults.size() == context.getMaxResults()) {
+                        break;
+                    }
+                    searchResults.add(result);
+                }
+                searchResults.shiftLineNumbers(first, lineOffset);
+                if (first > 0 && first < searchResults.size()) {
+                    searchResults.limitContextAfter(first - 1,
+                            searchResults.get(first).getLineNumber() - searchResults.get(first - 1).getLineNumber() - 1);
+                }
+                if (searchResults.size() == context.getMaxResults()) {
+                    return searchResults;
+                }
+                lineOffset += chunk.lineBreaks;
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not read file " + filePath + ": " + e.getMessage());
+        } catch (ExecutionException e) {
+            System.err.println("Warning: Could not read file " + filePath + ": " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return searchResults;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The chunks of a large file are counted in parallel and their counts added up. If the number of matching lines
+     * is limited, the file is counted from start to end by the delegate instead, so that it stops at the limit.
+     */
+    @Override
+    public long countMatches(Path filePath, PatternMatcher patternMatcher, ProcessingContext context, CountMode mode) {
+        if (patternMatcher == null || filePath == null ) {
+            System.err.println("Null argument: patternMatcher or filePath is missing in " + getClass().getSimpleName());
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<Long> boundaries = size < parallelThreshold || context.getMaxResults() < Integer.MAX_VALUE
+                    ? null : chunkBoundaries(channel, size);
+            if (boundaries == null || boundaries.size() <= 2) {
+                return smallFileProcessor.countMatches(filePath, patternMatcher, context, mode);
+            }
+            Charset charset = MappedFileProcessor.charsetOf(channel, size, context);
+            if (charset == null) {
+                return 0;
+            }
+
+            List<Callable<Long>> chunks = new ArrayList<>();
+            for (int i = 0; i + 1 < boundaries.size(); i++) {
+                long start = boundaries.get(i);
+                long end = boundaries.get(i + 1);
+                chunks.add(() -> {
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                    ByteLineScanner scanner = new ByteLineScanner(filePath, patternMatcher, 1, false, charset);
+                    scanner.count(mapped, 0, mapped.limit(), mode, context);
+                    return scanner.counted(mode);
+                });
+            }
+            long count = 0;
+            for (Future<Long> future : pool.invokeAll(chunks)) {
+                count += future.get();
+            }
+            return count;
+        } catch (IOException e) {
+            System.err.println("Warning: Could not read file " + filePath + ": " + e.getMessage());
+        } catch (ExecutionException e) {
+            System.err.println("Warning: Could not read file " + filePath + ": " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the chunk boundaries of the file, from {@code 0} to {@code size}, each one just after a {@code \n}.
+     * Returns {@code null} if a single line is too long to be mapped as one chunk.
+     */
+    private List<Long> chunkBoundaries(FileChannel channel, long size) throws IOException {
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        long previous = 0;
+        while (previous + chunkSize < size) {
+            long boundary = nextLineStart(channel, previous + chunkSize, size);
+            if (boundary - previous > MAX_CHUNK_SIZE) {
+                return null;
+            }
+            if (boundary >= size) {
+                break;
+            }
+            boundaries.add(boundary);
+            previous = boundary;
+        }
+        if (size - previous > MAX_CHUNK_SIZE) {
+            return null;
+        }
+        boundaries.add(size);
+        return boundaries;
+    }
+
+    /**
+     * Returns the position just after the first {@code \n} at or after {@code position - 1}, or {@code size}.
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(BOUNDARY_PROBE_SIZE);
+        long offset = position - 1;
+        while (offset < size) {
+            probe.clear();
+            int read = channel.read(probe, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return size;
+    }
+
+    /**
+     * Scans the chunk {@code [start, end)}. If context lines are asked for, the lines before and after the chunk that
+     * they may need are mapped with it, unless that is too large, but only the chunk itself is searched.
+     */
+    private static ChunkResult scanChunk(FileChannel channel, long start, long end, long size, Path filePath,
+                                         Charset charset, PatternMatcher patternMatcher, ProcessingContext context)
+            throws IOException {
+        long mapStart = start;
+        long mapEnd = end;
+        if (context.hasContext()) {
+            // a line break may take two bytes, and the line before the first one needs its own line break
+            long before = lineBreaksBefore(channel, start, context.getLinesBefore() == 0 ? 0 : 2 * context.getLinesBefore() + 2);
+            long after = lineBreaksAfter(channel, end, 2 * context.getLinesAfter(), size);
+            if (after - before <= MAX_CHUNK_SIZE) {
+                mapStart = before;
+                mapEnd = after;
+            }
+        }
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+        int from = (int) (start - mapStart);
+        int to = (int) (end - mapStart);
+        ByteLineScanner scanner = new ByteLineScanner(filePath, patternMatcher, 1, false, charset);
+        ResultStore results = new ResultStore();
+        scanner.precedingRegion(mapped, mapStart, 0, from, context);
+        scanner.scan(mapped, mapStart, from, to, true, context, results);
+        scanner.followingRegion(mapped, mapStart, to, mapped.limit(), context, results);
+        return new ChunkResult(results, scanner.lineNumber() - 1);
+    }
+
+    /**
+     * Returns the position just after the {@code count}th {@code \n} or {@code \r} before {@code position},
+     * or {@code 0}.
+     */
+    private static long lineBreaksBefore(FileChannel channel, long position, int count) throws IOException {
+        if (count == 0) {
+            return position;
+        }
+        ByteBuffer probe = ByteBuffer.allocate(BOUNDARY_PROBE_SIZE);
+        long offset = position;
+        int seen = 0;
+        while (offset > 0) {
+            int length = (int) Math.min(BOUNDARY_PROBE_SIZE, offset);
+            probe.clear().limit(length);
+            int read = 0;
+            while (read < length) {
+                int n = channel.read(probe, offset - length + read);
+                if (n <= 0) {
+                    break;
+                }
+                read += n;
+            }
+            for (int i = read - 1; i >= 0; i--) {
+                byte b = probe.get(i);
+                if ((b == '\n' || b == '\r') && ++seen == count) {
+                    return offset - length + i + 1;
+                }
+            }
+            offset -= length;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the position just after the {@code count}th {@code \n} or {@code \r} at or after {@code position},
+     * or {@code size}.
+     */
+    private static long lineBreaksAfter(FileChannel channel, long position, int count, long size) throws IOException {
+        if (count == 0) {
+            return position;
+        }
+        ByteBuffer probe = ByteBuffer.allocate(BOUNDARY_PROBE_SIZE);
+        long offset = position;
+        int seen = 0;
+        while (offset < size) {
+            probe.clear();
+            int read = channel.read(probe, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = probe.get(i);
+                if ((b == '\n' || b == '\r') && ++seen == count) {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return size;
+    }
+
+    private static final class ChunkResult {
+        private final ResultStore results;
+        private final int lineBreaks;
+
+        private ChunkResult(ResultStore results, int lineBreaks) {
+            this.results = results;
+            this.lineBreaks = lineBreaks;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package org.coding.core;
+
+import org.coding.model.ResultStore;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the context lines around the matching lines that a {@link ByteLineScanner} adds to a {@link ResultStore}.
+ *
+ * Context lines are only looked for around matching lines: the lines before one are found by walking back from its
+ * start, and the lines after it by walking forward from its end, so regions without matches cost nothing extra.
+ * Lines before the start of the region being scanned are remembered in a ring buffer of the last {@code linesBefore}
+ * lines of the previous region: their offsets in the file if the bytes can be read back from it, and their text
+ * otherwise. Lines after the last matching line that run on past the end of a region are taken from the start of the
+ * next one.
+ *
+ * The lines after a result stop before the line of the next result. The lines before it are not cut at the previous
+ * result, so context blocks of results that are close together overlap; they are merged when they are printed.
+ */
+final class ContextLines {
+    private final int linesBefore;
+    private final int linesAfter;
+    private final Charset charset;
+
+    // the last lines before the current region, oldest first from head
+    private final long[] previousStarts;
+    private final String[] previousLines;
+    private int previousHead;
+    private int previousCount;
+    private final int[] found;
+
+    // the last result, and the context lines it has so far if it still wants lines after it
+    private int lastIndex = -1;
+    private int lastLineNumber;
+    private int wanted;
+    private long contextStart;
+    private int contextBefore;
+    private long contextEnd;
+    private int contextAfter;
+    private List<String> keptBefore;
+    private List<String> keptAfter;
+
+    /**
+     * @param charset the charset the lines of the file are decoded with
+     */
+    ContextLines(int linesBefore, int linesAfter, Charset charset) {
+        this.linesBefore = linesBefore;
+        this.linesAfter = linesAfter;
+        this.charset = charset;
+        this.previousStarts = new long[linesBefore];
+        this.previousLines = new String[linesBefore];
+        this.found = new int[linesBefore];
+    }
+
+    /**
+     * Adds the lines at the start of a region to the context after the last result, as far as it still wants lines.
+     *
+     * @param last whether no region follows, so the last result wants no more lines after this one
+     */
+    void continueAfter(ByteBuffer buffer, long bufferOffset, int from, int to, boolean last, ResultStore results) {
+        if (wanted > 0) {
+            takeLinesAfter(buffer, bufferOffset, from, to);
+            store(bufferOffset != ByteLineScanner.NOT_IN_FILE, results);
+        }
+        if (last) {
+            wanted = 0;
+        }
+    }
+
+    /**
+     * Adds the context lines of the result at {@code index}, whose line is {@code [lineStart, lineEnd)} in a region
+     * that starts at {@code from} and ends at {@code to}, and ends the context after the previous result before it.
+     */
+    void addContext(ByteBuffer buffer, long bufferOffset, int from, int to, boolean last, int lineStart, int lineEnd,
+                    int lineNumber, int index, ResultStore results) {
+        if (lastIndex >= 0) {
+            results.limitContextAfter(lastIndex, lineNumber - lastLineNumber - 1);
+        }
+        boolean inFile = bufferOffset != ByteLineScanner.NOT_IN_FILE;
+        keptBefore = inFile ? null : new ArrayList<>();
+        keptAfter = inFile ? null : new ArrayList<>();
+
+        contextBefore = 0;
+        int start = lineStart;
+        while (contextBefore < linesBefore && start > from) {
+            int previousStart = previousLineStart(buffer, from, start);
+            if (!inFile) {
+                keptBefore.add(0, ByteLineScanner.decode(buffer, previousStart, previousLineEnd(buffer, from, start), charset));
+            }
+            start = previousStart;
+            contextBefore++;
+        }
+        contextStart = bufferOffset + start;
+        if (start == from) {
+            int take = Math.min(linesBefore - contextBefore, previousCount);
+            for (int i = previousCount - 1; i >= previousCount - take; i--) {
+                int slot = (previousHead + i) % linesBefore;
+                if (inFile) {
+                    contextStart = previousStarts[slot];
+                } else {
+                    keptBefore.add(0, previousLines[slot]);
+                }
+            }
+            contextBefore += take;
+        }
+
+        contextAfter = 0;
+        contextEnd = bufferOffset + lineEnd;
+        wanted = linesAfter;
+        lastIndex = index;
+        lastLineNumber = lineNumber;
+        takeLinesAfter(buffer, bufferOffset, ByteLineScanner.nextLineStart(buffer, lineEnd, to), to);
+        if (last) {
+            wanted = 0;
+        }
+        store(inFile, results);
+    }
+
+    /**
+     * Remembers the last lines of {@code [from, to)}, which ends with a line break, as the lines before the next region.
+     */
+    void endRegion(ByteBuffer buffer, long bufferOffset, int from, int to) {
+        if (linesBefore == 0) {
+            return;
+        }
+        int count = 0;
+        int start = to;
+        while (count < linesBefore && start > from) {
+            start = previousLineStart(buffer, from, start);
+            found[count++] = start;
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            int slot;
+            if (previousCount < linesBefore) {
+                slot = (previousHead + previousCount++) % linesBefore;
+            } else {
+                slot = previousHead;
+                previousHead = (previousHead + 1) % linesBefore;
+            }
+            if (bufferOffset != ByteLineScanner.NOT_IN_FILE) {
+                previousStarts[slot] = bufferOffset + found[i];
+            } else {
+                int end = i == 0 ? to : found[i - 1];
+                previousLines[slot] = ByteLineScanner.decode(buffer, found[i], previousLineEnd(buffer, found[i], end), charset);
+            }
+        }
+    }
+
+    /**
+     * Adds the lines from {@code from} on, up to {@code to}, to the context after the last result while it wants lines.
+     */
+    private void takeLinesAfter(ByteBuffer buffer, long bufferOffset, int from, int to) {
+        int position = from;
+        while (wanted > 0 && position < to) {
+            int end = ByteLineScanner.lineEnd(buffer, position, to);
+            if (bufferOffset != ByteLineScanner.NOT_IN_FILE) {
+                contextEnd = bufferOffset + end;
+            } else {
+                keptAfter.add(ByteLineScanner.decode(buffer, position, end, charset));
+            }
+            contextAfter++;
+            wanted--;
+            position = ByteLineScanner.nextLineStart(buffer, end, to);
+        }
+    }
+
+    private void store(boolean inFile, ResultStore results) {
+        if (inFile) {
+            results.setContext(lastIndex, contextStart, contextBefore, contextEnd, contextAfter);
+        } else {
+            results.setContext(lastIndex, keptBefore, keptAfter);
+        }
+    }
+
+    /**
+     * Returns the start of the line that ends just before {@code lineStart}, not before {@code floor}.
+     */
+    private static int previousLineStart(ByteBuffer buffer, int floor, int lineStart) {
+        return ByteLineScanner.lineStart(buffer, floor, previousLineEnd(buffer, floor, lineStart));
+    }
+
+    /**
+     * Returns the end of the line that ends just before {@code lineStart}, before its line break.
+     */
+    private static int previousLineEnd(ByteBuffer buffer, int floor, int lineStart) {
+        int end = lineStart - 1;
+        if (end > floor && buffer.get(end) == '\n' && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        return end;
+    }
+}
@@ -0,0 +1,16 @@
+package org.coding.core;
+
+/**
+ * What {@link FileProcessor#countMatches(java.nio.file.Path, PatternMatcher, ProcessingContext, CountMode)} counts.
+ *
+ * <ul>
+ *     <li>{@link #LINES}: the matching lines, as {@code grep -c} does.</li>
+ *     <li>{@link #OCCURRENCES}: every occurrence of the pattern, so a line that contains it three times counts three
+ *     times. Occurrences are counted from the start of the line and do not overlap, see
+ *     {@link PatternMatcher#countOccurrences(String)}.</li>
+ * </ul>
+ */
+public enum CountMode {
+    LINES,
+    OCCURRENCES
+}
@@ -0,0 +1,97 @@
+package org.coding.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a decompressing {@link InputStream} on another thread and hands the decompressed bytes over in blocks,
+ * so that decompression and matching run at the same time.
+ * At most {@value #QUEUED_BLOCKS} blocks wait to be taken; the decompressing thread waits while the queue is full.
+ * Closing the pipe early stops the decompressing thread at its next block.
+ */
+final class DecompressingPipe implements AutoCloseable {
+    static final int BLOCK_SIZE = 256 * 1024;
+    private static final int QUEUED_BLOCKS = 4;
+    private static final byte[] END = new byte[0];
+
+    private final BlockingQueue<byte[]> blocks = new ArrayBlockingQueue<>(QUEUED_BLOCKS);
+    private volatile boolean closed;
+    private volatile IOException failure;
+    private boolean ended;
+
+    /**
+     * @param source   opens the decompressing stream; called on the decompressing thread
+     * @param executor runs the decompressing thread
+     */
+    DecompressingPipe(Callable<InputStream> source, ExecutorService executor) {
+        executor.execute(() -> decompress(source));
+    }
+
+    /**
+     * Returns the next block of decompressed bytes, or {@code null} once all of them were taken.
+     *
+     * @throws IOException if the stream could not be opened or read
+     */
+    byte[] next() throws IOException {
+        if (ended) {
+            return null;
+        }
+        byte[] block;
+        try {
+            block = blocks.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while decompressing", e);
+        }
+        if (block == END) {
+            ended = true;
+            if (failure != null) {
+                throw failure;
+            }
+            return null;
+        }
+        return block;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        blocks.clear();
+    }
+
+    private void decompress(Callable<InputStream> source) {
+        try (InputStream in = source.call()) {
+            byte[] block;
+            while (!closed && (block = in.readNBytes(BLOCK_SIZE)).length > 0) {
+                put(block);
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (UncheckedIOException e) {
+            failure = e.getCause();
+        } catch (Exception e) {
+            failure = new IOException(e.getMessage(), e);
+        } finally {
+            put(END);
+        }
+    }
+
+    /**
+     * Waits for room in the queue, unless the pipe is closed, in which case nobody takes blocks anymore.
+     */
+    private void put(byte[] block) {
+        try {
+            while (!closed && !blocks.offer(block, 100, TimeUnit.MILLISECONDS)) {
+                // wait for the reader, or for the pipe to be closed
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.coding.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tells from the first bytes of a file whether it is text and how to decode it, so that a file is neither read
+ * twice nor given up halfway because its bytes are not what the decoder expected.
+ *
+ * A sample with a NUL byte is binary, as text files in the encodings searched never contain one. A sample that is
+ * valid UTF-8, which includes plain ASCII, is UTF-8; a multi-byte sequence cut off at the end of the sample is allowed,
+ * since the file goes on after it. Any other sample is taken as ISO-8859-1, which decodes every byte to a character,
+ * so Latin-1 text is matched as such and other single-byte encodings still match in their ASCII part.
+ * Processors that search the raw bytes detect the charset from bytes they read or mapped for the search anyway, see
+ * {@link #detect(ByteBuffer, int)}, and decode the lines they find with it; as ISO-8859-1 agrees with UTF-8 on ASCII,
+ * the bytes are searched the same way in either.
+ */
+final class FileEncoding {
+    /**
+     * The number of bytes to sample at the start of a file.
+     */
+    static final int SAMPLE_SIZE = 8 * 1024;
+
+    private FileEncoding() {
+    }
+
+    /**
+     * @param sample the first bytes of the file
+     * @param length the number of bytes in the sample
+     * @return the charset to decode the file with, or {@code null} if the file is binary
+     */
+    static Charset detect(byte[] sample, int length) {
+        return detect(ByteBuffer.wrap(sample), length);
+    }
+
+    /**
+     * Detects the charset of a file from the bytes at its start that are already in memory.
+     *
+     * @param buffer the bytes at the start of the file, from index 0; its position and limit are ignored
+     * @param length the number of bytes of the file in the buffer; at most {@code SAMPLE_SIZE} of them are looked at
+     * @return the charset to decode the file with, or {@code null} if the file is binary
+     */
+    static Charset detect(ByteBuffer buffer, int length) {
+        int end = Math.min(length, SAMPLE_SIZE);
+        boolean utf8 = true;
+        int i = 0;
+        while (i < end) {
+            int b = buffer.get(i) & 0xFF;
+            if (b == 0) {
+                return null;
+            }
+            if (b < 0x80 || !utf8) {
+                i++;
+                continue;
+            }
+            int continuationBytes = b >= 0xC2 && b <= 0xDF ? 1 : b >= 0xE0 && b <= 0xEF ? 2 : b >= 0xF0 && b <= 0xF4 ? 3 : -1;
+            int sequenceEnd = Math.min(i + 1 + Math.max(continuationBytes, 0), end);
+            for (int j = i + 1; j < sequenceEnd && continuationBytes > 0; j++) {
+                if ((buffer.get(j) & 0xC0) != 0x80) {
+                    continuationBytes = -1;
+                }
+            }
+            if (continuationBytes < 0) {
+                utf8 = false;
+                i++;
+            } else {
+                i = sequenceEnd;
+            }
+        }
+        return utf8 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1;
+    }
+}
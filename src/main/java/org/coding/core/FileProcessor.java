@@ -3,6 +3,7 @@ package org.coding.core;
 import org.coding.model.SearchResult;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -20,4 +21,39 @@ public interface FileProcessor {
      * @return a list of {@link SearchResult} objects for each matching line; never {@code null}
      */
     List<SearchResult> processFile(Path filePath, PatternMatcher patternMatcher);
+
+    /**
+     * Processes the given file like {@link #processFile(Path, PatternMatcher)}, but stops reading it once the
+     * {@link ProcessingContext} says so: after its maximum number of matching lines, or when the search is cancelled.
+     * The default implementation reads the whole file and drops the results beyond the maximum.
+     *
+     * @param context limits how much of the file is read; must not be {@code null}
+     * @return at most {@code context.getMaxResults()} search results, in file order; never {@code null}
+     */
+    default List<SearchResult> processFile(Path filePath, PatternMatcher patternMatcher, ProcessingContext context) {
+        if (context.isCancelled()) {
+            return new ArrayList<>();
+        }
+        List<SearchResult> searchResults = processFile(filePath, patternMatcher);
+        return searchResults.size() <= context.getMaxResults()
+                ? searchResults
+                : new ArrayList<>(searchResults.subList(0, context.getMaxResults()));
+    }
+
+    /**
+     * Counts the matching lines of the given file, or the occurrences of the pattern in it, reading it up to the
+     * maximum number of matching lines of the context. Implementations that scan bytes count without creating
+     * {@link SearchResult}s; the default implementation counts the results of
+     * {@link #processFile(Path, PatternMatcher, ProcessingContext)}.
+     *
+     * @param mode what to count; must not be {@code null}
+     * @return the number of matching lines or occurrences; {@code 0} if an argument is invalid or the file cannot be read
+     */
+    default long countMatches(Path filePath, PatternMatcher patternMatcher, ProcessingContext context, CountMode mode) {
+        long count = 0;
+        for (SearchResult result : processFile(filePath, patternMatcher, context)) {
+            count += mode == CountMode.LINES ? 1 : patternMatcher.countOccurrences(result.getLineContent());
+        }
+        return count;
+    }
 }
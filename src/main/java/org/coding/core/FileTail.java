@@ -0,0 +1,157 @@
+package org.coding.core;
+
+import org.coding.model.ResultStore;
+import org.coding.model.SearchResult;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The scanned part of a file that grows by having lines appended to it, such as a log, so that each scan only reads
+ * the bytes appended since the last one.
+ *
+ * A tail remembers the offset after the last complete line it scanned and the number of the line that starts there.
+ * A line at the end of the file without a line break is left for a later scan, when it is complete. If the file
+ * is shorter than the offset, because it was truncated, or is another file than before, because it was rotated
+ * and a new file was created under its name, it is scanned again from its start.
+ *
+ * The charset of the file is detected from its first bytes when it is scanned from its start, see
+ * {@link FileEncoding}; a binary file has no results.
+ *
+ * Scans of a tail are serialized; the results of a scan keep the text of their lines, because a rotated file
+ * may be gone by the time they are printed.
+ */
+public final class FileTail {
+    private static final int READ_SIZE = 1024 * 1024;
+
+    private final Path filePath;
+    private Object fileKey;
+    private long offset;
+    private int lineNumber = 1;
+    private Charset charset = StandardCharsets.UTF_8;
+
+    public FileTail(Path filePath) {
+        if (filePath == null) {
+            throw new IllegalArgumentException("File path must not be null.");
+        }
+        this.filePath = filePath;
+    }
+
+    private FileTail(Path filePath, FileTail moved) {
+        this(filePath);
+        this.fileKey = moved.fileKey;
+        this.offset = moved.offset;
+        this.lineNumber = moved.lineNumber;
+        this.charset = moved.charset;
+    }
+
+    public Path getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * Returns the position after the last complete line that was scanned.
+     */
+    public synchronized long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the number of the line that starts at {@link #getOffset()}.
+     */
+    public synchronized int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Returns the key that identifies the file as it was at the last scan, see {@link BasicFileAttributes#fileKey()};
+     * {@code null} if it has not been scanned or the file system has no such keys.
+     */
+    public synchronized Object getFileKey() {
+        return fileKey;
+    }
+
+    /**
+     * Returns a tail for the same file after it was renamed to {@code filePath}, which goes on where this one stopped.
+     */
+    public synchronized FileTail movedTo(Path filePath) {
+        return new FileTail(filePath, this);
+    }
+
+    /**
+     * Scans the complete lines appended since the last scan and returns those that match, in file order.
+     * The bytes read and lines decoded are reported to the context; scanning stops early if it is cancelled.
+     * A file that no longer exists has no results; other files that cannot be read are reported as warnings.
+     */
+    public synchronized List<SearchResult> scan(PatternMatcher patternMatcher, ProcessingContext context) {
+        if (patternMatcher == null || context == null) {
+            System.err.println("Null argument: patternMatcher or context is missing in " + getClass().getSimpleName());
+            return new ArrayList<>();
+        }
+        ResultStore results = new ResultStore();
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            Object key = Files.readAttributes(filePath, BasicFileAttributes.class).fileKey();
+            long size = channel.size();
+            if (size < offset || key != null && fileKey != null && !key.equals(fileKey)) {
+                offset = 0;
+                lineNumber = 1;
+            }
+            fileKey = key;
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(READ_SIZE, Math.max(size - offset, 1)));
+            ByteLineScanner scanner = null;
+            while (offset < size && !context.isCancelled()) {
+                int length = read(channel, buffer, offset, size);
+                if (scanner == null) {
+                    charset = offset == 0 ? FileEncoding.detect(buffer, length) : charset;
+                    if (charset == null) {
+                        context.recordScanned(Math.min(length, FileEncoding.SAMPLE_SIZE), 0);
+                        break;
+                    }
+                    scanner = new ByteLineScanner(filePath, patternMatcher, lineNumber, false, charset);
+                }
+                int end = ByteLineScanner.lastLineBoundary(buffer, 0, length);
+                if (end < 0 && length == buffer.capacity() && offset + length < size) {
+                    // a line longer than the buffer
+                    buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+                    continue;
+                }
+                if (end < 0) {
+                    break;
+                }
+                scanner.scan(buffer, ByteLineScanner.NOT_IN_FILE, 0, end, true, context, results);
+                offset += end;
+                lineNumber = scanner.lineNumber();
+            }
+        } catch (NoSuchFileException e) {
+            return new ArrayList<>();
+        } catch (IOException e) {
+            System.err.println("Warning: Could not read file " + filePath + ": " + e.getMessage());
+        }
+        return results;
+    }
+
+    /**
+     * Fills the buffer from {@code position} on, up to {@code size}, and returns the number of bytes in it.
+     */
+    private static int read(FileChannel channel, ByteBuffer buffer, long position, long size) throws IOException {
+        buffer.clear();
+        buffer.limit((int) Math.min(buffer.capacity(), size - position));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer.limit();
+    }
+}
@@ -0,0 +1,238 @@
+package org.coding.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Finds and inflates the members of a gzip file (RFC 1952) held in a buffer.
+ *
+ * A gzip file may be a sequence of members, each a complete gzip stream, for example when gzip files are
+ * concatenated, or when they are written by bgzip, whose members (BGZF blocks) record their own size in an extra
+ * header field. Members can be inflated independently of each other, so a file with several members can be split
+ * at member starts and inflated in parallel.
+ */
+final class GzipMembers {
+    private static final int ID1 = 0x1f;
+    private static final int ID2 = 0x8b;
+    private static final int DEFLATE = 8;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    private static final int RESERVED_FLAGS = 0xE0;
+    private static final int HEADER_SIZE = 10;
+    private static final int TRAILER_SIZE = 8;
+    private static final int OUTPUT_BLOCK_SIZE = 64 * 1024;
+
+    private GzipMembers() {
+    }
+
+    /**
+     * Splits the gzip file in {@code data} into ranges of about {@code rangeSize} bytes that each start at a member.
+     *
+     * For a BGZF file, the ranges are made of whole blocks, found by following the block sizes. For any other file,
+     * the first plausible member header after every multiple of {@code rangeSize} is taken as a range start; such a
+     * start is only a guess, since the same bytes may occur inside compressed data, and must be verified by
+     * inflating the range before it, see {@link #inflateRange}. A file with a single member usually has a single range.
+     *
+     * @return the range starts, followed by the size of the data
+     */
+    static List<Integer> ranges(ByteBuffer data, int rangeSize) {
+        List<Integer> bgzf = bgzfRanges(data, rangeSize);
+        if (bgzf != null) {
+            return bgzf;
+        }
+        int size = data.limit();
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        for (long split = rangeSize; split < size; split += rangeSize) {
+            int candidate = nextPlausibleHeader(data, (int) split, (int) Math.min(size, split + rangeSize));
+            if (candidate >= 0 && candidate > starts.get(starts.size() - 1)) {
+                starts.add(candidate);
+            }
+        }
+        starts.add(size);
+        return starts;
+    }
+
+    /**
+     * Inflates the members in {@code [from, to)}.
+     *
+     * @return the inflated bytes, or {@code null} if the range is not a sequence of valid members that ends exactly
+     * at {@code to}, which means that {@code from} or {@code to} was not the start of a member
+     */
+    static ByteArrayOutputStream inflateRange(ByteBuffer data, int from, int to) {
+        Inflater inflater = new Inflater(true);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int position = from;
+            while (position < to) {
+                position = inflateMember(data, position, to, inflater, out);
+            }
+            return position == to ? out : null;
+        } catch (IOException e) {
+            return null;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Inflates the member that starts at {@code position} into {@code out} and checks its CRC and size.
+     *
+     * @param limit the end of the data the member must fit in
+     * @return the position just after the member
+     * @throws ZipException if there is no valid member at {@code position}
+     * @throws IOException  if {@code out} fails
+     */
+    static int inflateMember(ByteBuffer data, int position, int limit, Inflater inflater, OutputStream out) throws IOException {
+        int dataStart = skipHeader(data, position, limit);
+        inflater.reset();
+        inflater.setInput(data.slice(dataStart, limit - dataStart));
+        CRC32 crc = new CRC32();
+        byte[] block = new byte[OUTPUT_BLOCK_SIZE];
+        long size = 0;
+        try {
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(block);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new ZipException("Truncated gzip member at " + position);
+                }
+                crc.update(block, 0, inflated);
+                out.write(block, 0, inflated);
+                size += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException("Invalid gzip member at " + position + ": " + e.getMessage());
+        }
+        int trailer = dataStart + (int) inflater.getBytesRead();
+        if (trailer + TRAILER_SIZE > limit) {
+            throw new ZipException("Truncated gzip member at " + position);
+        }
+        ByteBuffer littleEndian = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (Integer.toUnsignedLong(littleEndian.getInt(trailer)) != crc.getValue() || littleEndian.getInt(trailer + 4) != (int) size) {
+            throw new ZipException("Corrupt gzip member at " + position);
+        }
+        return trailer + TRAILER_SIZE;
+    }
+
+    /**
+     * Returns the position of the compressed data of the member that starts at {@code position}.
+     *
+     * @throws ZipException if there is no member header at {@code position}
+     */
+    static int skipHeader(ByteBuffer data, int position, int limit) throws ZipException {
+        if (position + HEADER_SIZE > limit || (data.get(position) & 0xFF) != ID1 || (data.get(position + 1) & 0xFF) != ID2
+                || data.get(position + 2) != DEFLATE || (data.get(position + 3) & RESERVED_FLAGS) != 0) {
+            throw new ZipException("Not in GZIP format at " + position);
+        }
+        int flags = data.get(position + 3);
+        int p = position + HEADER_SIZE;
+        if ((flags & FEXTRA) != 0) {
+            p += 2 + (p + 2 <= limit ? unsignedShort(data, p) : 0);
+        }
+        if ((flags & FNAME) != 0) {
+            p = skipZeroTerminated(data, p, limit);
+        }
+        if ((flags & FCOMMENT) != 0) {
+            p = skipZeroTerminated(data, p, limit);
+        }
+        if ((flags & FHCRC) != 0) {
+            p += 2;
+        }
+        if (p > limit) {
+            throw new ZipException("Truncated gzip header at " + position);
+        }
+        return p;
+    }
+
+    /**
+     * Returns the size of the BGZF block that starts at {@code position}, or {@code -1} if there is none,
+     * as given by the {@code BC} subfield of the extra header field.
+     */
+    static int bgzfBlockSize(ByteBuffer data, int position) {
+        int limit = data.limit();
+        if (position + HEADER_SIZE + 2 > limit || (data.get(position) & 0xFF) != ID1 || (data.get(position + 1) & 0xFF) != ID2
+                || data.get(position + 2) != DEFLATE || (data.get(position + 3) & FEXTRA) == 0) {
+            return -1;
+        }
+        int extraLength = unsignedShort(data, position + HEADER_SIZE);
+        int p = position + HEADER_SIZE + 2;
+        int end = Math.min(limit, p + extraLength);
+        while (p + 4 <= end) {
+            int subfieldLength = unsignedShort(data, p + 2);
+            if (data.get(p) == 'B' && data.get(p + 1) == 'C' && subfieldLength == 2 && p + 6 <= end) {
+                return unsignedShort(data, p + 4) + 1;
+            }
+            p += 4 + subfieldLength;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns ranges of whole BGZF blocks, or {@code null} if {@code data} is not a BGZF file.
+     */
+    private static List<Integer> bgzfRanges(ByteBuffer data, int rangeSize) {
+        int size = data.limit();
+        List<Integer> starts = new ArrayList<>();
+        int position = 0;
+        int rangeStart = 0;
+        starts.add(0);
+        while (position < size) {
+            int blockSize = bgzfBlockSize(data, position);
+            if (blockSize < 0) {
+                return null;
+            }
+            if (position - rangeStart >= rangeSize) {
+                starts.add(position);
+                rangeStart = position;
+            }
+            position += blockSize;
+        }
+        if (position != size) {
+            return null;
+        }
+        starts.add(size);
+        return starts;
+    }
+
+    /**
+     * Returns the first position in {@code [from, to)} where a member header that is plausible for files written by
+     * gzip-compatible tools starts, or {@code -1}.
+     */
+    private static int nextPlausibleHeader(ByteBuffer data, int from, int to) {
+        int limit = data.limit();
+        for (int i = from; i < to && i + HEADER_SIZE <= limit; i++) {
+            if ((data.get(i) & 0xFF) == ID1 && (data.get(i + 1) & 0xFF) == ID2 && data.get(i + 2) == DEFLATE
+                    && (data.get(i + 3) & RESERVED_FLAGS) == 0) {
+                int extraFlags = data.get(i + 8) & 0xFF;
+                int os = data.get(i + 9) & 0xFF;
+                if ((extraFlags == 0 || extraFlags == 2 || extraFlags == 4) && (os <= 13 || os == 255)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static int skipZeroTerminated(ByteBuffer data, int position, int limit) {
+        int p = position;
+        while (p < limit && data.get(p) != 0) {
+            p++;
+        }
+        return p + 1;
+    }
+
+    private static int unsignedShort(ByteBuffer data, int position) {
+        return (data.get(position) & 0xFF) | (data.get(position + 1) & 0xFF) << 8;
+    }
+}
@@ -0,0 +1,123 @@
+package org.coding.core;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Case-insensitive substring matcher that does not allocate while matching.
+ * The search string is case-folded and a Boyer-Moore-Horspool skip table is built once, at construction;
+ * each line is then searched in place, folding one character at a time.
+ *
+ * Characters are folded as described in {@link CaseFolding}, the same rules as {@link String#equalsIgnoreCase(String)}.
+ * It returns false for null or empty input line, and never matches a null or blank search string.
+ */
+public class HorspoolPatternMatcher implements BytePatternMatcher {
+    private final char[] pattern;
+    private final int[] skip = new int[256];
+    private final AsciiByteSearcher byteSearcher;
+    private final boolean exact;
+
+    public HorspoolPatternMatcher(String searchString) {
+        if (searchString == null || searchString.isBlank()) {
+            this.pattern = null;
+            this.byteSearcher = null;
+            this.exact = false;
+            return;
+        }
+        this.pattern = new char[searchString.length()];
+        for (int i = 0; i < pattern.length; i++) {
+            pattern[i] = CaseFolding.fold(searchString.charAt(i));
+        }
+        int last = pattern.length - 1;
+        Arrays.fill(skip, pattern.length);
+        for (int i = 0; i < last; i++) {
+            // characters sharing a bucket keep the smallest shift, which is always safe
+            skip[pattern[i] & 0xFF] = Math.min(skip[pattern[i] & 0xFF], last - i);
+        }
+        String asciiRun = AsciiByteSearcher.longestAsciiRun(searchString);
+        this.byteSearcher = asciiRun.isEmpty() ? null : new AsciiByteSearcher(asciiRun);
+        this.exact = AsciiByteSearcher.isExact(searchString);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean match(String line) {
+        if (pattern == null || line == null) {
+            return false;
+        }
+        int last = pattern.length - 1;
+        int end = line.length();
+        int i = 0;
+        while (i + last < end) {
+            char c = CaseFolding.fold(line.charAt(i + last));
+            if (c == pattern[last]) {
+                int j = last - 1;
+                while (j >= 0 && CaseFolding.fold(line.charAt(i + j)) == pattern[j]) {
+                    j--;
+                }
+                if (j < 0) {
+                    return true;
+                }
+            }
+            i += skip[c & 0xFF];
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int countOccurrences(String line) {
+        if (pattern == null || line == null) {
+            return 0;
+        }
+        int last = pattern.length - 1;
+        int end = line.length();
+        int count = 0;
+        int i = 0;
+        while (i + last < end) {
+            char c = CaseFolding.fold(line.charAt(i + last));
+            if (c == pattern[last]) {
+                int j = last - 1;
+                while (j >= 0 && CaseFolding.fold(line.charAt(i + j)) == pattern[j]) {
+                    j--;
+                }
+                if (j < 0) {
+                    count++;
+                    i += pattern.length;
+                    continue;
+                }
+            }
+            i += skip[c & 0xFF];
+        }
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The longest ASCII run of the search string is used as the candidate filter;
+     * if the search string has no ASCII characters, every position is a candidate.
+     */
+    @Override
+    public int indexIn(ByteBuffer buffer, int from, int to) {
+        if (pattern == null) {
+            return -1;
+        }
+        if (byteSearcher == null) {
+            return from < to ? from : -1;
+        }
+        return byteSearcher.indexIn(buffer, from, to);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Candidates are matches if the search string is all ASCII.
+     */
+    @Override
+    public int occurrenceEnd(int candidate) {
+        return exact ? candidate + pattern.length : -1;
+    }
+}
@@ -0,0 +1,106 @@
+package org.coding.core;
+
+import org.coding.model.ResultStore;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Scans the bytes written to it for matching lines, for data that is produced a block at a time, such as the output
+ * of a decompressor. Complete lines are scanned with a {@link ByteLineScanner} as soon as they are written;
+ * the last, incomplete line of a block is kept until the rest of it is written or the stream is closed.
+ * The written bytes are not those of a file, so the text of matching lines is kept.
+ * A stream created with a {@link CountMode} only counts the matching lines instead, see {@link #counted()}.
+ */
+final class LineScanningOutputStream extends OutputStream {
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private final ByteLineScanner scanner;
+    private final ProcessingContext context;
+    private final ResultStore results;
+    private final CountMode countMode;
+    private byte[] pending = new byte[INITIAL_CAPACITY];
+    private int length;
+
+    LineScanningOutputStream(Path filePath, PatternMatcher patternMatcher, ProcessingContext context, ResultStore results) {
+        this(filePath, patternMatcher, context, results, null);
+    }
+
+    /**
+     * Creates a stream that counts what {@code countMode} asks for instead of adding results.
+     */
+    LineScanningOutputStream(Path filePath, PatternMatcher patternMatcher, ProcessingContext context, CountMode countMode) {
+        this(filePath, patternMatcher, context, null, countMode);
+    }
+
+    private LineScanningOutputStream(Path filePath, PatternMatcher patternMatcher, ProcessingContext context,
+                                     ResultStore results, CountMode countMode) {
+        this.scanner = new ByteLineScanner(filePath, patternMatcher, 1, true);
+        this.context = context;
+        this.results = results;
+        this.countMode = countMode;
+    }
+
+    /**
+     * @return {@code true} if the context is done with the results found so far, so nothing more needs to be written
+     */
+    boolean isDone() {
+        return context.isDone(countMode == null ? results.size() : (int) Math.min(scanner.counted(CountMode.LINES), Integer.MAX_VALUE));
+    }
+
+    /**
+     * @return the number of matching lines or occurrences counted so far, for a stream created with a {@link CountMode}
+     */
+    long counted() {
+        return scanner.counted(countMode);
+    }
+
+    @Override
+    public void write(int b) {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int count) {
+        if (length + count > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(pending.length * 2, length + count));
+        }
+        System.arraycopy(bytes, offset, pending, length, count);
+        length += count;
+        ByteBuffer buffer = ByteBuffer.wrap(pending, 0, length);
+        int boundary = ByteLineScanner.lastLineBoundary(buffer, 0, length);
+        if (boundary > 0) {
+            scan(buffer, boundary, true);
+            System.arraycopy(pending, boundary, pending, 0, length - boundary);
+            length -= boundary;
+        }
+    }
+
+    /**
+     * Scans the last line, which does not end with a line break.
+     */
+    @Override
+    public void close() {
+        endLine();
+    }
+
+    /**
+     * Scans the last line written, which does not end with a line break, so that the next byte written starts a line.
+     */
+    void endLine() {
+        if (length > 0) {
+            scan(ByteBuffer.wrap(pending, 0, length), length, false);
+            length = 0;
+        }
+    }
+
+    private void scan(ByteBuffer buffer, int to, boolean countRemaining) {
+        if (countMode == null) {
+            scanner.scan(buffer, ByteLineScanner.NOT_IN_FILE, 0, to, countRemaining, context, results);
+        } else {
+            scanner.count(buffer, 0, to, countMode, context);
+        }
+    }
+}
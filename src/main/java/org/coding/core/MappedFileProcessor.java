@@ -0,0 +1,226 @@
+package org.coding.core;
+
+import org.coding.model.ResultStore;
+import org.coding.model.SearchResult;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.BooleanSupplier;
+
+/**
+ * This implementation of FileProcessor searches the raw UTF-8 bytes of a file instead of decoding every line.
+ * Small files are read into a buffer from a small pool, larger ones are memory-mapped in line-aligned windows.
+ * The pool holds a buffer per processor, so that virtual threads, which are not reused, do not each allocate one.
+ * Only lines around candidate matches are decoded, see {@link ByteLineScanner}, and the results are returned
+ * as a {@link ResultStore} that reads the matching lines of mapped files again when they are printed.
+ *
+ * The first bytes of each file are sampled before it is searched, see {@link FileEncoding}, so that lines are
+ * decoded as {@link SequentialFileProcessor} decodes them: binary files are skipped, files that are not UTF-8 are
+ * decoded as ISO-8859-1, and malformed UTF-8 in a matching line is decoded with replacement characters instead of
+ * aborting the file. The sample is taken from bytes that are read or mapped for the search anyway.
+ */
+public class MappedFileProcessor implements FileProcessor {
+    static final int DEFAULT_MAPPING_THRESHOLD = 256 * 1024;
+    static final int DEFAULT_WINDOW_SIZE = 256 * 1024 * 1024;
+    private static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE - 8;
+
+    private final int mappingThreshold;
+    private final int windowSize;
+    private final BlockingQueue<ByteBuffer> readBuffers;
+
+    public MappedFileProcessor() {
+        this(DEFAULT_MAPPING_THRESHOLD, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param mappingThreshold files up to this many bytes are read instead of mapped
+     * @param windowSize       the number of bytes mapped at a time; grown if a single line does not fit
+     */
+    MappedFileProcessor(int mappingThreshold, int windowSize) {
+        if (mappingThreshold < 0 || windowSize < 1) {
+            throw new IllegalArgumentException("Mapping threshold must not be negative and window size must be positive");
+        }
+        this.mappingThreshold = mappingThreshold;
+        this.windowSize = windowSize;
+        this.readBuffers = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult> processFile(Path filePath, PatternMatcher patternMatcher) {
+        return processFile(filePath, patternMatcher, ProcessingContext.UNLIMITED);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult> processFile(Path filePath, PatternMatcher patternMatcher, ProcessingContext context) {
+        if (patternMatcher == null || filePath == null ) {
+            System.err.println("Null argument: patternMatcher or filePath is missing in " + getClass().getSimpleName());
+            return new ArrayList<>();
+        }
+        ResultStore searchResults = new ResultStore();
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size <= mappingThreshold) {
+                ByteBuffer buffer = read(channel);
+                try {
+                    Charset charset = charsetOf(buffer, buffer.limit(), context);
+                    if (charset != null) {
+                        // lines of a small file are kept, which is cheaper than opening it again to print them
+                        new ByteLineScanner(filePath, patternMatcher, 1, true, charset)
+                                .scan(buffer, 0, 0, buffer.limit(), false, context, searchResults);
+                    }
+                } finally {
+                    readBuffers.offer(buffer);
+                }
+            } else {
+                Charset charset = charsetOf(channel, size, context);
+                if (charset == null) {
+                    return searchResults;
+                }
+                ByteLineScanner scanner = new ByteLineScanner(filePath, patternMatcher, 1, false, charset);
+                forEachWindow(channel, size, () -> context.isDone(searchResults.size()), (window, offset, end, last) ->
+                        scanner.scan(window, offset, 0, end, !last, context, searchResults));
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not read file " + filePath + ": " + e.getMessage());
+        }
+        return searchResults;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Lines are counted on the raw bytes, without creating results.
+     */
+    @Override
+    public long countMatches(Path filePath, PatternMatcher patternMatcher, ProcessingContext context, CountMode mode) {
+        if (patternMatcher == null || filePath == null ) {
+            System.err.println("Null argument: patternMatcher or filePath is missing in " + getClass().getSimpleName());
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size <= mappingThreshold) {
+                ByteBuffer buffer = read(channel);
+                try {
+                    Charset charset = charsetOf(buffer, buffer.limit(), context);
+                    if (charset == null) {
+                        return 0;
+                    }
+                    ByteLineScanner scanner = new ByteLineScanner(filePath, patternMatcher, 1, false, charset);
+                    scanner.count(buffer, 0, buffer.limit(), mode, context);
+                    return scanner.counted(mode);
+                } finally {
+                    readBuffers.offer(buffer);
+                }
+            }
+            Charset charset = charsetOf(channel, size, context);
+            if (charset == null) {
+                return 0;
+            }
+            ByteLineScanner scanner = new ByteLineScanner(filePath, patternMatcher, 1, false, charset);
+            forEachWindow(channel, size, () -> context.isDone((int) Math.min(scanner.counted(CountMode.LINES), Integer.MAX_VALUE)),
+                    (window, offset, end, last) -> scanner.count(window, 0, end, mode, context));
+            return scanner.counted(mode);
+        } catch (IOException e) {
+            System.err.println("Warning: Could not read file " + filePath + ": " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Reads a small file into a buffer taken from the pool, or allocated if the pool is empty; the caller offers it
+     * back to the pool when done with it, and the pool drops it if it is full.
+     */
+    private ByteBuffer read(FileChannel channel) throws IOException {
+        ByteBuffer buffer = readBuffers.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocate(mappingThreshold);
+        }
+        buffer.clear();
+        try {
+            int read;
+            do {
+                read = channel.read(buffer);
+            } while (read >= 0 && buffer.hasRemaining());
+        } catch (IOException e) {
+            readBuffers.offer(buffer);
+            throw e;
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Detects the charset of a file from the bytes at its start, and records the bytes looked at if it is binary.
+     *
+     * @return the charset to decode the file with, or {@code null} if the file is binary
+     */
+    static Charset charsetOf(ByteBuffer buffer, int length, ProcessingContext context) {
+        Charset charset = FileEncoding.detect(buffer, length);
+        if (charset == null) {
+            context.recordScanned(Math.min(length, FileEncoding.SAMPLE_SIZE), 0);
+        }
+        return charset;
+    }
+
+    /**
+     * Detects the charset of a file from its first bytes, which are mapped for the check, so they are only read once
+     * when the file is searched; records the bytes looked at if it is binary.
+     *
+     * @return the charset to decode the file with, or {@code null} if the file is binary
+     */
+    static Charset charsetOf(FileChannel channel, long size, ProcessingContext context) throws IOException {
+        int length = (int) Math.min(size, FileEncoding.SAMPLE_SIZE);
+        return charsetOf(channel.map(FileChannel.MapMode.READ_ONLY, 0, length), length, context);
+    }
+
+    /**
+     * Maps a file in line-aligned windows and hands each window to {@code region} until {@code done} returns true.
+     */
+    private void forEachWindow(FileChannel channel, long size, BooleanSupplier done,
+                               Window region) throws IOException {
+        long offset = 0;
+        while (offset < size && !done.getAsBoolean()) {
+            long remaining = size - offset;
+            int length = (int) Math.min(remaining, windowSize);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            int end = length;
+            while (length < remaining && (end = ByteLineScanner.lastLineBoundary(window, 0, length)) < 0) {
+                if (length == MAX_WINDOW_SIZE) {
+                    end = length;
+                    break;
+                }
+                length = (int) Math.min(remaining, Math.min((long) length * 2, MAX_WINDOW_SIZE));
+                window = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                end = length;
+            }
+            boolean last = offset + end >= size;
+            region.accept(window, offset, end, last);
+            offset += end;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Window {
+        /**
+         * @param window the mapped bytes, which start at {@code offset} in the file
+         * @param end    the end of the lines in the window
+         * @param last   whether the window ends at the end of the file
+         */
+        void accept(MappedByteBuffer window, long offset, int end, boolean last);
+    }
+}
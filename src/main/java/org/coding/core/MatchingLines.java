@@ -0,0 +1,36 @@
+package org.coding.core;
+
+import org.coding.model.SearchResult;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Turns a line that was read by a {@link FileProcessor} into a {@link SearchResult}, if it matches.
+ * For a {@link MultiPatternMatcher} the search strings found in the line are recorded in the result.
+ */
+final class MatchingLines {
+
+    private MatchingLines() {
+    }
+
+    /**
+     * Returns the search result for the given line, or {@code null} if the line does not match.
+     */
+    static SearchResult toResult(Path filePath, int lineNumber, String line, PatternMatcher patternMatcher) {
+        List<String> matchedPatterns = matchedPatterns(line, patternMatcher);
+        return matchedPatterns == null ? null : new SearchResult(filePath, lineNumber, line, matchedPatterns);
+    }
+
+    /**
+     * Returns the search strings found in the line for a {@link MultiPatternMatcher}, an empty list if another
+     * matcher matches the line, or {@code null} if the line does not match.
+     */
+    static List<String> matchedPatterns(String line, PatternMatcher patternMatcher) {
+        if (patternMatcher instanceof MultiPatternMatcher) {
+            List<String> matchedPatterns = ((MultiPatternMatcher) patternMatcher).matchingPatterns(line);
+            return matchedPatterns.isEmpty() ? null : matchedPatterns;
+        }
+        return patternMatcher.match(line) ? List.of() : null;
+    }
+}
@@ -0,0 +1,17 @@
+package org.coding.core;
+
+import java.util.List;
+
+/**
+ * A {@link PatternMatcher} that looks for several search strings at once and can tell which of them occur in a line.
+ * {@link #match(String)} returns {@code true} if at least one of the search strings occurs in the line.
+ */
+public interface MultiPatternMatcher extends PatternMatcher {
+    /**
+     * Returns the search strings that occur in the given line.
+     *
+     * @param line the line of text to check; may be {@code null} or empty
+     * @return the matching search strings, in the order they were given; empty if none match, never {@code null}
+     */
+    List<String> matchingPatterns(String line);
+}
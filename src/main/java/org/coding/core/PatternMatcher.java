@@ -12,4 +12,16 @@ public interface PatternMatcher {
      * @return{@code true} if the pattern exists in the line, {@code false} otherwise
      */
     boolean match(String line);
+
+    /**
+     * Counts the occurrences of the pattern in the given line. Occurrences are found from left to right, and the
+     * search for the next one starts where the previous one ended, so they do not overlap.
+     * The default implementation counts a matching line as a single occurrence.
+     *
+     * @param line the line of text to check; may be {@code null} or empty
+     * @return the number of occurrences; {@code 0} if and only if {@link #match(String)} returns {@code false}
+     */
+    default int countOccurrences(String line) {
+        return match(line) ? 1 : 0;
+    }
 }
@@ -0,0 +1,106 @@
+package org.coding.core;
+
+import org.coding.model.SearchResult;
+import org.coding.stats.SearchStatistics;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Tells a {@link FileProcessor} when it may stop reading a file: once it found {@code maxResults} matching lines,
+ * or as soon as the search it belongs to is cancelled, for example because enough matches were found in other files.
+ * Processors check the cancellation between lines, so cancelling also stops files that are being read.
+ * Processors also report how much they read to the {@link SearchStatistics} of the search, if there are any,
+ * and add the lines around each matching line that the search asks for, see {@link SearchResult#getContextBefore()}.
+ */
+public final class ProcessingContext {
+    /**
+     * Reads every file to the end.
+     */
+    public static final ProcessingContext UNLIMITED = new ProcessingContext(Integer.MAX_VALUE, () -> false);
+
+    private final int maxResults;
+    private final BooleanSupplier cancellation;
+    private final SearchStatistics statistics;
+    private final int linesBefore;
+    private final int linesAfter;
+
+    /**
+     * @param maxResults   the number of matching lines after which a file is not read any further
+     * @param cancellation returns {@code true} once the search is cancelled; called from the threads reading files
+     */
+    public ProcessingContext(int maxResults, BooleanSupplier cancellation) {
+        this(maxResults, cancellation, null);
+    }
+
+    /**
+     * @param statistics receives the number of bytes and lines read, or {@code null}
+     */
+    public ProcessingContext(int maxResults, BooleanSupplier cancellation, SearchStatistics statistics) {
+        this(maxResults, cancellation, statistics, 0, 0);
+    }
+
+    /**
+     * @param linesBefore the number of lines before each matching line to add to its result
+     * @param linesAfter  the number of lines after each matching line to add to its result
+     */
+    public ProcessingContext(int maxResults, BooleanSupplier cancellation, SearchStatistics statistics,
+                             int linesBefore, int linesAfter) {
+        if (maxResults < 1) {
+            throw new IllegalArgumentException("Max results must be positive.");
+        }
+        if (cancellation == null) {
+            throw new IllegalArgumentException("Cancellation must not be null.");
+        }
+        if (linesBefore < 0 || linesAfter < 0) {
+            throw new IllegalArgumentException("Context lines must not be negative.");
+        }
+        this.maxResults = maxResults;
+        this.cancellation = cancellation;
+        this.statistics = statistics;
+        this.linesBefore = linesBefore;
+        this.linesAfter = linesAfter;
+    }
+
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    public int getLinesBefore() {
+        return linesBefore;
+    }
+
+    public int getLinesAfter() {
+        return linesAfter;
+    }
+
+    /**
+     * @return whether context lines are asked for
+     */
+    public boolean hasContext() {
+        return linesBefore > 0 || linesAfter > 0;
+    }
+
+    public boolean isCancelled() {
+        return cancellation.getAsBoolean();
+    }
+
+    /**
+     * @param results the number of matching lines found in the file so far
+     * @return {@code true} if the rest of the file does not need to be read
+     */
+    public boolean isDone(int results) {
+        return results >= maxResults || cancellation.getAsBoolean();
+    }
+
+    /**
+     * Reports a part of a file that was read, at most once per region rather than per line.
+     *
+     * @param bytes the number of bytes read or searched
+     * @param lines the number of lines decoded and checked against the pattern
+     */
+    public void recordScanned(long bytes, long lines) {
+        if (statistics != null) {
+            statistics.recordScanned(bytes, lines);
+        }
+    }
+}
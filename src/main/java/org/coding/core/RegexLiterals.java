@@ -0,0 +1,192 @@
+package org.coding.core;
+
+/**
+ * Extracts a literal that every match of a {@link java.util.regex.Pattern} must contain.
+ *
+ * The regular expression is read as a top-level sequence of atoms. Runs of plain and escaped characters form
+ * literal runs; anything else (character classes, groups, dots, anchors, character class escapes) ends a run,
+ * and a quantifier removes the character it applies to. The longest run is required by every match.
+ * If the expression has a top-level alternation or inline flags, no literal is extracted.
+ */
+final class RegexLiterals {
+    private final String regex;
+    private final StringBuilder run = new StringBuilder();
+    private String longest = "";
+    private boolean pureLiteral = true;
+    private int position;
+
+    private RegexLiterals(String regex) {
+        this.regex = regex;
+    }
+
+    /**
+     * Returns the longest literal contained in every match of the regular expression, or an empty string.
+     */
+    static String requiredLiteral(String regex) {
+        RegexLiterals literals = new RegexLiterals(regex);
+        return literals.parse() ? literals.longest : "";
+    }
+
+    /**
+     * Returns the text the regular expression matches if it is a plain literal, or {@code null} otherwise.
+     */
+    static String asLiteral(String regex) {
+        RegexLiterals literals = new RegexLiterals(regex);
+        return literals.parse() && literals.pureLiteral && !literals.longest.isEmpty() ? literals.longest : null;
+    }
+
+    /**
+     * @return {@code false} if the expression cannot be analysed
+     */
+    private boolean parse() {
+        while (position < regex.length()) {
+            char c = regex.charAt(position++);
+            switch (c) {
+                case '\\' -> {
+                    if (!escape()) {
+                        return false;
+                    }
+                }
+                case '|' -> {
+                    return false;
+                }
+                case '[' -> {
+                    skipCharacterClass();
+                    nonLiteral();
+                }
+                case '(' -> {
+                    if (position < regex.length() && regex.charAt(position) == '?' && position + 1 < regex.length()
+                            && (Character.isLetter(regex.charAt(position + 1)) || regex.charAt(position + 1) == '-')) {
+                        return false;
+                    }
+                    skipGroup();
+                    nonLiteral();
+                }
+                case '*', '?', '+', '{' -> quantifier(c);
+                case '.', '^', '$' -> nonLiteral();
+                default -> run.append(c);
+            }
+        }
+        endRun();
+        return true;
+    }
+
+    /**
+     * Handles the escape sequence after a backslash.
+     *
+     * @return {@code false} if the escape cannot be analysed
+     */
+    private boolean escape() {
+        if (position >= regex.length()) {
+            return false;
+        }
+        char c = regex.charAt(position++);
+        if (c == 'Q') {
+            int end = regex.indexOf("\\E", position);
+            run.append(regex, position, end < 0 ? regex.length() : end);
+            position = end < 0 ? regex.length() : end + 2;
+            return true;
+        }
+        if (!Character.isLetterOrDigit(c)) {
+            run.append(c);
+            return true;
+        }
+        switch (c) {
+            case 't' -> run.append('\t');
+            case 'n' -> run.append('\n');
+            case 'r' -> run.append('\r');
+            case 'f' -> run.append('\f');
+            case 'a' -> run.append('\u0007');
+            case 'e' -> run.append('\u001B');
+            case 'p', 'P', 'N', 'k', 'x', 'u', 'c', '0' -> {
+                // escapes with arguments are not interpreted, their argument is skipped
+                skipEscapeArgument(c);
+                nonLiteral();
+            }
+            default -> nonLiteral();
+        }
+        return true;
+    }
+
+    private void skipEscapeArgument(char escape) {
+        if (position < regex.length() && (regex.charAt(position) == '{' || regex.charAt(position) == '<')) {
+            char close = regex.charAt(position) == '{' ? '}' : '>';
+            int end = regex.indexOf(close, position);
+            position = end < 0 ? regex.length() : end + 1;
+            return;
+        }
+        int length = switch (escape) {
+            case 'x' -> 2;
+            case 'u' -> 4;
+            case 'c', 'p', 'P' -> 1;
+            case '0' -> 3;
+            default -> 0;
+        };
+        position = Math.min(regex.length(), position + length);
+    }
+
+    private void quantifier(char c) {
+        if (c == '{') {
+            int end = regex.indexOf('}', position);
+            position = end < 0 ? regex.length() : end + 1;
+        }
+        if (run.length() > 0) {
+            run.setLength(run.length() - 1);
+        }
+        nonLiteral();
+        if (position < regex.length() && (regex.charAt(position) == '?' || regex.charAt(position) == '+')) {
+            position++;
+        }
+    }
+
+    private void skipCharacterClass() {
+        int depth = 1;
+        if (position < regex.length() && regex.charAt(position) == '^') {
+            position++;
+        }
+        if (position < regex.length() && regex.charAt(position) == ']') {
+            position++;
+        }
+        while (position < regex.length() && depth > 0) {
+            char c = regex.charAt(position++);
+            if (c == '\\') {
+                position++;
+            } else if (c == '[') {
+                depth++;
+            } else if (c == ']') {
+                depth--;
+            }
+        }
+    }
+
+    private void skipGroup() {
+        int depth = 1;
+        while (position < regex.length() && depth > 0) {
+            char c = regex.charAt(position++);
+            if (c == '\\') {
+                position++;
+            } else if (c == '[') {
+                skipCharacterClass();
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Ends the current literal run because of a construct that is not a literal.
+     */
+    private void nonLiteral() {
+        pureLiteral = false;
+        endRun();
+    }
+
+    private void endRun() {
+        if (run.length() > longest.length()) {
+            longest = run.toString();
+        }
+        run.setLength(0);
+    }
+}
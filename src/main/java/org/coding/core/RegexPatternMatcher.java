@@ -0,0 +1,122 @@
+package org.coding.core;
+
+import java.nio.ByteBuffer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Matches a regular expression ({@link Pattern} syntax) in the given input line, case-insensitively.
+ * It returns false for null input line.
+ *
+ * A literal that every match must contain is extracted from the expression (see {@link RegexLiterals}), and lines
+ * that do not contain it are rejected with a {@link HorspoolPatternMatcher} before the regex engine runs.
+ * The same literal is used as the candidate filter when searching raw bytes. Each thread reuses its own
+ * {@link Matcher}, so matching a line does not allocate one.
+ *
+ * An alternation of several expressions has no single required literal; give it a prefilter that looks for the
+ * literal of any of them, see {@link #RegexPatternMatcher(String, BytePatternMatcher)}.
+ *
+ * Use {@link #compile(String)} to get a plain {@link HorspoolPatternMatcher} for expressions without metacharacters.
+ */
+public class RegexPatternMatcher implements BytePatternMatcher {
+    private final Pattern pattern;
+    private final BytePatternMatcher prefilter;
+    private final ThreadLocal<Matcher> matchers;
+
+    /**
+     * @param regex the regular expression to look for
+     * @throws java.util.regex.PatternSyntaxException if the expression is invalid
+     */
+    public RegexPatternMatcher(String regex) {
+        this(regex, prefilterOf(RegexLiterals.requiredLiteral(regex)));
+    }
+
+    /**
+     * @param regex     the regular expression to look for
+     * @param prefilter a case-insensitive matcher that finds every line the expression matches, or {@code null} if
+     *                  every line has to be matched by the regex engine
+     * @throws java.util.regex.PatternSyntaxException if the expression is invalid
+     */
+    public RegexPatternMatcher(String regex, BytePatternMatcher prefilter) {
+        this.pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        this.prefilter = prefilter;
+        this.matchers = ThreadLocal.withInitial(() -> pattern.matcher(""));
+    }
+
+    private static HorspoolPatternMatcher prefilterOf(String literal) {
+        return literal.isBlank() ? null : new HorspoolPatternMatcher(literal);
+    }
+
+    /**
+     * Returns the cheapest matcher for the regular expression: a {@link HorspoolPatternMatcher} if the expression
+     * only matches a literal, a {@link RegexPatternMatcher} otherwise.
+     *
+     * The expression is compiled either way, so that one the literal fast path would accept, such as
+     * {@code hello)}, is still rejected.
+     *
+     * @throws java.util.regex.PatternSyntaxException if the expression is invalid
+     */
+    public static PatternMatcher compile(String regex) {
+        Pattern.compile(regex);
+        String literal = RegexLiterals.asLiteral(regex);
+        if (literal != null && !literal.isBlank()) {
+            return new HorspoolPatternMatcher(literal);
+        }
+        return new RegexPatternMatcher(regex);
+    }
+
+    /**
+     * Returns a literal that every match of the regular expression contains, or an empty string if there is none
+     * that could be found.
+     */
+    public static String requiredLiteral(String regex) {
+        return RegexLiterals.requiredLiteral(regex);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean match(String line) {
+        if (line == null) {
+            return false;
+        }
+        if (prefilter != null && !prefilter.match(line)) {
+            return false;
+        }
+        Matcher matcher = matchers.get().reset(line);
+        boolean found = matcher.find();
+        matcher.reset("");
+        return found;
+    }
+
+    /**
+     * {@inheritDoc}
+     * An empty match counts as an occurrence, and the search for the next one starts a character later.
+     */
+    @Override
+    public int countOccurrences(String line) {
+        if (line == null || (prefilter != null && !prefilter.match(line))) {
+            return 0;
+        }
+        Matcher matcher = matchers.get().reset(line);
+        int count = 0;
+        while (matcher.find()) {
+            count++;
+        }
+        matcher.reset("");
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     * If no literal could be extracted from the expression, every position is a candidate.
+     */
+    @Override
+    public int indexIn(ByteBuffer buffer, int from, int to) {
+        if (prefilter == null) {
+            return from < to ? from : -1;
+        }
+        return prefilter.indexIn(buffer, from, to);
+    }
+}
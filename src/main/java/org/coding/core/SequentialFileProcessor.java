@@ -1,18 +1,31 @@
 package org.coding.core;
 
+import org.coding.model.ResultStore;
 import org.coding.model.SearchResult;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * This implementation of FileProcessor processes incoming files sequentially.
  * It reads the files and calls the pattern matcher for each line one at a time.
+ * If context lines are asked for, the last lines read are kept in a ring buffer for the lines before a match.
+ *
+ * The first bytes of each file are sampled before it is decoded, see {@link FileEncoding}: binary files are skipped,
+ * files that are not UTF-8 are decoded as ISO-8859-1, and malformed UTF-8 after the sample is decoded with
+ * replacement characters, so a file is always read to its end, and only once.
  */
 public class SequentialFileProcessor implements FileProcessor {
 
@@ -21,23 +34,184 @@ public class SequentialFileProcessor implements FileProcessor {
      */
     @Override
     public List<SearchResult> processFile(Path filePath, PatternMatcher patternMatcher) {
+        return processFile(filePath, patternMatcher, ProcessingContext.UNLIMITED);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult> processFile(Path filePath, PatternMatcher patternMatcher, ProcessingContext context) {
         if (patternMatcher == null || filePath == null ) {
             System.err.println("Null argument: patternMatcher or filePath is missing in " + getClass().getSimpleName());
             return new ArrayList<>();
         }
-        List<SearchResult> searchResults = new ArrayList<>();
-        try (BufferedReader br = Files.newBufferedReader(filePath, StandardCharsets.UTF_8)) {
+        ResultStore searchResults = new ResultStore();
+        try (CountingInputStream input = new CountingInputStream(Files.newInputStream(filePath));
+             BufferedReader br = newReader(input)) {
+            if (br == null) {
+                context.recordScanned(input.count, 0);
+                return searchResults;
+            }
             String line;
             int lineNumber = 1;
-            while ((line = br.readLine()) != null) {
-                if (patternMatcher.match(line)) {
-                    searchResults.add(new SearchResult(filePath, lineNumber, line));
+            LineContext lineContext = context.hasContext() ? new LineContext(context, searchResults) : null;
+            while (!context.isDone(searchResults.size()) && (line = br.readLine()) != null) {
+                SearchResult result = MatchingLines.toResult(filePath, lineNumber, line, patternMatcher);
+                if (result != null) {
+                    searchResults.add(result);
+                }
+                if (lineContext != null) {
+                    lineContext.read(line, result != null);
                 }
                 lineNumber++;
             }
+            if (lineContext != null) {
+                lineContext.finish();
+            }
+            context.recordScanned(input.count, lineNumber - 1);
         } catch (IOException e) {
             System.err.println("Warning: Could not read file " + filePath + ": " + e.getMessage());
         }
         return searchResults;
     }
+
+    /**
+     * {@inheritDoc}
+     * The lines are matched one at a time as they are read, without creating results.
+     */
+    @Override
+    public long countMatches(Path filePath, PatternMatcher patternMatcher, ProcessingContext context, CountMode mode) {
+        if (patternMatcher == null || filePath == null ) {
+            System.err.println("Null argument: patternMatcher or filePath is missing in " + getClass().getSimpleName());
+            return 0;
+        }
+        long matchingLines = 0;
+        long occurrences = 0;
+        try (CountingInputStream input = new CountingInputStream(Files.newInputStream(filePath));
+             BufferedReader br = newReader(input)) {
+            if (br == null) {
+                context.recordScanned(input.count, 0);
+                return 0;
+            }
+            String line;
+            int lineNumber = 1;
+            while (!context.isDone((int) Math.min(matchingLines, Integer.MAX_VALUE)) && (line = br.readLine()) != null) {
+                int count = mode == CountMode.LINES ? (patternMatcher.match(line) ? 1 : 0) : patternMatcher.countOccurrences(line);
+                if (count > 0) {
+                    matchingLines++;
+                    occurrences += count;
+                }
+                lineNumber++;
+            }
+            context.recordScanned(input.count, lineNumber - 1);
+        } catch (IOException e) {
+            System.err.println("Warning: Could not read file " + filePath + ": " + e.getMessage());
+            return 0;
+        }
+        return mode == CountMode.LINES ? matchingLines : occurrences;
+    }
+
+    /**
+     * Returns a reader for the lines of a file in the charset its first bytes show, without reading them twice,
+     * or {@code null} if the file is binary.
+     */
+    private static BufferedReader newReader(InputStream input) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(input, FileEncoding.SAMPLE_SIZE);
+        buffered.mark(FileEncoding.SAMPLE_SIZE);
+        byte[] sample = buffered.readNBytes(FileEncoding.SAMPLE_SIZE);
+        buffered.reset();
+        Charset charset = FileEncoding.detect(sample, sample.length);
+        if (charset == null) {
+            buffered.close();
+            return null;
+        }
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        return new BufferedReader(new InputStreamReader(buffered, decoder));
+    }
+
+    /**
+     * Collects the context lines of the results as the lines are read: the last lines read are kept in a ring buffer,
+     * and the lines after a result are collected until the next result or until there are enough of them.
+     */
+    private static final class LineContext {
+        private final int linesBefore;
+        private final int linesAfter;
+        private final ResultStore results;
+        private final ArrayDeque<String> previousLines;
+        private int index = -1;
+        private List<String> before;
+        private List<String> after;
+
+        private LineContext(ProcessingContext context, ResultStore results) {
+            this.linesBefore = context.getLinesBefore();
+            this.linesAfter = context.getLinesAfter();
+            this.results = results;
+            this.previousLines = new ArrayDeque<>(linesBefore);
+        }
+
+        /**
+         * Takes the next line, which is that of the last result if it {@code matched}.
+         */
+        private void read(String line, boolean matched) {
+            if (matched) {
+                finish();
+                index = results.size() - 1;
+                before = new ArrayList<>(previousLines);
+                after = new ArrayList<>();
+            } else if (index >= 0) {
+                after.add(line);
+            }
+            if (index >= 0 && after.size() == linesAfter) {
+                finish();
+            }
+            if (linesBefore > 0) {
+                if (previousLines.size() == linesBefore) {
+                    previousLines.removeFirst();
+                }
+                previousLines.addLast(line);
+            }
+        }
+
+        /**
+         * Sets the context lines of the last result, if it has not got them yet.
+         */
+        private void finish() {
+            if (index >= 0) {
+                results.setContext(index, before, after);
+                index = -1;
+            }
+        }
+    }
+
+    /**
+     * Counts the bytes read from a stream, to report them without decoding the lines again.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
 }
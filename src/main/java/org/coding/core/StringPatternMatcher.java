@@ -1,15 +1,27 @@
 package org.coding.core;
 
+import java.nio.ByteBuffer;
+
 /**
  * Matches string in the given input line.
  *  Also, the match is case-insensitive.
  * It returns false for null or empty input line.
+ *
+ * When searching raw bytes, the longest ASCII run of the search string is used as a case-insensitive prefilter.
+ * Characters outside ASCII that lower-case to ASCII letters (such as the Kelvin sign) are not folded on that path.
  */
-public class StringPatternMatcher implements PatternMatcher {
+public class StringPatternMatcher implements BytePatternMatcher {
     private final String searchString;
+    private final AsciiByteSearcher byteSearcher;
 
     public StringPatternMatcher(String searchString) {
         this.searchString = searchString;
+        if (searchString == null || searchString.isBlank()) {
+            this.byteSearcher = null;
+        } else {
+            String asciiRun = AsciiByteSearcher.longestAsciiRun(searchString);
+            this.byteSearcher = asciiRun.isEmpty() ? null : new AsciiByteSearcher(asciiRun);
+        }
     }
 
     /**
@@ -22,4 +34,36 @@ public class StringPatternMatcher implements PatternMatcher {
         }
         return line.toLowerCase().contains(searchString.toLowerCase());
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int countOccurrences(String line) {
+        if (!match(line)) {
+            return 0;
+        }
+        String lowerLine = line.toLowerCase();
+        String lowerSearchString = searchString.toLowerCase();
+        int count = 0;
+        for (int i = lowerLine.indexOf(lowerSearchString); i >= 0; i = lowerLine.indexOf(lowerSearchString, i + lowerSearchString.length())) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     * If the search string has no ASCII characters, every position is a candidate.
+     */
+    @Override
+    public int indexIn(ByteBuffer buffer, int from, int to) {
+        if (searchString == null || searchString.isBlank()) {
+            return -1;
+        }
+        if (byteSearcher == null) {
+            return from < to ? from : -1;
+        }
+        return byteSearcher.indexIn(buffer, from, to);
+    }
 }
@@ -0,0 +1,142 @@
+package org.coding.core;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Case-insensitive search of an ASCII literal in raw bytes with the incubating Vector API.
+ *
+ * The two bytes of the literal that are expected to be rarest in text are each compared against a whole vector of
+ * input (32 bytes with AVX2, 64 with AVX-512) per step, in both cases if they are letters, and the two masks are
+ * combined so that only start positions where both occur are verified against the whole literal. Common text is
+ * skipped a vector at a time, and a single frequent byte does not flood the verification with candidates.
+ *
+ * This class links against {@code jdk.incubator.vector}; only use it through {@link VectorPatternMatcher},
+ * which checks that the module is available.
+ */
+final class VectorByteSearcher {
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    /**
+     * Letters from the most to the least frequent in English text.
+     */
+    private static final String LETTER_FREQUENCY = "etaoinsrhldcumfpgwybvkxjqz";
+
+    private final byte[] pattern;
+    private final int rareOffset;
+    private final byte rareLower;
+    private final byte rareUpper;
+    private final int secondOffset;
+    private final byte secondLower;
+    private final byte secondUpper;
+
+    VectorByteSearcher(String asciiLiteral) {
+        if (asciiLiteral == null || asciiLiteral.isEmpty()) {
+            throw new IllegalArgumentException("Literal must not be null or empty");
+        }
+        byte[] bytes = asciiLiteral.getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = CaseFolding.foldAscii(bytes[i]);
+        }
+        this.pattern = bytes;
+        this.rareOffset = rarestOffset(bytes, -1);
+        this.rareLower = bytes[rareOffset];
+        this.rareUpper = upperCase(rareLower);
+        this.secondOffset = bytes.length == 1 ? rareOffset : rarestOffset(bytes, rareOffset);
+        this.secondLower = bytes[secondOffset];
+        this.secondUpper = upperCase(secondLower);
+    }
+
+    /**
+     * Returns the number of bytes compared per step on this machine.
+     */
+    static int vectorLength() {
+        return SPECIES.length();
+    }
+
+    /**
+     * Returns the index of the first case-insensitive occurrence of the literal in {@code [from, to)}, or {@code -1}.
+     */
+    int indexIn(ByteBuffer buffer, int from, int to) {
+        int last = to - pattern.length;
+        int step = SPECIES.length();
+        int start = from;
+        for (; start + step - 1 <= last; start += step) {
+            VectorMask<Byte> hits = candidates(buffer, start + rareOffset, rareLower, rareUpper);
+            if (secondOffset != rareOffset) {
+                hits = hits.and(candidates(buffer, start + secondOffset, secondLower, secondUpper));
+            }
+            // anyTrue() is intrinsified on every JDK with the Vector API, unlike turning the mask into bits,
+            // so the rare vectors with a candidate are verified lane by lane
+            if (hits.anyTrue()) {
+                for (int lane = hits.firstTrue(); lane < step; lane++) {
+                    if (hits.laneIsSet(lane) && matchesAt(buffer, start + lane)) {
+                        return start + lane;
+                    }
+                }
+            }
+        }
+        for (; start <= last; start++) {
+            if (matchesAt(buffer, start)) {
+                return start;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the lanes of the vector at {@code index} that equal {@code lower} or {@code upper}.
+     */
+    private static VectorMask<Byte> candidates(ByteBuffer buffer, int index, byte lower, byte upper) {
+        ByteVector chunk = ByteVector.fromByteBuffer(SPECIES, buffer, index, ByteOrder.nativeOrder());
+        VectorMask<Byte> hits = chunk.eq(lower);
+        return upper == lower ? hits : hits.or(chunk.eq(upper));
+    }
+
+    private boolean matchesAt(ByteBuffer buffer, int start) {
+        for (int j = 0; j < pattern.length; j++) {
+            if (CaseFolding.foldAscii(buffer.get(start + j)) != pattern[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the offset of the rarest byte of the literal, not counting the one at {@code excluded}.
+     */
+    private static int rarestOffset(byte[] bytes, int excluded) {
+        int rarest = -1;
+        for (int i = 0; i < bytes.length; i++) {
+            if (i != excluded && (rarest < 0 || frequencyRank(bytes[i]) < frequencyRank(bytes[rarest]))) {
+                rarest = i;
+            }
+        }
+        return rarest;
+    }
+
+    private static byte upperCase(byte b) {
+        return b >= 'a' && b <= 'z' ? (byte) (b - 0x20) : b;
+    }
+
+    /**
+     * Ranks how often a folded ASCII byte appears in typical text; lower is rarer.
+     */
+    private static int frequencyRank(byte b) {
+        int letter = LETTER_FREQUENCY.indexOf(b);
+        if (letter >= 0) {
+            return 100 + LETTER_FREQUENCY.length() - letter;
+        }
+        if (b == ' ') {
+            return 200;
+        }
+        if (b >= '0' && b <= '9') {
+            return 90;
+        }
+        return b < 0x20 ? 0 : 50;
+    }
+}
@@ -0,0 +1,89 @@
+package org.coding.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Case-insensitive substring matcher whose byte-level candidate search is vectorized with the Vector API
+ * ({@code jdk.incubator.vector}), see {@link VectorByteSearcher}. Lines are matched by a {@link HorspoolPatternMatcher},
+ * so results are the same as with it.
+ *
+ * The Vector API is an incubator module and has to be enabled with {@code --add-modules jdk.incubator.vector}.
+ * Without it, or on a JVM whose Vector API differs from the one this class was compiled against, the scalar
+ * search of {@link HorspoolPatternMatcher} is used instead; {@link #isVectorApiAvailable()} tells which one it is.
+ */
+public class VectorPatternMatcher implements BytePatternMatcher {
+    private static final boolean VECTOR_API_AVAILABLE = probeVectorApi();
+
+    private final HorspoolPatternMatcher delegate;
+    private final VectorByteSearcher byteSearcher;
+
+    public VectorPatternMatcher(String searchString) {
+        this(searchString, VECTOR_API_AVAILABLE);
+    }
+
+    /**
+     * @param useVectorApi whether to search bytes with the Vector API; must only be {@code true} if it is available
+     */
+    VectorPatternMatcher(String searchString, boolean useVectorApi) {
+        this.delegate = new HorspoolPatternMatcher(searchString);
+        String asciiRun = searchString == null || searchString.isBlank() ? "" : AsciiByteSearcher.longestAsciiRun(searchString);
+        this.byteSearcher = useVectorApi && !asciiRun.isEmpty() ? new VectorByteSearcher(asciiRun) : null;
+    }
+
+    /**
+     * @return {@code true} if the Vector API is enabled in this JVM and byte searches are vectorized
+     */
+    public static boolean isVectorApiAvailable() {
+        return VECTOR_API_AVAILABLE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean match(String line) {
+        return delegate.match(line);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int countOccurrences(String line) {
+        return delegate.countOccurrences(line);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The longest ASCII run of the search string is used as the candidate filter, as in {@link HorspoolPatternMatcher}.
+     */
+    @Override
+    public int indexIn(ByteBuffer buffer, int from, int to) {
+        return byteSearcher == null ? delegate.indexIn(buffer, from, to) : byteSearcher.indexIn(buffer, from, to);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Candidates are matches if the search string is all ASCII, as in {@link HorspoolPatternMatcher}.
+     */
+    @Override
+    public int occurrenceEnd(int candidate) {
+        return delegate.occurrenceEnd(candidate);
+    }
+
+    /**
+     * Checks that the Vector API module is present and works, by running a search that takes the vector path.
+     */
+    private static boolean probeVectorApi() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            ByteBuffer probe = ByteBuffer.allocate(256);
+            probe.put(200, (byte) 'X').put(201, (byte) 'y');
+            return new VectorByteSearcher("xY").indexIn(probe, 0, probe.limit()) == 200;
+        } catch (LinkageError | RuntimeException e) {
+            return false;
+        }
+    }
+}
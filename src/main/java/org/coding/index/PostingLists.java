@@ -0,0 +1,48 @@
+package org.coding.index;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes sorted lists of file ids as the differences between consecutive ids, each written as a varint:
+ * seven bits per byte, with the high bit set on every byte but the last.
+ */
+final class PostingLists {
+
+    private PostingLists() {
+    }
+
+    static void encode(int[] ids, int count, ByteArrayOutputStream out) {
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            int delta = ids[i] - previous;
+            previous = ids[i];
+            while ((delta & ~0x7F) != 0) {
+                out.write((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            out.write(delta);
+        }
+    }
+
+    /**
+     * Decodes {@code count} ids starting at the absolute {@code position} of the buffer.
+     */
+    static int[] decode(ByteBuffer buffer, int position, int count) {
+        int[] ids = new int[count];
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(position++);
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            previous += delta;
+            ids[i] = previous;
+        }
+        return ids;
+    }
+}
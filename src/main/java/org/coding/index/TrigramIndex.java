@@ -0,0 +1,214 @@
+package org.coding.index;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A read-only trigram index of the files under a root directory, written by {@link TrigramIndexWriter}.
+ *
+ * The index maps every trigram (see {@link Trigrams}) to the sorted list of files containing it, delta and varint
+ * encoded. The index file is memory-mapped; only the file table is read into memory when the index is opened,
+ * posting lists are decoded when a query needs them.
+ *
+ * A query only has to search the files that contain every trigram of a literal that each match must contain.
+ * Files that are not in the index, or whose size or modification time changed since they were indexed, are
+ * always searched, so a stale index makes a search slower but never misses a match. Like the byte-level
+ * prefilters, the index folds case in the ASCII range only, so a few non-ASCII characters that fold to ASCII
+ * letters (such as the Kelvin sign) are not found through it.
+ *
+ * Layout of the index file, big-endian: magic, file count, trigram count and offset of the file table (ints);
+ * the trigram table, sorted by trigram, of (trigram, number of files, offset of the posting list) ints;
+ * the posting lists; the file table of (path length, UTF-8 path relative to the root, size, modification time
+ * in milliseconds) entries. The index file is limited to 2 GB.
+ */
+public final class TrigramIndex {
+    static final String FILE_NAME = "trigrams.idx";
+    static final int MAGIC = 0x54524731;
+    static final int HEADER_SIZE = 16;
+    static final int TABLE_ENTRY_SIZE = 12;
+
+    private final MappedByteBuffer buffer;
+    private final int trigramCount;
+    private final String[] paths;
+    private final long[] sizes;
+    private final long[] modifiedTimes;
+    private final Map<String, Integer> ids;
+
+    private TrigramIndex(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a trigram index file.");
+        }
+        int fileCount = buffer.getInt(4);
+        this.trigramCount = buffer.getInt(8);
+        this.paths = new String[fileCount];
+        this.sizes = new long[fileCount];
+        this.modifiedTimes = new long[fileCount];
+        this.ids = new HashMap<>(fileCount * 2);
+        int position = buffer.getInt(12);
+        for (int id = 0; id < fileCount; id++) {
+            byte[] path = new byte[buffer.getInt(position)];
+            buffer.get(position + 4, path);
+            position += 4 + path.length;
+            paths[id] = new String(path, StandardCharsets.UTF_8);
+            sizes[id] = buffer.getLong(position);
+            modifiedTimes[id] = buffer.getLong(position + 8);
+            position += 16;
+            ids.put(paths[id], id);
+        }
+    }
+
+    /**
+     * Opens the index in the given index directory.
+     *
+     * @throws IOException if there is no index in the directory or it cannot be read
+     */
+    public static TrigramIndex open(Path indexDirectory) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexDirectory.resolve(FILE_NAME), StandardOpenOption.READ)) {
+            return new TrigramIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @return the number of files in the index
+     */
+    public int getFileCount() {
+        return paths.length;
+    }
+
+    /**
+     * Returns a filter that accepts the files under {@code root} that may contain a match: files in the index that
+     * contain every trigram of at least one of the literals, and files that are missing from the index or changed
+     * since they were indexed.
+     *
+     * @param root the root directory the index was built for
+     * @param literals for each search string, a literal that every match of it must contain; an empty literal
+     *                 means the search string can match anywhere
+     */
+    public Predicate<Path> candidateFilter(Path root, List<String> literals) {
+        BitSet candidates = candidates(literals);
+        if (candidates == null) {
+            return path -> true;
+        }
+        return path -> {
+            Integer id = ids.get(relativePath(root, path));
+            return id == null || candidates.get(id) || changed(path, id);
+        };
+    }
+
+    /**
+     * @return the ids of the indexed files that contain all trigrams of any of the literals,
+     * or {@code null} if a literal has no trigrams and every file is a candidate
+     */
+    BitSet candidates(List<String> literals) {
+        BitSet candidates = new BitSet(paths.length);
+        for (String literal : literals) {
+            int[] trigrams = Trigrams.ofLiteral(literal);
+            if (trigrams.length == 0) {
+                return null;
+            }
+            int[] files = null;
+            for (int trigram : trigrams) {
+                int entry = find(trigram);
+                files = entry < 0 ? new int[0] : files == null ? postingsAt(entry) : intersect(files, postingsAt(entry));
+                if (files.length == 0) {
+                    break;
+                }
+            }
+            for (int id : files) {
+                candidates.set(id);
+            }
+        }
+        return candidates;
+    }
+
+    int trigramCount() {
+        return trigramCount;
+    }
+
+    int trigramAt(int entry) {
+        return buffer.getInt(HEADER_SIZE + entry * TABLE_ENTRY_SIZE);
+    }
+
+    int[] postingsAt(int entry) {
+        int position = HEADER_SIZE + entry * TABLE_ENTRY_SIZE;
+        return PostingLists.decode(buffer, buffer.getInt(position + 8), buffer.getInt(position + 4));
+    }
+
+    String path(int id) {
+        return paths[id];
+    }
+
+    long size(int id) {
+        return sizes[id];
+    }
+
+    long modifiedTime(int id) {
+        return modifiedTimes[id];
+    }
+
+    /**
+     * Returns the path of a file relative to the root, with {@code /} as separator, as it is stored in the index.
+     */
+    static String relativePath(Path root, Path file) {
+        Path relative = root.relativize(file);
+        return relative.getFileSystem().getSeparator().equals("/")
+                ? relative.toString()
+                : relative.toString().replace(relative.getFileSystem().getSeparator(), "/");
+    }
+
+    private boolean changed(Path file, int id) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return attributes.size() != sizes[id] || attributes.lastModifiedTime().toMillis() != modifiedTimes[id];
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    private int find(int trigram) {
+        int low = 0;
+        int high = trigramCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int key = trigramAt(middle);
+            if (key < trigram) {
+                low = middle + 1;
+            } else if (key > trigram) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int size = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+}
@@ -0,0 +1,265 @@
+package org.coding.index;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Builds or updates the {@link TrigramIndex} of the files under a root directory.
+ *
+ * An update compares the size and modification time of every file with the existing index, if there is one:
+ * the posting lists of unchanged files are carried over, and only new and changed files are read. Files that no
+ * longer exist are dropped. The new index is written to a temporary file that replaces the old one atomically,
+ * so searches that use the index while it is updated see either the old or the new version.
+ */
+public final class TrigramIndexWriter {
+    private final Path rootDirectory;
+    private final Path indexDirectory;
+    private final FileSource fileSource;
+    private int fileCount;
+
+    /**
+     * Lists the files to index.
+     */
+    @FunctionalInterface
+    public interface FileSource {
+        /**
+         * @return the regular files under the root directory to index, in any order
+         * @throws IOException if the files cannot be listed
+         */
+        List<Path> list() throws IOException;
+    }
+
+    /**
+     * @param rootDirectory the directory whose files are indexed, recursively
+     * @param indexDirectory the directory the index is written to; created if needed
+     * @param fileFilter selects the regular files to index
+     */
+    public TrigramIndexWriter(Path rootDirectory, Path indexDirectory, Predicate<Path> fileFilter) {
+        this(rootDirectory, indexDirectory, fileFilter == null ? null : (FileSource) () -> walk(rootDirectory, fileFilter));
+    }
+
+    /**
+     * @param rootDirectory the directory whose files are indexed
+     * @param indexDirectory the directory the index is written to; created if needed
+     * @param fileSource lists the files to index, for example those a search walks, see
+     *                   {@link org.coding.service.GrepService#listFiles}
+     */
+    public TrigramIndexWriter(Path rootDirectory, Path indexDirectory, FileSource fileSource) {
+        if (rootDirectory == null || indexDirectory == null || fileSource == null) {
+            throw new IllegalArgumentException("Root directory, index directory and file source must not be null.");
+        }
+        this.rootDirectory = rootDirectory;
+        this.indexDirectory = indexDirectory;
+        this.fileSource = fileSource;
+    }
+
+    /**
+     * Builds the index, or updates it if the index directory already contains one.
+     *
+     * @return the number of files that were read, because they are new or changed
+     * @throws IOException if the root directory cannot be walked or the index cannot be written
+     */
+    public int update() throws IOException {
+        List<IndexedFile> files = findFiles();
+        TrigramIndex previous = Files.exists(indexDirectory.resolve(TrigramIndex.FILE_NAME)) ? TrigramIndex.open(indexDirectory) : null;
+
+        Map<Integer, IntList> postings = new HashMap<>();
+        List<IndexedFile> changed = new ArrayList<>();
+        if (previous != null) {
+            carryOver(previous, files, postings, changed);
+        } else {
+            changed.addAll(files);
+        }
+
+        List<int[]> trigrams = changed.parallelStream().map(this::readTrigrams).toList();
+        for (int i = 0; i < changed.size(); i++) {
+            for (int trigram : trigrams.get(i)) {
+                postings.computeIfAbsent(trigram, key -> new IntList()).add(changed.get(i).id);
+            }
+        }
+
+        write(files, postings);
+        fileCount = files.size();
+        return changed.size();
+    }
+
+    /**
+     * @return the number of files in the index written by the last {@link #update()}
+     */
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * Copies the posting lists of the files that did not change from the previous index, renumbering them,
+     * and collects the files that have to be read.
+     */
+    private void carryOver(TrigramIndex previous, List<IndexedFile> files, Map<Integer, IntList> postings, List<IndexedFile> changed) {
+        int[] newIds = new int[previous.getFileCount()];
+        Arrays.fill(newIds, -1);
+        Map<String, Integer> previousIds = new HashMap<>();
+        for (int id = 0; id < previous.getFileCount(); id++) {
+            previousIds.put(previous.path(id), id);
+        }
+        for (IndexedFile file : files) {
+            Integer previousId = previousIds.get(file.path);
+            if (previousId != null && previous.size(previousId) == file.size && previous.modifiedTime(previousId) == file.modifiedTime) {
+                newIds[previousId] = file.id;
+            } else {
+                changed.add(file);
+            }
+        }
+        for (int entry = 0; entry < previous.trigramCount(); entry++) {
+            IntList ids = null;
+            for (int previousId : previous.postingsAt(entry)) {
+                if (newIds[previousId] >= 0) {
+                    if (ids == null) {
+                        ids = postings.computeIfAbsent(previous.trigramAt(entry), key -> new IntList());
+                    }
+                    ids.add(newIds[previousId]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the files to index, sorted by path, and numbers them.
+     */
+    private List<IndexedFile> findFiles() throws IOException {
+        List<IndexedFile> files = new ArrayList<>();
+        for (Path path : fileSource.list()) {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            files.add(new IndexedFile(path, TrigramIndex.relativePath(rootDirectory, path),
+                    attributes.size(), attributes.lastModifiedTime().toMillis()));
+        }
+        files.sort(Comparator.comparing(file -> file.path));
+        for (int id = 0; id < files.size(); id++) {
+            files.get(id).id = id;
+        }
+        return files;
+    }
+
+    /**
+     * Walks the root directory for the regular files that the filter selects.
+     */
+    private static List<Path> walk(Path rootDirectory, Predicate<Path> fileFilter) throws IOException {
+        try (Stream<Path> paths = Files.walk(rootDirectory)) {
+            return paths.filter(Files::isRegularFile).filter(fileFilter).toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private int[] readTrigrams(IndexedFile file) {
+        try (InputStream in = Files.newInputStream(file.file)) {
+            return Trigrams.of(in);
+        } catch (IOException e) {
+            // recorded with an impossible modification time, so searches treat it as changed and always read it
+            System.err.println("Warning: Could not index file " + file.file + ": " + e.getMessage());
+            file.modifiedTime = -1;
+            return new int[0];
+        }
+    }
+
+    private void write(List<IndexedFile> files, Map<Integer, IntList> postings) throws IOException {
+        int[] trigrams = postings.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        int[] counts = new int[trigrams.length];
+        int[] offsets = new int[trigrams.length];
+        int postingsStart = TrigramIndex.HEADER_SIZE + trigrams.length * TrigramIndex.TABLE_ENTRY_SIZE;
+        for (int i = 0; i < trigrams.length; i++) {
+            IntList ids = postings.get(trigrams[i]);
+            ids.sort();
+            counts[i] = ids.size;
+            offsets[i] = postingsStart + encoded.size();
+            PostingLists.encode(ids.values, ids.size, encoded);
+        }
+
+        long indexSize = (long) postingsStart + encoded.size()
+                + files.stream().mapToLong(file -> 20L + file.path.getBytes(StandardCharsets.UTF_8).length).sum();
+        if (indexSize > Integer.MAX_VALUE) {
+            throw new IOException("The index of " + rootDirectory + " would be larger than 2 GB.");
+        }
+
+        Files.createDirectories(indexDirectory);
+        Path temporary = Files.createTempFile(indexDirectory, TrigramIndex.FILE_NAME, ".tmp");
+        try {
+            try (OutputStream stream = Files.newOutputStream(temporary);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+                out.writeInt(TrigramIndex.MAGIC);
+                out.writeInt(files.size());
+                out.writeInt(trigrams.length);
+                out.writeInt(postingsStart + encoded.size());
+                for (int i = 0; i < trigrams.length; i++) {
+                    out.writeInt(trigrams[i]);
+                    out.writeInt(counts[i]);
+                    out.writeInt(offsets[i]);
+                }
+                encoded.writeTo(out);
+                for (IndexedFile file : files) {
+                    byte[] path = file.path.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(path.length);
+                    out.write(path);
+                    out.writeLong(file.size);
+                    out.writeLong(file.modifiedTime);
+                }
+            }
+            Files.move(temporary, indexDirectory.resolve(TrigramIndex.FILE_NAME),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static final class IndexedFile {
+        private final Path file;
+        private final String path;
+        private final long size;
+        private long modifiedTime;
+        private int id;
+
+        private IndexedFile(Path file, String path, long size, long modifiedTime) {
+            this.file = file;
+            this.path = path;
+            this.size = size;
+            this.modifiedTime = modifiedTime;
+        }
+    }
+
+    /**
+     * A growable list of file ids.
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void sort() {
+            Arrays.sort(values, 0, size);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.coding.index;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Extracts the distinct trigrams of a file or a search literal.
+ *
+ * A trigram is three consecutive ASCII characters, folded to lower case, that are not line breaks; it is encoded
+ * as a 21-bit key. Characters outside the ASCII range are not indexed: a search literal only contributes the
+ * trigrams of its ASCII runs, so a file containing the literal always contains them too.
+ */
+final class Trigrams {
+    static final int KEY_SPACE = 1 << 21;
+    private static final ThreadLocal<long[]> SEEN = ThreadLocal.withInitial(() -> new long[KEY_SPACE / 64]);
+
+    private Trigrams() {
+    }
+
+    /**
+     * Returns the distinct trigrams of the input, sorted.
+     */
+    static int[] of(InputStream in) throws IOException {
+        Collector collector = new Collector();
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                collector.add(buffer[i]);
+            }
+        }
+        return collector.finish();
+    }
+
+    /**
+     * Returns the distinct trigrams that every line containing the literal, case-insensitively, must contain.
+     * The result is empty if the literal has no ASCII run of at least three characters.
+     */
+    static int[] ofLiteral(String literal) {
+        Collector collector = new Collector();
+        for (int i = 0; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            collector.add(c < 0x80 ? (byte) c : (byte) -1);
+        }
+        return collector.finish();
+    }
+
+    private static int fold(int c) {
+        return c >= 'A' && c <= 'Z' ? c | 0x20 : c;
+    }
+
+    /**
+     * Collects distinct trigram keys with a per-thread bit set, which is cleared again in {@link #finish()}.
+     */
+    private static final class Collector {
+        private final long[] seen = SEEN.get();
+        private int[] keys = new int[64];
+        private int size;
+        private int key;
+        private int run;
+
+        void add(byte b) {
+            if (b < 0 || b == '\n' || b == '\r') {
+                run = 0;
+                return;
+            }
+            key = ((key << 7) | fold(b)) & (KEY_SPACE - 1);
+            if (++run < 3) {
+                return;
+            }
+            long bit = 1L << key;
+            if ((seen[key >>> 6] & bit) == 0) {
+                seen[key >>> 6] |= bit;
+                if (size == keys.length) {
+                    keys = Arrays.copyOf(keys, size * 2);
+                }
+                keys[size++] = key;
+            }
+        }
+
+        int[] finish() {
+            int[] result = Arrays.copyOf(keys, size);
+            for (int k : result) {
+                seen[k >>> 6] &= ~(1L << k);
+            }
+            Arrays.sort(result);
+            return result;
+        }
+    }
+}
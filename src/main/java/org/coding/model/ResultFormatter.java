@@ -0,0 +1,65 @@
+package org.coding.model;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Formats search results with their context lines as grep does: a matching line as {@code path:number:line}, a context
+ * line as {@code path-number-line}, and {@code --} between groups of lines that do not follow on from each other.
+ *
+ * The results must be formatted in the order they were found, file by file. The context blocks of results that are
+ * close together overlap or touch; they are merged into one group, and lines that were printed already are skipped.
+ */
+public class ResultFormatter {
+    private static final String GROUP_SEPARATOR = "--";
+
+    private final UnaryOperator<Path> shownPath;
+    private Path lastFile;
+    private int lastLineNumber;
+
+    /**
+     * @param shownPath returns how the path of a file is printed
+     */
+    public ResultFormatter(UnaryOperator<Path> shownPath) {
+        if (shownPath == null) {
+            throw new IllegalArgumentException("Path display must not be null.");
+        }
+        this.shownPath = shownPath;
+    }
+
+    /**
+     * Returns the lines to print for a result: the separator if it starts a new group, its context lines that were
+     * not printed yet and its matching line, without a line break at the end.
+     */
+    public String format(SearchResult result) {
+        List<String> before = result.getContextBefore();
+        List<String> after = result.getContextAfter();
+        String path = shownPath.apply(result.getFilePath()).toString();
+        boolean sameFile = result.getFilePath().equals(lastFile);
+        int first = result.getLineNumber() - before.size();
+
+        StringBuilder lines = new StringBuilder();
+        if (lastFile != null && (!sameFile || first > lastLineNumber + 1)) {
+            lines.append(GROUP_SEPARATOR).append(System.lineSeparator());
+        }
+        for (int i = 0; i < before.size(); i++) {
+            if (!sameFile || first + i > lastLineNumber) {
+                appendLine(lines, path, first + i, '-', before.get(i));
+            }
+        }
+        appendLine(lines, path, result.getLineNumber(), ':', result.getLineContent());
+        for (int i = 0; i < after.size(); i++) {
+            appendLine(lines, path, result.getLineNumber() + 1 + i, '-', after.get(i));
+        }
+        lines.setLength(lines.length() - System.lineSeparator().length());
+
+        lastFile = result.getFilePath();
+        lastLineNumber = result.getLineNumber() + after.size();
+        return lines.toString();
+    }
+
+    private static void appendLine(StringBuilder lines, String path, int lineNumber, char separator, String line) {
+        lines.append(path).append(separator).append(lineNumber).append(separator).append(line).append(System.lineSeparator());
+    }
+}
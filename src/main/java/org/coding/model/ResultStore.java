@@ -0,0 +1,426 @@
+package org.coding.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A compact list of search results, for searches with many matches.
+ *
+ * A result takes a few primitive array slots instead of a {@link SearchResult} with its own line {@code String}:
+ * the file is an index into a table of the distinct files, and the line is given by its byte offset and length
+ * in the file. The text of the line is only read back from the file, through a memory-mapped window, when it is
+ * asked for, typically when the result is printed; the file must not change in between. Lines are decoded as UTF-8,
+ * or in the charset set for their file, see {@link #setCharset(Path, Charset)}. Lines that cannot be
+ * read back, such as lines of decompressed data, are kept as text, and so may be lines that were just decoded
+ * anyway and will be read soon, such as those of a small file whose results are streamed.
+ *
+ * {@link #get(int)} returns a {@link SearchResult} that is a view over the store. Adding a view of another store
+ * copies its position in the file, without the text of the line if it can be read back.
+ *
+ * Context lines around a result are kept the same way: as the byte range in the file from the first line before
+ * to the last line after, and the number of lines on either side, or as text if they cannot be read back.
+ *
+ * Adding results is not thread-safe; reading lines back is.
+ */
+public class ResultStore extends AbstractList<SearchResult> {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+    private static final int DETACHED = -1;
+
+    private final List<Path> files = new ArrayList<>();
+    private final List<Charset> charsets = new ArrayList<>();
+    private final Map<Path, Integer> fileIds = new HashMap<>();
+    private final List<List<String>> patternSets = new ArrayList<>(List.of(List.of()));
+    private final Map<List<String>, Integer> patternSetIds = new HashMap<>(Map.of(List.of(), 0));
+    private Path lastFile;
+    private int lastFileId;
+
+    private int size;
+    private int[] fileIdOf = new int[INITIAL_CAPACITY];
+    private int[] lineNumberOf = new int[INITIAL_CAPACITY];
+    private long[] byteOffsetOf = new long[INITIAL_CAPACITY];
+    private int[] lengthOf = new int[INITIAL_CAPACITY];
+    // only allocated once a result needs them
+    private int[] patternSetOf;
+    private String[] lineOf;
+    private long[] contextStartOf;
+    private long[] contextEndOf;
+    private int[] linesBeforeOf;
+    private int[] linesAfterOf;
+    private List<String>[] keptBeforeOf;
+    private List<String>[] keptAfterOf;
+
+    // the last window mapped of each file, and the position in the file it starts at
+    private final List<ByteBuffer> windows = new ArrayList<>();
+    private final List<Long> windowOffsets = new ArrayList<>();
+
+    /**
+     * Adds a result whose line is read back from the file when it is asked for.
+     *
+     * @param byteOffset      the position of the first byte of the line in the file
+     * @param length          the length of the line in bytes, without the line break
+     * @param matchedPatterns the search strings found in the line, or an empty list
+     * @throws IllegalArgumentException if the file is {@code null}, the line number is below 1, or the offset or length is negative
+     */
+    public void add(Path filePath, int lineNumber, long byteOffset, int length, List<String> matchedPatterns) {
+        add(filePath, lineNumber, byteOffset, length, matchedPatterns, null);
+    }
+
+    /**
+     * Adds a result like {@link #add(Path, int, long, int, List)}, and keeps the text of its line, if not {@code null},
+     * until the result is copied into another store.
+     */
+    public void add(Path filePath, int lineNumber, long byteOffset, int length, List<String> matchedPatterns,
+                    String lineContent) {
+        if (byteOffset < 0 || length < 0) {
+            throw new IllegalArgumentException("Byte offset and length must not be negative");
+        }
+        append(filePath, lineNumber, byteOffset, length, matchedPatterns);
+        if (lineContent != null) {
+            keepLine(lineContent);
+        }
+    }
+
+    /**
+     * Sets the charset the lines of a file are decoded with when they are read back; UTF-8 by default.
+     *
+     * @throws IllegalArgumentException if the file or charset is {@code null}
+     */
+    public void setCharset(Path filePath, Charset charset) {
+        if (filePath == null || charset == null) {
+            throw new IllegalArgumentException("File path and charset cannot be null");
+        }
+        charsets.set(fileId(filePath), charset);
+    }
+
+    /**
+     * Adds a result. The line of a view over a store is not read if it can be read back from its file;
+     * any other result keeps its line as text.
+     */
+    @Override
+    public boolean add(SearchResult result) {
+        ResultStore source = result.store;
+        if (source != null && source.byteOffsetOf[result.index] != DETACHED) {
+            int index = result.index;
+            int sourceFileId = source.fileIdOf[index];
+            append(source.files.get(sourceFileId), source.lineNumberOf[index], source.byteOffsetOf[index],
+                    source.lengthOf[index], source.matchedPatterns(index));
+            charsets.set(fileIdOf[size - 1], source.charsets.get(sourceFileId));
+            if (source.linesBeforeOf != null && source.keptBeforeOf[index] != null) {
+                setContext(size - 1, source.keptBeforeOf[index], source.keptAfterOf[index]);
+            } else if (source.linesBeforeOf != null && (source.linesBeforeOf[index] > 0 || source.linesAfterOf[index] > 0)) {
+                setContext(size - 1, source.contextStartOf[index], source.linesBeforeOf[index],
+                        source.contextEndOf[index], source.linesAfterOf[index]);
+            }
+        } else {
+            append(result.getFilePath(), result.getLineNumber(), DETACHED, 0, result.getMatchedPatterns());
+            keepLine(result.getLineContent());
+            if (!result.getContextBefore().isEmpty() || !result.getContextAfter().isEmpty()) {
+                setContext(size - 1, result.getContextBefore(), result.getContextAfter());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The result is a view over this store.
+     */
+    @Override
+    public SearchResult get(int index) {
+        Objects.checkIndex(index, size);
+        return new SearchResult(this, index);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds {@code shift} to the line numbers of the results from {@code fromIndex} on, for results that were
+     * numbered from the start of a part of a file.
+     */
+    public void shiftLineNumbers(int fromIndex, int shift) {
+        Objects.checkFromToIndex(fromIndex, size, size);
+        for (int i = fromIndex; i < size; i++) {
+            lineNumberOf[i] += shift;
+        }
+    }
+
+    /**
+     * Sets the context lines of the result at {@code index} by their position in its file: {@code linesBefore} lines
+     * that start at {@code contextStart}, and {@code linesAfter} lines that end at {@code contextEnd}, without the line
+     * break of the last one. The range must hold the line of the result and at least that many lines on either side.
+     *
+     * @throws IllegalArgumentException if a number of lines is negative or the range does not hold the line
+     */
+    public void setContext(int index, long contextStart, int linesBefore, long contextEnd, int linesAfter) {
+        Objects.checkIndex(index, size);
+        if (linesBefore < 0 || linesAfter < 0 || byteOffsetOf[index] == DETACHED
+                || contextStart > byteOffsetOf[index] || contextEnd < byteOffsetOf[index] + lengthOf[index]) {
+            throw new IllegalArgumentException("Context must be a non-negative number of lines around the line in its file");
+        }
+        allocateContext();
+        contextStartOf[index] = contextStart;
+        contextEndOf[index] = contextEnd;
+        linesBeforeOf[index] = linesBefore;
+        linesAfterOf[index] = linesAfter;
+    }
+
+    /**
+     * Sets the context lines of the result at {@code index} as text, for lines that cannot be read back from the file.
+     */
+    public void setContext(int index, List<String> linesBefore, List<String> linesAfter) {
+        Objects.checkIndex(index, size);
+        allocateContext();
+        keptBeforeOf[index] = List.copyOf(linesBefore);
+        keptAfterOf[index] = List.copyOf(linesAfter);
+        linesBeforeOf[index] = linesBefore.size();
+        linesAfterOf[index] = linesAfter.size();
+    }
+
+    /**
+     * Drops the context lines after the result at {@code index} beyond the first {@code maxLines}, for when the line of
+     * a later result is among them.
+     */
+    public void limitContextAfter(int index, int maxLines) {
+        Objects.checkIndex(index, size);
+        if (linesAfterOf == null || linesAfterOf[index] <= maxLines) {
+            return;
+        }
+        linesAfterOf[index] = Math.max(0, maxLines);
+        if (keptAfterOf[index] != null) {
+            keptAfterOf[index] = keptAfterOf[index].subList(0, linesAfterOf[index]);
+        }
+    }
+
+    /**
+     * Returns a view of the results formatted as {@link SearchResult#toString()} does, each one formatted when it is read.
+     * Reading an element reads its line from the file if it is not kept as text, and throws an
+     * {@link UncheckedIOException} if the file cannot be read; copy the view to keep the strings.
+     */
+    public List<String> formatted() {
+        return new AbstractList<>() {
+            @Override
+            public String get(int index) {
+                return ResultStore.this.get(index).toString();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    Path filePath(int index) {
+        return files.get(fileIdOf[index]);
+    }
+
+    int lineNumber(int index) {
+        return lineNumberOf[index];
+    }
+
+    List<String> matchedPatterns(int index) {
+        return patternSetOf == null ? List.of() : patternSets.get(patternSetOf[index]);
+    }
+
+    /**
+     * Returns the context lines before or after a result, reading them from its file if they are not kept as text.
+     *
+     * @throws UncheckedIOException if the file cannot be read, or has become shorter since it was searched
+     */
+    synchronized List<String> context(int index, boolean after) {
+        int lines = linesBeforeOf == null ? 0 : after ? linesAfterOf[index] : linesBeforeOf[index];
+        if (lines == 0) {
+            return List.of();
+        }
+        if (keptBeforeOf[index] != null) {
+            return after ? keptAfterOf[index] : keptBeforeOf[index];
+        }
+        long start = contextStartOf[index];
+        long length = contextEndOf[index] - start;
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new UncheckedIOException(new IOException("The context of line " + lineNumberOf[index] + " of file "
+                    + filePath(index) + " is too long"));
+        }
+        List<String> block;
+        try {
+            block = splitLines(new String(read(fileIdOf[index], start, (int) length), charsets.get(fileIdOf[index])));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the context of line " + lineNumberOf[index] + " of file " + filePath(index), e);
+        }
+        int before = linesBeforeOf[index];
+        int from = after ? before + 1 : 0;
+        return List.copyOf(block.subList(Math.min(from, block.size()), Math.min(from + lines, block.size())));
+    }
+
+    /**
+     * Returns the line of a result, reading it from its file if it is not kept as text.
+     *
+     * @throws UncheckedIOException if the file cannot be read, or has become shorter since it was searched
+     */
+    synchronized String lineContent(int index) {
+        if (lineOf != null && lineOf[index] != null) {
+            return lineOf[index];
+        }
+        int length = lengthOf[index];
+        if (length == 0) {
+            return "";
+        }
+        try {
+            return new String(read(fileIdOf[index], byteOffsetOf[index], length), charsets.get(fileIdOf[index]));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read line " + lineNumberOf[index] + " of file " + filePath(index), e);
+        }
+    }
+
+    /**
+     * Reads {@code [offset, offset + length)} of a file from its mapped window, mapping a new one if the last window
+     * of the file does not hold the range. Each file keeps its own window, so that reading the results of several
+     * files in turn does not map them again each time.
+     */
+    private byte[] read(int fileId, long offset, int length) throws IOException {
+        ByteBuffer window = windows.get(fileId);
+        long windowOffset = windowOffsets.get(fileId);
+        if (window == null || offset < windowOffset || offset + length > windowOffset + window.limit()) {
+            window = map(fileId, offset, length);
+            windowOffset = offset;
+        }
+        byte[] bytes = new byte[length];
+        window.get((int) (offset - windowOffset), bytes);
+        return bytes;
+    }
+
+    private ByteBuffer map(int fileId, long offset, int length) throws IOException {
+        Path file = files.get(fileId);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (offset + length > fileSize) {
+                throw new IOException("The file is shorter than when it was searched");
+            }
+            long windowSize = Math.min(fileSize - offset, Math.max(length, WINDOW_SIZE));
+            ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, offset, windowSize);
+            windows.set(fileId, window);
+            windowOffsets.set(fileId, offset);
+            return window;
+        }
+    }
+
+    private void append(Path filePath, int lineNumber, long byteOffset, int length, List<String> matchedPatterns) {
+        if (filePath == null) {
+            throw new IllegalArgumentException("File path cannot be null");
+        }
+        if (lineNumber < 1) {
+            throw new IllegalArgumentException("Line number must be at least 1");
+        }
+        if (size == fileIdOf.length) {
+            grow();
+        }
+        fileIdOf[size] = fileId(filePath);
+        lineNumberOf[size] = lineNumber;
+        byteOffsetOf[size] = byteOffset;
+        lengthOf[size] = length;
+        if (matchedPatterns != null && !matchedPatterns.isEmpty()) {
+            if (patternSetOf == null) {
+                patternSetOf = new int[fileIdOf.length];
+            }
+            patternSetOf[size] = patternSetIds.computeIfAbsent(List.copyOf(matchedPatterns), patterns -> {
+                patternSets.add(patterns);
+                return patternSets.size() - 1;
+            });
+        }
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Splits text into lines at {@code \n}, {@code \r} or {@code \r\n}; text after the last line break is a line,
+     * even if it is empty.
+     */
+    private static List<String> splitLines(String text) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\r') {
+                lines.add(text.substring(start, i));
+                if (c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                start = i + 1;
+            }
+        }
+        lines.add(text.substring(start));
+        return lines;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void allocateContext() {
+        if (linesBeforeOf == null) {
+            contextStartOf = new long[fileIdOf.length];
+            contextEndOf = new long[fileIdOf.length];
+            linesBeforeOf = new int[fileIdOf.length];
+            linesAfterOf = new int[fileIdOf.length];
+            keptBeforeOf = new List[fileIdOf.length];
+            keptAfterOf = new List[fileIdOf.length];
+        }
+    }
+
+    private void keepLine(String lineContent) {
+        if (lineOf == null) {
+            lineOf = new String[fileIdOf.length];
+        }
+        lineOf[size - 1] = lineContent;
+    }
+
+    private int fileId(Path filePath) {
+        if (filePath != lastFile) {
+            lastFileId = fileIds.computeIfAbsent(filePath, path -> {
+                files.add(path);
+                charsets.add(StandardCharsets.UTF_8);
+                windows.add(null);
+                windowOffsets.add(0L);
+                return files.size() - 1;
+            });
+            lastFile = filePath;
+        }
+        return lastFileId;
+    }
+
+    private void grow() {
+        int capacity = fileIdOf.length + (fileIdOf.length >> 1);
+        fileIdOf = Arrays.copyOf(fileIdOf, capacity);
+        lineNumberOf = Arrays.copyOf(lineNumberOf, capacity);
+        byteOffsetOf = Arrays.copyOf(byteOffsetOf, capacity);
+        lengthOf = Arrays.copyOf(lengthOf, capacity);
+        if (patternSetOf != null) {
+            patternSetOf = Arrays.copyOf(patternSetOf, capacity);
+        }
+        if (lineOf != null) {
+            lineOf = Arrays.copyOf(lineOf, capacity);
+        }
+        if (linesBeforeOf != null) {
+            contextStartOf = Arrays.copyOf(contextStartOf, capacity);
+            contextEndOf = Arrays.copyOf(contextEndOf, capacity);
+            linesBeforeOf = Arrays.copyOf(linesBeforeOf, capacity);
+            linesAfterOf = Arrays.copyOf(linesAfterOf, capacity);
+            keptBeforeOf = Arrays.copyOf(keptBeforeOf, capacity);
+            keptAfterOf = Arrays.copyOf(keptAfterOf, capacity);
+        }
+    }
+}
@@ -1,9 +1,8 @@
 package org.coding.model;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
-
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
 
 /**
  * Represents a single search result from a file search operation.
@@ -11,14 +10,37 @@ import java.nio.file.Path;
  * {@code filePath} must not be {@code null}.
  * {@code lineNumber} must be greater than or equal to 1.
  * {@code lineContent} must not be {@code null}.
+ * When several search strings were looked for at once, {@code matchedPatterns} holds the ones found in the line.
+ * When context lines were asked for, {@code contextBefore} and {@code contextAfter} hold the lines around it.
  * Throws {@link IllegalArgumentException} if any of the above conditions are violated.
+ *
+ * A result may also be a view over a {@link ResultStore}, in which case the line content is only read when it is
+ * first asked for.
  */
 public class SearchResult {
     Path filePath;
     String lineContent;
     int lineNumber;
+    List<String> matchedPatterns;
+    List<String> contextBefore;
+    List<String> contextAfter;
+    final ResultStore store;
+    final int index;
 
     public SearchResult(Path filePath,int lineNumber,  String lineContent) {
+        this(filePath, lineNumber, lineContent, List.of());
+    }
+
+    public SearchResult(Path filePath, int lineNumber, String lineContent, List<String> matchedPatterns) {
+        this(filePath, lineNumber, lineContent, matchedPatterns, List.of(), List.of());
+    }
+
+    /**
+     * @param contextBefore the lines just before the matching line, in file order; may be {@code null} for none
+     * @param contextAfter  the lines just after the matching line, in file order; may be {@code null} for none
+     */
+    public SearchResult(Path filePath, int lineNumber, String lineContent, List<String> matchedPatterns,
+                        List<String> contextBefore, List<String> contextAfter) {
         if (filePath == null) {
             throw new IllegalArgumentException("File path cannot be null");
         }
@@ -31,6 +53,22 @@ public class SearchResult {
         this.filePath = filePath;
         this.lineNumber = lineNumber;
         this.lineContent = lineContent;
+        this.matchedPatterns = matchedPatterns == null ? List.of() : List.copyOf(matchedPatterns);
+        this.contextBefore = contextBefore == null ? List.of() : List.copyOf(contextBefore);
+        this.contextAfter = contextAfter == null ? List.of() : List.copyOf(contextAfter);
+        this.store = null;
+        this.index = -1;
+    }
+
+    /**
+     * Creates a view of the result at {@code index} in {@code store}.
+     */
+    SearchResult(ResultStore store, int index) {
+        this.store = store;
+        this.index = index;
+        this.filePath = store.filePath(index);
+        this.lineNumber = store.lineNumber(index);
+        this.matchedPatterns = store.matchedPatterns(index);
     }
 
     /**
@@ -46,8 +84,12 @@ public class SearchResult {
      * Returns the content of the matching line.
      *
      * @return the line content; never {@code null}
+     * @throws java.io.UncheckedIOException if this is a view and the line cannot be read from its file
      */
     public String getLineContent() {
+        if (lineContent == null) {
+            lineContent = store.lineContent(index);
+        }
         return lineContent;
     }
 
@@ -60,6 +102,43 @@ public class SearchResult {
         return lineNumber;
     }
 
+    /**
+     * Returns the search strings found in the line, when several were looked for at once.
+     *
+     * @return the matched search strings; empty for single-pattern searches, never {@code null}
+     */
+    public List<String> getMatchedPatterns() {
+        return matchedPatterns;
+    }
+
+    /**
+     * Returns the lines just before the matching line, when context lines were asked for.
+     * They may include lines that are also the context of the previous result, or even that result's line.
+     *
+     * @return the lines before, in file order; empty if there are none, never {@code null}
+     * @throws java.io.UncheckedIOException if this is a view and the lines cannot be read from its file
+     */
+    public List<String> getContextBefore() {
+        if (contextBefore == null) {
+            contextBefore = store.context(index, false);
+        }
+        return contextBefore;
+    }
+
+    /**
+     * Returns the lines just after the matching line, when context lines were asked for.
+     * They stop before the line of the next result in the same file.
+     *
+     * @return the lines after, in file order; empty if there are none, never {@code null}
+     * @throws java.io.UncheckedIOException if this is a view and the lines cannot be read from its file
+     */
+    public List<String> getContextAfter() {
+        if (contextAfter == null) {
+            contextAfter = store.context(index, true);
+        }
+        return contextAfter;
+    }
+
     @Override
     public boolean equals(Object object) {
         if (this == object) return true;
@@ -68,16 +147,18 @@ public class SearchResult {
 
         SearchResult that = (SearchResult) object;
 
-        return new EqualsBuilder().append(lineNumber, that.lineNumber).append(filePath, that.filePath).append(lineContent, that.lineContent).isEquals();
+        return lineNumber == that.lineNumber && filePath.equals(that.filePath)
+                && matchedPatterns.equals(that.matchedPatterns) && getLineContent().equals(that.getLineContent())
+                && getContextBefore().equals(that.getContextBefore()) && getContextAfter().equals(that.getContextAfter());
     }
 
     @Override
     public int hashCode() {
-        return new HashCodeBuilder(17, 37).append(filePath).append(lineContent).append(lineNumber).toHashCode();
+        return Objects.hash(filePath, getLineContent(), lineNumber, matchedPatterns);
     }
 
     @Override
     public String toString() {
-        return filePath.toString() + ":" + lineNumber + ":" + lineContent;
+        return filePath.toString() + ":" + lineNumber + ":" + getLineContent();
     }
 }
\ No newline at end of file
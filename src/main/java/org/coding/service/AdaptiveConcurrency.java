@@ -0,0 +1,120 @@
+package org.coding.service;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Tunes how many file tasks of one file system may run at the same time, from the throughput they reach.
+ *
+ * Finished tasks are measured in windows of at least {@code MIN_WINDOW_NANOS} and as many tasks as the limit.
+ * At the end of a window, its throughput in bytes per second and in files per second is compared with that of the
+ * previous window, and the better of the two ratios decides, so that a window of smaller files is not taken for a
+ * slowdown:
+ * <ul>
+ *     <li>If the throughput fell by more than {@code DROP}, the limit is cut by {@code BACKOFF}
+ *     (multiplicative decrease): the storage is thrashing, as a spinning disk does with too many readers.</li>
+ *     <li>If the limit was raised for this window and the throughput did not rise by {@code GAIN}, the raise is
+ *     taken back: the storage is saturated, as a local SSD is at about the core count.</li>
+ *     <li>Otherwise the limit is raised: doubled until the first window that does not gain (slow start), and by one
+ *     after that (additive increase), so that storage with a high latency, such as NFS, gets many readers soon.</li>
+ * </ul>
+ * The limit thus climbs to where more readers stop paying and then moves by one around it.
+ * It is kept between one and {@code maxLimit}. Not thread-safe.
+ */
+final class AdaptiveConcurrency {
+    static final long MIN_WINDOW_NANOS = 20_000_000;
+    private static final double DROP = 0.10;
+    private static final double GAIN = 0.05;
+    private static final double BACKOFF = 0.75;
+
+    private final int maxLimit;
+    private final LongSupplier nanoClock;
+    private int limit;
+    private boolean slowStart = true;
+    private int lastRaise;
+    private long windowStart;
+    private long windowBytes;
+    private long windowFiles;
+    private int windowTasks;
+    private double previousBytesPerSecond = -1;
+    private double previousFilesPerSecond = -1;
+
+    /**
+     * @param initialLimit the limit to start from
+     * @param maxLimit     the highest limit, such as the number of threads
+     */
+    AdaptiveConcurrency(int initialLimit, int maxLimit) {
+        this(initialLimit, maxLimit, System::nanoTime);
+    }
+
+    /**
+     * @param nanoClock the time in nanoseconds
+     */
+    AdaptiveConcurrency(int initialLimit, int maxLimit, LongSupplier nanoClock) {
+        if (initialLimit < 1 || maxLimit < 1) {
+            throw new IllegalArgumentException("Concurrency limits must be positive");
+        }
+        this.maxLimit = maxLimit;
+        this.limit = Math.min(initialLimit, maxLimit);
+        this.nanoClock = nanoClock;
+        this.windowStart = nanoClock.getAsLong();
+    }
+
+    /**
+     * @return the number of tasks that may run at the same time
+     */
+    int limit() {
+        return limit;
+    }
+
+    /**
+     * Records a task that finished, and adjusts the limit if that ends a window.
+     *
+     * @param bytes the size of the files of the task
+     * @param files the number of files of the task
+     */
+    void finished(long bytes, int files) {
+        windowBytes += bytes;
+        windowFiles += files;
+        windowTasks++;
+        long now = nanoClock.getAsLong();
+        long elapsed = now - windowStart;
+        if (windowTasks < limit || elapsed < MIN_WINDOW_NANOS) {
+            return;
+        }
+        double seconds = elapsed / 1e9;
+        double bytesPerSecond = windowBytes / seconds;
+        double filesPerSecond = windowFiles / seconds;
+        if (previousBytesPerSecond < 0) {
+            raise();
+        } else {
+            double ratio = Math.max(ratio(bytesPerSecond, previousBytesPerSecond), ratio(filesPerSecond, previousFilesPerSecond));
+            if (ratio < 1 - DROP) {
+                limit = Math.max(1, (int) (limit * BACKOFF));
+                slowStart = false;
+                lastRaise = 0;
+            } else if (lastRaise > 0 && ratio < 1 + GAIN) {
+                limit -= lastRaise;
+                slowStart = false;
+                lastRaise = 0;
+            } else {
+                raise();
+            }
+        }
+        previousBytesPerSecond = bytesPerSecond;
+        previousFilesPerSecond = filesPerSecond;
+        windowStart = now;
+        windowBytes = 0;
+        windowFiles = 0;
+        windowTasks = 0;
+    }
+
+    private void raise() {
+        int raised = Math.min(maxLimit, slowStart ? limit * 2 : limit + 1);
+        lastRaise = raised - limit;
+        limit = raised;
+    }
+
+    private static double ratio(double current, double previous) {
+        return previous == 0 ? (current == 0 ? 1 : Double.MAX_VALUE) : current / previous;
+    }
+}
@@ -0,0 +1,261 @@
+package org.coding.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+/**
+ * Iterates over the regular files under a root directory, depth first, in file name order.
+ *
+ * Directories are listed on a small pool of listing threads: when the listing of a directory is consumed, the
+ * listings of its subdirectories are started in the background, so the caller rarely waits for the file system.
+ * At most {@code maxPrefetchedDirectories} listings are started ahead of the caller; beyond that, directories are
+ * listed when the caller reaches them. Memory therefore depends on the depth of the tree and the prefetch limit,
+ * not on the number of files.
+ *
+ * Directories that the directory filter rejects, or that ignore files ignore if they are respected, are skipped
+ * with everything in them without being listed; see {@link IgnoreRules}.
+ *
+ * Directories that cannot be read are reported as warnings and skipped; symbolic links to directories are not
+ * followed, symbolic links to regular files are returned. The size of each file is read along with the listing,
+ * see {@link #lastFileSize()}. The iterator is not thread-safe and must be closed.
+ */
+final class DirectoryWalker implements Iterator<Path>, AutoCloseable {
+    static final int DEFAULT_LISTING_THREADS = 4;
+    static final int DEFAULT_MAX_PREFETCHED_DIRECTORIES = 256;
+
+    private final Predicate<Path> fileFilter;
+    private final Predicate<Path> directoryFilter;
+    private final boolean ignoreFiles;
+    private final int maxPrefetchedDirectories;
+    private final ExecutorService listingExecutor;
+    private final Deque<Iterator<Entry>> stack = new ArrayDeque<>();
+    private int prefetchedDirectories;
+    private Entry next;
+    private long lastFileSize;
+
+    /**
+     * Creates a walker with the default number of listing threads and prefetch limit.
+     *
+     * @throws IOException if the root directory cannot be listed
+     */
+    DirectoryWalker(Path root, Predicate<Path> fileFilter) throws IOException {
+        this(root, fileFilter, directory -> true, false);
+    }
+
+    /**
+     * Creates a walker with the default number of listing threads and prefetch limit.
+     *
+     * @param directoryFilter selects the directories to walk into
+     * @param ignoreFiles     whether to skip the files and directories that ignore files ignore
+     * @throws IOException if the root directory cannot be listed
+     */
+    DirectoryWalker(Path root, Predicate<Path> fileFilter, Predicate<Path> directoryFilter, boolean ignoreFiles) throws IOException {
+        this(root, fileFilter, directoryFilter, ignoreFiles, DEFAULT_LISTING_THREADS, DEFAULT_MAX_PREFETCHED_DIRECTORIES);
+    }
+
+    /**
+     * Creates a walker that walks into every directory.
+     *
+     * @param listingThreads the number of threads listing directories in the background
+     * @param maxPrefetchedDirectories the number of directory listings that may be started ahead of the caller
+     * @throws IOException if the root directory cannot be listed
+     */
+    DirectoryWalker(Path root, Predicate<Path> fileFilter, int listingThreads, int maxPrefetchedDirectories) throws IOException {
+        this(root, fileFilter, directory -> true, false, listingThreads, maxPrefetchedDirectories);
+    }
+
+    /**
+     * @param root the directory to walk
+     * @param fileFilter selects the regular files to return
+     * @param directoryFilter selects the directories below the root to walk into
+     * @param ignoreFiles whether to skip the files and directories that ignore files ignore
+     * @param listingThreads the number of threads listing directories in the background
+     * @param maxPrefetchedDirectories the number of directory listings that may be started ahead of the caller
+     * @throws IOException if the root directory cannot be listed
+     */
+    DirectoryWalker(Path root, Predicate<Path> fileFilter, Predicate<Path> directoryFilter, boolean ignoreFiles,
+                    int listingThreads, int maxPrefetchedDirectories) throws IOException {
+        this.fileFilter = fileFilter;
+        this.directoryFilter = directoryFilter;
+        this.ignoreFiles = ignoreFiles;
+        this.maxPrefetchedDirectories = maxPrefetchedDirectories;
+        this.listingExecutor = Executors.newFixedThreadPool(listingThreads, runnable -> {
+            Thread thread = new Thread(runnable, "directory-listing");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            stack.push(list(root, IgnoreRules.NONE).iterator());
+        } catch (IOException | RuntimeException e) {
+            listingExecutor.shutdownNow();
+            throw e;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() {
+        while (next == null && !stack.isEmpty()) {
+            Iterator<Entry> entries = stack.peek();
+            if (!entries.hasNext()) {
+                stack.pop();
+                continue;
+            }
+            Entry entry = entries.next();
+            if (!entry.directory) {
+                next = entry;
+            } else {
+                List<Entry> children = awaitListing(entry);
+                if (children != null) {
+                    stack.push(children.iterator());
+                }
+            }
+        }
+        return next != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Path next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Entry file = next;
+        next = null;
+        lastFileSize = file.size;
+        return file.path;
+    }
+
+    /**
+     * Returns the size in bytes of the file last returned by {@link #next()}, as it was when its directory was listed.
+     * The size of a symbolic link is that of the link, not of its target.
+     */
+    long lastFileSize() {
+        return lastFileSize;
+    }
+
+    /**
+     * Stops the listing threads.
+     */
+    @Override
+    public void close() {
+        listingExecutor.shutdownNow();
+    }
+
+    /**
+     * Returns the listing of a directory entry, waiting for it if it was prefetched, and starts prefetching the
+     * listings of its subdirectories.
+     *
+     * @return the entries of the directory, or {@code null} if it could not be read
+     */
+    private List<Entry> awaitListing(Entry directory) {
+        List<Entry> children;
+        try {
+            if (directory.listing == null) {
+                children = list(directory.path, directory.rules);
+            } else {
+                prefetchedDirectories--;
+                children = directory.listing.get();
+            }
+        } catch (IOException e) {
+            return skip(directory.path, e);
+        } catch (ExecutionException e) {
+            return skip(directory.path, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while listing directory " + directory.path, e);
+        }
+        prefetch(children);
+        return children;
+    }
+
+    private void prefetch(List<Entry> entries) {
+        for (Entry entry : entries) {
+            if (prefetchedDirectories >= maxPrefetchedDirectories) {
+                return;
+            }
+            if (entry.directory) {
+                entry.listing = listingExecutor.submit(() -> list(entry.path, entry.rules));
+                prefetchedDirectories++;
+            }
+        }
+    }
+
+    private List<Entry> skip(Path directory, Throwable cause) {
+        System.err.println("Warning: Could not read directory " + directory + ": " + cause.getMessage());
+        return null;
+    }
+
+    /**
+     * Lists the selected subdirectories and regular files of a directory, sorted by file name.
+     *
+     * @param inherited the ignore rules of the directories above it
+     */
+    private List<Entry> list(Path directory, IgnoreRules inherited) throws IOException {
+        IgnoreRules rules = ignoreFiles ? inherited.forDirectory(directory) : inherited;
+        List<Entry> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (IOException e) {
+                    continue;
+                }
+                if (attributes.isDirectory()) {
+                    if (!rules.isIgnored(path, true) && directoryFilter.test(path)) {
+                        entries.add(new Entry(path, true, 0, rules));
+                    }
+                } else if ((attributes.isRegularFile() || attributes.isSymbolicLink() && Files.isRegularFile(path))
+                        && !rules.isIgnored(path, false) && fileFilter.test(path)) {
+                    entries.add(new Entry(path, false, attributes.size(), rules));
+                }
+            }
+        } catch (DirectoryIteratorException e) {
+            // an entry that could not be read while iterating, thrown by the stream's iterator
+            throw e.getCause();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        entries.sort(Comparator.comparing(entry -> entry.path.getFileName().toString()));
+        return entries;
+    }
+
+    private static final class Entry {
+        private final Path path;
+        private final boolean directory;
+        private final long size;
+        // the ignore rules of the directory the entry is in
+        private final IgnoreRules rules;
+        private Future<List<Entry>> listing;
+
+        private Entry(Path path, boolean directory, long size, IgnoreRules rules) {
+            this.path = path;
+            this.directory = directory;
+            this.size = size;
+            this.rules = rules;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.coding.service;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * The strategy {@link GrepService} uses to run its file tasks.
+ *
+ * <ul>
+ *     <li>{@link #FIXED}: a fixed pool of platform threads, {@code threadPoolSize} of them. Suits slow storage where
+ *     threads mostly wait for I/O.</li>
+ *     <li>{@link #VIRTUAL}: a new virtual thread for every file; {@code threadPoolSize} only bounds how many files
+ *     are in flight. Suits high-latency storage such as network mounts, where many more requests than platform
+ *     threads should be outstanding. Needs a Java 21 runtime.</li>
+ *     <li>{@link #WORK_STEALING}: a work-stealing {@link java.util.concurrent.ForkJoinPool} with one thread per core,
+ *     {@code threadPoolSize} is ignored. Suits CPU-bound scanning of files that are already in the page cache.</li>
+ * </ul>
+ */
+public enum ExecutionMode {
+    FIXED,
+    VIRTUAL,
+    WORK_STEALING;
+
+    /**
+     * Returns the number of files that may be searched at the same time in this mode.
+     *
+     * @param threadPoolSize the requested number of threads
+     */
+    int parallelism(int threadPoolSize) {
+        return this == WORK_STEALING ? Runtime.getRuntime().availableProcessors() : threadPoolSize;
+    }
+
+    /**
+     * Creates the executor for a search, or for several, see {@link SearchOptions#setExecutor(ExecutorService)}.
+     *
+     * @param threadPoolSize the requested number of threads
+     * @throws IllegalStateException if the mode is not supported by the running JVM
+     */
+    public ExecutorService createExecutor(int threadPoolSize) {
+        return switch (this) {
+            case FIXED -> Executors.newFixedThreadPool(threadPoolSize);
+            case VIRTUAL -> newVirtualThreadPerTaskExecutor();
+            case WORK_STEALING -> Executors.newWorkStealingPool(parallelism(threadPoolSize));
+        };
+    }
+
+    /**
+     * @return {@code true} if the running JVM supports this mode
+     */
+    public boolean isSupported() {
+        return this != VIRTUAL || virtualThreadFactoryMethod() != null;
+    }
+
+    /**
+     * Returns the mode with the given command line name, such as {@code fixed} or {@code work-stealing}.
+     *
+     * @throws IllegalArgumentException if there is no such mode
+     */
+    public static ExecutionMode fromName(String name) {
+        for (ExecutionMode mode : values()) {
+            if (mode.getName().equalsIgnoreCase(name)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown execution mode: " + name + " (expected one of "
+                + Arrays.stream(values()).map(ExecutionMode::getName).collect(Collectors.joining(", ")) + ")");
+    }
+
+    /**
+     * @return the command line name of the mode, such as {@code work-stealing}
+     */
+    public String getName() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    /**
+     * Calls {@code Executors.newVirtualThreadPerTaskExecutor()} reflectively, so the project still builds for Java 17.
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        Method factory = virtualThreadFactoryMethod();
+        if (factory == null) {
+            throw new IllegalStateException("Virtual threads require Java 21 or newer.");
+        }
+        try {
+            return (ExecutorService) factory.invoke(null);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Could not create a virtual thread executor.", e);
+        }
+    }
+
+    private static Method virtualThreadFactoryMethod() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package org.coding.service;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * Groups the file scans of a search into tasks by file size, and runs the largest waiting task first.
+ *
+ * Files below the batch size are packed into batches of up to about that many bytes and {@code maxBatchFiles} files,
+ * so that a tree of millions of tiny files does not cost a task and a future per file; larger files get a task
+ * of their own, and so do the first {@code maxRunning} files, so that a small search is still spread over the
+ * threads. At most {@code maxRunning} tasks are handed to the executor at a time. When one of them finishes,
+ * the waiting task with the most bytes is started (longest processing time first), so that a large file found late
+ * does not start last and leave the other threads idle at the end of the search. Only the tasks the scheduler holds
+ * are ordered, and the caller bounds how many it adds ahead of the results it takes, so a large file found much later
+ * than that window, such as near the end of the directory walk, still starts after the files before it.
+ *
+ * Without size-aware scheduling, every file gets a task of its own and tasks start in the order they are added.
+ *
+ * Files can be added in groups, such as the file systems they are on. With adaptive concurrency, each group has its
+ * own {@link AdaptiveConcurrency} limit on the tasks it has running, tuned from the throughput of its tasks, so that
+ * a slow disk and a fast one under the same root do not share a limit; the groups take turns while there are threads.
+ * A batch only holds files of one group.
+ *
+ * Tasks are returned in the order their files were added, whatever order they run in, see {@link #poll()}, unless
+ * the scheduler is created to return them in the order they finish instead.
+ * Adding and polling must happen on a single thread.
+ *
+ * @param <T> the type of the results of a scan
+ */
+final class FileScheduler<T> implements AutoCloseable {
+    static final long DEFAULT_BATCH_BYTES = 256 * 1024;
+    static final int DEFAULT_MAX_BATCH_FILES = 64;
+
+    private final ExecutorService executor;
+    private final int maxRunning;
+    private final long batchBytes;
+    private final int maxBatchFiles;
+    private final Comparator<Task> startOrder;
+    private final Supplier<AdaptiveConcurrency> controllers;
+    private final Deque<Task> tasks = new ArrayDeque<>();
+    // guarded by this
+    private final Map<Object, Group> groups = new LinkedHashMap<>();
+    private final BlockingQueue<Task> finished;
+    private Task batch;
+    private long sequence;
+    private int running;
+    private boolean closed;
+
+    /**
+     * @param executor   runs the tasks
+     * @param maxRunning the number of tasks handed to the executor at a time
+     * @param sizeAware  whether to batch small files and start large files first
+     * @param inOrder    whether tasks are returned in the order their files were added, rather than as they finish
+     */
+    FileScheduler(ExecutorService executor, int maxRunning, boolean sizeAware, boolean inOrder) {
+        this(executor, maxRunning, sizeAware, inOrder, false);
+    }
+
+    /**
+     * @param adaptive whether each group of files gets a limit on its running tasks that is tuned while it runs,
+     *                 starting from the number of cores
+     */
+    FileScheduler(ExecutorService executor, int maxRunning, boolean sizeAware, boolean inOrder, boolean adaptive) {
+        this(executor, maxRunning, sizeAware ? DEFAULT_BATCH_BYTES : 0, DEFAULT_MAX_BATCH_FILES, sizeAware, inOrder,
+                adaptive ? () -> new AdaptiveConcurrency(Runtime.getRuntime().availableProcessors(), maxRunning) : null);
+    }
+
+    /**
+     * Creates a scheduler that returns tasks in the order their files were added.
+     *
+     * @param batchBytes    files of at least this many bytes get a task of their own
+     * @param maxBatchFiles the number of files a batch holds at most
+     * @param largestFirst  whether to start the waiting task with the most bytes first, rather than the first added
+     */
+    FileScheduler(ExecutorService executor, int maxRunning, long batchBytes, int maxBatchFiles, boolean largestFirst) {
+        this(executor, maxRunning, batchBytes, maxBatchFiles, largestFirst, true);
+    }
+
+    FileScheduler(ExecutorService executor, int maxRunning, long batchBytes, int maxBatchFiles, boolean largestFirst,
+                  boolean inOrder) {
+        this(executor, maxRunning, batchBytes, maxBatchFiles, largestFirst, inOrder, null);
+    }
+
+    /**
+     * @param controllers creates the limit of each group of files, or {@code null} if only {@code maxRunning} limits them
+     */
+    FileScheduler(ExecutorService executor, int maxRunning, long batchBytes, int maxBatchFiles, boolean largestFirst,
+                  boolean inOrder, Supplier<AdaptiveConcurrency> controllers) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor must not be null");
+        }
+        if (maxRunning < 1 || batchBytes < 0 || maxBatchFiles < 1) {
+            throw new IllegalArgumentException("Running tasks and batch files must be positive and batch size must not be negative");
+        }
+        this.executor = executor;
+        this.maxRunning = maxRunning;
+        this.batchBytes = batchBytes;
+        this.maxBatchFiles = maxBatchFiles;
+        Comparator<Task> addedFirst = Comparator.comparingLong(task -> task.sequence);
+        this.startOrder = largestFirst
+                ? Comparator.<Task>comparingLong(task -> task.bytes).reversed().thenComparing(addedFirst)
+                : addedFirst;
+        this.controllers = controllers;
+        this.finished = inOrder ? null : new LinkedBlockingQueue<>();
+    }
+
+    /**
+     * Adds the scan of a file of {@code size} bytes. A small file is added to the open batch, which is only scheduled
+     * once it is full or {@link #flush()} is called.
+     *
+     * @param file the file that is scanned, named in the warning if its scan fails in a batch
+     */
+    void add(Path file, Callable<List<T>> scan, long size) {
+        add(file, scan, size, null);
+    }
+
+    /**
+     * Adds the scan of a file of {@code size} bytes in a group of files, such as the file system it is on.
+     *
+     * @param file  the file that is scanned, named in the warning if its scan fails in a batch
+     * @param group the key of the group; {@code null} for the default group
+     */
+    void add(Path file, Callable<List<T>> scan, long size, Object group) {
+        Group fileGroup = group(group);
+        if (size >= batchBytes || sequence < maxRunning) {
+            flush();
+            schedule(new Task(sequence++, fileGroup, file, scan, size));
+            return;
+        }
+        if (batch != null && batch.group != fileGroup) {
+            flush();
+        }
+        if (batch == null) {
+            batch = new Task(sequence++, fileGroup);
+        }
+        batch.add(file, scan, size);
+        if (batch.bytes >= batchBytes || batch.scans.size() >= maxBatchFiles) {
+            flush();
+        }
+    }
+
+    /**
+     * Schedules the open batch, if there is one.
+     */
+    void flush() {
+        if (batch != null) {
+            schedule(batch);
+            batch = null;
+        }
+    }
+
+    /**
+     * @return the number of scheduled tasks that have not been polled
+     */
+    int size() {
+        return tasks.size();
+    }
+
+    boolean isEmpty() {
+        return tasks.isEmpty();
+    }
+
+    /**
+     * @return the result of the task that {@link #poll()} returns next if it is done, or else of the first scheduled
+     * task that has not been polled; {@code null} if there is none
+     */
+    Future<List<T>> peek() {
+        Task task = finished == null ? null : finished.peek();
+        if (task == null) {
+            task = tasks.peek();
+        }
+        return task == null ? null : task.result;
+    }
+
+    /**
+     * Removes the first scheduled task, in the order the files were added, and returns its result:
+     * the results of its files, in that order. If tasks are returned as they finish, removes the first task that
+     * finished instead, waiting for one if none has.
+     *
+     * If the thread is interrupted while it waits, the first task in the order the files were added is returned,
+     * and the thread stays interrupted.
+     *
+     * @return the result, or {@code null} if there is no scheduled task
+     */
+    Future<List<T>> poll() {
+        if (finished == null || tasks.isEmpty()) {
+            Task task = tasks.poll();
+            return task == null ? null : task.result;
+        }
+        Task task;
+        try {
+            task = finished.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task = tasks.peek();
+            finished.remove(task);
+        }
+        tasks.remove(task);
+        return task.result;
+    }
+
+    /**
+     * Stops starting tasks; the results of tasks that have not started are cancelled.
+     */
+    @Override
+    public void close() {
+        List<Task> cancelled;
+        synchronized (this) {
+            closed = true;
+            cancelled = new ArrayList<>();
+            for (Group group : groups.values()) {
+                cancelled.addAll(group.waiting);
+                group.waiting.clear();
+            }
+        }
+        cancelled.forEach(task -> task.result.cancel(false));
+        tasks.forEach(task -> task.result.cancel(false));
+    }
+
+    private void schedule(Task task) {
+        tasks.add(task);
+        if (finished != null) {
+            task.result.whenComplete((results, failure) -> finished.add(task));
+        }
+        synchronized (this) {
+            task.group.waiting.add(task);
+            startWaiting();
+        }
+    }
+
+    private synchronized Group group(Object key) {
+        return groups.computeIfAbsent(key, k -> new Group(controllers == null ? null : controllers.get()));
+    }
+
+    private synchronized void finished(Task task) {
+        running--;
+        task.group.running--;
+        if (task.group.controller != null) {
+            task.group.controller.finished(task.bytes, task.scans.size());
+        }
+        startWaiting();
+    }
+
+    /**
+     * Starts waiting tasks, largest or first added first within a group, while fewer than {@code maxRunning} are
+     * running, and fewer than its limit of each group; the groups take turns.
+     */
+    private void startWaiting() {
+        boolean started = true;
+        while (!closed && running < maxRunning && started) {
+            started = false;
+            for (Group group : groups.values()) {
+                if (running < maxRunning && group.running < group.limit() && !group.waiting.isEmpty()) {
+                    start(group.waiting.poll());
+                    started = true;
+                }
+            }
+        }
+    }
+
+    private void start(Task task) {
+        running++;
+        task.group.running++;
+        executor.execute(() -> {
+            try {
+                task.run();
+            } finally {
+                finished(task);
+            }
+        });
+    }
+
+    /**
+     * The waiting and running tasks of a group of files.
+     */
+    private final class Group {
+        private final PriorityQueue<Task> waiting = new PriorityQueue<>(startOrder);
+        private final AdaptiveConcurrency controller;
+        private int running;
+
+        private Group(AdaptiveConcurrency controller) {
+            this.controller = controller;
+        }
+
+        private int limit() {
+            return controller == null ? maxRunning : controller.limit();
+        }
+    }
+
+    /**
+     * The scans of one large file, or of a batch of small ones.
+     */
+    private final class Task {
+        private final long sequence;
+        private final Group group;
+        private final List<Path> files = new ArrayList<>();
+        private final List<Callable<List<T>>> scans = new ArrayList<>();
+        private final CompletableFuture<List<T>> result = new CompletableFuture<>();
+        private long bytes;
+
+        private Task(long sequence, Group group) {
+            this.sequence = sequence;
+            this.group = group;
+        }
+
+        private Task(long sequence, Group group, Path file, Callable<List<T>> scan, long size) {
+            this(sequence, group);
+            add(file, scan, size);
+        }
+
+        private void add(Path file, Callable<List<T>> scan, long size) {
+            files.add(file);
+            scans.add(scan);
+            bytes += size;
+        }
+
+        /**
+         * Runs the scans; the failure of a single scan fails the task, the failure of a scan in a batch is reported
+         * and the batch goes on.
+         */
+        private void run() {
+            try {
+                if (scans.size() == 1) {
+                    result.complete(scans.get(0).call());
+                    return;
+                }
+                List<T> results = new ArrayList<>();
+                for (int i = 0; i < scans.size(); i++) {
+                    try {
+                        results.addAll(scans.get(i).call());
+                    } catch (Exception e) {
+                        System.err.println("Warning: Error processing file " + files.get(i) + ": " + e);
+                    }
+                }
+                result.complete(results);
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+}
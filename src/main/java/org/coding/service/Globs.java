@@ -0,0 +1,186 @@
+package org.coding.service;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Glob patterns compiled once, to select the files and directories of a walk.
+ *
+ * A glob without a {@code /} matches the name of a file or directory at any depth; a glob with one matches its path
+ * relative to the root of the walk, with {@code /} as separator. {@code *} matches any characters but {@code /},
+ * {@code **} any characters including {@code /}, {@code ?} one character but {@code /}, {@code [abc]} and
+ * {@code [!abc]} one character that is or is not in the set, {@code {a,b}} either alternative, and {@code \} quotes
+ * the next character. Globs are matched ignoring case, like the search strings.
+ *
+ * Globs of the form {@code *.ext} are kept in a hash set of extensions; all other globs are combined into one
+ * regular expression for names and one for paths, so a path is matched with a few lookups however many globs there are.
+ */
+final class Globs {
+    static final Globs NONE = new Globs(Set.of(), null, null);
+
+    private final Set<String> extensions;
+    private final Pattern names;
+    private final Pattern paths;
+
+    private Globs(Set<String> extensions, Pattern names, Pattern paths) {
+        this.extensions = extensions;
+        this.names = names;
+        this.paths = paths;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the list or a glob is {@code null}, blank or not a valid glob
+     */
+    static Globs compile(List<String> globs) {
+        if (globs == null) {
+            throw new IllegalArgumentException("Globs must not be null.");
+        }
+        Set<String> extensions = new HashSet<>();
+        List<String> names = new ArrayList<>();
+        List<String> paths = new ArrayList<>();
+        for (String glob : globs) {
+            if (glob == null || glob.isBlank()) {
+                throw new IllegalArgumentException("Globs must not be null or blank.");
+            }
+            String regex = toRegex(glob);
+            if (glob.contains("/")) {
+                paths.add(regex);
+            } else if (isExtension(glob)) {
+                extensions.add(glob.substring(2).toLowerCase(Locale.ROOT));
+            } else {
+                names.add(regex);
+            }
+        }
+        return new Globs(extensions, combine(names), combine(paths));
+    }
+
+    boolean isEmpty() {
+        return extensions.isEmpty() && names == null && paths == null;
+    }
+
+    /**
+     * @param relativePath the path relative to the root of the walk
+     * @return whether any of the globs matches the path
+     */
+    boolean matches(Path relativePath) {
+        String name = relativePath.getFileName().toString();
+        if (!extensions.isEmpty()) {
+            for (int dot = name.indexOf('.'); dot >= 0; dot = name.indexOf('.', dot + 1)) {
+                if (extensions.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT))) {
+                    return true;
+                }
+            }
+        }
+        if (names != null && names.matcher(name).matches()) {
+            return true;
+        }
+        return paths != null && paths.matcher(toSlashes(relativePath)).matches();
+    }
+
+    /**
+     * Returns the path with {@code /} as separator.
+     */
+    static String toSlashes(Path path) {
+        String text = path.toString();
+        return File.separatorChar == '/' ? text : text.replace(File.separatorChar, '/');
+    }
+
+    /**
+     * Translates a glob into a regular expression that matches the same text.
+     *
+     * @throws IllegalArgumentException if a set or an alternative is not closed, or the glob ends with {@code \}
+     */
+    static String toRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        int alternatives = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*' -> {
+                    if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                        i++;
+                        if (i + 1 < glob.length() && glob.charAt(i + 1) == '/') {
+                            i++;
+                            regex.append("(?:.*/)?");
+                        } else {
+                            regex.append(".*");
+                        }
+                    } else {
+                        regex.append("[^/]*");
+                    }
+                }
+                case '?' -> regex.append("[^/]");
+                case '[' -> {
+                    boolean negated = i + 1 < glob.length() && glob.charAt(i + 1) == '!';
+                    int first = negated ? i + 2 : i + 1;
+                    // a ] right after the opening bracket is part of the set
+                    int end = glob.indexOf(']', first + 1);
+                    if (end < 0) {
+                        throw new IllegalArgumentException("Invalid glob, a set is not closed: " + glob);
+                    }
+                    regex.append(negated ? "[^/" : "[");
+                    for (int j = first; j < end; j++) {
+                        char member = glob.charAt(j);
+                        regex.append(member == '-' ? "-" : quote(member));
+                    }
+                    regex.append(']');
+                    i = end;
+                }
+                case '{' -> {
+                    alternatives++;
+                    regex.append("(?:");
+                }
+                case '}' -> {
+                    if (alternatives > 0) {
+                        alternatives--;
+                        regex.append(')');
+                    } else {
+                        regex.append(quote(c));
+                    }
+                }
+                case ',' -> regex.append(alternatives > 0 ? "|" : ",");
+                case '\\' -> {
+                    if (++i == glob.length()) {
+                        throw new IllegalArgumentException("Invalid glob, it ends with \\: " + glob);
+                    }
+                    regex.append(quote(glob.charAt(i)));
+                }
+                default -> regex.append(quote(c));
+            }
+        }
+        if (alternatives > 0) {
+            throw new IllegalArgumentException("Invalid glob, an alternative is not closed: " + glob);
+        }
+        return regex.toString();
+    }
+
+    private static boolean isExtension(String glob) {
+        if (!glob.startsWith("*.") || glob.length() == 2) {
+            return false;
+        }
+        for (int i = 2; i < glob.length(); i++) {
+            if ("*?[]{}\\,".indexOf(glob.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String quote(char c) {
+        return Character.isLetterOrDigit(c) ? String.valueOf(c) : "\\" + c;
+    }
+
+    private static Pattern combine(List<String> regexes) {
+        return regexes.isEmpty()
+                ? null
+                : Pattern.compile(regexes.stream().map(regex -> "(?:" + regex + ")").collect(Collectors.joining("|")),
+                Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    }
+}
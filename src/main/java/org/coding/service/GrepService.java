@@ -1,113 +1,697 @@
 package org.coding.service;
 
+import org.coding.core.AhoCorasickPatternMatcher;
+import org.coding.core.CompressedFileProcessor;
+import org.coding.core.ConcurrentFileProcessor;
+import org.coding.core.CountMode;
 import org.coding.core.FileProcessor;
+import org.coding.core.FileTail;
+import org.coding.core.HorspoolPatternMatcher;
 import org.coding.core.PatternMatcher;
-import org.coding.core.SequentialFileProcessor;
-import org.coding.core.StringPatternMatcher;
+import org.coding.core.ProcessingContext;
+import org.coding.core.RegexPatternMatcher;
+import org.coding.core.VectorPatternMatcher;
+import org.coding.model.ResultStore;
 import org.coding.model.SearchResult;
+import org.coding.stats.SearchStatistics;
 
 import java.io.IOException;
+import java.nio.file.FileStore;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Service for performing recursive, multithreaded search for a text pattern within files in a directory tree.
  *
- * {@code GrepService} searches all regular files of {@ALLOWED_TYPES} under a specified root directory,
- * using a thread pool for parallel processing of all the files.
+ * {@code GrepService} searches all regular {@code .txt} files under a specified root directory,
+ * using a thread pool for parallel processing of all the files. Which files are searched and which directories are
+ * walked into can be changed with include and exclude globs and with ignore files, see {@link SearchOptions}.
  *
  * The service can be used without specifying the threadPoolSize, in which it is {@100} by default.
+ * Files are searched on a fixed thread pool unless another {@link ExecutionMode} is given.
+ * Unless another {@link FileProcessor} is given, files are read with a {@link CompressedFileProcessor}, which also
+ * searches {@code .gz} files and {@code .zip} archives, over a {@link ConcurrentFileProcessor},
+ * which splits very large files across threads.
  *
  * The search is case-insensitive.
- * The pattern matching is a String pattern matchers and only supports plain-text search (no regex support or no escape sequence support for now).
+ * The pattern matching is done by a {@link HorspoolPatternMatcher} and is plain-text search (no escape sequence support for now),
+ * unless the search strings are given as regular expressions, which are matched by a {@link RegexPatternMatcher}.
+ * If the Vector API is enabled, a {@link VectorPatternMatcher} searches the bytes of the files a vector at a time instead.
+ *
+ * Several search strings can be looked for in a single pass, with an {@link AhoCorasickPatternMatcher}, and several
+ * independent queries can share a single pass with a {@link SearchBatch}.
+ * Other settings, such as a {@link org.coding.index.TrigramIndex} to skip files that cannot match, are given as
+ * {@link SearchOptions}.
  *
  * The root directory must exist and be a directory.
  * The search string must not be {@code null} or blank.
  *
  * Throws {@link IllegalArgumentException} if arguments are invalid.
- * Returns a list of formatted result strings, one for each match found.
+ * Returns a list of formatted result strings, one for each match found,
+ * or streams the {@link SearchResult}s to a sink while the search is still running,
+ * or only counts the matching lines or occurrences of each file,
+ * or keeps watching the directory tree for lines appended to its files.
  */
 public class GrepService {
-    private final List<String> ALLOWED_TYPES = List.of(".txt");
+    public static final int DEFAULT_THREAD_POOL_SIZE = 100;
+    private static final Globs DEFAULT_INCLUDES = Globs.compile(List.of("*.txt"));
     private final int THREAD_TERMINATION_TIMEOUT = 60;
+    private final int MAX_PENDING_TASKS_PER_THREAD = 4;
     private final int threadPoolSize;
+    private final ExecutionMode executionMode;
+    private final ExecutorService sharedExecutor;
+    private final boolean sizeAwareScheduling;
+    private final boolean adaptiveConcurrency;
+    private final boolean orderedOutput;
+    private final int maxMatchesPerFile;
+    private final int linesBefore;
+    private final int linesAfter;
+    private final long maxMatches;
     private final String searchString;
     private final Path rootDirectoryPath;
     private final FileProcessor fileProcessor;
     private final PatternMatcher patternMatcher;
+    private final Predicate<Path> fileFilter;
+    private final Predicate<Path> directoryFilter;
+    private final boolean ignoreFiles;
+    private final SearchStatistics statistics;
 
     public GrepService(String rootDirectory, String searchString) {
-        this(100, rootDirectory, searchString);
+        this(DEFAULT_THREAD_POOL_SIZE, rootDirectory, searchString);
     }
 
     public GrepService(int threadPoolSize, String rootDirectory, String searchString) {
-        validateSearchString(searchString);
+        this(threadPoolSize, rootDirectory, searchString, new CompressedFileProcessor());
+    }
+
+    /**
+     * Creates a service that reads files with the given {@link FileProcessor}, for example a
+     * {@link org.coding.core.MappedFileProcessor} that only decodes matching lines.
+     */
+    public GrepService(int threadPoolSize, String rootDirectory, String searchString, FileProcessor fileProcessor) {
+        this(threadPoolSize, rootDirectory, Collections.singletonList(searchString), fileProcessor);
+    }
+
+    /**
+     * Creates a service that looks for several search strings in a single pass: each file is read once and a line
+     * matches if it contains any of them. The search strings found in a line are reported in
+     * {@link SearchResult#getMatchedPatterns()}.
+     */
+    public GrepService(int threadPoolSize, String rootDirectory, List<String> searchStrings, FileProcessor fileProcessor) {
+        this(threadPoolSize, rootDirectory, searchStrings, false, fileProcessor);
+    }
+
+    /**
+     * Creates a service that, if {@code regex} is {@code true}, treats the search strings as regular expressions
+     * in {@link java.util.regex.Pattern} syntax; a line matches if any of them is found in it.
+     *
+     * @throws java.util.regex.PatternSyntaxException if a regular expression is invalid
+     */
+    public GrepService(int threadPoolSize, String rootDirectory, List<String> searchStrings, boolean regex, FileProcessor fileProcessor) {
+        this(threadPoolSize, rootDirectory, searchStrings, regex, fileProcessor, ExecutionMode.FIXED);
+    }
+
+    /**
+     * Creates a service that runs its file tasks as given by {@code executionMode}.
+     *
+     * @throws IllegalArgumentException if {@code executionMode} is {@code null} or not supported by the running JVM
+     */
+    public GrepService(int threadPoolSize, String rootDirectory, List<String> searchStrings, boolean regex,
+                       FileProcessor fileProcessor, ExecutionMode executionMode) {
+        this(rootDirectory, searchStrings, new SearchOptions()
+                .setThreadPoolSize(threadPoolSize)
+                .setRegex(regex)
+                .setFileProcessor(fileProcessor)
+                .setExecutionMode(executionMode));
+    }
+
+    /**
+     * Creates a service for the given search strings with the given {@link SearchOptions}.
+     *
+     * @throws IllegalArgumentException if an argument or option is invalid
+     * @throws java.util.regex.PatternSyntaxException if a regular expression is invalid
+     */
+    public GrepService(String rootDirectory, List<String> searchStrings, SearchOptions options) {
+        this(rootDirectory, searchStrings, options, null);
+    }
+
+    /**
+     * Creates a service that matches lines with the given pattern matcher instead of one made for the search strings,
+     * which are only used to look up files in the index and in error messages; for a {@link SearchBatch}.
+     *
+     * @param patternMatcher the matcher to use, or {@code null} for one made for the search strings
+     */
+    GrepService(String rootDirectory, List<String> searchStrings, SearchOptions options, PatternMatcher patternMatcher) {
+        validateSearchStrings(searchStrings);
+        if (options == null) {
+            throw new IllegalArgumentException("Search options must not be null.");
+        }
+        if (options.getFileProcessor() == null) {
+            throw new IllegalArgumentException("File processor must not be null.");
+        }
+        if (options.getExecutionMode() == null) {
+            throw new IllegalArgumentException("Execution mode must not be null.");
+        }
+        if (options.getStatistics() == null) {
+            throw new IllegalArgumentException("Search statistics must not be null.");
+        }
+        if (!options.getExecutionMode().isSupported()) {
+            throw new IllegalArgumentException("Execution mode " + options.getExecutionMode().getName() + " is not supported by this Java runtime.");
+        }
+        if (options.getThreadPoolSize() < 1) {
+            throw new IllegalArgumentException("Thread pool size must be positive.");
+        }
+        if (options.getMaxMatchesPerFile() < 1 || options.getMaxMatches() < 1) {
+            throw new IllegalArgumentException("Maximum number of matches must be positive.");
+        }
+        if (options.getLinesBefore() < 0 || options.getLinesAfter() < 0) {
+            throw new IllegalArgumentException("Context lines must not be negative.");
+        }
         this.rootDirectoryPath = getRootDirectoryPath(rootDirectory);
-        this.searchString = searchString;
-        this.threadPoolSize = threadPoolSize;
-        this.fileProcessor = new SequentialFileProcessor();
-        this.patternMatcher = new StringPatternMatcher(searchString);
+        this.searchString = String.join(", ", searchStrings);
+        this.threadPoolSize = options.getThreadPoolSize();
+        this.fileProcessor = options.getFileProcessor();
+        this.executionMode = options.getExecutionMode();
+        this.sharedExecutor = options.getExecutor();
+        this.sizeAwareScheduling = options.isSizeAwareScheduling();
+        this.adaptiveConcurrency = options.isAdaptiveConcurrency();
+        this.orderedOutput = options.isOrderedOutput();
+        this.maxMatchesPerFile = options.getMaxMatchesPerFile();
+        this.maxMatches = options.getMaxMatches();
+        this.linesBefore = options.getLinesBefore();
+        this.linesAfter = options.getLinesAfter();
+        this.statistics = options.getStatistics();
+        this.patternMatcher = patternMatcher != null ? patternMatcher : createPatternMatcher(searchStrings, options.isRegex());
+        Predicate<Path> searchable = searchableFilter(rootDirectoryPath, options);
+        this.directoryFilter = directoryFilter(rootDirectoryPath, options);
+        this.ignoreFiles = options.isIgnoreFiles();
+        this.fileFilter = options.getIndex() == null
+                ? searchable
+                : searchable.and(options.getIndex().candidateFilter(rootDirectoryPath, requiredLiterals(searchStrings, options.isRegex())));
+    }
+
+    /**
+     * Lists the files that a search with the given options walks, in traversal order: those the include and exclude
+     * globs select, except for what ignore files ignore if they are respected. Compressed files are only listed if
+     * the file processor of the options decompresses them, and the index of the options is not consulted.
+     *
+     * @throws IllegalArgumentException if the root directory does not exist, or an option is invalid
+     * @throws IOException if the root directory cannot be listed
+     */
+    public static List<Path> listFiles(String rootDirectory, SearchOptions options) throws IOException {
+        if (options == null) {
+            throw new IllegalArgumentException("Search options must not be null.");
+        }
+        Path rootDirectoryPath = getRootDirectoryPath(rootDirectory);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryWalker walker = new DirectoryWalker(rootDirectoryPath, searchableFilter(rootDirectoryPath, options),
+                directoryFilter(rootDirectoryPath, options), options.isIgnoreFiles())) {
+            walker.forEachRemaining(files::add);
+        }
+        return files;
+    }
+
+    /**
+     * Returns the filter that selects the files to search: those the include globs select, or the default types
+     * if there are none, and the exclude globs do not.
+     */
+    private static Predicate<Path> searchableFilter(Path rootDirectoryPath, SearchOptions options) {
+        Globs includes = Globs.compile(options.getIncludeGlobs());
+        Globs excludes = Globs.compile(options.getExcludeGlobs());
+        boolean decompresses = options.getFileProcessor() instanceof CompressedFileProcessor;
+        return path -> {
+            Path relativePath = rootDirectoryPath.relativize(path);
+            return !excludes.matches(relativePath) && isIncluded(path, relativePath, includes, decompresses);
+        };
+    }
+
+    /**
+     * Returns the filter that selects the directories to walk into: those the exclude globs do not select.
+     */
+    private static Predicate<Path> directoryFilter(Path rootDirectoryPath, SearchOptions options) {
+        Globs excludes = Globs.compile(options.getExcludeGlobs());
+        return path -> !excludes.matches(rootDirectoryPath.relativize(path));
+    }
+
+    /**
+     * Checks if a file is of one of the types that are searched by default.
+     *
+     * @param filePath the file to be processed
+     * @return {@code true} if the file name ends with {@code .txt}, ignoring case
+     */
+    public static boolean isSearchableFile(Path filePath) {
+        return DEFAULT_INCLUDES.matches(filePath.getFileName());
+    }
+
+    /**
+     * Checks if a file is selected by the include globs, or by default if there are none. Compressed files are only
+     * selected if they can be decompressed; a gzip file is selected if the name of the file in it is.
+     */
+    private static boolean isIncluded(Path path, Path relativePath, Globs includes, boolean decompresses) {
+        if (includes.isEmpty()) {
+            return isSearchableFile(path) || decompresses && isSearchableCompressedFile(path);
+        }
+        if (!CompressedFileProcessor.isCompressed(path)) {
+            return includes.matches(relativePath);
+        }
+        if (!decompresses) {
+            return false;
+        }
+        String name = relativePath.getFileName().toString();
+        if (name.toLowerCase().endsWith(".gz")) {
+            Path decompressed = relativePath.resolveSibling(name.substring(0, name.length() - ".gz".length()));
+            return includes.matches(decompressed) || includes.matches(relativePath);
+        }
+        return includes.matches(relativePath);
+    }
+
+    /**
+     * Checks if a file is a zip archive, or a gzip file of one of the types that are searched, such as {@code app.txt.gz}.
+     * These are only searched with a {@link CompressedFileProcessor}.
+     */
+    public static boolean isSearchableCompressedFile(Path filePath) {
+        String fileName = filePath.getFileName().toString().toLowerCase();
+        if (fileName.endsWith(".gz")) {
+            return isSearchableFile(Path.of(fileName.substring(0, fileName.length() - ".gz".length())));
+        }
+        return CompressedFileProcessor.isCompressed(filePath);
     }
 
     /**
      * Performs a recursive, multithreaded search for the pattern in all allowed files under the root directory.
+     * Each result is formatted as it is found, so the list does not depend on the files after the search. For searches
+     * with very many matches, collect the results in a {@link ResultStore} with {@link #search(Consumer)} instead,
+     * which reads the lines from the files again when they are asked for.
      *
-     * @return a list of formatted result strings, one for each match found; never {@code null}
+     * @return a list of search result strings formatted as "filename:line_number:line", one for each match found;
+     *         never {@code null}
      * @throws RuntimeException if an I/O error occurs during the search
-     * @return a list of search result strings formatted as "filename:line_number:line"
      */
     public List<String> search() {
-        ExecutorService executor = Executors.newFixedThreadPool(threadPoolSize);
-
-        try (Stream<Path> filePathStream = Files.walk(rootDirectoryPath).filter(Files::isRegularFile).filter(this::isValidFileType)) {
-            List<Future<List<SearchResult>>> futures = filePathStream
-                    .map(file -> executor.submit(() -> fileProcessor.processFile(file, patternMatcher)))
-                    .toList();
-
-            return futures.stream()
-                    .map(future -> {
-                        try {
-                            return future.get();
-                        } catch (Exception e) {
-                            System.err.println("Warning: Error processing file: " + e.getMessage());
-                            return new ArrayList<SearchResult>();
+        List<String> results = new ArrayList<>();
+        search(result -> results.add(result.toString()));
+        return results;
+    }
+
+    /**
+     * Performs the same search as {@link #search()}, but hands each result to {@code sink} as soon as it is available
+     * instead of collecting them all.
+     *
+     * Files are found by a {@link DirectoryWalker}, which lists directories on background threads ahead of the search,
+     * and are searched soon after they are found. A {@link FileScheduler} searches small files in batches and starts
+     * the largest files it holds first, unless size-aware scheduling is turned off in the options. With adaptive
+     * concurrency, the files of each file system get a limit on how many of them are read at the same time, which is
+     * tuned from the throughput reached, see {@link AdaptiveConcurrency}.
+     * The sink is called on the calling thread, file by file in traversal order (depth first, by file name): the
+     * results of a file are delivered once it and every file found before it have been searched. If ordered output
+     * is turned off in the options, the results of a file are delivered as soon as it has been searched instead,
+     * so a slow file does not hold back the output of the files after it; the results of a file stay together.
+     * At most {@code MAX_PENDING_TASKS_PER_THREAD} tasks per thread (per file that may be searched concurrently,
+     * for virtual threads) are in flight; the directory walk waits while that window is full, so memory stays bounded
+     * however many files and results there are. Large files are only started first within that window: a large file
+     * that the walk finds after it has moved on still starts after the files in the window before it.
+     *
+     * Each file is read up to its maximum number of matches, see {@link SearchOptions#setMaxMatchesPerFile(int)}.
+     * Once the maximum number of matches of the whole search is delivered, the search is cancelled: the walk stops,
+     * waiting files are not read, and files that are being read are abandoned at their next line.
+     *
+     * What the search does and where its time goes is added to the {@link SearchOptions#getStatistics() statistics}.
+     *
+     * The file tasks run on an executor created for the search, and shut down at its end, unless the options give
+     * an executor shared by several searches. Files that are still being read when the search ends, because the sink
+     * failed, are abandoned at their next line.
+     *
+     * @param sink receives each search result; must not be {@code null}
+     * @return the number of results handed to the sink
+     * @throws RuntimeException if an I/O error occurs during the search or the calling thread is interrupted
+     */
+    public long search(Consumer<SearchResult> sink) {
+        if (sink == null) {
+            throw new IllegalArgumentException("Result sink must not be null.");
+        }
+        return walk(linesBefore, linesAfter, directoryFilter,
+                (file, context) -> fileProcessor.processFile(file, patternMatcher, context), toSink(sink));
+    }
+
+    /**
+     * Searches the files like {@link #search(Consumer)}, and then keeps watching the directory tree and hands the
+     * lines that match in what is appended to the files to {@code sink}, until the calling thread is interrupted.
+     *
+     * The directories of the tree are registered with a {@link java.nio.file.WatchService} as the walk lists them.
+     * Each file remembers where its last scan stopped, see {@link FileTail}, so a file that grew is only read from
+     * there, and a line is only searched once it is complete. A file that was truncated, or replaced by a new file
+     * under its name, is searched again from its start; a file that was renamed within the tree, as logs are when
+     * they are rotated, goes on where it stopped under its new name. New files and directories are searched when they
+     * appear, if the filters select them. The changed files are scanned on the calling thread, in path order.
+     * Compressed files are searched by the file processor in the first search only, since a compressed stream cannot
+     * be read from where an earlier scan stopped; later changes to them are not watched.
+     *
+     * Limits on the number of matches and context lines are not supported, because they have no end while watching.
+     *
+     * @param sink      receives each search result; must not be {@code null}
+     * @param caughtUp  is run on the calling thread whenever every change reported so far has been searched, for
+     *                  example to flush the output; must not be {@code null}
+     * @return the number of results handed to the sink
+     * @throws IllegalArgumentException if the options limit the matches or ask for context lines
+     * @throws RuntimeException if the tree cannot be watched or an I/O error occurs during the first search
+     */
+    public long watch(Consumer<SearchResult> sink, Runnable caughtUp) {
+        if (sink == null) {
+            throw new IllegalArgumentException("Result sink must not be null.");
+        }
+        if (caughtUp == null) {
+            throw new IllegalArgumentException("Caught-up callback must not be null.");
+        }
+        if (maxMatchesPerFile != Integer.MAX_VALUE || maxMatches != Long.MAX_VALUE || linesBefore > 0 || linesAfter > 0) {
+            throw new IllegalArgumentException("Watching does not support limits on matches or context lines.");
+        }
+        Predicate<Path> tailed = path -> !CompressedFileProcessor.isCompressed(path) && fileFilter.test(path);
+        try (TreeWatcher watcher = new TreeWatcher(rootDirectoryPath, tailed, directoryFilter, ignoreFiles)) {
+            Delivery<SearchResult> delivery = toSink(sink);
+            long delivered = walk(0, 0, watcher::acceptDirectory,
+                    (file, context) -> CompressedFileProcessor.isCompressed(file)
+                            ? fileProcessor.processFile(file, patternMatcher, context)
+                            : watcher.tail(file).scan(patternMatcher, context), delivery);
+            ProcessingContext context = new ProcessingContext(Integer.MAX_VALUE, () -> false, statistics);
+            while (true) {
+                caughtUp.run();
+                List<FileTail> changed;
+                try {
+                    changed = watcher.awaitChanges();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return delivered;
+                }
+                for (FileTail tail : changed) {
+                    long start = System.nanoTime();
+                    List<SearchResult> results = tail.scan(patternMatcher, context);
+                    statistics.recordFileScanned(System.nanoTime() - start);
+                    start = System.nanoTime();
+                    delivered += delivery.deliver(results, Long.MAX_VALUE);
+                    statistics.recordOutput(System.nanoTime() - start);
+                    statistics.recordMatches(results.size());
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error while watching directory: " + rootDirectoryPath, e);
+        }
+    }
+
+    /**
+     * Returns the delivery that hands search results to a sink, up to the limit.
+     */
+    private static Delivery<SearchResult> toSink(Consumer<SearchResult> sink) {
+        return (results, limit) -> {
+            if (results.size() > limit) {
+                results = results.subList(0, (int) limit);
+            }
+            results.forEach(sink);
+            return results.size();
+        };
+    }
+
+    /**
+     * Counts the matching lines of each file, or the occurrences of the search strings in it, instead of collecting
+     * the matching lines. The files are walked and scheduled as by {@link #search(Consumer)}, but the file processor
+     * only counts, see {@link FileProcessor#countMatches(Path, PatternMatcher, ProcessingContext, CountMode)}, so no
+     * result is created and, for literal search strings, no line is decoded.
+     *
+     * The sink is called with each file that has a count above zero, file by file in traversal order, on the calling
+     * thread. Each file is counted up to its maximum number of matching lines, and the search is cancelled once the
+     * counts handed to the sink add up to the maximum number of matches; the count of the last file is cut to it.
+     *
+     * @param mode whether to count matching lines or occurrences; must not be {@code null}
+     * @param sink receives each file and its count; must not be {@code null}
+     * @return the sum of the counts handed to the sink
+     * @throws RuntimeException if an I/O error occurs during the search or the calling thread is interrupted
+     */
+    public long count(CountMode mode, ObjLongConsumer<Path> sink) {
+        if (mode == null) {
+            throw new IllegalArgumentException("Count mode must not be null.");
+        }
+        if (sink == null) {
+            throw new IllegalArgumentException("Count sink must not be null.");
+        }
+        return walk(0, 0, directoryFilter, (file, context) -> {
+                    long count = fileProcessor.countMatches(file, patternMatcher, context, mode);
+                    return count == 0 ? List.of() : List.of(new FileCount(file, count));
+                },
+                (counts, limit) -> {
+                    long delivered = 0;
+                    for (FileCount fileCount : counts) {
+                        long count = Math.min(fileCount.count, limit - delivered);
+                        sink.accept(fileCount.file, count);
+                        delivered += count;
+                        if (delivered == limit) {
+                            break;
                         }
-                    })
-                    .flatMap(List::stream)
-                    .map(SearchResult::toString)
-                    .collect(Collectors.toList());
+                    }
+                    return delivered;
+                });
+    }
+
+    /**
+     * Walks the files and scans them with {@code scan}, handing the results of each file to {@code delivery} in
+     * traversal order until the maximum number of matches is delivered, as described for {@link #search(Consumer)}.
+     *
+     * @param directories selects the directories to walk into
+     * @return the number of matches delivered
+     */
+    private <T> long walk(int linesBefore, int linesAfter, Predicate<Path> directories,
+                          BiFunction<Path, ProcessingContext, List<T>> scan, Delivery<T> delivery) {
+        long searchStart = System.nanoTime();
+        ExecutorService executor = sharedExecutor != null ? sharedExecutor : executionMode.createExecutor(threadPoolSize);
+        int parallelism = Math.max(1, executionMode.parallelism(threadPoolSize));
+        int maxPendingTasks = parallelism * MAX_PENDING_TASKS_PER_THREAD;
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicLong queued = new AtomicLong();
+        ProcessingContext context = new ProcessingContext(maxMatchesPerFile, cancelled::get, statistics, linesBefore, linesAfter);
+        Predicate<Path> countingFilter = path -> {
+            boolean accepted = fileFilter.test(path);
+            statistics.recordFileDiscovered(accepted);
+            return accepted;
+        };
+
+        Map<Path, FileStore> fileStores = new HashMap<>();
+
+        try (DirectoryWalker files = new DirectoryWalker(rootDirectoryPath, countingFilter, directories, ignoreFiles);
+             FileScheduler<T> pending = new FileScheduler<>(executor, parallelism, sizeAwareScheduling, orderedOutput,
+                     adaptiveConcurrency)) {
+            long delivered = 0;
+            Path file;
+            while (!cancelled.get() && (file = nextFile(files)) != null) {
+                pending.add(file, scanTask(file, scan, context, queued), files.lastFileSize(),
+                        adaptiveConcurrency ? fileStore(file, fileStores) : null);
+                boolean windowFull = pending.size() >= maxPendingTasks;
+                while (!cancelled.get() && !pending.isEmpty() && (windowFull || pending.peek().isDone())) {
+                    delivered += deliver(pending.poll(), delivery, maxMatches - delivered);
+                    cancelled.set(delivered >= maxMatches);
+                    windowFull = false;
+                }
+            }
+            pending.flush();
+            while (!cancelled.get() && !pending.isEmpty()) {
+                delivered += deliver(pending.poll(), delivery, maxMatches - delivered);
+                cancelled.set(delivered >= maxMatches);
+            }
+            return delivered;
 
         } catch (IOException|IllegalArgumentException e) {
             throw new RuntimeException("Error while searching for string "+searchString+" in directory: " + rootDirectoryPath.toString(), e);
         } finally {
-            executor.shutdown();
+            cancelled.set(true);
+            if (executor != sharedExecutor) {
+                shutdown(executor);
+            }
+            statistics.recordFilesCancelled(queued.get());
+            statistics.recordSearch(System.nanoTime() - searchStart);
+        }
+    }
+
+    /**
+     * Returns the file store a file is on, looked up once per directory, since only a directory can be a mount point;
+     * {@code null} if it cannot be found out.
+     */
+    private static FileStore fileStore(Path file, Map<Path, FileStore> fileStores) {
+        Path directory = file.getParent();
+        return fileStores.computeIfAbsent(directory, key -> {
             try {
-                if (!executor.awaitTermination(THREAD_TERMINATION_TIMEOUT, TimeUnit.SECONDS)) {
-                    executor.shutdownNow();
-                }
-            } catch (InterruptedException e) {
+                return Files.getFileStore(key);
+            } catch (IOException e) {
+                return null;
+            }
+        });
+    }
+
+    private void shutdown(ExecutorService executor) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(THREAD_TERMINATION_TIMEOUT, TimeUnit.SECONDS)) {
                 executor.shutdownNow();
-                Thread.currentThread().interrupt();
             }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
         }
     }
 
+    /**
+     * Returns the next file of the walk, or {@code null} at its end, and records the time spent waiting for it.
+     */
+    private Path nextFile(DirectoryWalker files) {
+        long start = System.nanoTime();
+        try {
+            return files.hasNext() ? files.next() : null;
+        } finally {
+            statistics.recordWalk(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns the task that scans a file, recording how long it waited in the queue and how long the scan took.
+     * {@code queued} counts the tasks of this search that have not started, so that the queue depth can be corrected
+     * for the tasks that are cancelled. A task that starts after the search was cancelled does not read the file.
+     */
+    private <T> Callable<List<T>> scanTask(Path file, BiFunction<Path, ProcessingContext, List<T>> scan,
+                                           ProcessingContext context, AtomicLong queued) {
+        long queuedAt = System.nanoTime();
+        queued.incrementAndGet();
+        statistics.recordFileQueued();
+        return () -> {
+            if (context.isCancelled()) {
+                return List.of();
+            }
+            long start = System.nanoTime();
+            queued.decrementAndGet();
+            statistics.recordFileStarted(start - queuedAt);
+            try {
+                return scan.apply(file, context);
+            } finally {
+                statistics.recordFileScanned(System.nanoTime() - start);
+            }
+        };
+    }
+
+    /**
+     * Waits for a file task and hands its results to the delivery, which delivers at most {@code limit} matches.
+     *
+     * @return the number of matches delivered
+     */
+    private <T> long deliver(Future<List<T>> future, Delivery<T> delivery, long limit) {
+        List<T> results;
+        try {
+            results = future.get();
+        } catch (ExecutionException e) {
+            System.err.println("Warning: Error processing file: " + e.getMessage());
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while searching for string " + searchString + " in directory: " + rootDirectoryPath, e);
+        }
+        long start = System.nanoTime();
+        long delivered = delivery.deliver(results, limit);
+        statistics.recordOutput(System.nanoTime() - start);
+        statistics.recordMatches(delivered);
+        return delivered;
+    }
+
+    /**
+     * Hands the results of a file task to the caller of the search.
+     */
+    @FunctionalInterface
+    private interface Delivery<T> {
+        /**
+         * @return the number of matches delivered, at most {@code limit}
+         */
+        long deliver(List<T> results, long limit);
+    }
+
+    /**
+     * The count of a file that has matches.
+     */
+    private static final class FileCount {
+        private final Path file;
+        private final long count;
+
+        private FileCount(Path file, long count) {
+            this.file = file;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Picks the pattern matcher for the search strings: a literal matcher for a single string,
+     * an Aho-Corasick automaton for several, and a regex matcher (a single alternation for several) if {@code regex} is set.
+     * An alternation is prefiltered with an Aho-Corasick automaton for the literals of its expressions, unless one of
+     * them can match anywhere; each expression is compiled on its own first, so one cannot close the group of another.
+     */
+    static PatternMatcher createPatternMatcher(List<String> searchStrings, boolean regex) {
+        if (regex) {
+            if (searchStrings.size() == 1) {
+                return RegexPatternMatcher.compile(searchStrings.get(0));
+            }
+            searchStrings.forEach(Pattern::compile);
+            List<String> literals = requiredLiterals(searchStrings, true);
+            return new RegexPatternMatcher(
+                    searchStrings.stream().map(expression -> "(?:" + expression + ")").collect(Collectors.joining("|")),
+                    literals.stream().anyMatch(String::isBlank) ? null : new AhoCorasickPatternMatcher(literals));
+        }
+        if (searchStrings.size() > 1) {
+            return new AhoCorasickPatternMatcher(searchStrings);
+        }
+        return VectorPatternMatcher.isVectorApiAvailable()
+                ? new VectorPatternMatcher(searchStrings.get(0))
+                : new HorspoolPatternMatcher(searchStrings.get(0));
+    }
+
+    /**
+     * Returns, for each search string, a literal that every match of it contains, to look up in the index.
+     */
+    static List<String> requiredLiterals(List<String> searchStrings, boolean regex) {
+        return regex
+                ? searchStrings.stream().map(RegexPatternMatcher::requiredLiteral).toList()
+                : searchStrings;
+    }
+
+    /**
+     * Validates the search strings argument for the grep operation.
+     *
+     * @param searchStrings the search strings to validate; may be {@code null}
+     * @throws IllegalArgumentException if {@code searchStrings} is {@code null}, empty, or contains a {@code null} or blank string
+     */
+    static void validateSearchStrings(List<String> searchStrings) {
+        if (searchStrings == null || searchStrings.isEmpty()) {
+            throw new IllegalArgumentException("At least one search string must be given.");
+        }
+        searchStrings.forEach(GrepService::validateSearchString);
+    }
+
     /**
      * Validates the search string argument for the grep operation.
      *
      * @param searchString the search string to validate; may be {@code null}
      * @throws IllegalArgumentException if {@code searchString} is {@code null} or blank
      */
-    private void validateSearchString(String searchString) {
+    private static void validateSearchString(String searchString) {
         if(searchString == null || searchString.isBlank()) {
             throw new IllegalArgumentException("Search string must not be null or blank.");
         }
@@ -120,7 +704,7 @@ public class GrepService {
      * @return the {@link Path} object representing the root directory
      * @throws IllegalArgumentException if {@code rootDirectory} is {@code null}, does not exist, or is not a directory
      */
-    private Path getRootDirectoryPath(String rootDirectory) {
+    static Path getRootDirectoryPath(String rootDirectory) {
         if(rootDirectory == null) {
             throw new IllegalArgumentException("Root directory must not be null.");
         }
@@ -134,14 +718,4 @@ public class GrepService {
         }
         return rootPath;
     }
-
-    /** Checks if the file type is one that is allowed as per ALLOWED_TYPES list.
-     *
-     * @param filePath the file to be processed
-     * @return {@true} if the file type, i.e. ends with a suffix that is in ALLOWED_TYPE list.
-     */
-    private boolean isValidFileType(Path filePath) {
-        String fileName = filePath.getFileName().toString();
-        return ALLOWED_TYPES.stream().anyMatch(fileName.toLowerCase()::endsWith);
-    }
 }
\ No newline at end of file
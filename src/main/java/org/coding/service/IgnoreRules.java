@@ -0,0 +1,122 @@
+package org.coding.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The rules of the {@code .gitignore} and {@code .ignore} files of a directory and of the directories above it,
+ * up to the root of the walk, for skipping files and whole directories while walking.
+ *
+ * The rules follow the {@code .gitignore} format: blank lines and lines starting with {@code #} are skipped,
+ * {@code !} re-includes what an earlier rule ignored, a trailing {@code /} only matches directories, and a pattern
+ * with a {@code /} at its start or in the middle is relative to the directory of its file, while one without
+ * matches at any depth below it. Patterns are globs, see {@link Globs}, but are matched with case.
+ * The last rule that matches decides, and the rules of a directory take precedence over those of its parents.
+ * {@code .git} directories are always ignored.
+ *
+ * Rules are immutable, so the rules of a directory can be read on a listing thread and shared by its subdirectories.
+ */
+final class IgnoreRules {
+    static final IgnoreRules NONE = new IgnoreRules(null, null, List.of());
+    private static final List<String> FILE_NAMES = List.of(".gitignore", ".ignore");
+
+    private final IgnoreRules parent;
+    private final Path directory;
+    private final List<Rule> rules;
+
+    private IgnoreRules(IgnoreRules parent, Path directory, List<Rule> rules) {
+        this.parent = parent;
+        this.directory = directory;
+        this.rules = rules;
+    }
+
+    /**
+     * Returns the rules for the entries of {@code directory}: these rules and those of the ignore files in it.
+     * Ignore files that cannot be read are reported as warnings and skipped.
+     */
+    IgnoreRules forDirectory(Path directory) {
+        List<Rule> rules = new ArrayList<>();
+        for (String name : FILE_NAMES) {
+            Path file = directory.resolve(name);
+            if (!Files.isRegularFile(file)) {
+                continue;
+            }
+            try {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    Rule rule = Rule.parse(line);
+                    if (rule != null) {
+                        rules.add(rule);
+                    }
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Warning: Could not read ignore file " + file + ": " + e.getMessage());
+            }
+        }
+        return rules.isEmpty() ? this : new IgnoreRules(this, directory, rules);
+    }
+
+    /**
+     * @param path      a file or directory in the directory these rules are for
+     * @param directory whether the path is a directory
+     * @return whether the path is ignored
+     */
+    boolean isIgnored(Path path, boolean directory) {
+        if (directory && path.getFileName().toString().equals(".git")) {
+            return true;
+        }
+        for (IgnoreRules level = this; level.directory != null; level = level.parent) {
+            String relativePath = Globs.toSlashes(level.directory.relativize(path));
+            for (int i = level.rules.size() - 1; i >= 0; i--) {
+                Rule rule = level.rules.get(i);
+                if ((directory || !rule.directoryOnly) && rule.pattern.matcher(relativePath).matches()) {
+                    return !rule.negated;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static final class Rule {
+        private final Pattern pattern;
+        private final boolean negated;
+        private final boolean directoryOnly;
+
+        private Rule(Pattern pattern, boolean negated, boolean directoryOnly) {
+            this.pattern = pattern;
+            this.negated = negated;
+            this.directoryOnly = directoryOnly;
+        }
+
+        /**
+         * @return the rule of a line of an ignore file, or {@code null} if the line has none
+         */
+        private static Rule parse(String line) {
+            String pattern = line.stripTrailing();
+            if (pattern.isEmpty() || pattern.startsWith("#")) {
+                return null;
+            }
+            boolean negated = pattern.startsWith("!");
+            if (negated) {
+                pattern = pattern.substring(1);
+            }
+            boolean directoryOnly = pattern.endsWith("/");
+            if (directoryOnly) {
+                pattern = pattern.substring(0, pattern.length() - 1);
+            }
+            if (pattern.isEmpty()) {
+                return null;
+            }
+            boolean anchored = pattern.contains("/");
+            if (pattern.startsWith("/")) {
+                pattern = pattern.substring(1);
+            }
+            String regex = (anchored ? "" : "(?:.*/)?") + Globs.toRegex(pattern);
+            return new Rule(Pattern.compile(regex), negated, directoryOnly);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.coding.service;
+
+import org.coding.core.AhoCorasickPatternMatcher;
+import org.coding.core.BytePatternMatcher;
+import org.coding.core.MultiPatternMatcher;
+import org.coding.core.PatternMatcher;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The pattern matcher of a {@link SearchBatch}: a line matches if any query of the batch matches it, and the queries
+ * that match it are reported as its matching patterns, by their index in the batch.
+ *
+ * Lines are first looked for with one {@link AhoCorasickPatternMatcher} for the literals of all queries, so a line
+ * that no query can match is skipped, in bytes without decoding it, with a single pass whatever the number of
+ * queries; only the lines it finds are matched against each query. For regular expressions the literals are those
+ * every match must contain; if an expression has none, every line is matched against each query.
+ */
+final class QueryBatchMatcher implements MultiPatternMatcher, BytePatternMatcher {
+    private final List<PatternMatcher> queries;
+    private final AhoCorasickPatternMatcher candidates;
+
+    /**
+     * @param queries  the matcher of each query, in batch order
+     * @param literals for each search string of the queries, a literal that every match of it contains; an empty
+     *                 literal means the search string can match anywhere
+     */
+    QueryBatchMatcher(List<PatternMatcher> queries, List<String> literals) {
+        this.queries = List.copyOf(queries);
+        this.candidates = literals.stream().anyMatch(String::isBlank) ? null : new AhoCorasickPatternMatcher(literals);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean match(String line) {
+        return !matchingPatterns(line).isEmpty();
+    }
+
+    /**
+     * Returns the indexes of the queries that match the line, in batch order.
+     */
+    @Override
+    public List<String> matchingPatterns(String line) {
+        if (line == null || line.isEmpty() || candidates != null && !candidates.match(line)) {
+            return List.of();
+        }
+        List<String> matching = new ArrayList<>(1);
+        for (int query = 0; query < queries.size(); query++) {
+            if (queries.get(query).match(line)) {
+                matching.add(Integer.toString(query));
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * {@inheritDoc}
+     * If a query can match anywhere, every position is a candidate.
+     */
+    @Override
+    public int indexIn(ByteBuffer buffer, int from, int to) {
+        if (candidates == null) {
+            return from < to ? from : -1;
+        }
+        return candidates.indexIn(buffer, from, to);
+    }
+}
@@ -0,0 +1,142 @@
+package org.coding.service;
+
+import org.coding.model.SearchResult;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Collects the queries that are submitted within a short window into a {@link SearchBatch}, so that queries that
+ * arrive at about the same time share one walk of the tree and one read of each file.
+ *
+ * The first query of a batch opens the window; when it has passed, the batch runs on the batcher's thread, and the
+ * queries submitted in the meantime wait for the next batch. The sinks are called on the batcher's thread, and the
+ * future of each query is completed with the number of results its sink accepted once its batch has run, or
+ * exceptionally with the exception of its sink if that threw, or of the batch if it failed. For the batches to share a
+ * warm thread pool as well, give the options an executor, see
+ * {@link SearchOptions#setExecutor(java.util.concurrent.ExecutorService)}.
+ *
+ * Thread-safe. {@link #close()} runs the queries submitted before it and stops the thread.
+ */
+public class QueryBatcher implements AutoCloseable {
+    private final String rootDirectory;
+    private final SearchOptions options;
+    private final long windowNanos;
+    private final Thread thread;
+    private SearchBatch next;
+    private List<CompletableFuture<Long>> futures = new ArrayList<>();
+    private long windowStart;
+    private boolean closed;
+
+    /**
+     * Creates a batcher and starts its thread.
+     *
+     * @param window how long a batch waits for more queries after its first one
+     * @throws IllegalArgumentException if the window is {@code null} or negative, or the batch arguments are invalid,
+     *                                  see {@link SearchBatch#SearchBatch(String, SearchOptions)}
+     */
+    public QueryBatcher(String rootDirectory, SearchOptions options, Duration window) {
+        if (window == null || window.isNegative()) {
+            throw new IllegalArgumentException("Batch window must not be null or negative.");
+        }
+        this.next = new SearchBatch(rootDirectory, options);
+        this.rootDirectory = rootDirectory;
+        this.options = options;
+        this.windowNanos = window.toNanos();
+        this.thread = new Thread(this::runBatches, "query-batcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Submits a query to the next batch.
+     *
+     * @param searchStrings the search strings of the query, see {@link SearchBatch#add(List, Consumer)}
+     * @param sink          receives the results of the query, on the batcher's thread
+     * @return a future that is completed with the number of results the sink accepted
+     * @throws IllegalArgumentException if a search string is {@code null} or blank, the sink is {@code null}, or the
+     *                                  root directory is no longer valid
+     * @throws java.util.regex.PatternSyntaxException if a regular expression is invalid
+     * @throws IllegalStateException if the batcher is closed
+     */
+    public synchronized CompletableFuture<Long> submit(List<String> searchStrings, Consumer<SearchResult> sink) {
+        if (closed) {
+            throw new IllegalStateException("Query batcher is closed.");
+        }
+        if (next == null) {
+            next = new SearchBatch(rootDirectory, options);
+        }
+        next.add(searchStrings, sink);
+        if (futures.isEmpty()) {
+            windowStart = System.nanoTime();
+        }
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        futures.add(future);
+        notifyAll();
+        return future;
+    }
+
+    /**
+     * Runs the queries submitted so far and stops the batcher's thread, waiting for it.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runBatches() {
+        while (true) {
+            SearchBatch batch;
+            List<CompletableFuture<Long>> batchFutures;
+            synchronized (this) {
+                try {
+                    while (futures.isEmpty() && !closed) {
+                        wait();
+                    }
+                    long remaining;
+                    while (!closed && (remaining = windowStart + windowNanos - System.nanoTime()) > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    }
+                } catch (InterruptedException e) {
+                    closed = true;
+                }
+                if (futures.isEmpty()) {
+                    return;
+                }
+                batch = next;
+                batchFutures = futures;
+                next = null;
+                futures = new ArrayList<>();
+            }
+            run(batch, batchFutures);
+        }
+    }
+
+    private static void run(SearchBatch batch, List<CompletableFuture<Long>> futures) {
+        try {
+            long[] counts = batch.run();
+            for (int query = 0; query < counts.length; query++) {
+                RuntimeException failure = batch.failure(query);
+                if (failure != null) {
+                    futures.get(query).completeExceptionally(failure);
+                } else {
+                    futures.get(query).complete(counts[query]);
+                }
+            }
+        } catch (RuntimeException e) {
+            futures.forEach(future -> future.completeExceptionally(e));
+        }
+    }
+}
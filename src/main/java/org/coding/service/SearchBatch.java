@@ -0,0 +1,134 @@
+package org.coding.service;
+
+import org.coding.core.MultiPatternMatcher;
+import org.coding.core.PatternMatcher;
+import org.coding.model.SearchResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Runs several independent queries against the same root directory in a single search: the tree is walked once,
+ * each file is read once, and each line is matched against every query, see {@link QueryBatchMatcher}.
+ * The results are handed to the sink of each query that matches them.
+ *
+ * Add the queries with {@link #add(List, Consumer)}, then call {@link #run()}. All queries share the
+ * {@link SearchOptions} of the batch, so they are all literal or all regular expressions, and are searched in the same
+ * files. Each query gets the same results, with the same matched patterns, as its own
+ * {@link GrepService#search(Consumer)} would give. A sink that throws fails only its own query: it is given no more
+ * results, and its exception is kept, see {@link #failure(int)}, while the other queries go on. Limits on the number of
+ * matches and context lines are not supported, because a file that is read for all queries cannot stop at the limit of
+ * one of them.
+ *
+ * Not thread-safe; {@link QueryBatcher} collects the queries that several threads submit into batches.
+ */
+public class SearchBatch {
+    private final String rootDirectory;
+    private final SearchOptions options;
+    private final boolean regex;
+    private final List<PatternMatcher> matchers = new ArrayList<>();
+    private final List<Consumer<SearchResult>> sinks = new ArrayList<>();
+    private final List<String> searchStrings = new ArrayList<>();
+    private RuntimeException[] failures = new RuntimeException[0];
+
+    /**
+     * Creates an empty batch. The options should not be changed while the batch is in use.
+     *
+     * @throws IllegalArgumentException if the root directory is invalid, the options are {@code null}, or the options
+     *                                  limit the matches or ask for context lines
+     */
+    public SearchBatch(String rootDirectory, SearchOptions options) {
+        GrepService.getRootDirectoryPath(rootDirectory);
+        if (options == null) {
+            throw new IllegalArgumentException("Search options must not be null.");
+        }
+        if (options.getMaxMatchesPerFile() != Integer.MAX_VALUE || options.getMaxMatches() != Long.MAX_VALUE
+                || options.getLinesBefore() > 0 || options.getLinesAfter() > 0) {
+            throw new IllegalArgumentException("A batch of queries does not support limits on matches or context lines.");
+        }
+        this.rootDirectory = rootDirectory;
+        this.options = options;
+        this.regex = options.isRegex();
+    }
+
+    /**
+     * Adds a query: a line matches it if it contains any of its search strings.
+     *
+     * @param searchStrings the search strings of the query
+     * @param sink          receives the results of the query
+     * @return the index of the query in the batch
+     * @throws IllegalArgumentException if a search string is {@code null} or blank, or the sink is {@code null}
+     * @throws java.util.regex.PatternSyntaxException if a regular expression is invalid
+     */
+    public int add(List<String> searchStrings, Consumer<SearchResult> sink) {
+        GrepService.validateSearchStrings(searchStrings);
+        if (sink == null) {
+            throw new IllegalArgumentException("Result sink must not be null.");
+        }
+        matchers.add(GrepService.createPatternMatcher(searchStrings, regex));
+        sinks.add(sink);
+        this.searchStrings.addAll(searchStrings);
+        return sinks.size() - 1;
+    }
+
+    /**
+     * @return the number of queries in the batch
+     */
+    public int size() {
+        return sinks.size();
+    }
+
+    /**
+     * Searches the files for all queries at once. The sinks are called on the calling thread, file by file as
+     * {@link GrepService#search(Consumer)} calls its sink, and for each matching line in the order the queries
+     * were added.
+     *
+     * @return for each query, the number of results its sink accepted
+     * @throws IllegalArgumentException if an option is invalid
+     * @throws RuntimeException if an I/O error occurs during the search or the calling thread is interrupted
+     */
+    public long[] run() {
+        long[] counts = new long[sinks.size()];
+        failures = new RuntimeException[sinks.size()];
+        if (sinks.isEmpty()) {
+            return counts;
+        }
+        QueryBatchMatcher batchMatcher = new QueryBatchMatcher(matchers,
+                GrepService.requiredLiterals(searchStrings, regex));
+        new GrepService(rootDirectory, searchStrings, options, batchMatcher).search(result -> {
+            for (String matched : result.getMatchedPatterns()) {
+                int query = Integer.parseInt(matched);
+                if (failures[query] != null) {
+                    continue;
+                }
+                try {
+                    sinks.get(query).accept(resultOf(matchers.get(query), result));
+                    counts[query]++;
+                } catch (RuntimeException e) {
+                    failures[query] = e;
+                }
+            }
+        });
+        return counts;
+    }
+
+    /**
+     * @param query the index of a query in the batch
+     * @return the exception the sink of the query threw in the last {@link #run()}, or {@code null} if it threw none
+     */
+    public RuntimeException failure(int query) {
+        return query < failures.length ? failures[query] : null;
+    }
+
+    /**
+     * Returns the result of a query for a line of the batch, with the search strings of the query found in it.
+     */
+    private static SearchResult resultOf(PatternMatcher matcher, SearchResult result) {
+        String line = result.getLineContent();
+        List<String> matchedPatterns = matcher instanceof MultiPatternMatcher
+                ? ((MultiPatternMatcher) matcher).matchingPatterns(line)
+                : List.of();
+        return new SearchResult(result.getFilePath(), result.getLineNumber(), line, matchedPatterns);
+    }
+}
@@ -0,0 +1,266 @@
+package org.coding.service;
+
+import org.coding.core.CompressedFileProcessor;
+import org.coding.core.ConcurrentFileProcessor;
+import org.coding.core.FileProcessor;
+import org.coding.index.TrigramIndex;
+import org.coding.model.SearchResult;
+import org.coding.stats.SearchStatistics;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Settings of a {@link GrepService} search other than the root directory and the search strings.
+ * Every setting has a default, and the setters return this object so settings can be chained:
+ * {@code new SearchOptions().setThreadPoolSize(8).setRegex(true)}.
+ * The settings are validated when the {@link GrepService} is created.
+ */
+public class SearchOptions {
+    private int threadPoolSize = GrepService.DEFAULT_THREAD_POOL_SIZE;
+    private boolean regex;
+    private FileProcessor fileProcessor = new CompressedFileProcessor();
+    private ExecutionMode executionMode = ExecutionMode.FIXED;
+    private ExecutorService executor;
+    private boolean sizeAwareScheduling = true;
+    private boolean adaptiveConcurrency;
+    private boolean orderedOutput = true;
+    private List<String> includeGlobs = List.of();
+    private List<String> excludeGlobs = List.of();
+    private boolean ignoreFiles;
+    private TrigramIndex index;
+    private int maxMatchesPerFile = Integer.MAX_VALUE;
+    private long maxMatches = Long.MAX_VALUE;
+    private int linesBefore;
+    private int linesAfter;
+    private SearchStatistics statistics = new SearchStatistics();
+
+    public int getThreadPoolSize() {
+        return threadPoolSize;
+    }
+
+    /**
+     * @param threadPoolSize the number of threads, see {@link ExecutionMode}; {@value GrepService#DEFAULT_THREAD_POOL_SIZE} by default
+     */
+    public SearchOptions setThreadPoolSize(int threadPoolSize) {
+        this.threadPoolSize = threadPoolSize;
+        return this;
+    }
+
+    public boolean isRegex() {
+        return regex;
+    }
+
+    /**
+     * @param regex whether the search strings are regular expressions in {@link java.util.regex.Pattern} syntax
+     */
+    public SearchOptions setRegex(boolean regex) {
+        this.regex = regex;
+        return this;
+    }
+
+    public FileProcessor getFileProcessor() {
+        return fileProcessor;
+    }
+
+    /**
+     * @param fileProcessor reads the files; by default a {@link CompressedFileProcessor}, which reads compressed files
+     *                      and hands the others to a {@link ConcurrentFileProcessor}. Compressed files are only searched
+     *                      with a {@link CompressedFileProcessor}
+     */
+    public SearchOptions setFileProcessor(FileProcessor fileProcessor) {
+        this.fileProcessor = fileProcessor;
+        return this;
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * @param executionMode how the file tasks are run; {@link ExecutionMode#FIXED} by default
+     */
+    public SearchOptions setExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+        return this;
+    }
+
+    /**
+     * @return the executor shared by searches, or {@code null} if every search creates its own
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @param executor runs the file tasks of the searches instead of an executor that each search creates and shuts down,
+     *                 so that a long-running process can keep one warm pool for all its searches; it is not shut down
+     *                 by the search. The execution mode and thread pool size should describe it, since they still bound
+     *                 how many tasks of a search run at a time, which lets concurrent searches share a
+     *                 {@link ExecutionMode#FIXED} pool fairly. {@code null} by default
+     */
+    public SearchOptions setExecutor(ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    public boolean isOrderedOutput() {
+        return orderedOutput;
+    }
+
+    /**
+     * @param orderedOutput whether results are delivered file by file in traversal order, or as soon as each file has
+     *                      been searched; on by default
+     */
+    public SearchOptions setOrderedOutput(boolean orderedOutput) {
+        this.orderedOutput = orderedOutput;
+        return this;
+    }
+
+    public List<String> getIncludeGlobs() {
+        return includeGlobs;
+    }
+
+    /**
+     * @param includeGlobs the globs a file must match to be searched, see {@link Globs}; a gzip file is also searched
+     *                     if its name without {@code .gz} matches. If empty, the default, {@code .txt} files and
+     *                     compressed {@code .txt} files are searched
+     */
+    public SearchOptions setIncludeGlobs(List<String> includeGlobs) {
+        this.includeGlobs = includeGlobs;
+        return this;
+    }
+
+    public List<String> getExcludeGlobs() {
+        return excludeGlobs;
+    }
+
+    /**
+     * @param excludeGlobs the globs of the files that are not searched and of the directories that are not walked into,
+     *                     with everything in them; empty by default
+     */
+    public SearchOptions setExcludeGlobs(List<String> excludeGlobs) {
+        this.excludeGlobs = excludeGlobs;
+        return this;
+    }
+
+    public boolean isIgnoreFiles() {
+        return ignoreFiles;
+    }
+
+    /**
+     * @param ignoreFiles whether the files and directories ignored by the {@code .gitignore} and {@code .ignore} files
+     *                    under the root directory, and {@code .git} directories, are skipped; off by default
+     */
+    public SearchOptions setIgnoreFiles(boolean ignoreFiles) {
+        this.ignoreFiles = ignoreFiles;
+        return this;
+    }
+
+    public boolean isSizeAwareScheduling() {
+        return sizeAwareScheduling;
+    }
+
+    /**
+     * @param sizeAwareScheduling whether small files are searched in batches and large files are started first;
+     *                            if not, every file is a task of its own, started in walk order. On by default
+     */
+    public SearchOptions setSizeAwareScheduling(boolean sizeAwareScheduling) {
+        this.sizeAwareScheduling = sizeAwareScheduling;
+        return this;
+    }
+
+    public boolean isAdaptiveConcurrency() {
+        return adaptiveConcurrency;
+    }
+
+    /**
+     * @param adaptiveConcurrency whether the number of files read at the same time is tuned while searching, for each
+     *                            file system on its own, up to the number of threads, instead of always being the
+     *                            number of threads; off by default
+     */
+    public SearchOptions setAdaptiveConcurrency(boolean adaptiveConcurrency) {
+        this.adaptiveConcurrency = adaptiveConcurrency;
+        return this;
+    }
+
+    /**
+     * @return the trigram index used to skip files, or {@code null} if every file is searched
+     */
+    public TrigramIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * @param index a trigram index of the root directory; only files that may contain a match are searched
+     */
+    public SearchOptions setIndex(TrigramIndex index) {
+        this.index = index;
+        return this;
+    }
+
+    public int getMaxMatchesPerFile() {
+        return maxMatchesPerFile;
+    }
+
+    /**
+     * @param maxMatchesPerFile the number of matching lines after which a file is not read any further;
+     *                          unlimited by default
+     */
+    public SearchOptions setMaxMatchesPerFile(int maxMatchesPerFile) {
+        this.maxMatchesPerFile = maxMatchesPerFile;
+        return this;
+    }
+
+    public long getMaxMatches() {
+        return maxMatches;
+    }
+
+    /**
+     * @param maxMatches the number of matching lines after which the whole search stops; files that are waiting are
+     *                   not read and files that are being read are abandoned. Unlimited by default
+     */
+    public SearchOptions setMaxMatches(long maxMatches) {
+        this.maxMatches = maxMatches;
+        return this;
+    }
+
+    public int getLinesBefore() {
+        return linesBefore;
+    }
+
+    /**
+     * @param linesBefore the number of context lines before each matching line, see {@link SearchResult#getContextBefore()};
+     *                    none by default
+     */
+    public SearchOptions setLinesBefore(int linesBefore) {
+        this.linesBefore = linesBefore;
+        return this;
+    }
+
+    public int getLinesAfter() {
+        return linesAfter;
+    }
+
+    /**
+     * @param linesAfter the number of context lines after each matching line, see {@link SearchResult#getContextAfter()};
+     *                   none by default
+     */
+    public SearchOptions setLinesAfter(int linesAfter) {
+        this.linesAfter = linesAfter;
+        return this;
+    }
+
+    public SearchStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @param statistics records what the searches do; every search of every {@link GrepService} created with the
+     *                   same statistics adds to them. New statistics for these options by default
+     */
+    public SearchOptions setStatistics(SearchStatistics statistics) {
+        this.statistics = statistics;
+        return this;
+    }
+}
@@ -0,0 +1,270 @@
+package org.coding.service;
+
+import org.coding.core.FileTail;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Watches the directories of a tree with a {@link WatchService} and keeps a {@link FileTail} for each file to search,
+ * so that a file that changed is scanned from where its last scan stopped.
+ *
+ * The directories are registered as the walk of the first search lists them, see {@link #acceptDirectory(Path)}, and
+ * the files it searches get their tails from {@link #tail(Path)}. After that, {@link #awaitChanges()} waits for the
+ * file system to report changes and returns the tails to scan: files that were created or modified, and the files
+ * of new directories, which are registered as well. A file that is renamed within the tree keeps its tail, so a log
+ * that is rotated by renaming it is not searched again from its start; deleted files are forgotten. If the watch
+ * service lost events, every file is scanned and every directory listed again.
+ *
+ * New files and directories are selected by the same filters and ignore files as the walk; ignore files are read
+ * again when one of them changes. Only {@link #acceptDirectory(Path)} and {@link #tail(Path)} may be called while
+ * the first search runs on other threads; the rest must be called from one thread.
+ */
+final class TreeWatcher implements AutoCloseable {
+    private static final Set<String> IGNORE_FILE_NAMES = Set.of(".gitignore", ".ignore");
+
+    private final Path root;
+    private final Predicate<Path> fileFilter;
+    private final Predicate<Path> directoryFilter;
+    private final boolean ignoreFiles;
+    private final WatchService watchService;
+    private final Set<Path> directories = ConcurrentHashMap.newKeySet();
+    private final Map<Path, FileTail> tails = new ConcurrentHashMap<>();
+    private final Map<Path, IgnoreRules> ignoreRules = new HashMap<>();
+
+    /**
+     * Creates a watcher and registers the root directory.
+     *
+     * @param fileFilter      selects the regular files to search
+     * @param directoryFilter selects the directories below the root to watch
+     * @param ignoreFiles     whether to skip the files and directories that ignore files ignore
+     * @throws IOException if the watch service cannot be created or the root directory cannot be registered
+     */
+    TreeWatcher(Path root, Predicate<Path> fileFilter, Predicate<Path> directoryFilter, boolean ignoreFiles) throws IOException {
+        this.root = root;
+        this.fileFilter = fileFilter;
+        this.directoryFilter = directoryFilter;
+        this.ignoreFiles = ignoreFiles;
+        this.watchService = root.getFileSystem().newWatchService();
+        try {
+            register(root);
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Registers a directory if the directory filter selects it; for the walk of the first search.
+     *
+     * @return whether the directory is selected
+     */
+    boolean acceptDirectory(Path directory) {
+        if (!directoryFilter.test(directory)) {
+            return false;
+        }
+        try {
+            register(directory);
+        } catch (IOException e) {
+            System.err.println("Warning: Could not watch directory " + directory + ": " + e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Returns the tail of a file, creating it if the file has none yet.
+     */
+    FileTail tail(Path file) {
+        return tails.computeIfAbsent(file, FileTail::new);
+    }
+
+    /**
+     * Waits until the file system reports changes, takes all changes reported by then, and returns the tails of the
+     * files to scan, by path.
+     *
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    List<FileTail> awaitChanges() throws InterruptedException {
+        Set<Path> changed = new LinkedHashSet<>();
+        Set<Path> deleted = new LinkedHashSet<>();
+        boolean overflow = false;
+        try {
+            WatchKey key = watchService.take();
+            while (key != null) {
+                Path directory = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        overflow = true;
+                        continue;
+                    }
+                    Path path = directory.resolve((Path) event.context());
+                    if (IGNORE_FILE_NAMES.contains(path.getFileName().toString())) {
+                        ignoreRules.clear();
+                    }
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                        deleted.add(path);
+                    } else {
+                        changed.add(path);
+                    }
+                }
+                if (!key.reset()) {
+                    directories.remove(directory);
+                }
+                key = watchService.poll();
+            }
+        } catch (ClosedWatchServiceException e) {
+            return List.of();
+        }
+
+        Set<FileTail> toScan = new LinkedHashSet<>();
+        if (overflow) {
+            for (Path directory : List.copyOf(directories)) {
+                addDirectory(directory, toScan, deleted);
+            }
+            toScan.addAll(tails.values());
+        }
+        for (Path path : changed) {
+            added(path, toScan, deleted);
+        }
+        for (Path path : deleted) {
+            if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+                forget(path);
+            }
+        }
+        toScan.removeIf(tail -> tails.get(tail.getFilePath()) != tail);
+        List<FileTail> sorted = new ArrayList<>(toScan);
+        sorted.sort(Comparator.comparing(FileTail::getFilePath));
+        return sorted;
+    }
+
+    /**
+     * Stops watching.
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    /**
+     * Adds the tail of a file that was created or modified, or the files of a directory that was created, to the
+     * tails to scan, if they are selected.
+     *
+     * @param deleted the paths deleted in the same changes, one of which may be the old name of a renamed file
+     */
+    private void added(Path path, Set<FileTail> toScan, Set<Path> deleted) {
+        FileTail tail = tails.get(path);
+        if (tail != null && !deleted.contains(path)) {
+            toScan.add(tail);
+            return;
+        }
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            return;
+        }
+        IgnoreRules rules = ignoreRules(path.getParent());
+        if (attributes.isDirectory()) {
+            if (!directories.contains(path) && directoryFilter.test(path) && !rules.isIgnored(path, true)) {
+                addDirectory(path, toScan, deleted);
+            }
+        } else if ((attributes.isRegularFile() || attributes.isSymbolicLink() && Files.isRegularFile(path))
+                && !rules.isIgnored(path, false) && fileFilter.test(path)) {
+            toScan.add(track(path, attributes.fileKey(), toScan, deleted));
+        }
+    }
+
+    /**
+     * Registers a directory and adds the tails of the files in it and in its subdirectories to the tails to scan.
+     */
+    private void addDirectory(Path directory, Set<FileTail> toScan, Set<Path> deleted) {
+        try {
+            register(directory);
+        } catch (IOException e) {
+            System.err.println("Warning: Could not watch directory " + directory + ": " + e.getMessage());
+            return;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                added(path, toScan, deleted);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not read directory " + directory + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the tail of a new file: the tail of a file deleted in the same changes that is the same file under
+     * its new name, or the tail the path already has, or a new one. If a file was created under the old name, as
+     * when a log is rotated, it gets a new tail.
+     */
+    private FileTail track(Path path, Object fileKey, Set<FileTail> toScan, Set<Path> deleted) {
+        if (fileKey != null) {
+            for (Path oldPath : deleted) {
+                FileTail old = tails.get(oldPath);
+                if (old != null && !oldPath.equals(path) && fileKey.equals(old.getFileKey())) {
+                    tails.remove(oldPath);
+                    FileTail moved = old.movedTo(path);
+                    tails.put(path, moved);
+                    if (Files.exists(oldPath, LinkOption.NOFOLLOW_LINKS)) {
+                        toScan.add(tail(oldPath));
+                    }
+                    return moved;
+                }
+            }
+        }
+        return tail(path);
+    }
+
+    /**
+     * Forgets a deleted file, or everything below a deleted directory.
+     */
+    private void forget(Path path) {
+        tails.remove(path);
+        if (directories.remove(path)) {
+            tails.keySet().removeIf(file -> file.startsWith(path));
+            directories.removeIf(directory -> directory.startsWith(path));
+        }
+    }
+
+    private void register(Path directory) throws IOException {
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        directories.add(directory);
+    }
+
+    /**
+     * Returns the ignore rules for the entries of a directory, reading the ignore files of it and of the directories
+     * above it up to the root if they have not been read yet.
+     */
+    private IgnoreRules ignoreRules(Path directory) {
+        if (!ignoreFiles || directory == null || !directory.startsWith(root)) {
+            return IgnoreRules.NONE;
+        }
+        IgnoreRules rules = ignoreRules.get(directory);
+        if (rules == null) {
+            IgnoreRules parent = directory.equals(root) ? IgnoreRules.NONE : ignoreRules(directory.getParent());
+            rules = parent.forDirectory(directory);
+            ignoreRules.put(directory, rules);
+        }
+        return rules;
+    }
+}
@@ -0,0 +1,356 @@
+package org.coding.stats;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of what searches did and where their time went, safe to update from every thread of a search.
+ * The counters are {@link LongAdder}s, so recording costs a few uncontended additions per file; nothing is
+ * recorded per line. Counters add up over every search that records into the same instance, which makes one
+ * instance suitable for monitoring a long-running process, see {@link #registerMBean(String)}.
+ *
+ * The time of a search is split into phases:
+ * <ul>
+ *     <li>walk: the searching thread waiting for the next file from the directory walk,</li>
+ *     <li>queue wait: files waiting for a thread after they were found, summed over all files,</li>
+ *     <li>scan: files being read and matched, summed over all files; reading and matching overlap in a scan,
+ *     since mapped files are read as they are matched, see the bytes read and lines scanned,</li>
+ *     <li>output: results being handed to the sink of the search.</li>
+ * </ul>
+ * Queue wait and scan time are summed over threads, so they can exceed the wall time of the search.
+ */
+public final class SearchStatistics implements SearchStatisticsMXBean {
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder filesDiscovered = new LongAdder();
+    private final LongAdder filesSkipped = new LongAdder();
+    private final LongAdder filesScanned = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder linesScanned = new LongAdder();
+    private final LongAdder matches = new LongAdder();
+    private final LongAdder queueDepth = new LongAdder();
+    private final LongAccumulator maxQueueDepth = new LongAccumulator(Long::max, 0);
+    private final LongAdder walkNanos = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder outputNanos = new LongAdder();
+    private final LongAdder wallNanos = new LongAdder();
+    private final LatencyHistogram scanLatency = new LatencyHistogram();
+
+    /**
+     * Records a regular file found by the directory walk.
+     *
+     * @param accepted whether the file is searched; files with other types, or that an index rules out, are skipped
+     */
+    public void recordFileDiscovered(boolean accepted) {
+        filesDiscovered.increment();
+        if (!accepted) {
+            filesSkipped.increment();
+        }
+    }
+
+    /**
+     * Records a file that was handed to the executor.
+     */
+    public void recordFileQueued() {
+        queueDepth.increment();
+        maxQueueDepth.accumulate(queueDepth.sum());
+    }
+
+    /**
+     * Records a queued file that a thread started to scan after it waited {@code queuedNanos}.
+     */
+    public void recordFileStarted(long queuedNanos) {
+        queueDepth.decrement();
+        queueWaitNanos.add(queuedNanos);
+    }
+
+    /**
+     * Records queued files that will never be scanned because their search was cancelled.
+     */
+    public void recordFilesCancelled(long files) {
+        queueDepth.add(-files);
+    }
+
+    /**
+     * Records a file that was scanned in {@code nanos}.
+     */
+    public void recordFileScanned(long nanos) {
+        filesScanned.increment();
+        scanLatency.record(nanos);
+    }
+
+    /**
+     * @param bytes the number of bytes read or searched
+     * @param lines the number of lines decoded and checked against the pattern; byte-level scanners skip the lines
+     *              that cannot match without decoding them
+     */
+    public void recordScanned(long bytes, long lines) {
+        bytesRead.add(bytes);
+        linesScanned.add(lines);
+    }
+
+    public void recordMatches(long count) {
+        matches.add(count);
+    }
+
+    public void recordWalk(long nanos) {
+        walkNanos.add(nanos);
+    }
+
+    public void recordOutput(long nanos) {
+        outputNanos.add(nanos);
+    }
+
+    /**
+     * Records a finished search that took {@code nanos} from start to end.
+     */
+    public void recordSearch(long nanos) {
+        searches.increment();
+        wallNanos.add(nanos);
+    }
+
+    /**
+     * Adds the counters of other statistics to these, for example those of a search that also reports its own.
+     */
+    public void add(SearchStatistics other) {
+        searches.add(other.searches.sum());
+        filesDiscovered.add(other.filesDiscovered.sum());
+        filesSkipped.add(other.filesSkipped.sum());
+        filesScanned.add(other.filesScanned.sum());
+        bytesRead.add(other.bytesRead.sum());
+        linesScanned.add(other.linesScanned.sum());
+        matches.add(other.matches.sum());
+        queueDepth.add(other.queueDepth.sum());
+        maxQueueDepth.accumulate(other.maxQueueDepth.get());
+        walkNanos.add(other.walkNanos.sum());
+        queueWaitNanos.add(other.queueWaitNanos.sum());
+        outputNanos.add(other.outputNanos.sum());
+        wallNanos.add(other.wallNanos.sum());
+        scanLatency.add(other.scanLatency);
+    }
+
+    /**
+     * @return the distribution of the time it took to scan a file
+     */
+    public LatencyHistogram getScanLatency() {
+        return scanLatency;
+    }
+
+    /**
+     * Registers these statistics with the platform MBean server as
+     * {@code org.coding:type=SearchStatistics,name=<name>}, so they can be read with JMX tools.
+     *
+     * @return the name they were registered under, to unregister them
+     * @throws IllegalArgumentException if statistics are already registered under this name
+     */
+    public ObjectName registerMBean(String name) {
+        try {
+            ObjectName objectName = new ObjectName("org.coding:type=SearchStatistics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (InstanceAlreadyExistsException e) {
+            throw new IllegalArgumentException("Search statistics are already registered as " + name, e);
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register search statistics as " + name, e);
+        }
+    }
+
+    /**
+     * @return a short human-readable report, one figure per line
+     */
+    public String toSummary() {
+        return String.format("Searches:        %d%n", getSearches())
+                + String.format("Files:           %d found, %d skipped, %d scanned%n", getFilesDiscovered(), getFilesSkipped(), getFilesScanned())
+                + String.format("Read:            %d bytes, %d lines decoded%n", getBytesRead(), getLinesScanned())
+                + String.format("Matches:         %d%n", getMatches())
+                + String.format("Queue depth:     %d max%n", getMaxQueueDepth())
+                + String.format("Wall time:       %d ms (walk %d ms, output %d ms)%n", getWallMillis(), getWalkMillis(), getOutputMillis())
+                + String.format("Thread time:     %d ms queued, %d ms scanning%n", getQueueWaitMillis(), getScanMillis())
+                + String.format("Scan per file:   mean %d us, p50 %d us, p90 %d us, p99 %d us, max %d us",
+                getScanLatencyMeanMicros(), getScanLatencyP50Micros(), getScanLatencyP90Micros(), getScanLatencyP99Micros(),
+                getScanLatencyMaxMicros());
+    }
+
+    /**
+     * @return the statistics as a JSON object, with durations in nanoseconds
+     */
+    public String toJson() {
+        return "{"
+                + "\"searches\":" + getSearches()
+                + ",\"files\":{\"discovered\":" + getFilesDiscovered()
+                + ",\"skipped\":" + getFilesSkipped()
+                + ",\"scanned\":" + getFilesScanned() + "}"
+                + ",\"bytesRead\":" + getBytesRead()
+                + ",\"linesScanned\":" + getLinesScanned()
+                + ",\"matches\":" + getMatches()
+                + ",\"queueDepth\":{\"current\":" + getQueueDepth() + ",\"max\":" + getMaxQueueDepth() + "}"
+                + ",\"phaseNanos\":{\"walk\":" + walkNanos.sum()
+                + ",\"queueWait\":" + queueWaitNanos.sum()
+                + ",\"scan\":" + scanLatency.getTotalNanos()
+                + ",\"output\":" + outputNanos.sum()
+                + ",\"wall\":" + wallNanos.sum() + "}"
+                + ",\"scanLatencyNanos\":{\"count\":" + scanLatency.getCount()
+                + ",\"mean\":" + scanLatency.getMeanNanos()
+                + ",\"p50\":" + scanLatency.getPercentileNanos(50)
+                + ",\"p90\":" + scanLatency.getPercentileNanos(90)
+                + ",\"p99\":" + scanLatency.getPercentileNanos(99)
+                + ",\"max\":" + scanLatency.getMaxNanos() + "}"
+                + "}";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getFilesDiscovered() {
+        return filesDiscovered.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getFilesSkipped() {
+        return filesSkipped.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getFilesScanned() {
+        return filesScanned.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLinesScanned() {
+        return linesScanned.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMatches() {
+        return matches.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getQueueDepth() {
+        return queueDepth.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getWalkMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(walkNanos.sum());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getQueueWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(queueWaitNanos.sum());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getScanMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(scanLatency.getTotalNanos());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getOutputMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(outputNanos.sum());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getWallMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(wallNanos.sum());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getScanLatencyMeanMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(scanLatency.getMeanNanos());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getScanLatencyP50Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(scanLatency.getPercentileNanos(50));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getScanLatencyP90Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(scanLatency.getPercentileNanos(90));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getScanLatencyP99Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(scanLatency.getPercentileNanos(99));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getScanLatencyMaxMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(scanLatency.getMaxNanos());
+    }
+}
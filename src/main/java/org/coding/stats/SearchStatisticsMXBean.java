@@ -0,0 +1,49 @@
+package org.coding.stats;
+
+/**
+ * The JMX view of {@link SearchStatistics}, see {@link SearchStatistics#registerMBean(String)}.
+ * Every attribute is a running total over all searches, except the queue depth.
+ */
+public interface SearchStatisticsMXBean {
+
+    long getSearches();
+
+    long getFilesDiscovered();
+
+    long getFilesSkipped();
+
+    long getFilesScanned();
+
+    long getBytesRead();
+
+    long getLinesScanned();
+
+    long getMatches();
+
+    /**
+     * @return the number of files that are waiting for a thread right now
+     */
+    long getQueueDepth();
+
+    long getMaxQueueDepth();
+
+    long getWalkMillis();
+
+    long getQueueWaitMillis();
+
+    long getScanMillis();
+
+    long getOutputMillis();
+
+    long getWallMillis();
+
+    long getScanLatencyMeanMicros();
+
+    long getScanLatencyP50Micros();
+
+    long getScanLatencyP90Micros();
+
+    long getScanLatencyP99Micros();
+
+    long getScanLatencyMaxMicros();
+}
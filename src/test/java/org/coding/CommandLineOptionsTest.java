@@ -0,0 +1,202 @@
+package org.coding;
+
+import org.coding.core.CountMode;
+import org.coding.service.ExecutionMode;
+import org.coding.service.GrepService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CommandLineOptionsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testParseRootDirectoryAndPattern() {
+        CommandLineOptions options = CommandLineOptions.parse(new String[]{"test-data", "hello world"});
+        assertFalse(options.isHelp());
+        assertEquals("test-data", options.getRootDirectory());
+        assertEquals(List.of("hello world"), options.getPatterns());
+        assertFalse(options.isRegex());
+    }
+
+    @Test
+    void testParseRegex() {
+        assertTrue(CommandLineOptions.parse(new String[]{"-E", "test-data", "a.*b"}).isRegex());
+        assertTrue(CommandLineOptions.parse(new String[]{"test-data", "--regex", "a.*b"}).isRegex());
+    }
+
+    @Test
+    void testParseExecutorAndThreads() {
+        CommandLineOptions options = CommandLineOptions.parse(new String[]{"test-data", "hello"});
+        assertEquals(ExecutionMode.FIXED, options.getExecutionMode());
+        assertEquals(GrepService.DEFAULT_THREAD_POOL_SIZE, options.getThreads());
+
+        options = CommandLineOptions.parse(new String[]{"--executor", "work-stealing", "-t", "8", "test-data", "hello"});
+        assertEquals(ExecutionMode.WORK_STEALING, options.getExecutionMode());
+        assertEquals(8, options.getThreads());
+
+        assertThrows(IllegalArgumentException.class, () -> CommandLineOptions.parse(new String[]{"--executor", "cached", "test-data", "a"}));
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> CommandLineOptions.parse(new String[]{"--threads", "0", "test-data", "a"}));
+        assertEquals("Option --threads expects a positive number, got: 0", exception.getMessage());
+    }
+
+    @Test
+    void testParseIndexOptions() {
+        CommandLineOptions options = CommandLineOptions.parse(new String[]{"--build-index", "/tmp/index", "test-data"});
+        assertEquals("/tmp/index", options.getBuildIndexDirectory());
+        assertEquals("test-data", options.getRootDirectory());
+
+        options = CommandLineOptions.parse(new String[]{"--index", "/tmp/index", "test-data", "hello"});
+        assertEquals("/tmp/index", options.getIndexDirectory());
+        assertNull(options.getBuildIndexDirectory());
+
+        assertThrows(IllegalArgumentException.class, () -> CommandLineOptions.parse(new String[]{"--build-index", "/tmp/index", "test-data", "hello"}));
+    }
+
+    @Test
+    void testParseEarlyTerminationOptions() {
+        CommandLineOptions options = CommandLineOptions.parse(new String[]{"test-data", "hello"});
+        assertFalse(options.isFilesWithMatches());
+        assertFalse(options.isQuiet());
+        assertEquals(Integer.MAX_VALUE, options.getMaxCount());
+
+        options = CommandLineOptions.parse(new String[]{"-l", "-q", "--max-count", "5", "test-data", "hello"});
+        assertTrue(options.isFilesWithMatches());
+        assertTrue(options.isQuiet());
+        assertEquals(5, options.getMaxCount());
+        assertThrows(IllegalArgumentException.class, () -> CommandLineOptions.parse(new String[]{"-m", "none", "test-data", "hello"}));
+    }
+
+    @Test
+    void testParseStatisticsOptions() {
+        CommandLineOptions options = CommandLineOptions.parse(new String[]{"test-data", "hello"});
+        assertFalse(options.isStats());
+        assertNull(options.getStatsJsonFile());
+
+        options = CommandLineOptions.parse(new String[]{"--stats", "--stats-json", "stats.json", "test-data", "hello"});
+        assertTrue(options.isStats());
+        assertEquals("stats.json", options.getStatsJsonFile());
+        assertThrows(IllegalArgumentException.class, () -> CommandLineOptions.parse(new String[]{"test-data", "hello", "--stats-json"}));
+    }
+
+    @Test
+    void testParseContextOptions() {
+        CommandLineOptions options = CommandLineOptions.parse(new String[]{"test-data", "hello"});
+        assertEquals(0, options.getLinesBefore());
+        assertEquals(0, options.getLinesAfter());
+
+        options = CommandLineOptions.parse(new String[]{"-C", "3", "-A", "1", "test-data", "hello"});
+        assertEquals(3, options.getLinesBefore());
+        assertEquals(1, options.getLinesAfter());
+        options = CommandLineOptions.parse(new String[]{"--before-context", "2", "--after-context", "0", "test-data", "hello"});
+        assertEquals(2, options.getLinesBefore());
+        assertEquals(0, options.getLinesAfter());
+        assertThrows(IllegalArgumentException.class, () -> CommandLineOptions.parse(new String[]{"-B", "-1", "test-data", "hello"}));
+        assertThrows(IllegalArgumentException.class, () -> CommandLineOptions.parse(new String[]{"--context", "some", "test-data", "hello"}));
+    }
+
+    @Test
+    void testParseCountOptions() {
+        assertNull(CommandLineOptions.parse(new String[]{"test-data", "hello"}).getCountMode());
+        assertEquals(CountMode.LINES, CommandLineOptions.parse(new String[]{"-c", "test-data", "hello"}).getCountMode());
+        assertEquals(CountMode.OCCURRENCES, CommandLineOptions.parse(new String[]{"--count-occurrences", "test-data", "hello"}).getCountMode());
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> CommandLineOptions.parse(new String[]{"--count", "-l", "test-data", "hello"}));
+        assertEquals("Counting cannot be combined with -l.", exception.getMessage());
+    }
+
+    @Test
+    void testParseUnordered() {
+        assertFalse(CommandLineOptions.parse(new String[]{"test-data", "hello"}).isUnordered());
+        assertTrue(CommandLineOptions.parse(new String[]{"--unordered", "test-data", "hello"}).isUnordered());
+    }
+
+    @Test
+    void testParseIncludeExcludeAndGitignore() {
+        CommandLineOptions options = CommandLineOptions.parse(new String[]{
+                "--include", "*.java", "--exclude", "build", "--include", "*.md", "--gitignore", "test-data", "hello"});
+        assertEquals(List.of("*.java", "*.md"), options.getIncludeGlobs());
+        assertEquals(List.of("build"), options.getExcludeGlobs());
+        assertTrue(options.isIgnoreFiles());
+
+        CommandLineOptions defaults = CommandLineOptions.parse(new String[]{"test-data", "hello"});
+        assertEquals(List.of(), defaults.getIncludeGlobs());
+        assertEquals(List.of(), defaults.getExcludeGlobs());
+        assertFalse(defaults.isIgnoreFiles());
+        assertThrows(IllegalArgumentException.class, () -> CommandLineOptions.parse(new String[]{"test-data", "hello", "--include"}));
+    }
+
+    @Test
+    void testParseAdaptive() {
+        assertFalse(CommandLineOptions.parse(new String[]{"test-data", "hello"}).isAdaptive());
+        CommandLineOptions options = CommandLineOptions.parse(new String[]{"--adaptive", "-t", "32", "test-data", "hello"});
+        assertTrue(options.isAdaptive());
+        assertEquals(32, options.getThreads());
+    }
+
+    @Test
+    void testParseWatch() {
+        assertFalse(CommandLineOptions.parse(new String[]{"test-data", "hello"}).isWatch());
+        assertTrue(CommandLineOptions.parse(new String[]{"--watch", "--unordered", "test-data", "hello"}).isWatch());
+        for (String option : List.of("-l", "-q", "-c", "--count-occurrences")) {
+            Exception exception = assertThrows(IllegalArgumentException.class,
+                    () -> CommandLineOptions.parse(new String[]{"--watch", option, "test-data", "hello"}));
+            assertEquals("Watching cannot be combined with -l, -q, -c, -m, context lines or --index.", exception.getMessage());
+        }
+        assertThrows(IllegalArgumentException.class, () -> CommandLineOptions.parse(new String[]{"--watch", "-m", "2", "test-data", "hello"}));
+        assertThrows(IllegalArgumentException.class, () -> CommandLineOptions.parse(new String[]{"--watch", "-C", "1", "test-data", "hello"}));
+    }
+
+    @Test
+    void testParseServeAndPatternFileOfClient() throws IOException {
+        CommandLineOptions options = CommandLineOptions.parse(new String[]{"--serve", "/tmp/grep.sock", "-t", "8"});
+        assertEquals("/tmp/grep.sock", options.getServeAddress());
+        assertNull(options.getRootDirectory());
+        assertThrows(IllegalArgumentException.class, () -> CommandLineOptions.parse(new String[]{"--serve", "4711", "test-data", "hello"}));
+
+        Files.writeString(tempDir.resolve("patterns.txt"), "ERR-1\n");
+        options = CommandLineOptions.parse(new String[]{"-f", "patterns.txt", "test-data"}, tempDir);
+        assertNull(options.getServeAddress());
+        assertEquals(List.of("ERR-1"), options.getPatterns());
+    }
+
+    @Test
+    void testParseHelp() {
+        assertTrue(CommandLineOptions.parse(new String[]{"-h"}).isHelp());
+        assertTrue(CommandLineOptions.parse(new String[]{"test-data", "--help"}).isHelp());
+    }
+
+    @Test
+    void testParseRepeatedPatternsAndPatternFile() throws IOException {
+        Path patternFile = tempDir.resolve("patterns.txt");
+        Files.writeString(patternFile, "ERR-1\n\nERR-2\n");
+        CommandLineOptions options = CommandLineOptions.parse(
+                new String[]{"-e", "timeout", "--pattern-file", patternFile.toString(), "test-data"});
+        assertEquals("test-data", options.getRootDirectory());
+        assertEquals(List.of("timeout", "ERR-1", "ERR-2"), options.getPatterns());
+    }
+
+    @Test
+    void testParsePatternStartingWithDashAfterDoubleDash() {
+        CommandLineOptions options = CommandLineOptions.parse(new String[]{"--", "test-data", "-x"});
+        assertEquals(List.of("-x"), options.getPatterns());
+    }
+
+    @Test
+    void testParseInvalidArgumentsThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> CommandLineOptions.parse(new String[]{}));
+        assertThrows(IllegalArgumentException.class, () -> CommandLineOptions.parse(new String[]{"test-data"}));
+        assertThrows(IllegalArgumentException.class, () -> CommandLineOptions.parse(new String[]{"-e", "a", "test-data", "b"}));
+        assertThrows(IllegalArgumentException.class, () -> CommandLineOptions.parse(new String[]{"test-data", "-e"}));
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> CommandLineOptions.parse(new String[]{"--bogus", "a", "b"}));
+        assertEquals("Unknown option: --bogus", exception.getMessage());
+    }
+}
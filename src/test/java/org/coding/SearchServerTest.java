@@ -0,0 +1,272 @@
+package org.coding;
+
+import org.coding.service.ExecutionMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchServerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SearchServer server;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void testServerPublishesTheStatisticsOfItsQueriesOverJmx() throws Exception {
+        String socket = start(tempDir.resolve("grep.sock").toString());
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("org.coding:type=SearchStatistics,name=" + ObjectName.quote(socket));
+        assertEquals(name, server.getStatisticsName());
+        assertTrue(mBeanServer.isRegistered(name));
+
+        Output first = query(socket, Path.of("").toAbsolutePath(), "-e", "hello", "test-data");
+        Output second = query(socket, Path.of("").toAbsolutePath(), "-c", "-e", "hello", "test-data");
+
+        assertEquals(0, first.status);
+        assertEquals(0, second.status);
+        assertEquals(2L, mBeanServer.getAttribute(name, "Searches"));
+        assertTrue((Long) mBeanServer.getAttribute(name, "Matches") > 0);
+        assertTrue((Long) mBeanServer.getAttribute(name, "FilesScanned") > 0);
+
+        server.close();
+        assertFalse(mBeanServer.isRegistered(name));
+    }
+
+    @Test
+    void testClientPrintsWhatTheCommandLinePrints() throws IOException {
+        String socket = start(tempDir.resolve("grep.sock").toString());
+        String[] args = {"-e", "hello", "-e", "addresses", "test-data"};
+
+        Output local = new Output();
+        int localStatus = new Application(local.out, local.err, Path.of(""), null).run(args);
+        Output remote = query(socket, Path.of("").toAbsolutePath(), args);
+
+        assertEquals(0, localStatus);
+        assertEquals(0, remote.status);
+        assertTrue(local.stdout().contains("test-data/sample0.txt:13:Email addresses"));
+        assertEquals(local.stdout(), remote.stdout());
+        assertEquals("", remote.stderr());
+    }
+
+    @Test
+    void testQueryPathsAreRelativeToTheWorkingDirectoryOfTheClient() throws IOException {
+        String socket = start(tempDir.resolve("grep.sock").toString());
+        Path patternFile = tempDir.resolve("patterns.txt");
+        Files.writeString(patternFile, "addresses\n");
+
+        Output remote = query(socket, Path.of("test-data").toAbsolutePath(), "-f", patternFile.toString(), ".");
+        Output files = query(socket, tempDir, "-l", "-e", "addresses", Path.of("test-data").toAbsolutePath().toString());
+
+        assertEquals("./sample0.txt:13:Email addresses like test@example.com should be searchable." + System.lineSeparator()
+                + "Found match(es) in : 1 lines" + System.lineSeparator(), remote.stdout());
+        assertTrue(files.stdout().startsWith(Path.of("test-data").toAbsolutePath().resolve("sample0.txt") + System.lineSeparator()));
+    }
+
+    @Test
+    void testQueryExitStatusAndErrorsAreSentBack() throws IOException {
+        String socket = start(tempDir.resolve("grep.sock").toString());
+        Path workingDirectory = Path.of("").toAbsolutePath();
+
+        assertEquals(0, query(socket, workingDirectory, "-q", "test-data", "hello").status);
+        Output notFound = query(socket, workingDirectory, "-q", "test-data", "no such text anywhere");
+        assertEquals(1, notFound.status);
+        assertEquals("", notFound.stdout());
+
+        Output invalid = query(socket, workingDirectory, "--bogus", "test-data", "hello");
+        assertEquals(1, invalid.status);
+        assertTrue(invalid.stderr().startsWith("Error: Unknown option: --bogus"));
+
+        Output nested = query(socket, workingDirectory, "--serve", tempDir.resolve("other.sock").toString());
+        assertEquals(1, nested.status);
+        assertFalse(Files.exists(tempDir.resolve("other.sock")));
+
+        Output watch = query(socket, workingDirectory, "--watch", "test-data", "hello");
+        assertEquals(1, watch.status);
+        assertTrue(watch.stderr().startsWith("Error: A search server cannot watch directories"));
+
+        Output index = query(socket, workingDirectory, "--build-index", tempDir.resolve("index").toString(), "test-data");
+        assertEquals(1, index.status);
+        assertTrue(index.stderr().startsWith("Error: A search server cannot write files"));
+        assertFalse(Files.exists(tempDir.resolve("index")));
+        Output stats = query(socket, workingDirectory, "--stats-json", tempDir.resolve("stats.json").toString(), "test-data", "hello");
+        assertEquals(1, stats.status);
+        assertFalse(Files.exists(tempDir.resolve("stats.json")));
+    }
+
+    @Test
+    void testTcpPortNeedsTheSharedSecret() throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> new SearchServer("0", null, ExecutionMode.FIXED, 2));
+        String port = start("0", "s3cret");
+        Path workingDirectory = Path.of("").toAbsolutePath();
+
+        Output wrong = query(port, "guess", workingDirectory, "test-data", "hello");
+        assertEquals(1, wrong.status);
+        assertEquals("", wrong.stdout());
+        assertTrue(wrong.stderr().startsWith("Error: The search server did not accept the secret"));
+        assertEquals(1, query(port, workingDirectory, "test-data", "hello").status);
+        assertEquals(0, query(port, "s3cret", workingDirectory, "-q", "test-data", "hello").status);
+    }
+
+    @Test
+    void testSocketIsOnlyAccessibleToTheOwner() throws IOException {
+        Path socket = tempDir.resolve("grep.sock");
+        start(socket.toString());
+
+        assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(socket));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(List.of(socket), files.toList());
+        }
+        assertEquals(0, query(socket.toString(), Path.of("").toAbsolutePath(), "-q", "test-data", "hello").status);
+    }
+
+    @Test
+    void testRequestWithTooManyArgumentsIsRejected() throws IOException {
+        String socket = start(tempDir.resolve("grep.sock").toString());
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+             DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel))) {
+            out.writeInt(SearchProtocol.VERSION);
+            out.writeUTF("");
+            out.writeUTF(tempDir.toString());
+            out.writeInt(Integer.MAX_VALUE);
+            out.flush();
+            assertEquals(-1, Channels.newInputStream(channel).read());
+        }
+        assertEquals(0, query(socket, Path.of("").toAbsolutePath(), "-q", "test-data", "hello").status);
+    }
+
+    @Test
+    void testConcurrentQueriesOverTcpShareTheServer() throws Exception {
+        String port = start("0", "s3cret");
+        assertNotEquals("0", port);
+        Path workingDirectory = Path.of("").toAbsolutePath();
+        String expected = query(port, "s3cret", workingDirectory, "test-data", "hello").stdout();
+
+        ExecutorService clients = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Output>> outputs = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                outputs.add(clients.submit(() -> query(port, "s3cret", workingDirectory, "test-data", "hello")));
+            }
+            for (Future<Output> output : outputs) {
+                assertEquals(0, output.get().status);
+                assertEquals(expected, output.get().stdout());
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    @Test
+    void testStaleSocketIsReplacedButOtherFilesAreNot() throws IOException {
+        Path socket = tempDir.resolve("grep.sock");
+        try (ServerSocketChannel crashed = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            crashed.bind(UnixDomainSocketAddress.of(socket));
+        }
+        assertTrue(Files.exists(socket));
+        start(socket.toString());
+        assertEquals(0, query(socket.toString(), Path.of("").toAbsolutePath(), "-q", "test-data", "hello").status);
+        assertThrows(IOException.class, () -> new SearchServer(socket.toString(), null, ExecutionMode.FIXED, 2));
+
+        Path regularFile = tempDir.resolve("notes.txt");
+        Files.writeString(regularFile, "keep me");
+        assertThrows(IOException.class, () -> new SearchServer(regularFile.toString(), null, ExecutionMode.FIXED, 2));
+        assertEquals("keep me", Files.readString(regularFile));
+    }
+
+    @Test
+    void testClientReportsAServerThatIsNotRunning() {
+        Output output = query(tempDir.resolve("missing.sock").toString(), tempDir, "test-data", "hello");
+        assertEquals(1, output.status);
+        assertTrue(output.stderr().startsWith("Error: Could not reach the search server"));
+    }
+
+    /**
+     * Starts a server with two threads on a background thread.
+     *
+     * @return the address to connect to
+     */
+    private String start(String address) throws IOException {
+        return start(address, null);
+    }
+
+    /**
+     * Starts a server with two threads and the given secret on a background thread.
+     *
+     * @return the address to connect to
+     */
+    private String start(String address, String secret) throws IOException {
+        server = new SearchServer(address, secret, ExecutionMode.FIXED, 2);
+        Thread acceptor = new Thread(() -> {
+            try {
+                server.run();
+            } catch (IOException e) {
+                // closed by the test
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return server.getAddress() instanceof InetSocketAddress inetAddress
+                ? String.valueOf(inetAddress.getPort())
+                : address;
+    }
+
+    private static Output query(String address, Path workingDirectory, String... args) {
+        return query(address, null, workingDirectory, args);
+    }
+
+    private static Output query(String address, String secret, Path workingDirectory, String... args) {
+        Output output = new Output();
+        output.status = SearchClient.run(address, secret, args, workingDirectory, output.out, output.err);
+        return output;
+    }
+
+    private static final class Output {
+        private final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        private final PrintStream out = new PrintStream(stdout, true, StandardCharsets.UTF_8);
+        private final PrintStream err = new PrintStream(stderr, true, StandardCharsets.UTF_8);
+        private int status;
+
+        private String stdout() {
+            return stdout.toString(StandardCharsets.UTF_8);
+        }
+
+        private String stderr() {
+            return stderr.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.coding.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.coding.core.RandomStrings.randomString;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AhoCorasickPatternMatcherTest {
+    private AhoCorasickPatternMatcher ahoCorasickPatternMatcher;
+
+    @Test
+    void testMatcherMatchesAnyPatternCaseInsensitively() {
+        ahoCorasickPatternMatcher = new AhoCorasickPatternMatcher(List.of("ERR-1001", "timeout", "customer 42"));
+        assertTrue(ahoCorasickPatternMatcher.match("got err-1001 from upstream"));
+        assertTrue(ahoCorasickPatternMatcher.match("read TIMEOUT"));
+        assertTrue(ahoCorasickPatternMatcher.match("Customer 42 logged in"));
+        assertFalse(ahoCorasickPatternMatcher.match("customer 43 logged in"));
+    }
+
+    @Test
+    void testMatchingPatternsReportsEveryPatternInGivenOrder() {
+        ahoCorasickPatternMatcher = new AhoCorasickPatternMatcher(List.of("he", "she", "his", "hers"));
+        assertEquals(List.of("he", "she", "hers"), ahoCorasickPatternMatcher.matchingPatterns("USHERS"));
+        assertEquals(List.of("his"), ahoCorasickPatternMatcher.matchingPatterns("this"));
+        assertEquals(List.of(), ahoCorasickPatternMatcher.matchingPatterns("nothing"));
+    }
+
+    @Test
+    void testMatcherAgreesWithHorspoolPatternMatcherForEachPattern() {
+        Random random = new Random(11);
+        String alphabet = "abcAB";
+        for (int run = 0; run < 500; run++) {
+            String[] patterns = new String[1 + random.nextInt(5)];
+            for (int i = 0; i < patterns.length; i++) {
+                patterns[i] = randomString(random, alphabet, 1 + random.nextInt(4));
+            }
+            ahoCorasickPatternMatcher = new AhoCorasickPatternMatcher(Arrays.asList(patterns));
+            String line = randomString(random, alphabet, random.nextInt(30));
+            List<String> expected = ahoCorasickPatternMatcher.getSearchStrings().stream()
+                    .filter(pattern -> new HorspoolPatternMatcher(pattern).match(line))
+                    .toList();
+            assertEquals(expected, ahoCorasickPatternMatcher.matchingPatterns(line), "line '" + line + "'");
+            assertEquals(!expected.isEmpty(), ahoCorasickPatternMatcher.match(line));
+        }
+    }
+
+    @Test
+    void testMatcherFoldsNonAsciiCharacters() {
+        ahoCorasickPatternMatcher = new AhoCorasickPatternMatcher(List.of("école", "ΣΟΦΊΑ"));
+        assertEquals(List.of("école", "ΣΟΦΊΑ"), ahoCorasickPatternMatcher.matchingPatterns("ÉCOLE de σοφία"));
+    }
+
+    @Test
+    void testMatcherIgnoresNullBlankAndDuplicatePatterns() {
+        ahoCorasickPatternMatcher = new AhoCorasickPatternMatcher(Arrays.asList("hello", null, " ", "hello"));
+        assertEquals(List.of("hello"), ahoCorasickPatternMatcher.getSearchStrings());
+        assertFalse(new AhoCorasickPatternMatcher(null).match("hello"));
+        assertFalse(ahoCorasickPatternMatcher.match(null));
+    }
+
+    @Test
+    void testMatcherFindsCandidateInBytes() {
+        ahoCorasickPatternMatcher = new AhoCorasickPatternMatcher(List.of("WORLD", "café"));
+        ByteBuffer bytes = ByteBuffer.wrap("hello world, un CAFÉ".getBytes(StandardCharsets.UTF_8));
+        assertEquals(10, ahoCorasickPatternMatcher.indexIn(bytes, 0, bytes.limit()));
+        assertEquals(18, ahoCorasickPatternMatcher.indexIn(bytes, 11, bytes.limit()));
+        assertEquals(-1, ahoCorasickPatternMatcher.indexIn(bytes, 0, 5));
+    }
+
+    @Test
+    void testCountOccurrencesCountsEveryPatternWithoutOverlap() {
+        ahoCorasickPatternMatcher = new AhoCorasickPatternMatcher(List.of("foo", "bar"));
+        assertEquals(4, ahoCorasickPatternMatcher.countOccurrences("FOO bar foobar"));
+        assertEquals(0, ahoCorasickPatternMatcher.countOccurrences("baz"));
+        assertEquals(1, new AhoCorasickPatternMatcher(List.of("he", "she")).countOccurrences("she"));
+        assertEquals(2, new AhoCorasickPatternMatcher(List.of("aa")).countOccurrences("aaaaa"));
+    }
+
+    @Test
+    void testOccurrenceEndIsOnlyKnownForAsciiPatterns() {
+        assertEquals(4, new AhoCorasickPatternMatcher(List.of("foo", "bar")).occurrenceEnd(3));
+        assertEquals(-1, new AhoCorasickPatternMatcher(List.of("foo", "café")).occurrenceEnd(3));
+    }
+}
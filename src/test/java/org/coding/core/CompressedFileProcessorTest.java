@@ -0,0 +1,261 @@
+package org.coding.core;
+
+import org.coding.model.SearchResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedFileProcessorTest {
+    private static final PatternMatcher MATCHER = new HorspoolPatternMatcher("needle");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testProcessFileSearchesGzipFile() throws IOException {
+        String text = lines(0, 5000);
+        Path file = tempDir.resolve("log.txt.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+
+        List<SearchResult> results = new CompressedFileProcessor().processFile(file, MATCHER);
+        assertEquals(expected(file, text), results);
+        assertEquals(500, results.size());
+    }
+
+    @Test
+    void testProcessFileInflatesMembersInParallel() throws IOException {
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            // members end in the middle of a line, except the last one
+            String part = lines(i * 37, 37) + (i < 39 ? "half a needle " : "");
+            text.append(part);
+            gzip.write(member(part, null, false));
+        }
+        Path file = tempDir.resolve("concatenated.txt.gz");
+        Files.write(file, gzip.toByteArray());
+
+        CompressedFileProcessor processor = new CompressedFileProcessor(new MappedFileProcessor(), name -> true, 256, new ForkJoinPool(3));
+        assertTrue(GzipMembers.ranges(map(file), 256).size() > 10);
+        assertEquals(expected(file, text.toString()), processor.processFile(file, MATCHER));
+    }
+
+    @Test
+    void testProcessFileSplitsBgzfFileAtBlocks() throws IOException {
+        String text = lines(0, 3000);
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        for (int offset = 0; offset < bytes.length; offset += 1000) {
+            gzip.write(member(new String(bytes, offset, Math.min(1000, bytes.length - offset), StandardCharsets.ISO_8859_1), null, true));
+        }
+        gzip.write(member("", null, true));
+        Path file = tempDir.resolve("blocks.txt.gz");
+        Files.write(file, gzip.toByteArray());
+
+        List<Integer> ranges = GzipMembers.ranges(map(file), 2048);
+        assertTrue(ranges.size() > 5);
+        for (int i = 0; i + 1 < ranges.size(); i++) {
+            assertNotNull(GzipMembers.inflateRange(map(file), ranges.get(i), ranges.get(i + 1)));
+        }
+        CompressedFileProcessor processor = new CompressedFileProcessor(new MappedFileProcessor(), name -> true, 2048, new ForkJoinPool(2));
+        assertEquals(expected(file, text), processor.processFile(file, MATCHER));
+    }
+
+    @Test
+    void testProcessFileFallsBackToSequentialInflateAtFalseMemberStarts() throws IOException {
+        // a file name that looks like a member header, so that some splits guess a member start inside a member
+        String fakeHeader = new String(new byte[]{0x1f, (byte) 0x8b, 8, 8, 1, 1, 1, 1, 2, 3}, StandardCharsets.ISO_8859_1);
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 6; i++) {
+            String part = lines(i * 20, 20);
+            text.append(part);
+            gzip.write(member(part, fakeHeader + fakeHeader, false));
+        }
+        Path file = tempDir.resolve("names.txt.gz");
+        Files.write(file, gzip.toByteArray());
+
+        List<SearchResult> expected = expected(file, text.toString());
+        for (int rangeSize = 8; rangeSize <= gzip.size() / 2; rangeSize += 7) {
+            CompressedFileProcessor processor = new CompressedFileProcessor(new MappedFileProcessor(), name -> true, rangeSize, ForkJoinPool.commonPool());
+            assertEquals(expected, processor.processFile(file, MATCHER), "range size " + rangeSize);
+        }
+    }
+
+    @Test
+    void testProcessFileSearchesSelectedZipEntries() throws IOException {
+        Path file = tempDir.resolve("logs.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(file))) {
+            zip.putNextEntry(new ZipEntry("2024/"));
+            zip.putNextEntry(new ZipEntry("2024/app.txt"));
+            zip.write("first\na needle\n".getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry("image.bin"));
+            zip.write("needle".getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry("b.txt"));
+            zip.write("needle without line break".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals(List.of(new SearchResult(file.resolve("2024/app.txt"), 2, "a needle"),
+                        new SearchResult(file.resolve("b.txt"), 1, "needle without line break")),
+                new CompressedFileProcessor().processFile(file, MATCHER));
+        assertEquals(List.of(new SearchResult(file.resolve("2024/app.txt"), 2, "a needle")),
+                new CompressedFileProcessor().processFile(file, MATCHER, new ProcessingContext(1, () -> false)));
+    }
+
+    @Test
+    void testProcessFileStopsAtMaxResultsOrWhenCancelled() throws IOException {
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            String part = lines(i * 50, 50);
+            text.append(part);
+            gzip.write(member(part, null, false));
+        }
+        Path file = tempDir.resolve("limited.txt.gz");
+        Files.write(file, gzip.toByteArray());
+
+        for (int rangeSize : new int[]{100, CompressedFileProcessor.DEFAULT_RANGE_SIZE}) {
+            CompressedFileProcessor processor = new CompressedFileProcessor(new MappedFileProcessor(), name -> true, rangeSize, ForkJoinPool.commonPool());
+            assertEquals(expected(file, text.toString()).subList(0, 3), processor.processFile(file, MATCHER, new ProcessingContext(3, () -> false)));
+            assertTrue(processor.processFile(file, MATCHER, new ProcessingContext(3, () -> true)).isEmpty());
+        }
+    }
+
+    @Test
+    void testCountMatchesCountsGzipFilesAndZipArchives() throws IOException {
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        for (int i = 0; i < 20; i++) {
+            // members end in the middle of a line, except the last one
+            gzip.write(member(lines(i * 50, 50) + (i < 19 ? "needle needle " : ""), null, false));
+        }
+        Path file = tempDir.resolve("count.txt.gz");
+        Files.write(file, gzip.toByteArray());
+        Path zipFile = tempDir.resolve("count.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(zipFile))) {
+            zip.putNextEntry(new ZipEntry("a.txt"));
+            zip.write("a needle\nno line break needle".getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry("b.txt"));
+            zip.write("needle and needle\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        for (int rangeSize : new int[]{100, CompressedFileProcessor.DEFAULT_RANGE_SIZE}) {
+            CompressedFileProcessor processor = new CompressedFileProcessor(new MappedFileProcessor(), name -> true, rangeSize, ForkJoinPool.commonPool());
+            assertEquals(100, processor.countMatches(file, MATCHER, ProcessingContext.UNLIMITED, CountMode.LINES));
+            assertEquals(138, processor.countMatches(file, MATCHER, ProcessingContext.UNLIMITED, CountMode.OCCURRENCES));
+            assertEquals(7, processor.countMatches(file, MATCHER, new ProcessingContext(7, () -> false), CountMode.LINES));
+        }
+        assertEquals(3, new CompressedFileProcessor().countMatches(zipFile, MATCHER, ProcessingContext.UNLIMITED, CountMode.LINES));
+        assertEquals(4, new CompressedFileProcessor().countMatches(zipFile, MATCHER, ProcessingContext.UNLIMITED, CountMode.OCCURRENCES));
+        assertEquals(2, new CompressedFileProcessor().countMatches(zipFile, MATCHER, new ProcessingContext(2, () -> false), CountMode.LINES));
+    }
+
+    @Test
+    void testProcessFileWhenFileIsNotCompressedDelegatesOrWarns() throws IOException {
+        Path plain = tempDir.resolve("plain.txt");
+        Files.writeString(plain, "a needle\n");
+        assertEquals(List.of(new SearchResult(plain, 1, "a needle")), new CompressedFileProcessor().processFile(plain, MATCHER));
+
+        Path fake = tempDir.resolve("fake.txt.gz");
+        Files.writeString(fake, "a needle\n");
+        assertTrue(new CompressedFileProcessor().processFile(fake, MATCHER).isEmpty());
+        assertTrue(new CompressedFileProcessor().processFile(null, MATCHER).isEmpty());
+        assertTrue(CompressedFileProcessor.isCompressed(Path.of("a.TXT.GZ")));
+        assertFalse(CompressedFileProcessor.isCompressed(Path.of("a.txt")));
+    }
+
+    /**
+     * Lines numbered from {@code first}, every tenth of which contains the needle.
+     */
+    private static String lines(int first, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = first; i < first + count; i++) {
+            text.append("line ").append(i).append(i % 10 == 0 ? " has a needle" : " has nothing").append('\n');
+        }
+        return text.toString();
+    }
+
+    private List<SearchResult> expected(Path file, String text) throws IOException {
+        Path plain = Files.writeString(tempDir.resolve("expected.txt"), text);
+        List<SearchResult> results = new ArrayList<>();
+        for (SearchResult result : new MappedFileProcessor().processFile(plain, MATCHER)) {
+            results.add(new SearchResult(file, result.getLineNumber(), result.getLineContent()));
+        }
+        return results;
+    }
+
+    private static ByteBuffer map(Path file) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(file));
+    }
+
+    /**
+     * Writes a gzip member, with a file name or as a BGZF block if asked to.
+     */
+    private static byte[] member(String text, String name, boolean bgzf) throws IOException {
+        byte[] data = text.getBytes(StandardCharsets.ISO_8859_1);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        while (!deflater.finished()) {
+            compressed.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        ByteArrayOutputStream member = new ByteArrayOutputStream();
+        int flags = (bgzf ? 4 : 0) | (name != null ? 8 : 0);
+        member.write(new byte[]{0x1f, (byte) 0x8b, 8, (byte) flags, 0, 0, 0, 0, 0, 3});
+        if (bgzf) {
+            int blockSize = 10 + 8 + compressed.size() + 8;
+            member.write(new byte[]{6, 0, 'B', 'C', 2, 0, (byte) (blockSize - 1), (byte) ((blockSize - 1) >> 8)});
+        }
+        if (name != null) {
+            member.write(name.getBytes(StandardCharsets.ISO_8859_1));
+            member.write(0);
+        }
+        compressed.writeTo(member);
+        member.write(ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putInt((int) crc.getValue()).putInt(data.length).array());
+        return member.toByteArray();
+    }
+
+    @Test
+    void testProcessFileAddsContextLinesOfDecompressedText() throws IOException {
+        String text = MappedFileProcessorTest.contextText();
+        Path file = tempDir.resolve("context.txt.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        Path plain = Files.writeString(tempDir.resolve("context.txt"), text);
+        PatternMatcher matcher = new HorspoolPatternMatcher("hello");
+        ProcessingContext context = new ProcessingContext(Integer.MAX_VALUE, () -> false, null, 3, 2);
+
+        List<SearchResult> expected = new ArrayList<>();
+        for (SearchResult result : new SequentialFileProcessor().processFile(plain, matcher, context)) {
+            expected.add(new SearchResult(file, result.getLineNumber(), result.getLineContent(), result.getMatchedPatterns(),
+                    result.getContextBefore(), result.getContextAfter()));
+        }
+        assertEquals(expected, new CompressedFileProcessor().processFile(file, matcher, context));
+    }
+}
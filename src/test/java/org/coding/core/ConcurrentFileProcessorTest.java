@@ -0,0 +1,163 @@
+package org.coding.core;
+
+import org.coding.model.SearchResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentFileProcessorTest {
+    private ConcurrentFileProcessor concurrentFileProcessor;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testProcessFileMatchesSequentialFileProcessorForEveryChunkSize() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            content.append(i % 7 == 0 ? "line " + i + " says hello" : "line " + i)
+                    .append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        content.append("héllo and hello without a line break");
+        Path file = tempDir.resolve("large.txt");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        StringPatternMatcher matcher = new StringPatternMatcher("HELLO");
+
+        List<SearchResult> expected = new SequentialFileProcessor().processFile(file, matcher);
+        assertEquals(30, expected.size());
+        for (int chunkSize : new int[]{1, 7, 64, 500, 4096}) {
+            concurrentFileProcessor = new ConcurrentFileProcessor(new SequentialFileProcessor(), 0, chunkSize, ForkJoinPool.commonPool());
+            assertEquals(expected, concurrentFileProcessor.processFile(file, matcher), "chunk size " + chunkSize);
+        }
+    }
+
+    @Test
+    void testProcessFileStopsAtMaxResultsAcrossChunks() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            content.append(i % 10 == 0 ? "hello " + i : "line " + i).append('\n');
+        }
+        Path file = tempDir.resolve("limited.txt");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        StringPatternMatcher matcher = new StringPatternMatcher("hello");
+        List<SearchResult> expected = new SequentialFileProcessor().processFile(file, matcher).subList(0, 4);
+
+        for (int chunkSize = 1; chunkSize < 200; chunkSize += 17) {
+            concurrentFileProcessor = new ConcurrentFileProcessor(new MappedFileProcessor(), 0, chunkSize, ForkJoinPool.commonPool());
+            assertEquals(expected, concurrentFileProcessor.processFile(file, matcher, new ProcessingContext(4, () -> false)), "chunk size " + chunkSize);
+        }
+    }
+
+    @Test
+    void testCountMatchesAddsUpChunksForEveryChunkSize() throws IOException {
+        Path file = tempDir.resolve("count.txt");
+        Files.writeString(file, MappedFileProcessorTest.contextText(), StandardCharsets.UTF_8);
+
+        for (PatternMatcher matcher : MappedFileProcessorTest.countingMatchers()) {
+            FileProcessor sequential = new SequentialFileProcessor();
+            long lines = sequential.countMatches(file, matcher, ProcessingContext.UNLIMITED, CountMode.LINES);
+            long occurrences = sequential.countMatches(file, matcher, ProcessingContext.UNLIMITED, CountMode.OCCURRENCES);
+            for (int chunkSize : new int[]{1, 7, 64, 500, 4096}) {
+                concurrentFileProcessor = new ConcurrentFileProcessor(new MappedFileProcessor(), 0, chunkSize, ForkJoinPool.commonPool());
+                assertEquals(lines, concurrentFileProcessor.countMatches(file, matcher, ProcessingContext.UNLIMITED, CountMode.LINES),
+                        matcher + ", chunk size " + chunkSize);
+                assertEquals(occurrences, concurrentFileProcessor.countMatches(file, matcher, ProcessingContext.UNLIMITED, CountMode.OCCURRENCES),
+                        matcher + ", chunk size " + chunkSize);
+                assertEquals(3, concurrentFileProcessor.countMatches(file, matcher, new ProcessingContext(3, () -> false), CountMode.LINES));
+            }
+        }
+    }
+
+    @Test
+    void testProcessFileBelowThresholdUsesSmallFileProcessor() throws URISyntaxException {
+        Path path = Paths.get(getClass().getClassLoader().getResource("unit-test/sample.txt").toURI());
+        FileProcessor smallFileProcessor = (filePath, patternMatcher) -> List.of(new SearchResult(filePath, 1, "delegated"));
+        concurrentFileProcessor = new ConcurrentFileProcessor(smallFileProcessor, Long.MAX_VALUE, 16, ForkJoinPool.commonPool());
+
+        List<SearchResult> results = concurrentFileProcessor.processFile(path, new StringPatternMatcher("hello"));
+        assertEquals(List.of(new SearchResult(path, 1, "delegated")), results);
+    }
+
+    @Test
+    void testProcessFileWithDefaultsMatchesSequentialFileProcessor() throws URISyntaxException {
+        Path path = Paths.get(getClass().getClassLoader().getResource("unit-test/sample.txt").toURI());
+        StringPatternMatcher matcher = new StringPatternMatcher("line");
+        concurrentFileProcessor = new ConcurrentFileProcessor();
+        assertEquals(new SequentialFileProcessor().processFile(path, matcher), concurrentFileProcessor.processFile(path, matcher));
+    }
+
+    @Test
+    void testProcessFileNullArgumentsReturnEmptyList() throws URISyntaxException {
+        concurrentFileProcessor = new ConcurrentFileProcessor();
+        Path path = Paths.get(getClass().getClassLoader().getResource("unit-test/sample.txt").toURI());
+        assertTrue(concurrentFileProcessor.processFile(null, new StringPatternMatcher("hello")).isEmpty());
+        assertTrue(concurrentFileProcessor.processFile(path, null).isEmpty());
+    }
+
+    @Test
+    void testConstructorRejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentFileProcessor(null, 0, 16, ForkJoinPool.commonPool()));
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentFileProcessor(new MappedFileProcessor(), 0, 0, ForkJoinPool.commonPool()));
+    }
+
+    @Test
+    void testContextLinesMatchSequentialFileProcessorAcrossChunks() throws IOException {
+        Path file = tempDir.resolve("context.txt");
+        Files.writeString(file, MappedFileProcessorTest.contextText(), StandardCharsets.UTF_8);
+        StringPatternMatcher matcher = new StringPatternMatcher("hello");
+
+        for (int[] lines : new int[][]{{0, 2}, {2, 0}, {3, 3}, {1, 5}}) {
+            ProcessingContext context = new ProcessingContext(Integer.MAX_VALUE, () -> false, null, lines[0], lines[1]);
+            List<SearchResult> expected = new SequentialFileProcessor().processFile(file, matcher, context);
+            for (int chunkSize : new int[]{1, 7, 64, 500, 4096}) {
+                concurrentFileProcessor = new ConcurrentFileProcessor(new MappedFileProcessor(), 0, chunkSize, ForkJoinPool.commonPool());
+                assertEquals(expected, concurrentFileProcessor.processFile(file, matcher, context),
+                        "chunk size " + chunkSize + ", context " + lines[0] + "/" + lines[1]);
+            }
+        }
+    }
+
+    @Test
+    void testLargeBinaryFileIsSkippedBeforeItIsSplit() throws IOException {
+        Path file = tempDir.resolve("binary.txt");
+        Files.write(file, ("hello\0\1\2 binary\n" + "hello text\n".repeat(100)).getBytes(StandardCharsets.ISO_8859_1));
+        StringPatternMatcher matcher = new StringPatternMatcher("hello");
+        concurrentFileProcessor = new ConcurrentFileProcessor(new SequentialFileProcessor(), 0, 64, ForkJoinPool.commonPool());
+
+        assertTrue(concurrentFileProcessor.processFile(file, matcher).isEmpty());
+        assertEquals(0, concurrentFileProcessor.countMatches(file, matcher, ProcessingContext.UNLIMITED, CountMode.LINES));
+    }
+
+    @Test
+    void testNonUtf8FileMatchesSequentialFileProcessorAcrossChunks() throws IOException {
+        Path file = tempDir.resolve("latin1.txt");
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            text.append(i % 3 == 0 ? "caf\u00e9 number " + i : "r\u00e9sum\u00e9 line " + i).append('\n');
+        }
+        Files.write(file, text.toString().getBytes(StandardCharsets.ISO_8859_1));
+        HorspoolPatternMatcher matcher = new HorspoolPatternMatcher("caf\u00e9");
+        ProcessingContext context = new ProcessingContext(Integer.MAX_VALUE, () -> false, null, 1, 1);
+
+        List<SearchResult> expected = new SequentialFileProcessor().processFile(file, matcher, context);
+        assertEquals(14, expected.size());
+        assertEquals("caf\u00e9 number 0", expected.get(0).getLineContent());
+        for (int chunkSize : new int[]{1, 64, 500, 4096}) {
+            concurrentFileProcessor = new ConcurrentFileProcessor(new MappedFileProcessor(0, 256), 0, chunkSize, ForkJoinPool.commonPool());
+            assertEquals(expected, concurrentFileProcessor.processFile(file, matcher, context), "chunk size " + chunkSize);
+            assertEquals(expected.size(), concurrentFileProcessor.countMatches(file, matcher, ProcessingContext.UNLIMITED, CountMode.LINES),
+                    "chunk size " + chunkSize);
+        }
+        assertEquals(expected, new MappedFileProcessor().processFile(file, matcher, context));
+    }
+}
@@ -0,0 +1,121 @@
+package org.coding.core;
+
+import org.coding.model.SearchResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileTailTest {
+    private final PatternMatcher matcher = new HorspoolPatternMatcher("error");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testScanReadsOnlyWhatWasAppended() throws IOException {
+        Path log = tempDir.resolve("app.log");
+        Files.writeString(log, "error one\nfine\n");
+        FileTail tail = new FileTail(log);
+
+        assertEquals(List.of("1:error one"), scan(tail));
+        assertEquals(15, tail.getOffset());
+        assertEquals(List.of(), scan(tail));
+
+        append(log, "fine\r\nERROR two\nfine\n");
+        assertEquals(List.of("4:ERROR two"), scan(tail));
+        assertEquals(6, tail.getLineNumber());
+    }
+
+    @Test
+    void testScanDecodesLatin1Files() throws IOException {
+        Path log = tempDir.resolve("app.log");
+        Files.write(log, "caf\u00e9 error\n".getBytes(StandardCharsets.ISO_8859_1));
+        FileTail tail = new FileTail(log);
+
+        assertEquals(List.of("1:caf\u00e9 error"), scan(tail));
+        Files.write(log, "d\u00e9j\u00e0 error\n".getBytes(StandardCharsets.ISO_8859_1), StandardOpenOption.APPEND);
+        assertEquals(List.of("2:d\u00e9j\u00e0 error"), scan(tail));
+    }
+
+    @Test
+    void testScanLeavesAnIncompleteLastLineForLater() throws IOException {
+        Path log = tempDir.resolve("app.log");
+        Files.writeString(log, "fine\nerror thr");
+        FileTail tail = new FileTail(log);
+
+        assertEquals(List.of(), scan(tail));
+        assertEquals(5, tail.getOffset());
+        append(log, "ee\nerror four\n");
+        assertEquals(List.of("2:error three", "3:error four"), scan(tail));
+    }
+
+    @Test
+    void testScanStartsAgainWhenTheFileWasTruncatedOrReplaced() throws IOException {
+        Path log = tempDir.resolve("app.log");
+        Files.writeString(log, "fine\nfine\nerror one\n");
+        FileTail tail = new FileTail(log);
+        assertEquals(List.of("3:error one"), scan(tail));
+
+        Files.writeString(log, "error two\n");
+        assertEquals(List.of("1:error two"), scan(tail));
+
+        Files.move(log, tempDir.resolve("app.log.1"));
+        Files.writeString(log, "error three\nerror four\n");
+        assertEquals(List.of("1:error three", "2:error four"), scan(tail));
+    }
+
+    @Test
+    void testMovedTailGoesOnWhereItStopped() throws IOException {
+        Path log = tempDir.resolve("app.log");
+        Files.writeString(log, "error one\n");
+        FileTail tail = new FileTail(log);
+        scan(tail);
+
+        Path rotated = tempDir.resolve("app.log.1");
+        Files.move(log, rotated);
+        append(rotated, "error two\n");
+        FileTail moved = tail.movedTo(rotated);
+
+        assertEquals(rotated, moved.getFilePath());
+        List<SearchResult> results = moved.scan(matcher, ProcessingContext.UNLIMITED);
+        assertEquals(1, results.size());
+        assertEquals(rotated, results.get(0).getFilePath());
+        assertEquals(2, results.get(0).getLineNumber());
+    }
+
+    @Test
+    void testScanOfLinesLongerThanTheReadBuffer() throws IOException {
+        Path log = tempDir.resolve("app.log");
+        String longLine = "x".repeat(3 * 1024 * 1024) + " error";
+        Files.writeString(log, "fine\n" + longLine + "\nerror end\n");
+
+        List<SearchResult> results = new FileTail(log).scan(matcher, ProcessingContext.UNLIMITED);
+        assertEquals(2, results.size());
+        assertEquals(longLine, results.get(0).getLineContent());
+        assertEquals(3, results.get(1).getLineNumber());
+    }
+
+    @Test
+    void testScanOfMissingFileReturnsNoResults() {
+        assertTrue(new FileTail(tempDir.resolve("missing.log")).scan(matcher, ProcessingContext.UNLIMITED).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> new FileTail(null));
+    }
+
+    private List<String> scan(FileTail tail) {
+        return tail.scan(matcher, ProcessingContext.UNLIMITED).stream()
+                .map(result -> result.getLineNumber() + ":" + result.getLineContent())
+                .toList();
+    }
+
+    private static void append(Path file, String text) throws IOException {
+        Files.writeString(file, text, StandardOpenOption.APPEND);
+    }
+}
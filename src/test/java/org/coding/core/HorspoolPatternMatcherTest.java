@@ -0,0 +1,103 @@
+package org.coding.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import static org.coding.core.RandomStrings.randomString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HorspoolPatternMatcherTest {
+    private HorspoolPatternMatcher horspoolPatternMatcher;
+
+    @Test
+    void testMatcherIsCaseInsensitive() {
+        horspoolPatternMatcher = new HorspoolPatternMatcher("hello");
+        List.of("HELLO", "hello", "heLLo", "say Hello!").forEach(test -> assertTrue(horspoolPatternMatcher.match(test)));
+        assertFalse(horspoolPatternMatcher.match("help"));
+    }
+
+    @Test
+    void testMatcherCanMatchWithTrailingSpacesAndSpecialCharacters() {
+        horspoolPatternMatcher = new HorspoolPatternMatcher("hello   ");
+        assertFalse(horspoolPatternMatcher.match("this string has whitespace, hello world"));
+        assertTrue(horspoolPatternMatcher.match("this string has whitespace, hello   world"));
+        assertTrue(new HorspoolPatternMatcher("hello\tworld").match("tab, hello\tWORLD"));
+        assertTrue(new HorspoolPatternMatcher("hello\"world").match("quote, HELLO\"world"));
+    }
+
+    @Test
+    void testMatcherFoldsNonAsciiCharacters() {
+        horspoolPatternMatcher = new HorspoolPatternMatcher("ÉCOLE");
+        assertTrue(horspoolPatternMatcher.match("une école primaire"));
+        assertTrue(new HorspoolPatternMatcher("straße").match("STRAẞE"));
+        assertTrue(new HorspoolPatternMatcher("σοφία").match("ΣΟΦΊΑ"));
+        assertFalse(horspoolPatternMatcher.match("une ecole primaire"));
+    }
+
+    @Test
+    void testMatcherAgreesWithStringPatternMatcherOnAsciiText() {
+        Random random = new Random(42);
+        String alphabet = "abAB c";
+        for (int run = 0; run < 2000; run++) {
+            String pattern = randomString(random, alphabet, 1 + random.nextInt(4)).trim();
+            if (pattern.isEmpty()) {
+                continue;
+            }
+            String line = randomString(random, alphabet, random.nextInt(20));
+            assertEquals(new StringPatternMatcher(pattern).match(line), new HorspoolPatternMatcher(pattern).match(line),
+                    "pattern '" + pattern + "' line '" + line + "'");
+        }
+    }
+
+    @Test
+    void testMatcherWithNullOrBlankInputReturnsFalse() {
+        assertFalse(new HorspoolPatternMatcher(null).match("hello"));
+        assertFalse(new HorspoolPatternMatcher("  ").match("hello  world"));
+        assertFalse(new HorspoolPatternMatcher("hello").match(null));
+        assertFalse(new HorspoolPatternMatcher("hello").match(""));
+        assertFalse(new HorspoolPatternMatcher("hello").match("hell"));
+    }
+
+    @Test
+    void testMatcherFindsCaseInsensitiveCandidateInBytes() {
+        horspoolPatternMatcher = new HorspoolPatternMatcher("WORLD");
+        ByteBuffer bytes = ByteBuffer.wrap("hello world".getBytes(StandardCharsets.UTF_8));
+        assertEquals(6, horspoolPatternMatcher.indexIn(bytes, 0, bytes.limit()));
+        assertEquals(-1, new HorspoolPatternMatcher(" ").indexIn(bytes, 0, bytes.limit()));
+    }
+
+    @Test
+    void testCountOccurrencesFindsNonOverlappingOccurrences() {
+        assertEquals(3, new HorspoolPatternMatcher("hello").countOccurrences("Hello hello, HELLO"));
+        assertEquals(2, new HorspoolPatternMatcher("aa").countOccurrences("aaaaa"));
+        assertEquals(0, new HorspoolPatternMatcher("hello").countOccurrences("hell"));
+        assertEquals(0, new HorspoolPatternMatcher("hello").countOccurrences(null));
+    }
+
+    @Test
+    void testCountOccurrencesAgreesWithStringPatternMatcher() {
+        Random random = new Random(7);
+        String alphabet = "abAB c";
+        for (int run = 0; run < 2000; run++) {
+            String pattern = randomString(random, alphabet, 1 + random.nextInt(3)).trim();
+            if (pattern.isEmpty()) {
+                continue;
+            }
+            String line = randomString(random, alphabet, random.nextInt(30));
+            assertEquals(new StringPatternMatcher(pattern).countOccurrences(line),
+                    new HorspoolPatternMatcher(pattern).countOccurrences(line), "pattern '" + pattern + "' line '" + line + "'");
+        }
+    }
+
+    @Test
+    void testOccurrenceEndIsOnlyKnownForAsciiPatterns() {
+        assertEquals(11, new HorspoolPatternMatcher("WORLD").occurrenceEnd(6));
+        assertEquals(-1, new HorspoolPatternMatcher("café").occurrenceEnd(6));
+    }
+}
@@ -0,0 +1,267 @@
+package org.coding.core;
+
+import org.coding.model.SearchResult;
+import org.coding.stats.SearchStatistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MappedFileProcessorTest {
+    private MappedFileProcessor mappedFileProcessor;
+
+    @Mock
+    private PatternMatcher mockPatternMatcher;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testProcessFileValidResultWhenPatternMatches() throws URISyntaxException {
+        mappedFileProcessor = new MappedFileProcessor();
+
+        when(mockPatternMatcher.match(anyString())).thenReturn(true);
+
+        Path filePath = Paths.get(getClass().getClassLoader().getResource("unit-test/sample.txt").toURI());
+
+        List<SearchResult> results = mappedFileProcessor.processFile(filePath, mockPatternMatcher);
+        assertEquals(11, results.size());
+    }
+
+    @Test
+    void testProcessFileEmptyResultWhenPatternDoesNotMatch() throws URISyntaxException {
+        mappedFileProcessor = new MappedFileProcessor();
+
+        when(mockPatternMatcher.match(anyString())).thenReturn(false);
+
+        Path path = Paths.get(getClass().getClassLoader().getResource("unit-test/sample.txt").toURI());
+
+        assertTrue(mappedFileProcessor.processFile(path, mockPatternMatcher).isEmpty());
+    }
+
+    @Test
+    void testProcessFileNullArgumentsReturnEmptyList() throws URISyntaxException {
+        mappedFileProcessor = new MappedFileProcessor();
+        Path path = Paths.get(getClass().getClassLoader().getResource("unit-test/sample.txt").toURI());
+        assertTrue(mappedFileProcessor.processFile(null, mockPatternMatcher).isEmpty());
+        assertTrue(mappedFileProcessor.processFile(path, null).isEmpty());
+    }
+
+    @Test
+    void testProcessFileWhenDirectoryIsPassedReturnsEmptyList() throws URISyntaxException {
+        mappedFileProcessor = new MappedFileProcessor();
+        when(mockPatternMatcher.match(anyString())).thenReturn(true);
+        Path path = Paths.get(getClass().getClassLoader().getResource("unit-test").toURI());
+        assertTrue(mappedFileProcessor.processFile(path, mockPatternMatcher).isEmpty());
+    }
+
+    @Test
+    void testProcessFileMatchesSequentialFileProcessor() throws URISyntaxException {
+        Path path = Paths.get(getClass().getClassLoader().getResource("unit-test/sample.txt").toURI());
+        StringPatternMatcher matcher = new StringPatternMatcher("hello");
+
+        List<SearchResult> expected = new SequentialFileProcessor().processFile(path, matcher);
+        assertEquals(expected, new MappedFileProcessor().processFile(path, matcher));
+        assertEquals(expected, new MappedFileProcessor(0, 16).processFile(path, matcher));
+    }
+
+    @Test
+    void testProcessFileHandlesMixedLineEndingsAcrossWindows() throws IOException {
+        Path file = tempDir.resolve("mixed.txt");
+        Files.writeString(file, "first hello\r\nsecond\rthird HELLO\n\nfifth\r\nsixth héllo hello\nlast hello", StandardCharsets.UTF_8);
+        StringPatternMatcher matcher = new StringPatternMatcher("hello");
+
+        List<SearchResult> expected = new SequentialFileProcessor().processFile(file, matcher);
+        assertEquals(4, expected.size());
+        for (int windowSize = 1; windowSize < 24; windowSize++) {
+            assertEquals(expected, new MappedFileProcessor(0, windowSize).processFile(file, matcher), "window size " + windowSize);
+        }
+        assertEquals(expected, new MappedFileProcessor().processFile(file, matcher));
+    }
+
+    @Test
+    void testProcessFileDecodesOnlyCandidateLines() throws IOException {
+        Path file = tempDir.resolve("candidates.txt");
+        Files.writeString(file, "nothing here\nsay hello\nnothing there\n", StandardCharsets.UTF_8);
+        StringPatternMatcher matcher = spy(new StringPatternMatcher("hello"));
+
+        List<SearchResult> results = new MappedFileProcessor().processFile(file, matcher);
+        assertEquals(List.of(new SearchResult(file, 2, "say hello")), results);
+        verify(matcher, times(1)).match(anyString());
+    }
+
+    @Test
+    void testProcessFileStopsAtMaxResultsAcrossWindows() throws IOException {
+        Path file = tempDir.resolve("limited.txt");
+        Files.writeString(file, "hello 1\nnothing\nhello 2\nhello 3\nhello 4\n", StandardCharsets.UTF_8);
+        StringPatternMatcher matcher = new StringPatternMatcher("hello");
+        ProcessingContext context = new ProcessingContext(2, () -> false);
+
+        List<SearchResult> expected = List.of(new SearchResult(file, 1, "hello 1"), new SearchResult(file, 3, "hello 2"));
+        assertEquals(expected, new MappedFileProcessor().processFile(file, matcher, context));
+        for (int windowSize = 1; windowSize < 12; windowSize++) {
+            assertEquals(expected, new MappedFileProcessor(0, windowSize).processFile(file, matcher, context), "window size " + windowSize);
+        }
+        assertTrue(new MappedFileProcessor().processFile(file, matcher, new ProcessingContext(2, () -> true)).isEmpty());
+    }
+
+    @Test
+    void testProcessFileReportsBytesSearchedAndLinesDecoded() throws IOException {
+        Path file = tempDir.resolve("counted.txt");
+        Files.writeString(file, "nothing here\nsay hello\nnothing there\n", StandardCharsets.UTF_8);
+        SearchStatistics statistics = new SearchStatistics();
+        ProcessingContext context = new ProcessingContext(10, () -> false, statistics);
+
+        new MappedFileProcessor().processFile(file, new StringPatternMatcher("hello"), context);
+        assertEquals(37, statistics.getBytesRead());
+        assertEquals(1, statistics.getLinesScanned());
+        new MappedFileProcessor(0, 8).processFile(file, new StringPatternMatcher("hello"), context);
+        assertEquals(74, statistics.getBytesRead());
+        assertEquals(2, statistics.getLinesScanned());
+    }
+
+    @Test
+    void testContextLinesMatchSequentialFileProcessorForEveryWindowSize() throws IOException {
+        Path file = tempDir.resolve("context.txt");
+        Files.writeString(file, contextText(), StandardCharsets.UTF_8);
+        StringPatternMatcher matcher = new StringPatternMatcher("hello");
+
+        for (int[] lines : new int[][]{{0, 2}, {2, 0}, {3, 3}, {1, 5}}) {
+            ProcessingContext context = new ProcessingContext(Integer.MAX_VALUE, () -> false, null, lines[0], lines[1]);
+            List<SearchResult> expected = new SequentialFileProcessor().processFile(file, matcher, context);
+            assertEquals(44, expected.size());
+            for (int windowSize : new int[]{1, 7, 64, 500, 1 << 20}) {
+                assertEquals(expected, new MappedFileProcessor(0, windowSize).processFile(file, matcher, context),
+                        "window size " + windowSize + ", context " + lines[0] + "/" + lines[1]);
+            }
+            assertEquals(expected, new MappedFileProcessor().processFile(file, matcher, context));
+        }
+    }
+
+    @Test
+    void testCountMatchesAgreesWithResultsForEveryWindowSize() throws IOException {
+        Path file = tempDir.resolve("count.txt");
+        Files.writeString(file, contextText(), StandardCharsets.UTF_8);
+
+        for (PatternMatcher matcher : countingMatchers()) {
+            List<SearchResult> results = new SequentialFileProcessor().processFile(file, matcher);
+            long occurrences = results.stream().mapToLong(result -> matcher.countOccurrences(result.getLineContent())).sum();
+            for (int windowSize : new int[]{1, 7, 64, 500, 1 << 20}) {
+                MappedFileProcessor processor = new MappedFileProcessor(0, windowSize);
+                assertEquals(results.size(), processor.countMatches(file, matcher, ProcessingContext.UNLIMITED, CountMode.LINES),
+                        matcher + ", window size " + windowSize);
+                assertEquals(occurrences, processor.countMatches(file, matcher, ProcessingContext.UNLIMITED, CountMode.OCCURRENCES),
+                        matcher + ", window size " + windowSize);
+                assertEquals(5, processor.countMatches(file, matcher, new ProcessingContext(5, () -> false), CountMode.LINES));
+            }
+            assertEquals(occurrences, new MappedFileProcessor().countMatches(file, matcher, ProcessingContext.UNLIMITED, CountMode.OCCURRENCES));
+            assertEquals(occurrences, new SequentialFileProcessor().countMatches(file, matcher, ProcessingContext.UNLIMITED, CountMode.OCCURRENCES));
+        }
+    }
+
+    @Test
+    void testCountMatchesDecodesNoLinesForAsciiPatterns() throws IOException {
+        Path file = tempDir.resolve("count.txt");
+        Files.writeString(file, "hello hello\nnothing\nsay HELLO\n", StandardCharsets.UTF_8);
+        HorspoolPatternMatcher matcher = spy(new HorspoolPatternMatcher("hello"));
+
+        assertEquals(2, new MappedFileProcessor().countMatches(file, matcher, ProcessingContext.UNLIMITED, CountMode.LINES));
+        assertEquals(3, new MappedFileProcessor().countMatches(file, matcher, ProcessingContext.UNLIMITED, CountMode.OCCURRENCES));
+        verify(matcher, never()).match(anyString());
+        verify(matcher, never()).countOccurrences(anyString());
+        assertEquals(0, new MappedFileProcessor().countMatches(null, matcher, ProcessingContext.UNLIMITED, CountMode.LINES));
+    }
+
+    /**
+     * Returns lines with matches that are alone, close together, next to each other and at both ends, with
+     * {@code \n}, {@code \r\n} and {@code \r} line breaks and no line break at the end.
+     */
+    static String contextText() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 150; i++) {
+            boolean match = i == 0 || i % 11 == 0 || i % 11 == 2 || i % 17 == 5 || i % 17 == 6 || i == 149;
+            text.append(match ? "line " + i + " says héllo hello" : "line " + i)
+                    .append(i % 5 == 0 ? "\r\n" : i % 13 == 0 ? "\r" : i == 149 ? "" : "\n");
+        }
+        return text.toString();
+    }
+
+    /**
+     * Returns matchers that count on the bytes alone and matchers that need the lines decoded, for {@link #contextText()}.
+     */
+    static List<PatternMatcher> countingMatchers() {
+        return List.of(new HorspoolPatternMatcher("llo"), new HorspoolPatternMatcher("héllo"), new StringPatternMatcher("hello"),
+                RegexPatternMatcher.compile("h.llo"), new AhoCorasickPatternMatcher(List.of("llo", "line 1")));
+    }
+
+    @Test
+    void testBinaryFilesAreSkipped() throws IOException {
+        Path file = tempDir.resolve("binary.txt");
+        byte[] content = ("hello\0\1\2 binary\n" + "hello text\n".repeat(100)).getBytes(StandardCharsets.ISO_8859_1);
+        Files.write(file, content);
+        HorspoolPatternMatcher matcher = new HorspoolPatternMatcher("hello");
+
+        // read into the buffer, and mapped in windows
+        for (MappedFileProcessor processor : List.of(new MappedFileProcessor(), new MappedFileProcessor(0, 64))) {
+            SearchStatistics statistics = new SearchStatistics();
+            ProcessingContext context = new ProcessingContext(10, () -> false, statistics);
+            assertTrue(processor.processFile(file, matcher, context).isEmpty());
+            assertEquals(0, processor.countMatches(file, matcher, context, CountMode.LINES));
+            assertEquals(0, statistics.getLinesScanned());
+        }
+    }
+
+    @Test
+    void testConcurrentReadsOfSmallFilesDoNotShareABuffer() throws Exception {
+        MappedFileProcessor processor = new MappedFileProcessor();
+        HorspoolPatternMatcher matcher = new HorspoolPatternMatcher("match");
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            Path file = tempDir.resolve("file" + i + ".txt");
+            Files.writeString(file, "skip\n".repeat(i) + "match " + i + "\n");
+            files.add(file);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<SearchResult>>> results = new ArrayList<>();
+            for (Path file : files) {
+                results.add(executor.submit(() -> processor.processFile(file, matcher)));
+            }
+            for (int i = 0; i < files.size(); i++) {
+                List<SearchResult> fileResults = results.get(i).get();
+                assertEquals(1, fileResults.size());
+                assertEquals(i + 1, fileResults.get(0).getLineNumber());
+                assertEquals("match " + i, fileResults.get(0).getLineContent());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
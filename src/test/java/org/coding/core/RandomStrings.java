@@ -0,0 +1,24 @@
+package org.coding.core;
+
+import java.util.Random;
+
+/**
+ * Random lines and patterns over a small alphabet for the differential tests of the pattern matchers, so that
+ * matches, partial matches and overlaps are frequent.
+ */
+final class RandomStrings {
+
+    private RandomStrings() {
+    }
+
+    /**
+     * @return {@code length} characters drawn from {@code alphabet}
+     */
+    static String randomString(Random random, String alphabet, int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,88 @@
+package org.coding.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RegexPatternMatcherTest {
+    private RegexPatternMatcher regexPatternMatcher;
+
+    @Test
+    void testMatcherMatchesRegularExpressionCaseInsensitively() {
+        regexPatternMatcher = new RegexPatternMatcher("user=\\d+ denied");
+        assertTrue(regexPatternMatcher.match("2024-01-01 USER=42 DENIED access"));
+        assertFalse(regexPatternMatcher.match("user=bob denied"));
+        assertFalse(regexPatternMatcher.match("denied"));
+        assertFalse(regexPatternMatcher.match(null));
+    }
+
+    @Test
+    void testMatcherMatchesExpressionsWithoutRequiredLiteral() {
+        regexPatternMatcher = new RegexPatternMatcher("\\d{3}\\s\\d{4}");
+        assertTrue(regexPatternMatcher.match("call 555 1234"));
+        assertFalse(regexPatternMatcher.match("call me"));
+        ByteBuffer bytes = ByteBuffer.wrap("call me".getBytes(StandardCharsets.UTF_8));
+        assertEquals(0, regexPatternMatcher.indexIn(bytes, 0, bytes.limit()));
+    }
+
+    @Test
+    void testMatcherUsesRequiredLiteralAsByteCandidateFilter() {
+        regexPatternMatcher = new RegexPatternMatcher("user=\\d+ denied");
+        ByteBuffer bytes = ByteBuffer.wrap("ok\nUSER=7 denied".getBytes(StandardCharsets.UTF_8));
+        assertEquals(9, regexPatternMatcher.indexIn(bytes, 0, bytes.limit()));
+        assertEquals(-1, regexPatternMatcher.indexIn(bytes, 0, 3));
+    }
+
+    @Test
+    void testRequiredLiteralExtraction() {
+        assertEquals(" denied", RegexLiterals.requiredLiteral("user=\\d+ denied"));
+        assertEquals(" error", RegexLiterals.requiredLiteral("^[a-z]+ error(s)?: .*$"));
+        assertEquals("time", RegexLiterals.requiredLiteral("times?"));
+        assertEquals("a.b", RegexLiterals.requiredLiteral("a\\.b[0-9]"));
+        assertEquals("x|",RegexLiterals.requiredLiteral("\\Qx|y\\E+"));
+        assertEquals("", RegexLiterals.requiredLiteral("foo|barbaz"));
+        assertEquals("", RegexLiterals.requiredLiteral("(?x) foo bar"));
+        assertEquals("wxyz", RegexLiterals.requiredLiteral("\\p{Lu}wxyz\\x41"));
+    }
+
+    @Test
+    void testCompileRoutesPureLiteralsToLiteralMatcher() {
+        assertInstanceOf(HorspoolPatternMatcher.class, RegexPatternMatcher.compile("hello world"));
+        assertInstanceOf(HorspoolPatternMatcher.class, RegexPatternMatcher.compile("example\\.com"));
+        assertTrue(RegexPatternMatcher.compile("example\\.com").match("test@EXAMPLE.com"));
+        assertFalse(RegexPatternMatcher.compile("example\\.com").match("test@examplexcom"));
+        assertInstanceOf(RegexPatternMatcher.class, RegexPatternMatcher.compile("example.com"));
+        assertInstanceOf(RegexPatternMatcher.class, RegexPatternMatcher.compile("hello|world"));
+    }
+
+    @Test
+    void testInvalidExpressionThrowsPatternSyntaxException() {
+        assertThrows(PatternSyntaxException.class, () -> new RegexPatternMatcher("(unclosed"));
+        assertThrows(PatternSyntaxException.class, () -> RegexPatternMatcher.compile("[a-"));
+        assertThrows(PatternSyntaxException.class, () -> RegexPatternMatcher.compile("hello)"));
+    }
+
+    @Test
+    void testGivenPrefilterIsUsedAsByteCandidateFilter() {
+        regexPatternMatcher = new RegexPatternMatcher("(?:user=\\d+)|(?:disk \\w+)",
+                new AhoCorasickPatternMatcher(List.of("user=", "disk ")));
+        ByteBuffer bytes = ByteBuffer.wrap("ok\nDISK full".getBytes(StandardCharsets.UTF_8));
+        assertTrue(regexPatternMatcher.indexIn(bytes, 0, bytes.limit()) >= 3);
+        assertEquals(-1, regexPatternMatcher.indexIn(bytes, 0, 3));
+        assertTrue(regexPatternMatcher.match("USER=7"));
+        assertFalse(regexPatternMatcher.match("user=x"));
+    }
+
+    @Test
+    void testCountOccurrencesCountsEveryMatch() {
+        regexPatternMatcher = new RegexPatternMatcher("user=\\d+");
+        assertEquals(2, regexPatternMatcher.countOccurrences("USER=1 then user=22 and user=x"));
+        assertEquals(0, regexPatternMatcher.countOccurrences("nobody"));
+        assertEquals(-1, regexPatternMatcher.occurrenceEnd(0));
+    }
+}
@@ -1,18 +1,25 @@
 package org.coding.core;
 
 import org.coding.model.SearchResult;
+import org.coding.stats.SearchStatistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class SequentialFileProcessorTest {
@@ -71,4 +78,83 @@ class SequentialFileProcessorTest {
         Path path = Paths.get(getClass().getClassLoader().getResource("unit-test").toURI());
         assertTrue(sequentialFileProcessor.processFile(path, mockPatternMatcher).isEmpty());
     }
+
+    @Test
+    void testProcessFileStopsAtMaxResultsOrWhenCancelled() throws URISyntaxException {
+        sequentialFileProcessor = new SequentialFileProcessor();
+        when(mockPatternMatcher.match(anyString())).thenReturn(true);
+        Path path = Paths.get(getClass().getClassLoader().getResource("unit-test/sample.txt").toURI());
+
+        List<SearchResult> all = sequentialFileProcessor.processFile(path, mockPatternMatcher);
+        assertEquals(all.subList(0, 3), sequentialFileProcessor.processFile(path, mockPatternMatcher, new ProcessingContext(3, () -> false)));
+        assertTrue(sequentialFileProcessor.processFile(path, mockPatternMatcher, new ProcessingContext(3, () -> true)).isEmpty());
+        verify(mockPatternMatcher, times(all.size() + 3)).match(anyString());
+    }
+
+    @Test
+    void testProcessFileReportsBytesAndLinesRead(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("counted.txt");
+        Files.writeString(file, "nothing here\nsay héllo\nnothing there\n", StandardCharsets.UTF_8);
+        SearchStatistics statistics = new SearchStatistics();
+
+        new SequentialFileProcessor().processFile(file, new StringPatternMatcher("héllo"), new ProcessingContext(10, () -> false, statistics));
+        assertEquals(38, statistics.getBytesRead());
+        assertEquals(3, statistics.getLinesScanned());
+    }
+
+    @Test
+    void testProcessFileAddsContextLines(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("context.txt");
+        Files.writeString(file, "one\ntwo hello\nthree\nfour\nfive hello\nsix hello\nseven\neight\n", StandardCharsets.UTF_8);
+
+        List<SearchResult> results = new SequentialFileProcessor().processFile(file, new StringPatternMatcher("hello"),
+                new ProcessingContext(10, () -> false, null, 2, 2));
+        assertEquals(List.of(
+                new SearchResult(file, 2, "two hello", List.of(), List.of("one"), List.of("three", "four")),
+                new SearchResult(file, 5, "five hello", List.of(), List.of("three", "four"), List.of()),
+                new SearchResult(file, 6, "six hello", List.of(), List.of("four", "five hello"), List.of("seven", "eight"))),
+                results);
+    }
+
+    @Test
+    void testProcessFileSkipsBinaryFiles(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("binary.txt");
+        Files.write(file, new byte[]{'h', 'e', 'l', 'l', 'o', 0, 1, 2, '\n', 'h', 'e', 'l', 'l', 'o', '\n'});
+        SearchStatistics statistics = new SearchStatistics();
+        ProcessingContext context = new ProcessingContext(10, () -> false, statistics);
+
+        assertTrue(new SequentialFileProcessor().processFile(file, new StringPatternMatcher("hello"), context).isEmpty());
+        assertEquals(0, new SequentialFileProcessor().countMatches(file, new StringPatternMatcher("hello"), context, CountMode.LINES));
+        assertEquals(0, statistics.getLinesScanned());
+    }
+
+    @Test
+    void testProcessFileDecodesLatin1Text(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("latin1.txt");
+        Files.writeString(file, "un café\nrien\nCAFÉ crème\n", StandardCharsets.ISO_8859_1);
+
+        List<SearchResult> results = new SequentialFileProcessor().processFile(file, new StringPatternMatcher("café"),
+                ProcessingContext.UNLIMITED);
+        assertEquals(List.of(new SearchResult(file, 1, "un café"), new SearchResult(file, 3, "CAFÉ crème")), results);
+    }
+
+    @Test
+    void testProcessFileKeepsReadingAfterMalformedUtf8(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("malformed.txt");
+        byte[] text = ("hello first\n" + "filler line\n".repeat(1000)).getBytes(StandardCharsets.UTF_8);
+        byte[] malformed = {'h', 'e', 'l', 'l', 'o', ' ', (byte) 0xFF, '\n'};
+        byte[] last = "hello last\n".getBytes(StandardCharsets.UTF_8);
+        byte[] content = new byte[text.length + malformed.length + last.length];
+        System.arraycopy(text, 0, content, 0, text.length);
+        System.arraycopy(malformed, 0, content, text.length, malformed.length);
+        System.arraycopy(last, 0, content, text.length + malformed.length, last.length);
+        Files.write(file, content);
+
+        List<SearchResult> results = new SequentialFileProcessor().processFile(file, new StringPatternMatcher("hello"),
+                ProcessingContext.UNLIMITED);
+        assertEquals(List.of(new SearchResult(file, 1, "hello first"), new SearchResult(file, 1002, "hello \uFFFD"),
+                new SearchResult(file, 1003, "hello last")), results);
+        assertEquals(3, new SequentialFileProcessor().countMatches(file, new StringPatternMatcher("hello"),
+                ProcessingContext.UNLIMITED, CountMode.LINES));
+    }
 }
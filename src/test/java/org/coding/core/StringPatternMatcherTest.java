@@ -2,9 +2,12 @@ package org.coding.core;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -80,4 +83,35 @@ public class StringPatternMatcherTest {
         stringPatternMatcher = new StringPatternMatcher("hello");
         assertFalse(stringPatternMatcher.match(null));
     }
+
+    @Test
+    void testStringMatcherFindsCaseInsensitiveCandidateInBytes() {
+        stringPatternMatcher = new StringPatternMatcher("HeLLo");
+        ByteBuffer bytes = ByteBuffer.wrap("say hello, HELLO".getBytes(StandardCharsets.UTF_8));
+        assertEquals(4, stringPatternMatcher.indexIn(bytes, 0, bytes.limit()));
+        assertEquals(11, stringPatternMatcher.indexIn(bytes, 5, bytes.limit()));
+        assertEquals(-1, stringPatternMatcher.indexIn(bytes, 12, bytes.limit()));
+    }
+
+    @Test
+    void testStringMatcherUsesAsciiRunOfNonAsciiPatternAsCandidate() {
+        stringPatternMatcher = new StringPatternMatcher("café au lait");
+        ByteBuffer bytes = ByteBuffer.wrap("un CAFÉ AU LAIT".getBytes(StandardCharsets.UTF_8));
+        assertEquals(8, stringPatternMatcher.indexIn(bytes, 0, bytes.limit()));
+    }
+
+    @Test
+    void testStringMatcherWithBlankSearchStringHasNoCandidates() {
+        stringPatternMatcher = new StringPatternMatcher(" ");
+        ByteBuffer bytes = ByteBuffer.wrap("a b c".getBytes(StandardCharsets.UTF_8));
+        assertEquals(-1, stringPatternMatcher.indexIn(bytes, 0, bytes.limit()));
+    }
+
+    @Test
+    void testStringMatcherCountsNonOverlappingOccurrences() {
+        stringPatternMatcher = new StringPatternMatcher("hello");
+        assertEquals(2, stringPatternMatcher.countOccurrences("hello, HELLO"));
+        assertEquals(2, new StringPatternMatcher("aa").countOccurrences("aaaaa"));
+        assertEquals(0, stringPatternMatcher.countOccurrences(null));
+    }
 }
@@ -0,0 +1,65 @@
+package org.coding.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VectorPatternMatcherTest {
+
+    @Test
+    void testVectorApiIsUsedWhenModuleIsEnabled() {
+        // the tests run with --add-modules jdk.incubator.vector, see the surefire configuration
+        assertEquals(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(), VectorPatternMatcher.isVectorApiAvailable());
+    }
+
+    @Test
+    void testMatchIsCaseInsensitive() {
+        VectorPatternMatcher matcher = new VectorPatternMatcher("Hello World");
+        assertTrue(matcher.match("say hello world!"));
+        assertFalse(matcher.match("hello there"));
+        assertFalse(matcher.match(null));
+        assertFalse(new VectorPatternMatcher(" ").match("a b"));
+    }
+
+    @Test
+    void testIndexInFindsFirstOccurrenceInBothCases() {
+        VectorPatternMatcher matcher = new VectorPatternMatcher("quiz");
+        String text = "a".repeat(100) + "QuIz" + "b".repeat(100) + "quiz";
+        ByteBuffer heap = ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+        ByteBuffer direct = ByteBuffer.allocateDirect(heap.capacity()).put(heap.duplicate()).flip();
+        for (ByteBuffer buffer : new ByteBuffer[]{heap, direct}) {
+            assertEquals(100, matcher.indexIn(buffer, 0, buffer.limit()));
+            assertEquals(204, matcher.indexIn(buffer, 101, buffer.limit()));
+            assertEquals(-1, matcher.indexIn(buffer, 101, 207));
+            assertEquals(-1, matcher.indexIn(buffer, 0, 103));
+        }
+    }
+
+    @Test
+    void testIndexInAgreesWithScalarSearch() {
+        Random random = new Random(11);
+        String[] searchStrings = {"x", "ab", "zebra", "a b", "é-q!", "1234567890abcdefghijklmnopqrstuvwxyz0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ"};
+        for (String searchString : searchStrings) {
+            VectorPatternMatcher vector = new VectorPatternMatcher(searchString);
+            VectorPatternMatcher scalar = new VectorPatternMatcher(searchString, false);
+            for (int round = 0; round < 200; round++) {
+                byte[] bytes = new byte[random.nextInt(300)];
+                for (int i = 0; i < bytes.length; i++) {
+                    bytes[i] = (byte) "abzxeAZBX -!q\n".charAt(random.nextInt(14));
+                }
+                if (bytes.length > searchString.length() && random.nextBoolean()) {
+                    byte[] needle = searchString.toUpperCase().getBytes(StandardCharsets.UTF_8);
+                    int at = random.nextInt(bytes.length - needle.length + 1);
+                    System.arraycopy(needle, 0, bytes, at, needle.length);
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                int from = bytes.length == 0 ? 0 : random.nextInt(bytes.length);
+                assertEquals(scalar.indexIn(buffer, from, bytes.length), vector.indexIn(buffer, from, bytes.length), searchString);
+            }
+        }
+    }
+}
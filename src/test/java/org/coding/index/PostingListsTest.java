@@ -0,0 +1,27 @@
+package org.coding.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PostingListsTest {
+
+    @Test
+    void testEncodeDecodeRoundTrip() {
+        int[] ids = {0, 1, 5, 127, 128, 16_384, 2_000_000, Integer.MAX_VALUE};
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(42);
+        PostingLists.encode(ids, ids.length, out);
+        assertArrayEquals(ids, PostingLists.decode(ByteBuffer.wrap(out.toByteArray()), 1, ids.length));
+    }
+
+    @Test
+    void testSmallGapsTakeOneByte() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PostingLists.encode(new int[]{3, 10, 20, 100}, 4, out);
+        assertEquals(4, out.size());
+    }
+}
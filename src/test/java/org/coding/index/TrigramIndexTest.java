@@ -0,0 +1,102 @@
+package org.coding.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrigramIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testCandidateFilterOnlyAcceptsFilesContainingAllTrigrams() throws IOException {
+        Path root = createCorpus();
+        TrigramIndex index = build(root);
+        assertEquals(3, index.getFileCount());
+
+        Predicate<Path> filter = index.candidateFilter(root, List.of("ERROR 42"));
+        assertTrue(filter.test(root.resolve("a.txt")));
+        assertFalse(filter.test(root.resolve("b.txt")));
+        assertTrue(filter.test(root.resolve("sub/c.txt")));
+
+        filter = index.candidateFilter(root, List.of("warning", "nothing here"));
+        assertFalse(filter.test(root.resolve("a.txt")));
+        assertTrue(filter.test(root.resolve("b.txt")));
+        assertFalse(filter.test(root.resolve("sub/c.txt")));
+    }
+
+    @Test
+    void testCandidateFilterAcceptsEverythingForShortOrEmptyLiterals() throws IOException {
+        Path root = createCorpus();
+        TrigramIndex index = build(root);
+        assertTrue(index.candidateFilter(root, List.of("xy")).test(root.resolve("b.txt")));
+        assertTrue(index.candidateFilter(root, List.of("warning", "")).test(root.resolve("a.txt")));
+    }
+
+    @Test
+    void testCandidateFilterAcceptsNewAndChangedFiles() throws IOException {
+        Path root = createCorpus();
+        TrigramIndex index = build(root);
+        Files.writeString(root.resolve("new.txt"), "nothing");
+        Files.writeString(root.resolve("b.txt"), "now an error 42 too");
+
+        Predicate<Path> filter = index.candidateFilter(root, List.of("error 42"));
+        assertTrue(filter.test(root.resolve("new.txt")));
+        assertTrue(filter.test(root.resolve("b.txt")));
+    }
+
+    @Test
+    void testUpdateOnlyReadsNewAndChangedFiles() throws IOException {
+        Path root = createCorpus();
+        Path indexDirectory = tempDir.resolve("index");
+        TrigramIndexWriter writer = new TrigramIndexWriter(root, indexDirectory, path -> path.toString().endsWith(".txt"));
+        assertEquals(3, writer.update());
+        assertEquals(0, writer.update());
+
+        Files.delete(root.resolve("a.txt"));
+        Path changed = root.resolve("b.txt");
+        Files.writeString(changed, "a warning and an error 42");
+        Files.setLastModifiedTime(changed, FileTime.fromMillis(Files.getLastModifiedTime(changed).toMillis() + 2000));
+        Files.writeString(root.resolve("d.txt"), "fresh file");
+        assertEquals(2, writer.update());
+        assertEquals(3, writer.getFileCount());
+
+        TrigramIndex index = TrigramIndex.open(indexDirectory);
+        Predicate<Path> filter = index.candidateFilter(root, List.of("error 42"));
+        assertTrue(filter.test(changed));
+        assertTrue(filter.test(root.resolve("sub/c.txt")));
+        assertFalse(filter.test(root.resolve("d.txt")));
+        assertTrue(index.candidateFilter(root, List.of("fresh")).test(root.resolve("d.txt")));
+        assertFalse(index.candidateFilter(root, List.of("fresh")).test(root.resolve("sub/c.txt")));
+    }
+
+    @Test
+    void testOpenWhenThereIsNoIndexThrowsIOException() {
+        assertThrows(IOException.class, () -> TrigramIndex.open(tempDir));
+    }
+
+    private Path createCorpus() throws IOException {
+        Path root = tempDir.resolve("root");
+        Files.createDirectories(root.resolve("sub"));
+        Files.writeString(root.resolve("a.txt"), "line one\nan Error 42 occurred\n");
+        Files.writeString(root.resolve("b.txt"), "just a WARNING\n");
+        Files.writeString(root.resolve("sub/c.txt"), "error 42\n");
+        Files.writeString(root.resolve("skipped.log"), "error 42\n");
+        return root;
+    }
+
+    private TrigramIndex build(Path root) throws IOException {
+        Path indexDirectory = tempDir.resolve("index");
+        new TrigramIndexWriter(root, indexDirectory, path -> path.toString().endsWith(".txt")).update();
+        return TrigramIndex.open(indexDirectory);
+    }
+}
@@ -0,0 +1,40 @@
+package org.coding.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrigramsTest {
+
+    @Test
+    void testLiteralTrigramsAreCaseInsensitiveAndDistinct() {
+        int[] trigrams = Trigrams.ofLiteral("abcABC");
+        assertEquals(3, trigrams.length);
+        assertArrayEquals(trigrams, Trigrams.ofLiteral("ABCabc"));
+    }
+
+    @Test
+    void testLiteralTrigramsSkipNonAsciiCharacters() {
+        assertEquals(0, Trigrams.ofLiteral("ab").length);
+        assertEquals(0, Trigrams.ofLiteral("abécd").length);
+        assertArrayEquals(Trigrams.ofLiteral("cde"), Trigrams.ofLiteral("écde"));
+    }
+
+    @Test
+    void testFileContainsTrigramsOfEveryLiteralItContains() throws IOException {
+        String text = "First line\r\nSecond LINE with café crème\nthird";
+        int[] fileTrigrams = Trigrams.of(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+        for (String literal : new String[]{"line", "café cr", "ECOND", "third"}) {
+            for (int trigram : Trigrams.ofLiteral(literal)) {
+                assertTrue(Arrays.binarySearch(fileTrigrams, trigram) >= 0, literal);
+            }
+        }
+        int[] spanningLineBreak = Trigrams.ofLiteral("ne\nSe");
+        assertEquals(0, spanningLineBreak.length);
+    }
+}
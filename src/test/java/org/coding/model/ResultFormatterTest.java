@@ -0,0 +1,39 @@
+package org.coding.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultFormatterTest {
+    private static final String NL = System.lineSeparator();
+
+    @Test
+    void testFormatMergesOverlappingContextAndSeparatesGroups() {
+        Path a = Path.of("a.txt");
+        Path b = Path.of("b.txt");
+        ResultFormatter formatter = new ResultFormatter(UnaryOperator.identity());
+
+        assertEquals("a.txt-1-one" + NL + "a.txt:2:two hello" + NL + "a.txt-3-three",
+                formatter.format(new SearchResult(a, 2, "two hello", List.of(), List.of("one"), List.of("three"))));
+        assertEquals("a.txt:4:four hello" + NL + "a.txt-5-five",
+                formatter.format(new SearchResult(a, 4, "four hello", List.of(), List.of("three"), List.of("five"))));
+        assertEquals("--" + NL + "a.txt-8-eight" + NL + "a.txt:9:nine hello",
+                formatter.format(new SearchResult(a, 9, "nine hello", List.of(), List.of("eight"), List.of())));
+        assertEquals("--" + NL + "b.txt:1:hello",
+                formatter.format(new SearchResult(b, 1, "hello")));
+        assertEquals("b.txt:2:hello again",
+                formatter.format(new SearchResult(b, 2, "hello again")));
+    }
+
+    @Test
+    void testFormatShowsPathsAsAskedFor() {
+        ResultFormatter formatter = new ResultFormatter(path -> Path.of("root").resolve(path));
+        assertEquals("root/a.txt-1-one" + NL + "root/a.txt:2:hello",
+                formatter.format(new SearchResult(Path.of("a.txt"), 2, "hello", List.of(), List.of("one"), List.of())));
+        assertThrows(IllegalArgumentException.class, () -> new ResultFormatter(null));
+    }
+}
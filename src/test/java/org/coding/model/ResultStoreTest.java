@@ -0,0 +1,136 @@
+package org.coding.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testGetReadsLinesFromTheirFiles() throws IOException {
+        Path first = Files.writeString(tempDir.resolve("a.txt"), "héllo wörld\r\nsecond line\n", StandardCharsets.UTF_8);
+        Path second = Files.writeString(tempDir.resolve("b.txt"), "\nother\n");
+        ResultStore store = new ResultStore();
+        store.add(first, 1, 0, 13, List.of());
+        store.add(second, 2, 1, 5, List.of("other"));
+        store.add(first, 2, 15, 11, null);
+        store.add(second, 1, 0, 0, List.of());
+
+        assertEquals(List.of(new SearchResult(first, 1, "héllo wörld"),
+                new SearchResult(second, 2, "other", List.of("other")),
+                new SearchResult(first, 2, "second line"),
+                new SearchResult(second, 1, "")), store);
+        assertEquals(new SearchResult(first, 1, "héllo wörld").hashCode(), store.get(0).hashCode());
+        assertEquals(List.of(first + ":1:héllo wörld", second + ":2:other", first + ":2:second line", second + ":1:"),
+                store.formatted());
+    }
+
+    @Test
+    void testLinesAreReadWhenTheyAreAskedFor() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "hello\n");
+        ResultStore store = new ResultStore();
+        store.add(file, 1, 0, 5, List.of());
+        ResultStore copy = new ResultStore();
+        copy.add(store.get(0));
+
+        Files.writeString(file, "HELLO\n");
+        assertEquals("HELLO", copy.get(0).getLineContent());
+        Files.writeString(file, "");
+        assertThrows(UncheckedIOException.class, () -> store.get(0).getLineContent());
+    }
+
+    @Test
+    void testKeptLinesAreNotCopied() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "hello\n");
+        ResultStore store = new ResultStore();
+        store.add(file, 1, 0, 5, List.of(), "hello");
+        ResultStore copy = new ResultStore();
+        copy.add(store.get(0));
+
+        Files.writeString(file, "HELLO\n");
+        assertEquals("hello", store.get(0).getLineContent());
+        assertEquals("HELLO", copy.get(0).getLineContent());
+    }
+
+    @Test
+    void testAddKeepsTheTextOfOtherResults() {
+        ResultStore store = new ResultStore();
+        store.add(new SearchResult(Path.of("missing.txt"), 3, "kept", List.of("kept")));
+        ResultStore copy = new ResultStore();
+        copy.addAll(store);
+
+        assertEquals(List.of(new SearchResult(Path.of("missing.txt"), 3, "kept", List.of("kept"))), copy);
+    }
+
+    @Test
+    void testAddGrowsAndShiftLineNumbers() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "x\n".repeat(1000));
+        ResultStore store = new ResultStore();
+        for (int i = 0; i < 1000; i++) {
+            store.add(file, i + 1, 2L * i, 1, List.of());
+        }
+        store.shiftLineNumbers(500, 10);
+
+        assertEquals(1000, store.size());
+        assertEquals(500, store.get(499).getLineNumber());
+        assertEquals(511, store.get(500).getLineNumber());
+        assertEquals("x", store.get(999).getLineContent());
+        assertThrows(IndexOutOfBoundsException.class, () -> store.get(1000));
+    }
+
+    @Test
+    void testAddRejectsInvalidResults() {
+        ResultStore store = new ResultStore();
+        assertThrows(IllegalArgumentException.class, () -> store.add(null, 1, 0, 1, List.of()));
+        assertThrows(IllegalArgumentException.class, () -> store.add(Path.of("a.txt"), 0, 0, 1, List.of()));
+        assertThrows(IllegalArgumentException.class, () -> store.add(Path.of("a.txt"), 1, -1, 1, List.of()));
+        assertThrows(IllegalArgumentException.class, () -> store.add(Path.of("a.txt"), 1, 0, -1, List.of()));
+        assertTrue(store.isEmpty());
+    }
+
+    @Test
+    void testContextIsReadFromTheFileOrKeptAsText() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "one\r\ntwo\rthree hello\nfour\n\nsix\n");
+        ResultStore store = new ResultStore();
+        store.add(file, 3, 9, 11, List.of());
+        store.setContext(0, 0, 2, 30, 3);
+        store.add(new SearchResult(Path.of("missing.txt"), 5, "kept", List.of(), List.of("a", "b"), List.of("c")));
+
+        assertEquals(List.of("one", "two"), store.get(0).getContextBefore());
+        assertEquals(List.of("four", "", "six"), store.get(0).getContextAfter());
+        assertEquals(List.of("a", "b"), store.get(1).getContextBefore());
+
+        ResultStore copy = new ResultStore();
+        copy.addAll(store);
+        copy.limitContextAfter(0, 1);
+        copy.limitContextAfter(1, 0);
+        assertEquals(List.of("four"), copy.get(0).getContextAfter());
+        assertEquals(List.of("one", "two"), copy.get(0).getContextBefore());
+        assertEquals(List.of(), copy.get(1).getContextAfter());
+        assertEquals(List.of("four", "", "six"), store.get(0).getContextAfter());
+        assertEquals(new SearchResult(file, 3, "three hello", List.of(), List.of("one", "two"), List.of("four")), copy.get(0));
+    }
+
+    @Test
+    void testSetContextRejectsRangesWithoutTheLine() {
+        ResultStore store = new ResultStore();
+        store.add(Path.of("a.txt"), 2, 10, 5, List.of());
+        store.add(new SearchResult(Path.of("b.txt"), 1, "kept"));
+        assertThrows(IllegalArgumentException.class, () -> store.setContext(0, 11, 1, 20, 1));
+        assertThrows(IllegalArgumentException.class, () -> store.setContext(0, 0, 1, 14, 1));
+        assertThrows(IllegalArgumentException.class, () -> store.setContext(0, 0, -1, 20, 1));
+        assertThrows(IllegalArgumentException.class, () -> store.setContext(1, 0, 0, 4, 0));
+        assertEquals(List.of(), store.get(0).getContextBefore());
+    }
+}
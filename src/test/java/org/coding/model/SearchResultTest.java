@@ -3,6 +3,7 @@ package org.coding.model;
 import org.junit.jupiter.api.Test;
 
 import java.nio.file.Path;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -33,4 +34,13 @@ public class SearchResultTest {
     void testSearchResultNullValueForLine() {
         assertThrows(IllegalArgumentException.class, () -> new SearchResult(Path.of("test-data"), 4, null));
     }
+
+    @Test
+    void testSearchResultMatchedPatterns() {
+        assertEquals(List.of(), new SearchResult(Path.of("test-data"), 4, "This is a test").getMatchedPatterns());
+        searchResult = new SearchResult(Path.of("test-data"), 4, "This is a test", List.of("this", "test"));
+        assertEquals(List.of("this", "test"), searchResult.getMatchedPatterns());
+        assertNotEquals(new SearchResult(Path.of("test-data"), 4, "This is a test"), searchResult);
+        assertEquals("test-data:4:This is a test", searchResult.toString());
+    }
 }
@@ -0,0 +1,95 @@
+package org.coding.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveConcurrencyTest {
+    private static final long TASK_BYTES = 1_000_000;
+
+    private long now;
+
+    @Test
+    void testLimitDoublesWhileThroughputGrowsAndThenSettles() {
+        AdaptiveConcurrency concurrency = new AdaptiveConcurrency(2, 64, () -> now);
+        // the throughput grows with the number of readers up to 16, and stays flat beyond
+        for (int window = 0; window < 20; window++) {
+            runWindow(concurrency, Math.min(concurrency.limit(), 16) * 10.0);
+        }
+        assertTrue(concurrency.limit() >= 16 && concurrency.limit() <= 17, "limit " + concurrency.limit());
+    }
+
+    @Test
+    void testLimitIsCutWhenThroughputDrops() {
+        AdaptiveConcurrency concurrency = new AdaptiveConcurrency(8, 64, () -> now);
+        runWindow(concurrency, 80);
+        assertEquals(16, concurrency.limit());
+        // a disk that thrashes with more than eight readers
+        runWindow(concurrency, 40);
+        assertEquals(12, concurrency.limit());
+        runWindow(concurrency, 60);
+        assertEquals(13, concurrency.limit());
+        runWindow(concurrency, 40);
+        assertEquals(9, concurrency.limit());
+    }
+
+    @Test
+    void testLimitStaysWithinItsBounds() {
+        AdaptiveConcurrency concurrency = new AdaptiveConcurrency(100, 4, () -> now);
+        assertEquals(4, concurrency.limit());
+        for (int window = 0; window < 5; window++) {
+            runWindow(concurrency, 100 + window * 10);
+        }
+        assertEquals(4, concurrency.limit());
+
+        AdaptiveConcurrency collapsing = new AdaptiveConcurrency(4, 4, () -> now);
+        double throughput = 100;
+        for (int window = 0; window < 8; window++) {
+            runWindow(collapsing, throughput /= 2);
+        }
+        assertEquals(1, collapsing.limit());
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrency(0, 4));
+    }
+
+    @Test
+    void testWindowNeedsTimeAndAsManyTasksAsTheLimit() {
+        AdaptiveConcurrency concurrency = new AdaptiveConcurrency(4, 64, () -> now);
+        now += AdaptiveConcurrency.MIN_WINDOW_NANOS;
+        for (int task = 0; task < 3; task++) {
+            concurrency.finished(1000, 1);
+        }
+        assertEquals(4, concurrency.limit());
+        concurrency.finished(1000, 1);
+        assertEquals(8, concurrency.limit());
+        for (int task = 0; task < 8; task++) {
+            concurrency.finished(1000, 1);
+        }
+        assertEquals(8, concurrency.limit());
+    }
+
+    @Test
+    void testMoreFilesPerSecondIsNotTakenForASlowdown() {
+        AdaptiveConcurrency concurrency = new AdaptiveConcurrency(4, 64, () -> now);
+        runWindow(concurrency, 40);
+        assertEquals(8, concurrency.limit());
+        // half the bytes per second, because the files were much smaller, but more of them
+        now += 1_000_000_000L;
+        for (int task = 0; task < 16; task++) {
+            concurrency.finished(TASK_BYTES * 20 / 16, 10);
+        }
+        assertEquals(16, concurrency.limit());
+    }
+
+    /**
+     * Finishes as many tasks of one file each as the limit, taking as long as reading them at the given throughput takes.
+     *
+     * @param megabytesPerSecond the throughput of the storage
+     */
+    private void runWindow(AdaptiveConcurrency concurrency, double megabytesPerSecond) {
+        int tasks = concurrency.limit();
+        now += (long) (tasks * TASK_BYTES / megabytesPerSecond * 1000);
+        for (int task = 0; task < tasks; task++) {
+            concurrency.finished(TASK_BYTES, 1);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.coding.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DirectoryWalkerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testWalkReturnsFilesDepthFirstInNameOrder() throws IOException {
+        createFiles("b.txt", "a/z.txt", "a/c/d.txt", "a/b.txt", "c.log", "e/f/g/h.txt", "d.txt");
+        List<String> expected = List.of("a/b.txt", "a/c/d.txt", "a/z.txt", "b.txt", "d.txt", "e/f/g/h.txt");
+
+        assertEquals(expected, walk(new DirectoryWalker(tempDir, path -> path.toString().endsWith(".txt"))));
+        assertEquals(expected, walk(new DirectoryWalker(tempDir, path -> path.toString().endsWith(".txt"), 1, 1)));
+        assertEquals(expected, walk(new DirectoryWalker(tempDir, path -> path.toString().endsWith(".txt"), 2, 0)));
+    }
+
+    @Test
+    void testWalkReportsFileSizes() throws IOException {
+        Files.createDirectories(tempDir.resolve("a"));
+        Files.writeString(tempDir.resolve("a/b.txt"), "12345");
+        Files.writeString(tempDir.resolve("c.txt"), "");
+        try (DirectoryWalker walker = new DirectoryWalker(tempDir, path -> true)) {
+            assertEquals(tempDir.resolve("a/b.txt"), walker.next());
+            assertEquals(5, walker.lastFileSize());
+            assertEquals(tempDir.resolve("c.txt"), walker.next());
+            assertEquals(0, walker.lastFileSize());
+        }
+    }
+
+    @Test
+    void testWalkOfEmptyDirectory() throws IOException {
+        Files.createDirectories(tempDir.resolve("empty/nested"));
+        try (DirectoryWalker walker = new DirectoryWalker(tempDir, path -> true)) {
+            assertFalse(walker.hasNext());
+            assertThrows(NoSuchElementException.class, walker::next);
+        }
+    }
+
+    @Test
+    void testWalkDoesNotFollowLinksToDirectories() throws IOException {
+        createFiles("real/a.txt");
+        try {
+            Files.createSymbolicLink(tempDir.resolve("link"), tempDir.resolve("real"));
+            Files.createSymbolicLink(tempDir.resolve("b.txt"), tempDir.resolve("real/a.txt"));
+        } catch (UnsupportedOperationException e) {
+            return;
+        }
+        assertEquals(List.of("b.txt", "real/a.txt"), walk(new DirectoryWalker(tempDir, path -> true)));
+    }
+
+    @Test
+    void testWalkDoesNotListRejectedOrIgnoredDirectories() throws IOException {
+        createFiles("a.txt", "node_modules/x/b.txt", "src/c.txt", "src/out/d.txt", "src/e.log", ".git/f.txt",
+                "target/g.txt", "target/keep/h.txt");
+        Files.writeString(tempDir.resolve(".gitignore"), "target/\n");
+        Files.writeString(tempDir.resolve("src/.gitignore"), "out\n");
+        Set<Path> listed = ConcurrentHashMap.newKeySet();
+        Predicate<Path> directoryFilter = directory -> {
+            listed.add(directory);
+            return !directory.getFileName().toString().equals("node_modules");
+        };
+
+        assertEquals(List.of(".gitignore", "a.txt", "src/.gitignore", "src/c.txt", "src/e.log"),
+                walk(new DirectoryWalker(tempDir, path -> true, directoryFilter, true)));
+        assertTrue(listed.contains(tempDir.resolve("node_modules")));
+        assertFalse(listed.contains(tempDir.resolve("node_modules/x")));
+        assertFalse(listed.contains(tempDir.resolve("target/keep")));
+        assertEquals(List.of("a.txt", "src/c.txt", "src/out/d.txt", "target/g.txt", "target/keep/h.txt"),
+                walk(new DirectoryWalker(tempDir, path -> path.toString().endsWith(".txt"), directoryFilter, false)));
+    }
+
+    @Test
+    void testWalkWhenRootDoesNotExistThrowsIOException() {
+        assertThrows(IOException.class, () -> new DirectoryWalker(tempDir.resolve("missing"), path -> true));
+    }
+
+    private void createFiles(String... files) throws IOException {
+        for (String file : files) {
+            Path path = tempDir.resolve(file);
+            Files.createDirectories(path.getParent());
+            Files.writeString(path, file);
+        }
+    }
+
+    private List<String> walk(DirectoryWalker walker) {
+        List<String> files = new ArrayList<>();
+        try (walker) {
+            walker.forEachRemaining(path -> files.add(tempDir.relativize(path).toString().replace('\\', '/')));
+        }
+        return files;
+    }
+}
@@ -0,0 +1,51 @@
+package org.coding.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExecutionModeTest {
+
+    @Test
+    void testFromNameAcceptsCommandLineNames() {
+        assertEquals(ExecutionMode.FIXED, ExecutionMode.fromName("fixed"));
+        assertEquals(ExecutionMode.VIRTUAL, ExecutionMode.fromName("Virtual"));
+        assertEquals(ExecutionMode.WORK_STEALING, ExecutionMode.fromName("work-stealing"));
+        assertEquals("work-stealing", ExecutionMode.WORK_STEALING.getName());
+    }
+
+    @Test
+    void testFromNameRejectsUnknownNames() {
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> ExecutionMode.fromName("cached"));
+        assertEquals("Unknown execution mode: cached (expected one of fixed, virtual, work-stealing)", exception.getMessage());
+    }
+
+    @Test
+    void testCreateExecutor() {
+        ExecutorService fixed = ExecutionMode.FIXED.createExecutor(3);
+        assertEquals(3, ((ThreadPoolExecutor) fixed).getMaximumPoolSize());
+        fixed.shutdown();
+
+        ExecutorService workStealing = ExecutionMode.WORK_STEALING.createExecutor(100);
+        assertEquals(Runtime.getRuntime().availableProcessors(), ((ForkJoinPool) workStealing).getParallelism());
+        assertEquals(Runtime.getRuntime().availableProcessors(), ExecutionMode.WORK_STEALING.parallelism(100));
+        workStealing.shutdown();
+    }
+
+    @Test
+    void testVirtualModeDependsOnRuntime() {
+        boolean virtualThreads = Runtime.version().feature() >= 21;
+        assertEquals(virtualThreads, ExecutionMode.VIRTUAL.isSupported());
+        assertTrue(ExecutionMode.FIXED.isSupported());
+        assertTrue(ExecutionMode.WORK_STEALING.isSupported());
+        if (virtualThreads) {
+            ExecutionMode.VIRTUAL.createExecutor(1).shutdown();
+        } else {
+            assertThrows(IllegalStateException.class, () -> ExecutionMode.VIRTUAL.createExecutor(1));
+        }
+    }
+}
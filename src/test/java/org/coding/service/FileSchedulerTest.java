@@ -0,0 +1,227 @@
+package org.coding.service;
+
+import org.coding.model.SearchResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileSchedulerTest {
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final List<String> started = Collections.synchronizedList(new ArrayList<>());
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testAddBatchesSmallFilesAfterTheFirstOnes() throws Exception {
+        FileScheduler<SearchResult> scheduler = new FileScheduler<>(executor, 1, 100, 3, true);
+        scheduler.add(Path.of("first.txt"), scan("first"), 1);
+        assertEquals(1, scheduler.size());
+        scheduler.add(Path.of("a.txt"), scan("a"), 10);
+        scheduler.add(Path.of("b.txt"), scan("b"), 10);
+        assertEquals(1, scheduler.size());
+        scheduler.add(Path.of("c.txt"), scan("c"), 10);
+        assertEquals(2, scheduler.size());
+        scheduler.add(Path.of("d.txt"), scan("d"), 60);
+        scheduler.add(Path.of("e.txt"), scan("e"), 50);
+        scheduler.add(Path.of("large.txt"), scan("large"), 100);
+        scheduler.add(Path.of("f.txt"), scan("f"), 1);
+        assertEquals(4, scheduler.size());
+        scheduler.flush();
+        assertEquals(5, scheduler.size());
+
+        assertEquals(List.of("first"), lines(scheduler.poll()));
+        assertEquals(List.of("a", "b", "c"), lines(scheduler.poll()));
+        assertEquals(List.of("d", "e"), lines(scheduler.poll()));
+        assertEquals(List.of("large"), lines(scheduler.poll()));
+        assertEquals(List.of("f"), lines(scheduler.poll()));
+        assertNull(scheduler.poll());
+    }
+
+    @Test
+    void testLargestWaitingTaskStartsFirst() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        FileScheduler<SearchResult> scheduler = new FileScheduler<>(executor, 1, 0, 1, true);
+        scheduler.add(Path.of("blocking.txt"), blockingScan(release), 1);
+        scheduler.add(Path.of("small.txt"), scan("small"), 10);
+        scheduler.add(Path.of("largest.txt"), scan("largest"), 1000);
+        scheduler.add(Path.of("medium.txt"), scan("medium"), 100);
+        scheduler.add(Path.of("medium too.txt"), scan("medium too"), 100);
+        release.countDown();
+
+        assertEquals(List.of("blocking"), lines(scheduler.poll()));
+        assertEquals(List.of("small"), lines(scheduler.poll()));
+        assertEquals(List.of("largest"), lines(scheduler.poll()));
+        assertEquals(List.of("medium"), lines(scheduler.poll()));
+        assertEquals(List.of("medium too"), lines(scheduler.poll()));
+        assertEquals(List.of("blocking", "largest", "medium", "medium too", "small"), started);
+    }
+
+    @Test
+    void testTasksStartInOrderWithoutSizeAwareScheduling() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        FileScheduler<SearchResult> scheduler = new FileScheduler<>(executor, 1, false, true);
+        scheduler.add(Path.of("blocking.txt"), blockingScan(release), 1);
+        scheduler.add(Path.of("small.txt"), scan("small"), 10);
+        scheduler.add(Path.of("large.txt"), scan("large"), 1000);
+        assertEquals(3, scheduler.size());
+        release.countDown();
+
+        while (!scheduler.isEmpty()) {
+            scheduler.poll().get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(List.of("blocking", "small", "large"), started);
+    }
+
+    @Test
+    void testTasksAreReturnedAsTheyFinishWithoutOrder() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService twoThreads = Executors.newFixedThreadPool(2);
+        try {
+            FileScheduler<SearchResult> scheduler = new FileScheduler<>(twoThreads, 2, 0, 1, true, false);
+            scheduler.add(Path.of("blocking.txt"), blockingScan(release), 1);
+            scheduler.add(Path.of("fast.txt"), scan("fast"), 1);
+
+            assertEquals(List.of("fast"), lines(scheduler.poll()));
+            assertFalse(scheduler.peek().isDone());
+            release.countDown();
+            assertEquals(List.of("blocking"), lines(scheduler.poll()));
+            assertTrue(scheduler.isEmpty());
+            assertNull(scheduler.poll());
+        } finally {
+            twoThreads.shutdownNow();
+        }
+    }
+
+    @Test
+    void testFailedScanFailsItsTaskOrIsSkippedInABatch() throws Exception {
+        FileScheduler<SearchResult> scheduler = new FileScheduler<>(executor, 1, 100, 10, true);
+        PrintStream err = System.err;
+        ByteArrayOutputStream warnings = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(warnings, true, StandardCharsets.UTF_8));
+        try {
+            scheduler.add(Path.of("first.txt"), () -> {
+                throw new IllegalStateException("broken");
+            }, 1);
+            scheduler.add(Path.of("a.txt"), scan("a"), 1);
+            scheduler.add(Path.of("broken.txt"), () -> {
+                throw new IllegalStateException("broken");
+            }, 1);
+            scheduler.add(Path.of("b.txt"), scan("b"), 1);
+            scheduler.flush();
+
+            ExecutionException exception = assertThrows(ExecutionException.class, () -> scheduler.poll().get(10, TimeUnit.SECONDS));
+            assertEquals("broken", exception.getCause().getMessage());
+            assertEquals(List.of("a", "b"), lines(scheduler.poll()));
+        } finally {
+            System.setErr(err);
+        }
+        assertTrue(warnings.toString(StandardCharsets.UTF_8).contains("Warning: Error processing file broken.txt: "));
+    }
+
+    @Test
+    void testCloseCancelsWaitingTasks() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        FileScheduler<SearchResult> scheduler = new FileScheduler<>(executor, 1, 0, 1, true);
+        scheduler.add(Path.of("blocking.txt"), blockingScan(release), 1);
+        scheduler.add(Path.of("waiting.txt"), scan("waiting"), 1);
+        Future<List<SearchResult>> blocking = scheduler.peek();
+        scheduler.poll();
+        Future<List<SearchResult>> waiting = scheduler.peek();
+        scheduler.close();
+        release.countDown();
+
+        assertEquals(List.of("blocking"), lines(blocking));
+        assertThrows(CancellationException.class, () -> waiting.get(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(List.of("blocking"), started);
+    }
+
+    @Test
+    void testEachGroupKeepsToItsOwnLimit() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService fourThreads = Executors.newFixedThreadPool(4);
+        try {
+            FileScheduler<SearchResult> scheduler = new FileScheduler<>(fourThreads, 4, 0, 1, false, true,
+                    () -> new AdaptiveConcurrency(1, 1));
+            scheduler.add(Path.of("blocking.txt"), blockingScan(release), 1, "slow disk");
+            scheduler.add(Path.of("slow.txt"), scan("slow"), 1, "slow disk");
+            scheduler.add(Path.of("fast.txt"), scan("fast"), 1, "fast disk");
+            scheduler.add(Path.of("fast too.txt"), scan("fast too"), 1, "fast disk");
+
+            Future<List<SearchResult>> blocking = scheduler.poll();
+            Future<List<SearchResult>> slow = scheduler.poll();
+            assertEquals(List.of("fast"), lines(scheduler.poll()));
+            assertEquals(List.of("fast too"), lines(scheduler.poll()));
+            assertFalse(slow.isDone());
+            assertFalse(started.contains("slow"));
+            release.countDown();
+            assertEquals(List.of("blocking"), lines(blocking));
+            assertEquals(List.of("slow"), lines(slow));
+        } finally {
+            fourThreads.shutdownNow();
+        }
+    }
+
+    @Test
+    void testBatchHoldsFilesOfOneGroup() throws Exception {
+        FileScheduler<SearchResult> scheduler = new FileScheduler<>(executor, 1, 100, 10, true, true,
+                () -> new AdaptiveConcurrency(1, 1));
+        scheduler.add(Path.of("first.txt"), scan("first"), 1, "a");
+        scheduler.add(Path.of("a1.txt"), scan("a1"), 1, "a");
+        scheduler.add(Path.of("a2.txt"), scan("a2"), 1, "a");
+        scheduler.add(Path.of("b1.txt"), scan("b1"), 1, "b");
+        scheduler.flush();
+
+        assertEquals(List.of("first"), lines(scheduler.poll()));
+        assertEquals(List.of("a1", "a2"), lines(scheduler.poll()));
+        assertEquals(List.of("b1"), lines(scheduler.poll()));
+    }
+
+    @Test
+    void testConstructorRejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new FileScheduler<SearchResult>(null, 1, true, true));
+        assertThrows(IllegalArgumentException.class, () -> new FileScheduler<SearchResult>(executor, 0, true, true));
+        assertThrows(IllegalArgumentException.class, () -> new FileScheduler<SearchResult>(executor, 1, -1, 1, true));
+        assertThrows(IllegalArgumentException.class, () -> new FileScheduler<SearchResult>(executor, 1, 1, 0, true));
+    }
+
+    private Callable<List<SearchResult>> scan(String line) {
+        return () -> {
+            started.add(line);
+            return List.of(new SearchResult(Path.of(line + ".txt"), 1, line));
+        };
+    }
+
+    private Callable<List<SearchResult>> blockingScan(CountDownLatch release) {
+        Callable<List<SearchResult>> scan = scan("blocking");
+        return () -> {
+            release.await(10, TimeUnit.SECONDS);
+            return scan.call();
+        };
+    }
+
+    private static List<String> lines(Future<List<SearchResult>> result) throws Exception {
+        return result.get(10, TimeUnit.SECONDS).stream().map(SearchResult::getLineContent).toList();
+    }
+}
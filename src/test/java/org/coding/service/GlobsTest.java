@@ -0,0 +1,74 @@
+package org.coding.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GlobsTest {
+
+    @Test
+    void testExtensionGlobsMatchNamesAtAnyDepthIgnoringCase() {
+        Globs globs = Globs.compile(List.of("*.java", "*.tar.gz"));
+        assertTrue(globs.matches(Path.of("A.java")));
+        assertTrue(globs.matches(Path.of("src/main/B.JAVA")));
+        assertTrue(globs.matches(Path.of("logs/old.tar.gz")));
+        assertFalse(globs.matches(Path.of("old.gz")));
+        assertFalse(globs.matches(Path.of("java")));
+        assertFalse(globs.matches(Path.of("A.javax")));
+    }
+
+    @Test
+    void testGlobsWithoutSlashMatchNamesAndGlobsWithSlashMatchPaths() {
+        Globs names = Globs.compile(List.of("node_modules", "test-?.log"));
+        assertTrue(names.matches(Path.of("node_modules")));
+        assertTrue(names.matches(Path.of("web/node_modules")));
+        assertTrue(names.matches(Path.of("logs/test-1.log")));
+        assertFalse(names.matches(Path.of("logs/test-12.log")));
+
+        Globs paths = Globs.compile(List.of("src/*.txt", "docs/**/*.md"));
+        assertTrue(paths.matches(Path.of("src/a.txt")));
+        assertFalse(paths.matches(Path.of("src/a/b.txt")));
+        assertFalse(paths.matches(Path.of("lib/src/a.txt")));
+        assertTrue(paths.matches(Path.of("docs/a.md")));
+        assertTrue(paths.matches(Path.of("docs/guide/part/a.md")));
+    }
+
+    @Test
+    void testSetsAlternativesAndQuotes() {
+        Globs globs = Globs.compile(List.of("file[0-9].txt", "tmp[!a]", "*.{log,out}", "star\\*"));
+        assertTrue(globs.matches(Path.of("file7.txt")));
+        assertFalse(globs.matches(Path.of("filex.txt")));
+        assertTrue(globs.matches(Path.of("tmpb")));
+        assertFalse(globs.matches(Path.of("tmpa")));
+        assertTrue(globs.matches(Path.of("run.log")));
+        assertTrue(globs.matches(Path.of("run.out")));
+        assertFalse(globs.matches(Path.of("run.err")));
+        assertTrue(globs.matches(Path.of("star*")));
+        assertFalse(globs.matches(Path.of("stars")));
+    }
+
+    @Test
+    void testEmptyGlobsMatchNothing() {
+        assertTrue(Globs.NONE.isEmpty());
+        assertTrue(Globs.compile(List.of()).isEmpty());
+        assertFalse(Globs.NONE.matches(Path.of("a.txt")));
+        assertFalse(Globs.compile(List.of("*.txt")).isEmpty());
+    }
+
+    @Test
+    void testCompileWhenGlobIsInvalidThrowsIllegalArgumentException() {
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> Globs.compile(null));
+        assertEquals("Globs must not be null.", exception.getMessage());
+        exception = assertThrows(IllegalArgumentException.class, () -> Globs.compile(Arrays.asList("*.txt", null)));
+        assertEquals("Globs must not be null or blank.", exception.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> Globs.compile(List.of(" ")));
+        exception = assertThrows(IllegalArgumentException.class, () -> Globs.compile(List.of("file[0-9")));
+        assertEquals("Invalid glob, a set is not closed: file[0-9", exception.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> Globs.compile(List.of("*.{log,out")));
+        assertThrows(IllegalArgumentException.class, () -> Globs.compile(List.of("trailing\\")));
+    }
+}
@@ -1,17 +1,46 @@
 package org.coding.service;
 
 
+import org.coding.core.BytePatternMatcher;
+import org.coding.core.CountMode;
 import org.coding.core.FileProcessor;
+import org.coding.core.MappedFileProcessor;
+import org.coding.core.PatternMatcher;
+import org.coding.core.ProcessingContext;
+import org.coding.index.TrigramIndex;
+import org.coding.index.TrigramIndexWriter;
+import org.coding.model.SearchResult;
+import org.coding.stats.SearchStatistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.PatternSyntaxException;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -37,6 +66,488 @@ public class GrepServiceTest {
         assertTrue(result.get(0).equals("test-data/sample0.txt:13:Email addresses like test@example.com should be searchable."));
     }
 
+    @Test
+    void testSearchWithMappedFileProcessorReturnsSameResults() {
+        grepService = new GrepService(4, "test-data", "addresses", new MappedFileProcessor());
+        List<String> result = grepService.search();
+        assertEquals(List.of("test-data/sample0.txt:13:Email addresses like test@example.com should be searchable."), result);
+    }
+
+    @Test
+    void testSearchStreamsResultsToSinkInTraversalOrder() {
+        grepService = new GrepService(1, "test-data", "line");
+        List<SearchResult> streamed = new ArrayList<>();
+        long count = grepService.search(streamed::add);
+        assertEquals(streamed.size(), count);
+        assertEquals(new GrepService(1, "test-data", "line").search(), streamed.stream().map(SearchResult::toString).toList());
+        assertFalse(streamed.isEmpty());
+    }
+
+    @Test
+    void testSearchWhenSinkIsNullThrowsIllegalArgumentException() {
+        grepService = new GrepService("test-data", "line");
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> grepService.search(null));
+        assertEquals("Result sink must not be null.", exception.getMessage());
+    }
+
+    @Test
+    void testSearchWithSeveralPatternsReportsMatchedPatterns() {
+        grepService = new GrepService(4, "test-data", List.of("addresses", "TODO", "nonexistent"), new MappedFileProcessor());
+        List<SearchResult> streamed = new ArrayList<>();
+        grepService.search(streamed::add);
+        assertEquals(2, streamed.size());
+        assertEquals(List.of("TODO"), streamed.get(0).getMatchedPatterns());
+        assertEquals(List.of("addresses"), streamed.get(1).getMatchedPatterns());
+    }
+
+    @Test
+    void testGrepServiceWhenSearchStringsAreEmptyOrContainBlankThrowsIllegalArgumentException() {
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> new GrepService(4, "test-data", List.of(), new MappedFileProcessor()));
+        assertEquals("At least one search string must be given.", exception.getMessage());
+        exception = assertThrows(IllegalArgumentException.class, () -> new GrepService(4, "test-data", List.of("hello", " "), new MappedFileProcessor()));
+        assertEquals("Search string must not be null or blank.", exception.getMessage());
+    }
+
+    @Test
+    void testSearchWithRegularExpression() {
+        grepService = new GrepService(4, "test-data", List.of("\\d{5} and \\d+"), true, new MappedFileProcessor());
+        assertEquals(List.of("test-data/sample0.txt:12:This line contains numbers: 12345 and 67890."), grepService.search());
+    }
+
+    @Test
+    void testGrepServiceWhenRegularExpressionIsInvalidThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> new GrepService(4, "test-data", List.of("(oops"), true, new MappedFileProcessor()));
+    }
+
+    @Test
+    void testSearchGivesSameResultsInEverySupportedExecutionMode() {
+        List<String> expected = new GrepService(1, "test-data", "line").search();
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            if (mode.isSupported()) {
+                grepService = new GrepService(2, "test-data", List.of("line"), false, new MappedFileProcessor(), mode);
+                assertEquals(expected, grepService.search(), mode.getName());
+            }
+        }
+    }
+
+    @Test
+    void testSearchWithTrigramIndexGivesSameResults(@TempDir Path indexDirectory) throws IOException {
+        new TrigramIndexWriter(Path.of("test-data"), indexDirectory, GrepService::isSearchableFile).update();
+        SearchOptions options = new SearchOptions().setIndex(TrigramIndex.open(indexDirectory));
+        for (String searchString : List.of("addresses", "line", "not in any file")) {
+            assertEquals(new GrepService("test-data", searchString).search(),
+                    new GrepService("test-data", List.of(searchString), options).search());
+        }
+        options.setRegex(true);
+        assertEquals(List.of("test-data/sample0.txt:12:This line contains numbers: 12345 and 67890."),
+                new GrepService("test-data", List.of("\\d{5} and \\d+"), options).search());
+    }
+
+    @Test
+    void testSeveralRegularExpressionsKeepTheByteCandidateFilter() {
+        PatternMatcher matcher = GrepService.createPatternMatcher(List.of("user=\\d+", "disk \\w+"), true);
+        ByteBuffer bytes = ByteBuffer.wrap("ok\nDISK full".getBytes(StandardCharsets.UTF_8));
+        assertTrue(((BytePatternMatcher) matcher).indexIn(bytes, 0, bytes.limit()) >= 3);
+        assertTrue(matcher.match("user=42"));
+        assertFalse(matcher.match("user=x"));
+
+        matcher = GrepService.createPatternMatcher(List.of("user=\\d+", "\\d{4}"), true);
+        assertEquals(0, ((BytePatternMatcher) matcher).indexIn(bytes, 0, bytes.limit()));
+        assertThrows(PatternSyntaxException.class,
+                () -> GrepService.createPatternMatcher(List.of("a)(?:b", "c"), true));
+    }
+
+    @Test
+    void testSearchStopsAtMaxMatches() {
+        List<String> all = new GrepService("test-data", "line").search();
+        SearchOptions options = new SearchOptions().setMaxMatchesPerFile(3);
+        assertEquals(all.subList(0, 3), new GrepService("test-data", List.of("line"), options).search());
+
+        options = new SearchOptions().setMaxMatches(2);
+        List<SearchResult> streamed = new ArrayList<>();
+        assertEquals(2, new GrepService("test-data", List.of("line"), options).search(streamed::add));
+        assertEquals(all.subList(0, 2), streamed.stream().map(SearchResult::toString).toList());
+    }
+
+    @Test
+    void testSearchesShareAnExecutorWithoutShuttingItDown() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            SearchOptions options = new SearchOptions().setThreadPoolSize(2).setExecutor(executor);
+            List<String> first = new GrepService("test-data", List.of("addresses"), options).search();
+            List<String> second = new GrepService("test-data", List.of("hello"), options).search();
+
+            assertFalse(executor.isShutdown());
+            assertEquals(List.of("test-data/sample0.txt:13:Email addresses like test@example.com should be searchable."), first);
+            assertEquals(new GrepService("test-data", "hello").search(), second);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testSearchCancelsFilesThatAreBeingReadOnceMaxMatchesIsReached(@TempDir Path root) throws IOException {
+        for (int i = 0; i < 20; i++) {
+            Files.writeString(root.resolve("file" + i + ".txt"), "hello");
+        }
+        AtomicInteger abandoned = new AtomicInteger();
+        CountDownLatch othersStarted = new CountDownLatch(3);
+        FileProcessor blockingProcessor = new FileProcessor() {
+            @Override
+            public List<SearchResult> processFile(Path filePath, PatternMatcher patternMatcher) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List<SearchResult> processFile(Path filePath, PatternMatcher patternMatcher, ProcessingContext context) {
+                if (filePath.endsWith("file0.txt")) {
+                    awaitQuietly(othersStarted);
+                    return List.of(new SearchResult(filePath, 1, "hello"));
+                }
+                othersStarted.countDown();
+                while (!context.isCancelled()) {
+                    Thread.onSpinWait();
+                }
+                abandoned.incrementAndGet();
+                return List.of(new SearchResult(filePath, 1, "hello"));
+            }
+        };
+        SearchOptions options = new SearchOptions().setThreadPoolSize(4).setFileProcessor(blockingProcessor).setMaxMatches(1);
+        List<String> results = new GrepService(root.toString(), List.of("hello"), options).search();
+
+        assertEquals(List.of(root.resolve("file0.txt") + ":1:hello"), results);
+        // the other three threads were reading files when the search was cancelled, and the thread that read file0 may
+        // have picked up one more; the files waiting in the queue were not read
+        assertTrue(abandoned.get() == 3 || abandoned.get() == 4, "abandoned " + abandoned.get());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void testSearchRecordsStatistics(@TempDir Path root) throws IOException {
+        Files.writeString(root.resolve("a.txt"), "hello\nworld\n");
+        Files.writeString(root.resolve("b.txt"), "hello again\n");
+        Files.writeString(root.resolve("c.log"), "hello\n");
+        SearchStatistics statistics = new SearchStatistics();
+        SearchOptions options = new SearchOptions().setThreadPoolSize(2).setStatistics(statistics);
+
+        new GrepService(root.toString(), List.of("hello"), options).search();
+        new GrepService(root.toString(), List.of("hello"), options).search();
+        assertEquals(2, statistics.getSearches());
+        assertEquals(6, statistics.getFilesDiscovered());
+        assertEquals(2, statistics.getFilesSkipped());
+        assertEquals(4, statistics.getFilesScanned());
+        assertEquals(2 * 24, statistics.getBytesRead());
+        assertEquals(4, statistics.getMatches());
+        assertEquals(0, statistics.getQueueDepth());
+        assertTrue(statistics.getMaxQueueDepth() >= 1);
+        assertEquals(4, statistics.getScanLatency().getCount());
+    }
+
+    @Test
+    void testSearchCorrectsQueueDepthForCancelledFiles(@TempDir Path root) throws IOException {
+        for (int i = 0; i < 20; i++) {
+            Files.writeString(root.resolve("file" + i + ".txt"), "hello");
+        }
+        SearchStatistics statistics = new SearchStatistics();
+        SearchOptions options = new SearchOptions().setThreadPoolSize(1).setMaxMatches(1).setStatistics(statistics);
+
+        new GrepService(root.toString(), List.of("hello"), options).search();
+        assertEquals(1, statistics.getMatches());
+        assertEquals(0, statistics.getQueueDepth());
+    }
+
+    @Test
+    void testSearchReadsCompressedTextFiles(@TempDir Path root) throws IOException {
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(root.resolve("a.txt.gz")))) {
+            out.write("hello\n".getBytes(StandardCharsets.UTF_8));
+        }
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(root.resolve("b.log.gz")))) {
+            out.write("hello\n".getBytes(StandardCharsets.UTF_8));
+        }
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(root.resolve("c.zip")))) {
+            zip.putNextEntry(new ZipEntry("notes.txt"));
+            zip.write("say hello\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals(List.of(root.resolve("a.txt.gz") + ":1:hello", root.resolve("c.zip").resolve("notes.txt") + ":1:say hello"),
+                new GrepService(2, root.toString(), "hello").search());
+        SearchOptions options = new SearchOptions().setFileProcessor(new MappedFileProcessor());
+        assertTrue(new GrepService(root.toString(), List.of("hello"), options).search().isEmpty());
+    }
+
+    @Test
+    void testSearchResultsDoNotDependOnTheFilesAfterTheSearch(@TempDir Path root) throws IOException {
+        Path file = root.resolve("large.txt");
+        // larger than the files whose lines are kept as they are read
+        Files.writeString(file, "filler line\n".repeat(50_000) + "hello at the end\n");
+
+        List<String> results = new GrepService(root.toString(), "hello").search();
+        Files.delete(file);
+
+        assertEquals(List.of(file + ":50001:hello at the end"), results);
+    }
+
+    @Test
+    void testDefaultProcessorsDecodeLatin1Files(@TempDir Path root) throws IOException {
+        Files.write(root.resolve("latin1.txt"), "before\ncaf\u00e9 hello\nna\u00efve after\n".getBytes(StandardCharsets.ISO_8859_1));
+
+        assertEquals(List.of(root.resolve("latin1.txt") + ":2:caf\u00e9 hello"),
+                new GrepService(root.toString(), "CAF\u00c9").search());
+        List<SearchResult> results = new ArrayList<>();
+        new GrepService(root.toString(), List.of("hello"), new SearchOptions().setLinesBefore(1).setLinesAfter(1)).search(results::add);
+        assertEquals(1, results.size());
+        assertEquals("caf\u00e9 hello", results.get(0).getLineContent());
+        assertEquals(List.of("na\u00efve after"), results.get(0).getContextAfter());
+    }
+
+    @Test
+    void testSearchAddsContextLines(@TempDir Path root) throws IOException {
+        Files.writeString(root.resolve("a.txt"), "one\ntwo hello\nthree\nfour\n");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(root.resolve("b.txt.gz")))) {
+            out.write("hello\nafter\n".getBytes(StandardCharsets.UTF_8));
+        }
+        List<SearchResult> results = new ArrayList<>();
+        new GrepService(root.toString(), List.of("hello"), new SearchOptions().setLinesBefore(1).setLinesAfter(2)).search(results::add);
+
+        assertEquals(2, results.size());
+        assertEquals(List.of("one"), results.get(0).getContextBefore());
+        assertEquals(List.of("three", "four"), results.get(0).getContextAfter());
+        assertEquals(List.of(), results.get(1).getContextBefore());
+        assertEquals(List.of("after"), results.get(1).getContextAfter());
+
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> new GrepService(root.toString(), List.of("hello"), new SearchOptions().setLinesAfter(-1)));
+        assertEquals("Context lines must not be negative.", exception.getMessage());
+    }
+
+    @Test
+    void testCountHandsFilesWithMatchesToTheSinkInOrder(@TempDir Path root) throws IOException {
+        Files.writeString(root.resolve("a.txt"), "hello hello\nnothing\nHELLO\n");
+        Files.writeString(root.resolve("b.txt"), "nothing at all\n");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(root.resolve("c.txt.gz")))) {
+            out.write("hello\nhello, hello, hello\n".getBytes(StandardCharsets.UTF_8));
+        }
+        SearchStatistics statistics = new SearchStatistics();
+        GrepService grepService = new GrepService(root.toString(), List.of("hello"), new SearchOptions().setStatistics(statistics));
+
+        List<String> counts = new ArrayList<>();
+        assertEquals(4, grepService.count(CountMode.LINES, (file, count) -> counts.add(root.relativize(file) + ":" + count)));
+        assertEquals(List.of("a.txt:2", "c.txt.gz:2"), counts);
+        assertEquals(4, statistics.getMatches());
+        counts.clear();
+        assertEquals(7, grepService.count(CountMode.OCCURRENCES, (file, count) -> counts.add(root.relativize(file) + ":" + count)));
+        assertEquals(List.of("a.txt:3", "c.txt.gz:4"), counts);
+
+        counts.clear();
+        GrepService limited = new GrepService(root.toString(), List.of("hello"), new SearchOptions().setMaxMatches(3));
+        assertEquals(3, limited.count(CountMode.LINES, (file, count) -> counts.add(root.relativize(file) + ":" + count)));
+        assertEquals(List.of("a.txt:2", "c.txt.gz:1"), counts);
+
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> grepService.count(null, (file, count) -> { }));
+        assertEquals("Count mode must not be null.", exception.getMessage());
+        exception = assertThrows(IllegalArgumentException.class, () -> grepService.count(CountMode.LINES, null));
+        assertEquals("Count sink must not be null.", exception.getMessage());
+    }
+
+    @Test
+    void testSearchWithoutOrderedOutputDeliversTheSameResultsPerFile(@TempDir Path root) throws IOException {
+        for (int i = 0; i < 30; i++) {
+            Files.writeString(root.resolve("file" + i + ".txt"), "hello " + i + "\nnothing\nhello again " + i + "\n");
+        }
+        List<SearchResult> ordered = new ArrayList<>();
+        new GrepService(root.toString(), List.of("hello"), new SearchOptions().setThreadPoolSize(4)).search(ordered::add);
+        List<SearchResult> unordered = new ArrayList<>();
+        new GrepService(root.toString(), List.of("hello"), new SearchOptions().setThreadPoolSize(4).setOrderedOutput(false))
+                .search(unordered::add);
+
+        assertEquals(60, unordered.size());
+        assertEquals(Set.copyOf(ordered), Set.copyOf(unordered));
+        for (int i = 0; i < unordered.size(); i += 2) {
+            assertEquals(unordered.get(i).getFilePath(), unordered.get(i + 1).getFilePath());
+            assertEquals(1, unordered.get(i).getLineNumber());
+        }
+    }
+
+    @Test
+    void testSearchWithAdaptiveConcurrencyGivesSameResults(@TempDir Path root) throws IOException {
+        for (int i = 0; i < 200; i++) {
+            Files.writeString(root.resolve("file" + i + ".txt"), ("nothing\n".repeat(i * 10)) + "hello " + i + "\n");
+        }
+        List<String> expected = new GrepService(root.toString(), List.of("hello"), new SearchOptions().setThreadPoolSize(8)).search();
+        List<String> adaptive = new GrepService(root.toString(), List.of("hello"),
+                new SearchOptions().setThreadPoolSize(8).setAdaptiveConcurrency(true)).search();
+
+        assertEquals(200, adaptive.size());
+        assertEquals(expected, adaptive);
+    }
+
+    @Test
+    void testSearchWithIncludeAndExcludeGlobsAndIgnoreFiles(@TempDir Path root) throws IOException {
+        for (String file : List.of("a.txt", "b.java", "src/c.java", "src/d.txt", "build/e.java", "src/gen/f.java")) {
+            Files.createDirectories(root.resolve(file).getParent());
+            Files.writeString(root.resolve(file), "hello\n");
+        }
+        Files.writeString(root.resolve(".gitignore"), "gen/\n");
+
+        assertEquals(List.of("a.txt", "src/d.txt"), searchedFiles(root, new SearchOptions()));
+        assertEquals(List.of("b.java", "build/e.java", "src/c.java", "src/gen/f.java"),
+                searchedFiles(root, new SearchOptions().setIncludeGlobs(List.of("*.java"))));
+        assertEquals(List.of("a.txt", "b.java", "src/c.java", "src/d.txt"), searchedFiles(root, new SearchOptions()
+                .setIncludeGlobs(List.of("*.java", "*.txt")).setExcludeGlobs(List.of("build")).setIgnoreFiles(true)));
+        assertEquals(List.of("src/c.java"),
+                searchedFiles(root, new SearchOptions().setIncludeGlobs(List.of("src/*")).setExcludeGlobs(List.of("*.txt"))));
+    }
+
+    @Test
+    void testListFilesListsTheFilesASearchWalks(@TempDir Path root, @TempDir Path indexDirectory) throws IOException {
+        for (String file : List.of("a.txt", "b.java", "src/c.java", "build/e.java", "src/gen/f.java")) {
+            Files.createDirectories(root.resolve(file).getParent());
+            Files.writeString(root.resolve(file), "hello\n");
+        }
+        Files.writeString(root.resolve(".gitignore"), "gen/\n");
+        SearchOptions options = new SearchOptions().setIncludeGlobs(List.of("*.java")).setExcludeGlobs(List.of("build"))
+                .setIgnoreFiles(true);
+
+        List<Path> files = GrepService.listFiles(root.toString(), options);
+        TrigramIndexWriter writer = new TrigramIndexWriter(root, indexDirectory, () -> GrepService.listFiles(root.toString(), options));
+        writer.update();
+
+        assertEquals(List.of(root.resolve("b.java"), root.resolve("src/c.java")), files);
+        assertEquals(searchedFiles(root, options), List.of("b.java", "src/c.java"));
+        assertEquals(2, writer.getFileCount());
+        assertEquals(2, TrigramIndex.open(indexDirectory).getFileCount());
+    }
+
+    @Test
+    void testIncludeGlobsMatchCompressedFilesByTheirDecompressedName(@TempDir Path root) throws IOException {
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(root.resolve("app.log.gz")))) {
+            out.write("hello\n".getBytes(StandardCharsets.UTF_8));
+        }
+        Files.writeString(root.resolve("app.log"), "hello\n");
+
+        assertEquals(List.of("app.log", "app.log.gz"),
+                searchedFiles(root, new SearchOptions().setIncludeGlobs(List.of("*.log"))));
+        assertEquals(List.of("app.log"), searchedFiles(root,
+                new SearchOptions().setIncludeGlobs(List.of("*.log")).setFileProcessor(new MappedFileProcessor())));
+    }
+
+    @Test
+    void testGrepServiceWhenGlobIsInvalidThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new GrepService("test-data", List.of("hello"), new SearchOptions().setExcludeGlobs(List.of("[abc"))));
+    }
+
+    @Test
+    void testWatchReportsOnlyNewMatchesOfChangedFiles(@TempDir Path root) throws Exception {
+        Path log = root.resolve("app.log");
+        Files.writeString(log, "hello one\n");
+        GrepService service = new GrepService(root.toString(), List.of("hello"),
+                new SearchOptions().setThreadPoolSize(2).setIncludeGlobs(List.of("app.log*")).setExcludeGlobs(List.of("skipped")));
+        BlockingQueue<String> found = new LinkedBlockingQueue<>();
+        Semaphore caughtUp = new Semaphore(0);
+        Thread watcher = new Thread(() -> service.watch(
+                result -> found.add(root.relativize(result.getFilePath()) + ":" + result.getLineNumber() + ":" + result.getLineContent()),
+                caughtUp::release));
+        watcher.start();
+        try {
+            assertTrue(caughtUp.tryAcquire(10, TimeUnit.SECONDS));
+            assertEquals("app.log:1:hello one", found.poll());
+
+            Files.writeString(log, "nothing\nhello two\nhello thr", StandardOpenOption.APPEND);
+            assertEquals("app.log:3:hello two", found.poll(10, TimeUnit.SECONDS));
+            Files.writeString(log, "ee\n", StandardOpenOption.APPEND);
+            assertEquals("app.log:4:hello three", found.poll(10, TimeUnit.SECONDS));
+
+            Files.move(log, root.resolve("app.log.1"));
+            Files.writeString(log, "hello fresh\n");
+            Files.writeString(root.resolve("app.log.1"), "hello late\n", StandardOpenOption.APPEND);
+            Set<String> rotated = Set.of(found.poll(10, TimeUnit.SECONDS), found.poll(10, TimeUnit.SECONDS));
+            assertEquals(Set.of("app.log:1:hello fresh", "app.log.1:5:hello late"), rotated);
+
+            Files.createDirectories(root.resolve("skipped"));
+            Files.writeString(root.resolve("skipped/app.log"), "hello skipped\n");
+            Files.createDirectories(root.resolve("new/deeper"));
+            Files.writeString(root.resolve("new/deeper/app.log"), "hello new\n");
+            assertEquals(Path.of("new", "deeper", "app.log") + ":1:hello new", found.poll(10, TimeUnit.SECONDS));
+            Files.writeString(root.resolve("new/deeper/app.log"), "hello again\n", StandardOpenOption.APPEND);
+            assertEquals(Path.of("new", "deeper", "app.log") + ":2:hello again", found.poll(10, TimeUnit.SECONDS));
+            assertNull(found.poll(200, TimeUnit.MILLISECONDS));
+        } finally {
+            watcher.interrupt();
+            watcher.join(10_000);
+        }
+        assertFalse(watcher.isAlive());
+    }
+
+    @Test
+    void testWatchSearchesCompressedFilesInTheFirstSearch(@TempDir Path root) throws Exception {
+        Files.writeString(root.resolve("a.txt"), "hello plain\n");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(root.resolve("b.txt.gz")))) {
+            out.write("hello one\nnothing\nhello two\nhello three\n".getBytes(StandardCharsets.UTF_8));
+        }
+        GrepService service = new GrepService(root.toString(), List.of("hello"), new SearchOptions().setThreadPoolSize(2));
+        BlockingQueue<String> found = new LinkedBlockingQueue<>();
+        Semaphore caughtUp = new Semaphore(0);
+        Thread watcher = new Thread(() -> service.watch(
+                result -> found.add(root.relativize(result.getFilePath()) + ":" + result.getLineNumber() + ":" + result.getLineContent()),
+                caughtUp::release));
+        watcher.start();
+        try {
+            assertTrue(caughtUp.tryAcquire(10, TimeUnit.SECONDS));
+            assertEquals(List.of("a.txt:1:hello plain", "b.txt.gz:1:hello one", "b.txt.gz:3:hello two", "b.txt.gz:4:hello three"),
+                    List.of(found.poll(), found.poll(), found.poll(), found.poll()));
+            assertNull(found.poll());
+
+            Files.writeString(root.resolve("a.txt"), "hello again\n", StandardOpenOption.APPEND);
+            assertEquals("a.txt:2:hello again", found.poll(10, TimeUnit.SECONDS));
+        } finally {
+            watcher.interrupt();
+            watcher.join(10_000);
+        }
+        assertFalse(watcher.isAlive());
+    }
+
+    @Test
+    void testWatchWithLimitsOrContextThrowsIllegalArgumentException() {
+        GrepService limited = new GrepService("test-data", List.of("hello"), new SearchOptions().setMaxMatchesPerFile(1));
+        assertThrows(IllegalArgumentException.class, () -> limited.watch(result -> { }, () -> { }));
+        GrepService withContext = new GrepService("test-data", List.of("hello"), new SearchOptions().setLinesAfter(1));
+        assertThrows(IllegalArgumentException.class, () -> withContext.watch(result -> { }, () -> { }));
+        GrepService service = new GrepService("test-data", "hello");
+        assertThrows(IllegalArgumentException.class, () -> service.watch(null, () -> { }));
+        assertThrows(IllegalArgumentException.class, () -> service.watch(result -> { }, null));
+    }
+
+    @Test
+    void testGrepServiceWhenMaxMatchesIsInvalidThrowsIllegalArgumentException() {
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> new GrepService("test-data", List.of("hello"), new SearchOptions().setMaxMatchesPerFile(0)));
+        assertEquals("Maximum number of matches must be positive.", exception.getMessage());
+    }
+
+    @Test
+    void testGrepServiceWhenExecutionModeIsInvalidThrowsIllegalArgumentException() {
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> new GrepService(4, "test-data", List.of("hello"), false, new MappedFileProcessor(), null));
+        assertEquals("Execution mode must not be null.", exception.getMessage());
+        exception = assertThrows(IllegalArgumentException.class,
+                () -> new GrepService(0, "test-data", List.of("hello"), false, new MappedFileProcessor(), ExecutionMode.FIXED));
+        assertEquals("Thread pool size must be positive.", exception.getMessage());
+    }
+
+    @Test
+    void testGrepServiceWhenFileProcessorIsNullThrowsIllegalArgumentException() {
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> new GrepService(4, "test-data", "hello", null));
+        assertEquals("File processor must not be null.", exception.getMessage());
+    }
+
     @Test
     void testSearchWhenFileProcessorDoesNotReturnSearchResultsForNonTextFile() {
         grepService = new GrepService("test-data", "unique");
@@ -83,4 +594,11 @@ public class GrepServiceTest {
         Exception exception = assertThrows(IllegalArgumentException.class, () -> new GrepService(tempFile.getAbsolutePath(), "hello"));
         assertEquals("Error: '"+tempFile.getAbsolutePath()+"' is not a directory.", exception.getMessage());
     }
+
+    private static List<String> searchedFiles(Path root, SearchOptions options) {
+        List<String> files = new ArrayList<>();
+        new GrepService(root.toString(), List.of("hello"), options)
+                .search(result -> files.add(root.relativize(result.getFilePath()).toString().replace(File.separatorChar, '/')));
+        return files;
+    }
 }
@@ -0,0 +1,64 @@
+package org.coding.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IgnoreRulesTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRulesMatchAtAnyDepthUnlessAnchored() throws IOException {
+        Files.writeString(tempDir.resolve(".gitignore"), "# build output\n*.log\n/target\nbuild/\n\ndocs/*.tmp\n");
+        IgnoreRules rules = IgnoreRules.NONE.forDirectory(tempDir);
+
+        assertTrue(rules.isIgnored(tempDir.resolve("a.log"), false));
+        assertTrue(rules.isIgnored(tempDir.resolve("src/deep/a.log"), false));
+        assertTrue(rules.isIgnored(tempDir.resolve("target"), true));
+        assertFalse(rules.isIgnored(tempDir.resolve("src/target"), true));
+        assertTrue(rules.isIgnored(tempDir.resolve("src/build"), true));
+        assertFalse(rules.isIgnored(tempDir.resolve("src/build"), false));
+        assertTrue(rules.isIgnored(tempDir.resolve("docs/a.tmp"), false));
+        assertFalse(rules.isIgnored(tempDir.resolve("docs/sub/a.tmp"), false));
+        assertFalse(rules.isIgnored(tempDir.resolve("A.LOG"), false));
+        assertFalse(rules.isIgnored(tempDir.resolve("a.txt"), false));
+    }
+
+    @Test
+    void testLastMatchingRuleWinsAndDeeperFilesTakePrecedence() throws IOException {
+        Files.writeString(tempDir.resolve(".gitignore"), "*.log\n!keep.log\n");
+        Files.createDirectories(tempDir.resolve("sub"));
+        Files.writeString(tempDir.resolve("sub/.ignore"), "keep.log\n!debug.log\n");
+        IgnoreRules root = IgnoreRules.NONE.forDirectory(tempDir);
+        IgnoreRules sub = root.forDirectory(tempDir.resolve("sub"));
+
+        assertFalse(root.isIgnored(tempDir.resolve("keep.log"), false));
+        assertTrue(root.isIgnored(tempDir.resolve("debug.log"), false));
+        assertTrue(sub.isIgnored(tempDir.resolve("sub/keep.log"), false));
+        assertFalse(sub.isIgnored(tempDir.resolve("sub/debug.log"), false));
+        assertTrue(sub.isIgnored(tempDir.resolve("sub/other.log"), false));
+    }
+
+    @Test
+    void testDirectoriesWithoutIgnoreFilesShareTheRulesAbove() throws IOException {
+        Files.createDirectories(tempDir.resolve("sub"));
+        assertSame(IgnoreRules.NONE, IgnoreRules.NONE.forDirectory(tempDir));
+        Files.writeString(tempDir.resolve(".gitignore"), "*.log\n");
+        IgnoreRules root = IgnoreRules.NONE.forDirectory(tempDir);
+        assertSame(root, root.forDirectory(tempDir.resolve("sub")));
+    }
+
+    @Test
+    void testGitDirectoriesAreAlwaysIgnored() {
+        assertTrue(IgnoreRules.NONE.isIgnored(tempDir.resolve(".git"), true));
+        assertTrue(IgnoreRules.NONE.isIgnored(tempDir.resolve("sub/.git"), true));
+        assertFalse(IgnoreRules.NONE.isIgnored(tempDir.resolve(".git"), false));
+    }
+}
@@ -0,0 +1,98 @@
+package org.coding.service;
+
+import org.coding.model.SearchResult;
+import org.coding.stats.SearchStatistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryBatcherTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testQueriesWithinTheWindowShareOneSearch() throws Exception {
+        Files.writeString(tempDir.resolve("a.txt"), "error one\nwarning two\n");
+        SearchStatistics statistics = new SearchStatistics();
+        List<SearchResult> errors = new CopyOnWriteArrayList<>();
+        List<SearchResult> warnings = new CopyOnWriteArrayList<>();
+
+        try (QueryBatcher batcher = new QueryBatcher(tempDir.toString(),
+                new SearchOptions().setStatistics(statistics), Duration.ofMillis(500))) {
+            CompletableFuture<Long> first = batcher.submit(List.of("error"), errors::add);
+            CompletableFuture<Long> second = batcher.submit(List.of("warning"), warnings::add);
+
+            assertEquals(1, first.get(10, TimeUnit.SECONDS));
+            assertEquals(1, second.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, statistics.getSearches());
+        assertEquals("error one", errors.get(0).getLineContent());
+        assertEquals("warning two", warnings.get(0).getLineContent());
+    }
+
+    @Test
+    void testQueriesAfterABatchRunInTheNextOne() throws Exception {
+        Files.writeString(tempDir.resolve("a.txt"), "error one\n");
+        SearchStatistics statistics = new SearchStatistics();
+
+        try (QueryBatcher batcher = new QueryBatcher(tempDir.toString(),
+                new SearchOptions().setStatistics(statistics), Duration.ZERO)) {
+            assertEquals(1, batcher.submit(List.of("error"), result -> { }).get(10, TimeUnit.SECONDS));
+            assertEquals(0, batcher.submit(List.of("missing"), result -> { }).get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(2, statistics.getSearches());
+    }
+
+    @Test
+    void testCloseRunsSubmittedQueriesAndRejectsNewOnes() throws IOException {
+        Files.writeString(tempDir.resolve("a.txt"), "error one\n");
+        QueryBatcher batcher = new QueryBatcher(tempDir.toString(), new SearchOptions(), Duration.ofHours(1));
+        CompletableFuture<Long> future = batcher.submit(List.of("error"), result -> { });
+
+        batcher.close();
+
+        assertEquals(1, future.getNow(-1L));
+        assertThrows(IllegalStateException.class, () -> batcher.submit(List.of("error"), result -> { }));
+    }
+
+    @Test
+    void testFailingSinkFailsOnlyItsQuery() throws Exception {
+        Files.writeString(tempDir.resolve("a.txt"), "error one\nerror two\n");
+        QueryBatcher batcher = new QueryBatcher(tempDir.toString(), new SearchOptions(), Duration.ofHours(1));
+        CompletableFuture<Long> failing = batcher.submit(List.of("error"), result -> {
+            throw new IllegalStateException("sink failed");
+        });
+        CompletableFuture<Long> other = batcher.submit(List.of("one"), result -> { });
+
+        batcher.close();
+
+        ExecutionException e = assertThrows(ExecutionException.class, failing::get);
+        assertEquals("sink failed", e.getCause().getMessage());
+        assertEquals(1, other.getNow(-1L));
+    }
+
+    @Test
+    void testInvalidArgumentsThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new QueryBatcher(tempDir.toString(), new SearchOptions(), null));
+        assertThrows(IllegalArgumentException.class,
+                () -> new QueryBatcher(tempDir.toString(), new SearchOptions(), Duration.ofMillis(-1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> new QueryBatcher(tempDir.resolve("missing").toString(), new SearchOptions(), Duration.ZERO));
+        try (QueryBatcher batcher = new QueryBatcher(tempDir.toString(), new SearchOptions(), Duration.ZERO)) {
+            assertThrows(IllegalArgumentException.class, () -> batcher.submit(List.of(""), result -> { }));
+        }
+    }
+}
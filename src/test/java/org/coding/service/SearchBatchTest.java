@@ -0,0 +1,129 @@
+package org.coding.service;
+
+import org.coding.core.MappedFileProcessor;
+import org.coding.model.SearchResult;
+import org.coding.stats.SearchStatistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchBatchTest {
+
+    @TempDir
+    Path tempDir;
+
+    private void createFiles() throws IOException {
+        Files.writeString(tempDir.resolve("a.txt"), "error one\nwarning two\nerror and warning\ninfo\n");
+        Files.createDirectories(tempDir.resolve("sub"));
+        Files.writeString(tempDir.resolve("sub/b.txt"), "nothing\nWARNING three\ndebug error\n");
+    }
+
+    @Test
+    void testEachQueryGetsTheResultsOfItsOwnSearch() throws IOException {
+        createFiles();
+        List<List<String>> queries = List.of(List.of("error"), List.of("warning", "info"), List.of("missing"));
+        SearchBatch batch = new SearchBatch(tempDir.toString(), new SearchOptions().setThreadPoolSize(2));
+        List<List<SearchResult>> results = new ArrayList<>();
+        for (List<String> query : queries) {
+            List<SearchResult> queryResults = new ArrayList<>();
+            results.add(queryResults);
+            batch.add(query, queryResults::add);
+        }
+
+        long[] counts = batch.run();
+
+        for (int i = 0; i < queries.size(); i++) {
+            List<SearchResult> expected = new ArrayList<>();
+            new GrepService(tempDir.toString(), queries.get(i), new SearchOptions().setThreadPoolSize(2)).search(expected::add);
+            assertEquals(expected, results.get(i));
+            assertEquals(expected.size(), counts[i]);
+        }
+        assertEquals(List.of("warning"), results.get(1).get(1).getMatchedPatterns());
+        assertEquals(List.of(), results.get(0).get(0).getMatchedPatterns());
+    }
+
+    @Test
+    void testBatchReadsEachFileOnce() throws IOException {
+        createFiles();
+        SearchStatistics statistics = new SearchStatistics();
+        SearchBatch batch = new SearchBatch(tempDir.toString(), new SearchOptions()
+                .setFileProcessor(new MappedFileProcessor())
+                .setStatistics(statistics));
+        List<SearchResult> errors = new ArrayList<>();
+        List<SearchResult> warnings = new ArrayList<>();
+        batch.add(List.of("error"), errors::add);
+        batch.add(List.of("warning"), warnings::add);
+        batch.add(List.of("three"), result -> { });
+
+        assertArrayEquals(new long[]{3, 3, 1}, batch.run());
+        assertEquals(1, statistics.getSearches());
+        assertEquals(2, statistics.getFilesScanned());
+        assertEquals(List.of(1, 3, 3), errors.stream().map(SearchResult::getLineNumber).toList());
+    }
+
+    @Test
+    void testBatchOfRegularExpressions() throws IOException {
+        createFiles();
+        SearchBatch batch = new SearchBatch(tempDir.toString(), new SearchOptions().setRegex(true));
+        List<String> lines = new ArrayList<>();
+        List<String> anywhere = new ArrayList<>();
+        batch.add(List.of("^error\\b"), result -> lines.add(result.getLineContent()));
+        batch.add(List.of("^.{4}$"), result -> anywhere.add(result.getLineContent()));
+
+        assertArrayEquals(new long[]{2, 1}, batch.run());
+        assertEquals(List.of("error one", "error and warning"), lines);
+        assertEquals(List.of("info"), anywhere);
+        assertThrows(PatternSyntaxException.class, () -> batch.add(List.of("(unclosed"), result -> { }));
+    }
+
+    @Test
+    void testFailingSinkStopsOnlyItsOwnQuery() throws IOException {
+        createFiles();
+        SearchBatch batch = new SearchBatch(tempDir.toString(), new SearchOptions());
+        List<SearchResult> warnings = new ArrayList<>();
+        List<SearchResult> delivered = new ArrayList<>();
+        IllegalStateException failure = new IllegalStateException("sink failed");
+        batch.add(List.of("error"), result -> {
+            delivered.add(result);
+            throw failure;
+        });
+        batch.add(List.of("warning"), warnings::add);
+
+        assertArrayEquals(new long[]{0, 3}, batch.run());
+        assertEquals(1, delivered.size());
+        assertSame(failure, batch.failure(0));
+        assertNull(batch.failure(1));
+        assertEquals(3, warnings.size());
+    }
+
+    @Test
+    void testEmptyBatchSearchesNothing() {
+        SearchStatistics statistics = new SearchStatistics();
+        SearchBatch batch = new SearchBatch(tempDir.toString(), new SearchOptions().setStatistics(statistics));
+
+        assertEquals(0, batch.run().length);
+        assertEquals(0, statistics.getSearches());
+    }
+
+    @Test
+    void testInvalidArgumentsThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> new SearchBatch(null, new SearchOptions()));
+        assertThrows(IllegalArgumentException.class, () -> new SearchBatch(tempDir.toString(), null));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SearchBatch(tempDir.toString(), new SearchOptions().setMaxMatches(1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SearchBatch(tempDir.toString(), new SearchOptions().setLinesAfter(1)));
+        SearchBatch batch = new SearchBatch(tempDir.toString(), new SearchOptions());
+        assertThrows(IllegalArgumentException.class, () -> batch.add(List.of(" "), result -> { }));
+        assertThrows(IllegalArgumentException.class, () -> batch.add(List.of("error"), null));
+        assertEquals(0, batch.size());
+    }
+}
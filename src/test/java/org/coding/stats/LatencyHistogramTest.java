@@ -0,0 +1,55 @@
+package org.coding.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    void testEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMeanNanos());
+        assertEquals(0, histogram.getPercentileNanos(99));
+    }
+
+    @Test
+    void testPercentilesAreBucketUpperBoundsCappedAtMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.record(100);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(5_000);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(90 * 100 + 10 * 5_000, histogram.getTotalNanos());
+        assertEquals(590, histogram.getMeanNanos());
+        assertEquals(127, histogram.getPercentileNanos(50));
+        assertEquals(127, histogram.getPercentileNanos(90));
+        assertEquals(5_000, histogram.getPercentileNanos(99));
+        assertEquals(5_000, histogram.getMaxNanos());
+    }
+
+    @Test
+    void testExtremeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(0, histogram.getPercentileNanos(100));
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.getPercentileNanos(100));
+        assertEquals(0, histogram.getPercentileNanos(0));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getPercentileNanos(101));
+    }
+
+    @Test
+    void testRecordFromManyThreads() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        IntStream.range(0, 100_000).parallel().forEach(histogram::record);
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(99_999, histogram.getMaxNanos());
+    }
+}
@@ -0,0 +1,75 @@
+package org.coding.stats;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchStatisticsTest {
+
+    @Test
+    void testRecordedCountersAddUp() {
+        SearchStatistics statistics = new SearchStatistics();
+        statistics.recordFileDiscovered(true);
+        statistics.recordFileDiscovered(false);
+        statistics.recordFileQueued();
+        statistics.recordFileQueued();
+        statistics.recordFileStarted(2_000_000);
+        statistics.recordFileScanned(3_000_000);
+        statistics.recordScanned(100, 4);
+        statistics.recordMatches(2);
+        statistics.recordWalk(1_000_000);
+        statistics.recordOutput(1_000_000);
+        statistics.recordSearch(10_000_000);
+
+        assertEquals(1, statistics.getSearches());
+        assertEquals(2, statistics.getFilesDiscovered());
+        assertEquals(1, statistics.getFilesSkipped());
+        assertEquals(1, statistics.getFilesScanned());
+        assertEquals(100, statistics.getBytesRead());
+        assertEquals(4, statistics.getLinesScanned());
+        assertEquals(2, statistics.getMatches());
+        assertEquals(1, statistics.getQueueDepth());
+        assertEquals(2, statistics.getMaxQueueDepth());
+        assertEquals(1, statistics.getWalkMillis());
+        assertEquals(2, statistics.getQueueWaitMillis());
+        assertEquals(3, statistics.getScanMillis());
+        assertEquals(1, statistics.getOutputMillis());
+        assertEquals(10, statistics.getWallMillis());
+        assertEquals(3000, statistics.getScanLatencyMaxMicros());
+
+        statistics.recordFilesCancelled(1);
+        assertEquals(0, statistics.getQueueDepth());
+    }
+
+    @Test
+    void testJsonAndSummary() {
+        SearchStatistics statistics = new SearchStatistics();
+        statistics.recordFileDiscovered(true);
+        statistics.recordFileScanned(1_500);
+        statistics.recordMatches(3);
+        assertEquals("{\"searches\":0,\"files\":{\"discovered\":1,\"skipped\":0,\"scanned\":1},\"bytesRead\":0,\"linesScanned\":0,"
+                        + "\"matches\":3,\"queueDepth\":{\"current\":0,\"max\":0},"
+                        + "\"phaseNanos\":{\"walk\":0,\"queueWait\":0,\"scan\":1500,\"output\":0,\"wall\":0},"
+                        + "\"scanLatencyNanos\":{\"count\":1,\"mean\":1500,\"p50\":1500,\"p90\":1500,\"p99\":1500,\"max\":1500}}",
+                statistics.toJson());
+        assertTrue(statistics.toSummary().contains("Matches:         3"));
+    }
+
+    @Test
+    void testRegisterMBean() throws Exception {
+        SearchStatistics statistics = new SearchStatistics();
+        statistics.recordMatches(7);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = statistics.registerMBean("test");
+        try {
+            assertEquals(7L, server.getAttribute(name, "Matches"));
+            assertThrows(IllegalArgumentException.class, () -> new SearchStatistics().registerMBean("test"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}